@@ -9,13 +9,131 @@ repositories {
     mavenCentral()
 }
 
+/* Kalkulatortjenesten kjører forespørsler på virtuelle tråder, som krever Java 21. */
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+}
+
+/* Egen kildemappe for JMH-ytelsestester, som ser hovedkoden men ikke testene. */
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation: Configuration by configurations.getting {
+    extendsFrom(configurations.implementation.get())
+}
+
 dependencies {
     testImplementation(platform("org.junit:junit-bom:5.11.2"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
     implementation("org.json:json:20240303")
     implementation("io.github.cdimascio:dotenv-java:3.0.2")
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+/* DagsatsKjerne bruker Vector API, som fortsatt er en inkubatormodul og må legges til eksplisitt.
+Uten modulen ved kjøring faller kjernen tilbake til en vanlig løkke. */
+val vektormodul = listOf("--add-modules", "jdk.incubator.vector")
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(vektormodul)
+}
+
+tasks.withType<JavaExec>().configureEach {
+    jvmArgs(vektormodul)
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+    jvmArgs(vektormodul)
+    /* Målingene er av som standard, men slås på i testene så målepunktene blir kjørt. */
+    systemProperty("dagpenger.metrikker", "true")
+}
+
+/* Resultatet fra siste kjøring, og grunnlinjen det sammenlignes mot. */
+val jmhResultat = layout.buildDirectory.file("reports/jmh/resultat.json")
+val jmhGrunnlinje = layout.projectDirectory.file("ytelse/grunnlinje.json")
+
+/*
+ * Kjører ytelsestestene med gjennomstrømning, snittid og allokering (gc-profilering).
+ * Et utvalg kan kjøres med for eksempel: gradle jmh -Pjmh.inkluder=KalkulatorBenchmark
+ */
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Kjører JMH-ytelsestestene og skriver resultatet til build/reports/jmh."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    doFirst { jmhResultat.get().asFile.parentFile.mkdirs() }
+    args(listOfNotNull(
+        project.findProperty("jmh.inkluder")?.toString(),
+        "-bm", "thrpt,avgt",
+        "-tu", "ns",
+        "-prof", "gc",
+        "-jvmArgsAppend", vektormodul.joinToString("="),
+        "-rf", "json",
+        "-rff", jmhResultat.get().asFile.absolutePath
+    ))
+}
+
+/* Sammenligner siste kjøring med grunnlinjen. */
+tasks.register<JavaExec>("jmhSammenlign") {
+    group = "benchmark"
+    description = "Sammenligner siste JMH-kjøring med lagret grunnlinje."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("no.nav.ytelse.SammenlignMedGrunnlinje")
+    args(jmhGrunnlinje.asFile.absolutePath, jmhResultat.get().asFile.absolutePath)
+}
+
+/* Lagrer siste kjøring som ny grunnlinje. */
+tasks.register<Copy>("jmhLagreGrunnlinje") {
+    group = "benchmark"
+    description = "Lagrer siste JMH-kjøring som grunnlinje i ytelse/grunnlinje.json."
+    from(jmhResultat) { rename { "grunnlinje.json" } }
+    into(jmhGrunnlinje.asFile.parentFile)
+}
+
+/*
+ * Lasttest av kalkulatortjenesten på en lokal port.
+ * Varighet og antall klienter kan settes med for eksempel: gradle lasttest -Plasttest.args="30 128"
+ */
+tasks.register<JavaExec>("lasttest") {
+    group = "benchmark"
+    description = "Starter kalkulatortjenesten lokalt og måler forespørsler per sekund og svartider."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("no.nav.ytelse.TjenesteLasttest")
+    args((project.findProperty("lasttest.args")?.toString() ?: "10 64").split(" "))
+}
+
+/*
+ * Lastdriver for hele flyten med en syntetisk befolkning: innlegging, kalkulering og saksbehandling.
+ * Antall personer, tråder og laveste godkjente personer per sekund kan settes med for eksempel:
+ * gradle lastdriver -Plastdriver.args="2000000 8 500000"
+ */
+tasks.register<JavaExec>("lastdriver") {
+    group = "benchmark"
+    description = "Kjører en syntetisk befolkning gjennom kalkulering og saksbehandling, og måler kapasiteten."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("no.nav.ytelse.Lastdriver")
+    systemProperty("dagpenger.metrikker", "true")
+    args((project.findProperty("lastdriver.args")?.toString() ?: "1000000").split(" "))
+}
+
+/*
+ * Batchkjøring av en fil med årslønner i flere prosesser, med sjekkpunkter.
+ * For eksempel: gradle batch -Pbatch.args="kjør årslønner.csv deler 8 resultater.csv"
+ */
+tasks.register<JavaExec>("batch") {
+    group = "application"
+    description = "Kalkulerer en fil med årslønner i flere deler og slår sammen resultatene."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("no.nav.innlesing.Batchkjøring")
+    workingDir = project.projectDir
+    args((project.findProperty("batch.args")?.toString() ?: "").split(" ").filter { it.isNotEmpty() })
+}
@@ -0,0 +1,66 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagsatsKjerne;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+
+/**
+ * Måler <code>DagsatsKjerne</code> med vektorinstruksjoner mot den vanlige løkken, for kolonner med
+ * blandede utfall slik at forgreningene i løkken ikke kan forutsies. Tidene er per person.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DagsatsKjerneBenchmark {
+
+    private static final int ANTALL = 4096;
+
+    /* Andel av personene med siste årslønn over 6G, i prosent. */
+    @Param({"10", "50"})
+    public int andelOverMaks;
+
+    private final GrunnbeløpVerktøy verktøy = LokaltGrunnbeløp.verktøy();
+    private final long[] siste = new long[ANTALL];
+    private final long[] sum = new long[ANTALL];
+    private final long[] beregninger = new long[ANTALL];
+
+    @Setup
+    public void settOpp() {
+        SplittableRandom tilfeldig = new SplittableRandom(42);
+        long maks = this.verktøy.hentMaksÅrligDagpengegrunnlagØre();
+        for (int person = 0; person < ANTALL; person++) {
+            this.siste[person] = tilfeldig.nextInt(100) < this.andelOverMaks
+                    ? maks + tilfeldig.nextLong(50_000_000)
+                    : tilfeldig.nextLong(maks);
+            this.sum[person] = this.siste[person] + tilfeldig.nextLong(2 * maks);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ANTALL)
+    public long[] vektor() {
+        DagsatsKjerne.beregn(this.siste, this.sum, this.verktøy, this.beregninger);
+        return this.beregninger;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ANTALL)
+    public long[] skalar() {
+        DagsatsKjerne.beregnSkalar(this.siste, this.sum, this.verktøy, this.beregninger);
+        return this.beregninger;
+    }
+}
@@ -0,0 +1,40 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Måler hva det koster å opprette <code>GrunnbeløpVerktøy</code> og <code>DagpengerKalkulator</code>
+ * når grunnbeløpet hentes fra det felles mellomlageret med en lokal erstatning for API-et.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrunnbeløpBenchmark {
+
+    @Setup
+    public void settOpp() {
+        LokaltGrunnbeløp.installer();
+    }
+
+    @Benchmark
+    public GrunnbeløpVerktøy opprettGrunnbeløpVerktøy() {
+        return new GrunnbeløpVerktøy();
+    }
+
+    @Benchmark
+    public DagpengerKalkulator opprettDagpengerKalkulator() {
+        return new DagpengerKalkulator();
+    }
+}
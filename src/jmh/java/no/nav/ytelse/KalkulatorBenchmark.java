@@ -0,0 +1,59 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.årslønn.Årslønn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Måler reglene i <code>DagpengerKalkulator</code> for en person med ferdig innlagte årslønner.
+ * Personene dekker de tre utfallene: vanlig innvilgelse, makssats og avslag.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KalkulatorBenchmark {
+
+    @Param({"INNVILGET", "INNVILGET_MED_MAKSSATS", "AVSLAG_FOR_LAV_INNTEKT"})
+    public String utfall;
+
+    private DagpengerKalkulator dagpengerKalkulator;
+
+    @Setup
+    public void settOpp() {
+        this.dagpengerKalkulator = new DagpengerKalkulator(LokaltGrunnbeløp.verktøy());
+        double sisteÅrslønn = switch (this.utfall) {
+            case "INNVILGET" -> 550000;
+            case "INNVILGET_MED_MAKSSATS" -> 830000;
+            default -> 80000;
+        };
+        this.dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2024, sisteÅrslønn));
+        this.dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2023, 24000));
+        this.dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 110000));
+    }
+
+    @Benchmark
+    public double kalkulerDagsats() {
+        return this.dagpengerKalkulator.kalkulerDagsats();
+    }
+
+    @Benchmark
+    public boolean harRettigheterTilDagpenger() {
+        return this.dagpengerKalkulator.harRettigheterTilDagpenger();
+    }
+
+    @Benchmark
+    public double summerNyligeÅrslønner() {
+        return this.dagpengerKalkulator.summerNyligeÅrslønner(3);
+    }
+}
@@ -0,0 +1,189 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Saksbehandler;
+import no.nav.dagpenger.Saksbehandlingskø;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+import no.nav.årslønn.SyntetiskBefolkning;
+import no.nav.årslønn.Årslønn;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lastdriver for hele flyten, med en syntetisk befolkning fra <code>SyntetiskBefolkning</code> og det lokale grunnbeløpet.
+ *
+ * Hver person går gjennom det samme som i produksjon: årslønnene legges inn i en ny <code>DagpengerKalkulator</code>,
+ * dagsatsen kalkuleres til et <code>Resultat</code>, og resultatet legges i en <code>Saksbehandlingskø</code>
+ * der én saksbehandler per spesialisering behandler det. Driveren skriver ut personer per sekund,
+ * persentiler for tiden fra innlegging til resultatet står i køen, tiden i GC og høyeste bruk av heapen.
+ *
+ * Argumenter: antall personer (standard 1000000), antall kalkulatortråder (standard antall prosessorkjerner),
+ * og laveste godkjente antall personer per sekund (standard 0). Kommer kjøringen under grensen, avslutter driveren
+ * med feilkode, så et fall i kapasitet stopper byggejobben før det når produksjon.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class Lastdriver {
+
+    private static final long FRØ = 42;
+    /* Hvor mange resultater en saksbehandler henter om gangen. */
+    private static final int SAKSBEHANDLER_GRUPPE = 256;
+
+    private Lastdriver() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int antallPersoner = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int antallTråder = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        double lavestePerSekund = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+
+        LokaltGrunnbeløp.installer();
+        SyntetiskBefolkning befolkning = new SyntetiskBefolkning(FRØ, LokaltGrunnbeløp.GRUNNBELØP);
+
+        /* Oppvarming, så JIT-kompilatoren har kompilert flyten før målingen starter. */
+        kjør(befolkning, Math.min(antallPersoner, 200_000), antallTråder, Metrikker.histogram("lastdriver.oppvarming"),
+                new long[Spesialisering.values().length]);
+
+        Histogram kalkulering = Metrikker.histogram("lastdriver.kalkulering");
+        long[] perSpesialisering = new long[Spesialisering.values().length];
+        long gcAntallFør = hentGcAntall();
+        long gcTidFør = hentGcTidMillis();
+        List<MemoryPoolMXBean> heap = hentHeap();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        kjør(befolkning, antallPersoner, antallTråder, kalkulering, perSpesialisering);
+        double varighet = (System.nanoTime() - start) / 1e9;
+
+        double perSekund = antallPersoner / varighet;
+        System.out.printf("%d personer på %d tråder i %.1f s: %.0f personer/s%n", antallPersoner, antallTråder, varighet, perSekund);
+        System.out.printf("innlegging til kø ns: p50=%d p99=%d p999=%d maks=%d%n", kalkulering.getP50(),
+                kalkulering.getP99(), kalkulering.getP999(), kalkulering.getMaks());
+        if (Metrikker.AKTIVERT) {
+            Histogram ventetid = Metrikker.histogram("saksbehandling.ventetid");
+            System.out.printf("ventetid i kø µs: p50=%d p99=%d p999=%d maks=%d%n", ventetid.getP50() / 1000,
+                    ventetid.getP99() / 1000, ventetid.getP999() / 1000, ventetid.getMaks() / 1000);
+        }
+        for (Spesialisering spesialisering : Spesialisering.values()) {
+            System.out.printf("%s: %d%n", spesialisering, perSpesialisering[spesialisering.ordinal()]);
+        }
+        /* Summen av toppene i hvert minneområde, som kan være litt høyere enn den faktiske toppen for hele heapen. */
+        long toppHeap = 0;
+        for (MemoryPoolMXBean område : heap) {
+            toppHeap += område.getPeakUsage().getUsed();
+        }
+        System.out.printf("gc: %d samlinger, %d ms; høyeste heap: %d MB%n",
+                hentGcAntall() - gcAntallFør, hentGcTidMillis() - gcTidFør, toppHeap >> 20);
+
+        if (perSekund < lavestePerSekund) {
+            System.out.printf("Under grensen på %.0f personer/s.%n", lavestePerSekund);
+            System.exit(1);
+        }
+    }
+
+    /* Kalkulerer personene på gitt antall tråder, mens saksbehandlerne tømmer køen, og venter til alt er behandlet.
+    Antall behandlede per spesialisering legges i perSpesialisering. */
+    private static void kjør(SyntetiskBefolkning befolkning, int antallPersoner, int antallTråder, Histogram kalkulering,
+                             long[] perSpesialisering) throws Exception {
+        Saksbehandlingskø kø = new Saksbehandlingskø();
+        AtomicBoolean kalkulert = new AtomicBoolean();
+        LongAdder kalkulerte = new LongAdder();
+        Spesialisering[] spesialiseringer = Spesialisering.values();
+
+        ExecutorService saksbehandlere = Executors.newFixedThreadPool(spesialiseringer.length);
+        List<Future<Long>> behandlet = new ArrayList<>();
+        for (Spesialisering spesialisering : spesialiseringer) {
+            Saksbehandler saksbehandler = new Saksbehandler(spesialisering);
+            behandlet.add(saksbehandlere.submit(() -> {
+                long antall = 0;
+                while (true) {
+                    /* Leses før køen, så ingen resultater lagt til etter at køen var tom blir glemt. */
+                    boolean ferdig = kalkulert.get();
+                    int gruppe = saksbehandler.behandleUbehandledeResultater(kø, SAKSBEHANDLER_GRUPPE);
+                    antall += gruppe;
+                    if (gruppe == 0) {
+                        if (ferdig) {
+                            return antall;
+                        }
+                        Thread.sleep(1);
+                    }
+                }
+            }));
+        }
+
+        try (ExecutorService kalkulatorer = Executors.newFixedThreadPool(antallTråder)) {
+            for (int tråd = 0; tråd < antallTråder; tråd++) {
+                long første = 1 + (long) antallPersoner * tråd / antallTråder;
+                long etterSiste = 1 + (long) antallPersoner * (tråd + 1) / antallTråder;
+                kalkulatorer.submit(() -> {
+                    for (long personId = første; personId < etterSiste; personId++) {
+                        /* Historikken lages utenfor målingen, som om den kom inn over nettverket. */
+                        Årslønn[] årslønner = befolkning.generer(personId);
+                        long start = System.nanoTime();
+                        DagpengerKalkulator kalkulator = new DagpengerKalkulator();
+                        for (Årslønn årslønn : årslønner) {
+                            kalkulator.leggTilÅrslønn(årslønn);
+                        }
+                        Resultat resultat = kalkulator.kalkulerResultat();
+                        kø.leggTil(resultat);
+                        kalkulering.registrerTidSiden(start);
+                    }
+                    kalkulerte.add(etterSiste - første);
+                });
+            }
+        }
+        kalkulert.set(true);
+        long antallBehandlet = 0;
+        for (int i = 0; i < spesialiseringer.length; i++) {
+            long antall = behandlet.get(i).get();
+            perSpesialisering[i] += antall;
+            antallBehandlet += antall;
+        }
+        saksbehandlere.shutdown();
+
+        /* Feilhåndtering: Kaster unntak hvis noen resultater ble borte på veien. */
+        if (antallBehandlet != kalkulerte.sum() || kalkulerte.sum() != antallPersoner) {
+            throw new IllegalStateException("Kalkulerte " + kalkulerte.sum() + " personer, men behandlet " + antallBehandlet + ".");
+        }
+    }
+
+    private static List<MemoryPoolMXBean> hentHeap() {
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean område : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (område.getType() == MemoryType.HEAP) {
+                heap.add(område);
+            }
+        }
+        return heap;
+    }
+
+    private static long hentGcAntall() {
+        long antall = 0;
+        for (GarbageCollectorMXBean samler : ManagementFactory.getGarbageCollectorMXBeans()) {
+            antall += Math.max(0, samler.getCollectionCount());
+        }
+        return antall;
+    }
+
+    private static long hentGcTidMillis() {
+        long tid = 0;
+        for (GarbageCollectorMXBean samler : ManagementFactory.getGarbageCollectorMXBeans()) {
+            tid += Math.max(0, samler.getCollectionTime());
+        }
+        return tid;
+    }
+}
@@ -0,0 +1,31 @@
+package no.nav.ytelse;
+
+import no.nav.grunnbeløp.FastGrunnbeløpKilde;
+import no.nav.grunnbeløp.GrunnbeløpCache;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+
+import java.time.Duration;
+
+/**
+ * Lokal erstatning for NAV sitt grunnbeløp API, slik at ytelsestestene ikke måler nettverket.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+final class LokaltGrunnbeløp {
+
+    /* Grunnbeløpet fra 1. mai 2024. */
+    static final double GRUNNBELØP = 124028;
+
+    private LokaltGrunnbeløp() {
+    }
+
+    /* Setter det felles mellomlageret til å bruke det lokale grunnbeløpet. */
+    static void installer() {
+        GrunnbeløpCache.settStandard(new GrunnbeløpCache(new FastGrunnbeløpKilde(GRUNNBELØP), Duration.ofDays(1)));
+    }
+
+    static GrunnbeløpVerktøy verktøy() {
+        return new GrunnbeløpVerktøy(GRUNNBELØP);
+    }
+}
@@ -0,0 +1,67 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Månedsinntekt;
+import no.nav.årslønn.MånedsinntektRegister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.YearMonth;
+
+/**
+ * Måler kalkulering rett fra <code>MånedsinntektRegister</code> med økende lengde på historikken, og hva det
+ * koster å legge inn en ny måned og en korreksjon av en måned for et halvt år siden.
+ * Kalkuleringen skal ta like lang tid uansett hvor mange år personen har inntekter for.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MånedsinntektBenchmark {
+
+    @Param({"3", "20", "40"})
+    public int antallÅr;
+
+    private final GrunnbeløpVerktøy grunnbeløpVerktøy = LokaltGrunnbeløp.verktøy();
+    private MånedsinntektRegister register;
+    private YearMonth søknadsmåned;
+    private Månedsinntekt nyMåned;
+    private Månedsinntekt[] korreksjoner;
+    private int neste;
+
+    @Setup
+    public void settOpp() {
+        this.register = new MånedsinntektRegister();
+        this.søknadsmåned = YearMonth.of(2024, 1);
+        for (YearMonth måned = this.søknadsmåned.minusYears(this.antallÅr); måned.isBefore(this.søknadsmåned); måned = måned.plusMonths(1)) {
+            this.register.leggTil(new Månedsinntekt(måned, 40000 + måned.getMonthValue() * 100));
+        }
+        this.nyMåned = new Månedsinntekt(this.søknadsmåned, 45000);
+        /* To ulike beløp om hverandre, så hver korreksjon faktisk endrer summene. */
+        this.korreksjoner = new Månedsinntekt[] {new Månedsinntekt(this.søknadsmåned.minusMonths(6), 41000),
+                new Månedsinntekt(this.søknadsmåned.minusMonths(6), 42000)};
+    }
+
+    @Benchmark
+    public Resultat kalkulerResultat() {
+        return DagpengerKalkulator.kalkulerResultat(this.register, this.søknadsmåned, this.grunnbeløpVerktøy);
+    }
+
+    @Benchmark
+    public MånedsinntektRegister leggTilNyMånedOgKorreksjon() {
+        this.register.leggTil(this.nyMåned);
+        this.register.leggTil(this.korreksjoner[this.neste ^= 1]);
+        return this.register;
+    }
+}
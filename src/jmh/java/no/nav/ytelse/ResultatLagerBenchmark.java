@@ -0,0 +1,99 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.ResultatLager;
+import no.nav.dagpenger.Spesialisering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Sammenligner gjennomgang av alle resultatene i en spesialisering, som <code>Resultat</code>-objekter og
+ * i et <code>ResultatLager</code>. Objektene stokkes, slik de ligger etter å ha gått gjennom en kø,
+ * så gjennomgangen følger pekere rundt i heapen.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ResultatLagerBenchmark {
+
+    @Param({"4000000"})
+    public int antall;
+
+    private Resultat[] resultater;
+    private ResultatLager lager;
+
+    @Setup
+    public void settOpp() {
+        Random tilfeldig = new Random(42);
+        this.resultater = new Resultat[this.antall];
+        this.lager = new ResultatLager(this.antall);
+        for (int plass = 0; plass < this.antall; plass++) {
+            int trekk = tilfeldig.nextInt(10);
+            Spesialisering spesialisering = trekk < 6 ? Spesialisering.INNVILGET
+                    : trekk < 7 ? Spesialisering.INNVILGET_MED_MAKSSATS : Spesialisering.AVSLAG_FOR_LAV_INNTEKT;
+            int dagsats = spesialisering == Spesialisering.AVSLAG_FOR_LAV_INNTEKT ? 0 : 1000 + tilfeldig.nextInt(1864);
+            this.resultater[plass] = new Resultat(plass + 1, dagsats, spesialisering);
+            this.lager.leggTil(plass + 1, dagsats, spesialisering);
+        }
+        for (int plass = this.antall - 1; plass > 0; plass--) {
+            int bytt = tilfeldig.nextInt(plass + 1);
+            Resultat resultat = this.resultater[plass];
+            this.resultater[plass] = this.resultater[bytt];
+            this.resultater[bytt] = resultat;
+        }
+    }
+
+    @Benchmark
+    public int tellObjekter() {
+        int antallLike = 0;
+        for (Resultat resultat : this.resultater) {
+            if (resultat.hentSpesialisering() == Spesialisering.INNVILGET_MED_MAKSSATS) {
+                antallLike++;
+            }
+        }
+        return antallLike;
+    }
+
+    @Benchmark
+    public int tellLager() {
+        return this.lager.tell(Spesialisering.INNVILGET_MED_MAKSSATS);
+    }
+
+    @Benchmark
+    public double summerDagsatserObjekter() {
+        double sum = 0;
+        for (Resultat resultat : this.resultater) {
+            if (resultat.hentSpesialisering() == Spesialisering.INNVILGET) {
+                sum += resultat.hentBeregnetDagsats();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long summerDagsatserLager() {
+        return this.lager.summerDagsatser(Spesialisering.INNVILGET);
+    }
+
+    @Benchmark
+    public long finnAlleILager() {
+        long sum = 0;
+        for (int plass = this.lager.finnNeste(Spesialisering.INNVILGET_MED_MAKSSATS, 0); plass >= 0;
+             plass = this.lager.finnNeste(Spesialisering.INNVILGET_MED_MAKSSATS, plass + 1)) {
+            sum += plass;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,53 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Saksbehandler;
+import no.nav.dagpenger.Spesialisering;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Måler <code>Saksbehandler.behandleResultat</code> for resultater innenfor og utenfor spesialiseringen.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaksbehandlerBenchmark {
+
+    private Saksbehandler saksbehandler;
+    private Resultat innenforSpesialisering;
+    private Resultat utenforSpesialisering;
+
+    @Setup
+    public void settOpp() {
+        this.saksbehandler = new Saksbehandler(Spesialisering.INNVILGET);
+        this.utenforSpesialisering = new Resultat(0, Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+    }
+
+    /* Et resultat kan bare behandles én gang, så hvert kall får et nytt, ubehandlet resultat.
+    Ellers måles bare veien der resultatet allerede er behandlet. */
+    @Setup(Level.Invocation)
+    public void nyttResultat() {
+        this.innenforSpesialisering = new Resultat(2116, Spesialisering.INNVILGET);
+    }
+
+    @Benchmark
+    public boolean behandleResultatInnenforSpesialisering() {
+        return this.saksbehandler.behandleResultat(this.innenforSpesialisering);
+    }
+
+    @Benchmark
+    public boolean behandleResultatUtenforSpesialisering() {
+        return this.saksbehandler.behandleResultat(this.utenforSpesialisering);
+    }
+}
@@ -0,0 +1,71 @@
+package no.nav.ytelse;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sammenligner resultatet fra en JMH-kjøring med en lagret grunnlinje og skriver endringen per ytelsestest.
+ * Begge filene er på JSON-formatet JMH skriver med <code>-rf json</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class SammenlignMedGrunnlinje {
+
+    private SammenlignMedGrunnlinje() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        /* Feilhåndtering: Krever to filer. */
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Bruk: SammenlignMedGrunnlinje <grunnlinje.json> <resultat.json>");
+        }
+        Path grunnlinjeFil = Path.of(args[0]);
+        if (!Files.exists(grunnlinjeFil)) {
+            System.out.println("Fant ingen grunnlinje i " + grunnlinjeFil + ". Lagre en med: gradle jmhLagreGrunnlinje");
+            return;
+        }
+        Map<String, double[]> grunnlinje = les(grunnlinjeFil);
+        Map<String, double[]> resultat = les(Path.of(args[1]));
+
+        System.out.printf("%-90s %14s %14s %9s%n", "Ytelsestest", "Grunnlinje", "Nå", "Endring");
+        for (Map.Entry<String, double[]> måling : resultat.entrySet()) {
+            double[] før = grunnlinje.get(måling.getKey());
+            double nå = måling.getValue()[0];
+            if (før == null) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", måling.getKey(), "-", nå, "ny");
+                continue;
+            }
+            String endring = før[0] == 0 ? "-" : String.format("%+8.1f%%", (nå - før[0]) / før[0] * 100);
+            System.out.printf("%-90s %14.3f %14.3f %9s%n", måling.getKey(), før[0], nå, endring);
+        }
+    }
+
+    /* Leser poengsummene per ytelsestest, modus og parametre, inkludert allokeringsrate fra gc-profileringen. */
+    private static Map<String, double[]> les(Path fil) throws IOException {
+        Map<String, double[]> målinger = new LinkedHashMap<>();
+        JSONArray kjøringer = new JSONArray(Files.readString(fil));
+        for (int indeks = 0; indeks < kjøringer.length(); indeks++) {
+            JSONObject kjøring = kjøringer.getJSONObject(indeks);
+            String navn = kjøring.getString("benchmark") + " " + kjøring.getString("mode")
+                    + (kjøring.has("params") ? " " + kjøring.getJSONObject("params").toString() : "");
+            JSONObject primær = kjøring.getJSONObject("primaryMetric");
+            målinger.put(navn + " [" + primær.getString("scoreUnit") + "]", new double[]{primær.getDouble("score")});
+            if (kjøring.has("secondaryMetrics")) {
+                JSONObject sekundære = kjøring.getJSONObject("secondaryMetrics");
+                if (sekundære.has("gc.alloc.rate.norm")) {
+                    JSONObject allokering = sekundære.getJSONObject("gc.alloc.rate.norm");
+                    målinger.put(navn + " [" + allokering.getString("scoreUnit") + "]",
+                            new double[]{allokering.getDouble("score")});
+                }
+            }
+        }
+        return målinger;
+    }
+}
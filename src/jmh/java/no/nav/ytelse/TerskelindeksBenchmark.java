@@ -0,0 +1,72 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagsatsKjerne;
+import no.nav.dagpenger.Terskelindeks;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Måler en regulering av grunnbeløpet med <code>Terskelindeks</code> mot å kalkulere alle personene på nytt.
+ * Hver operasjon er én regulering, fra 2023- til 2024-grunnbeløpet eller tilbake, av hele befolkningen.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerskelindeksBenchmark {
+
+    @Param({"1000000"})
+    public int antallPersoner;
+
+    private final GrunnbeløpVerktøy[] verktøy = {new GrunnbeløpVerktøy(118620), new GrunnbeløpVerktøy(124028)};
+    private long[] siste;
+    private long[] sum;
+    private long[] beregninger;
+    private Terskelindeks indeks;
+    private int regulering;
+
+    @Setup
+    public void settOpp() {
+        this.siste = new long[this.antallPersoner];
+        this.sum = new long[this.antallPersoner];
+        this.beregninger = new long[this.antallPersoner];
+        long[] personIder = new long[this.antallPersoner];
+        SplittableRandom tilfeldig = new SplittableRandom(42);
+        for (int person = 0; person < this.antallPersoner; person++) {
+            personIder[person] = person + 1;
+            /* Årslønner fra 0 til 1.5 millioner kroner, med tre år som varierer rundt den siste. */
+            this.siste[person] = tilfeldig.nextLong(150_000_000);
+            this.sum[person] = Math.max(0, 3 * this.siste[person] + tilfeldig.nextLong(-30_000_000, 30_000_000));
+        }
+        this.indeks = Terskelindeks.bygg(personIder, this.siste, this.sum, this.verktøy[0]);
+    }
+
+    @Benchmark
+    public long[] reguler() {
+        return this.indeks.reguler(this.verktøy[++this.regulering & 1]);
+    }
+
+    @Benchmark
+    public long[] kalkulerAlle() {
+        DagsatsKjerne.beregn(this.siste, this.sum, this.verktøy[++this.regulering & 1], this.beregninger);
+        return this.beregninger;
+    }
+}
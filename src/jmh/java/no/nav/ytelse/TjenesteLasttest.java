@@ -0,0 +1,126 @@
+package no.nav.ytelse;
+
+import no.nav.grunnbeløp.FastGrunnbeløpKilde;
+import no.nav.grunnbeløp.GrunnbeløpCache;
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+import no.nav.tjeneste.KalkulatorTjeneste;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lasttest for kalkulatortjenesten. Starter tjenesten lokalt med det lokale grunnbeløpet, og lar mange
+ * klienter på virtuelle tråder sende én person hver per forespørsel så fort de kan.
+ *
+ * Hver klient holder én åpen forbindelse og skriver forespørslene selv, i stedet for å bruke
+ * <code>HttpClient</code>. Klienten deler maskin med tjenesten, og skal bruke så lite som mulig av den.
+ *
+ * Argumenter: antall sekunder (standard 10) og antall samtidige klienter (standard 64).
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class TjenesteLasttest {
+
+    private static final String PERSON = "{\"personId\": 1, \"årslønner\": [{\"år\": 2023, \"årslønn\": 550000},"
+            + " {\"år\": 2022, \"årslønn\": 500000}, {\"år\": 2021, \"årslønn\": 450000}]}";
+
+    private TjenesteLasttest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int sekunder = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int klienter = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+
+        GrunnbeløpCache cache = new GrunnbeløpCache(new FastGrunnbeløpKilde(LokaltGrunnbeløp.GRUNNBELØP), Duration.ofDays(1));
+        Histogram svartid = Metrikker.histogram("lasttest.svartid");
+        LongAdder feil = new LongAdder();
+
+        try (KalkulatorTjeneste tjeneste = new KalkulatorTjeneste(new InetSocketAddress("localhost", 0), cache, GrunnbeløpTidslinje.historisk())) {
+            byte[] innhold = PERSON.getBytes(StandardCharsets.UTF_8);
+            byte[] forespørsel = ("POST /dagsats HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + innhold.length + "\r\n\r\n" + PERSON).getBytes(StandardCharsets.UTF_8);
+            int port = tjeneste.hentPort();
+
+            /* Oppvarming, så JIT-kompilatoren har kompilert tjenesten før målingen starter. */
+            kjør(port, forespørsel, klienter, System.nanoTime() + 3_000_000_000L, Metrikker.histogram("lasttest.oppvarming"), feil);
+            feil.reset();
+
+            long start = System.nanoTime();
+            kjør(port, forespørsel, klienter, start + sekunder * 1_000_000_000L, svartid, feil);
+            double varighet = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d klienter i %.1f s: %.0f forespørsler/s, %d feil%n",
+                    klienter, varighet, svartid.getAntall() / varighet, feil.sum());
+            System.out.printf("svartid µs: p50=%d p99=%d p999=%d maks=%d%n",
+                    svartid.getP50() / 1000, svartid.getP99() / 1000, svartid.getP999() / 1000, svartid.getMaks() / 1000);
+        } finally {
+            cache.stopp();
+        }
+    }
+
+    private static void kjør(int port, byte[] forespørsel, int klienter, long slutt, Histogram svartid, LongAdder feil) {
+        try (ExecutorService tråder = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < klienter; i++) {
+                tråder.submit(() -> {
+                    while (System.nanoTime() < slutt) {
+                        try (Socket forbindelse = new Socket("localhost", port)) {
+                            forbindelse.setTcpNoDelay(true);
+                            OutputStream ut = forbindelse.getOutputStream();
+                            InputStream inn = new BufferedInputStream(forbindelse.getInputStream());
+                            while (System.nanoTime() < slutt) {
+                                long start = System.nanoTime();
+                                ut.write(forespørsel);
+                                if (lesSvar(inn) != 200) {
+                                    feil.increment();
+                                }
+                                svartid.registrerTidSiden(start);
+                            }
+                        } catch (IOException exception) {
+                            /* Ny forbindelse neste runde. */
+                            feil.increment();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /* Leser ett svar med kjent lengde og returnerer statuskoden. */
+    private static int lesSvar(InputStream inn) throws IOException {
+        String statuslinje = lesLinje(inn);
+        int status = Integer.parseInt(statuslinje.substring(9, 12));
+        int lengde = 0;
+        for (String linje = lesLinje(inn); !linje.isEmpty(); linje = lesLinje(inn)) {
+            if (linje.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                lengde = Integer.parseInt(linje.substring(15).trim());
+            }
+        }
+        inn.skipNBytes(lengde);
+        return status;
+    }
+
+    private static String lesLinje(InputStream inn) throws IOException {
+        StringBuilder linje = new StringBuilder(64);
+        for (int tegn = inn.read(); tegn != '\n'; tegn = inn.read()) {
+            if (tegn < 0) {
+                throw new IOException("Forbindelsen ble lukket.");
+            }
+            if (tegn != '\r') {
+                linje.append((char) tegn);
+            }
+        }
+        return linje.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.ÅrslønnLager;
+import no.nav.årslønn.ÅrslønnVindu;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Måler oppslag og batch-kalkulering rett fra <code>ÅrslønnLager</code>, for tilfeldige personer i et lager
+ * med fem år per person. Tidene er per person.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ÅrslønnLagerBenchmark {
+
+    private static final int ANTALL = 4096;
+
+    @Param({"1000000"})
+    public int antallPersoner;
+
+    private final GrunnbeløpVerktøy verktøy = LokaltGrunnbeløp.verktøy();
+    private final ÅrslønnVindu vindu = new ÅrslønnVindu();
+    private final long[] personIder = new long[ANTALL];
+    private Path mappe;
+    private ÅrslønnLager lager;
+
+    @Setup
+    public void settOpp() throws IOException {
+        this.mappe = Files.createTempDirectory("arslonnlager");
+        this.lager = ÅrslønnLager.åpne(this.mappe);
+        SplittableRandom tilfeldig = new SplittableRandom(42);
+        for (long person = 1; person <= this.antallPersoner; person++) {
+            for (int år = 2019; år <= 2023; år++) {
+                this.lager.leggTilØre(person, år, tilfeldig.nextLong(150_000_000));
+            }
+        }
+        this.lager.lagre();
+        for (int indeks = 0; indeks < ANTALL; indeks++) {
+            this.personIder[indeks] = 1 + tilfeldig.nextInt(this.antallPersoner);
+        }
+    }
+
+    @TearDown
+    public void ryddOpp() throws IOException {
+        this.lager.close();
+        try (Stream<Path> filer = Files.walk(this.mappe)) {
+            for (Path fil : (Iterable<Path>) filer.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(fil);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ANTALL)
+    public long oppslag() {
+        long sum = 0;
+        for (long personId : this.personIder) {
+            this.lager.hentVindu(personId, this.vindu);
+            sum += this.vindu.summerÅrslønnerØre();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ANTALL)
+    public BatchResultat kalkulerDagsatser() {
+        return DagpengerKalkulator.kalkulerDagsatser(this.personIder, this.lager, this.verktøy);
+    }
+}
@@ -0,0 +1,61 @@
+package no.nav.ytelse;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Årslønn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Måler hva det koster å bygge opp en persons historikk med <code>leggTilÅrslønn</code>,
+ * med økende antall år og årene i tilfeldig rekkefølge.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ÅrslønnRegisterBenchmark {
+
+    @Param({"3", "20", "100"})
+    public int antallÅr;
+
+    private GrunnbeløpVerktøy grunnbeløpVerktøy;
+    private Årslønn[] årslønner;
+
+    @Setup
+    public void settOpp() {
+        this.grunnbeløpVerktøy = LokaltGrunnbeløp.verktøy();
+        this.årslønner = new Årslønn[this.antallÅr];
+        for (int indeks = 0; indeks < this.antallÅr; indeks++) {
+            this.årslønner[indeks] = new Årslønn(2024 - indeks, 300000 + indeks * 1000);
+        }
+        /* Stokker årene, slik at innleggene ikke kommer sortert. */
+        Random tilfeldig = new Random(42);
+        for (int indeks = this.antallÅr - 1; indeks > 0; indeks--) {
+            int bytt = tilfeldig.nextInt(indeks + 1);
+            Årslønn årslønn = this.årslønner[indeks];
+            this.årslønner[indeks] = this.årslønner[bytt];
+            this.årslønner[bytt] = årslønn;
+        }
+    }
+
+    @Benchmark
+    public DagpengerKalkulator leggTilÅrslønn() {
+        DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator(this.grunnbeløpVerktøy);
+        for (Årslønn årslønn : this.årslønner) {
+            dagpengerKalkulator.leggTilÅrslønn(årslønn);
+        }
+        return dagpengerKalkulator;
+    }
+}
@@ -1,16 +1,16 @@
 package no.nav;
 
-import no.nav.dagpenger.DagpengerKalkulator;
-import no.nav.årslønn.Årslønn;
+import no.nav.tjeneste.KalkulatorTjeneste;
+
+import java.io.IOException;
 
 public class Main {
-    public static void main(String[] args) {
-        DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator();
-        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2023, 500000));
-        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 450000));
-        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2021, 400000));
-        System.out.println("---🤖 Kalkulerer dagsats... 🤖---");
-        System.out.println("Personen har rett på følgende dagsats: " + dagpengerKalkulator.kalkulerDagsats());
-        System.out.println("---🤖 Dagsats ferdig kalkulert 🤖---");
+    public static void main(String[] args) throws IOException {
+        /* Porten kan gis som argument eller i miljøvariabelen PORT. */
+        String port = args.length > 0 ? args[0] : System.getenv().getOrDefault("PORT", "8080");
+        KalkulatorTjeneste tjeneste = KalkulatorTjeneste.start(Integer.parseInt(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(tjeneste::close));
+        System.out.println("---🤖 Dagpengekalkulatoren lytter på port " + tjeneste.hentPort() + " 🤖---");
+        System.out.println("POST /dagsats med {\"årslønner\": [{\"år\": 2023, \"årslønn\": 500000}, ...]}");
     }
-}
\ No newline at end of file
+}
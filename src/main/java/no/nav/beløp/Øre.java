@@ -0,0 +1,58 @@
+package no.nav.beløp;
+
+/**
+ * Pengebeløp regnet i hele øre som <code>long</code>.
+ *
+ * Kalkulatoren regner alle beløp i øre, så sammenligninger med tersklene og avrunding av dagsatsen blir
+ * eksakte heltallsoperasjoner. Beløp som kommer inn som kroner i <code>double</code> gjøres om én gang,
+ * rundet til nærmeste øre.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class Øre {
+
+    /** Antall øre i én krone. */
+    public static final long PER_KRONE = 100;
+
+    /* Største beløp som tas imot. Gir god margin mot overflyt når tre årslønner summeres og ganges med tre. */
+    private static final double MAKS_KRONER = 1e15;
+
+    private Øre() {
+    }
+
+    /**
+     * Gjør om et beløp i kroner til øre, rundet til nærmeste øre.
+     * @param kroner Beløpet i kroner.
+     * @return Beløpet i øre.
+     */
+    public static long fraKroner(double kroner) {
+        /* Feilhåndtering: Kaster unntak hvis beløpet ikke er et tall, eller er for stort til å regnes eksakt. */
+        if (!(Math.abs(kroner) < MAKS_KRONER)) {
+            throw new IllegalArgumentException("Beløp må være et tall mellom -10^15 og 10^15 kroner.");
+        }
+        return Math.round(kroner * PER_KRONE);
+    }
+
+    /**
+     * Gjør om en kolonne med beløp i kroner til øre.
+     * @param kroner Beløpene i kroner.
+     * @return Beløpene i øre, i samme rekkefølge.
+     */
+    public static long[] fraKroner(double[] kroner) {
+        long[] øre = new long[kroner.length];
+        for (int indeks = 0; indeks < kroner.length; indeks++) {
+            øre[indeks] = fraKroner(kroner[indeks]);
+        }
+        return øre;
+    }
+
+    /**
+     * Gjør om et beløp i øre til kroner.
+     * @param øre Beløpet i øre.
+     * @return Beløpet i kroner.
+     */
+    public static double tilKroner(long øre) {
+        return (double) øre / PER_KRONE;
+    }
+}
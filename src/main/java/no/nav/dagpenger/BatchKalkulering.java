@@ -0,0 +1,195 @@
+package no.nav.dagpenger;
+
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+import no.nav.årslønn.ÅrslønnLager;
+import no.nav.årslønn.ÅrslønnVindu;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join-oppgave som kalkulerer dagsats for et utsnitt av personene i en batch.
+ * Utsnitt større enn <code>PERSONER_PER_OPPGAVE</code> deles i to og kalkuleres parallelt.
+ * Med en grunnbeløpstidslinje beregnes hver person ut ifra grunnbeløpet på sin egen vedtaksdato.
+ * Med ett grunnbeløp for hele batchen regnes reglene i <code>DagsatsKjerne</code>, med vektorinstruksjoner
+ * når de er tilgjengelige.
+ * Med et <code>ÅrslønnLager</code> er det én rad per person, og årslønnene leses fra lageret i stedet for fra kolonner.
+ *
+ * @author Mila Toneff
+ * @version 1.3
+ */
+final class BatchKalkulering extends RecursiveAction {
+
+    /* Antall personer en oppgave kalkulerer selv før den deler seg. */
+    private static final int PERSONER_PER_OPPGAVE = 4096;
+
+    private static final Histogram VARIGHET = Metrikker.histogram("dagpenger.batch.varighet");
+    private static final Teller PERSONER = Metrikker.teller("dagpenger.batch.personer");
+
+    private final long[] personIder;
+    private final int[] år;
+    /* Årslønnene i øre, eller et lager å lese dem fra. */
+    private final long[] årslønner;
+    private final ÅrslønnLager lager;
+    /* Første rad til hver person, pluss en ekstra plass med antall rader. */
+    private final int[] personStart;
+    /* Enten ett verktøy for hele batchen, eller en tidslinje og en vedtaksdag per rad. */
+    private final GrunnbeløpVerktøy grunnbeløpVerktøy;
+    private final GrunnbeløpTidslinje tidslinje;
+    private final long[] vedtaksdager;
+    /* Valgfritt mellomlager for beregninger, eller null */
+    private final DagsatsCache cache;
+    private final double[] dagsatser;
+    private final byte[] spesialiseringer;
+    private final int fraPerson;
+    private final int tilPerson;
+
+    private BatchKalkulering(long[] personIder, int[] år, long[] årslønner, ÅrslønnLager lager, int[] personStart,
+                             GrunnbeløpVerktøy grunnbeløpVerktøy, GrunnbeløpTidslinje tidslinje, long[] vedtaksdager,
+                             DagsatsCache cache, double[] dagsatser, byte[] spesialiseringer, int fraPerson, int tilPerson) {
+        this.personIder = personIder;
+        this.år = år;
+        this.årslønner = årslønner;
+        this.lager = lager;
+        this.personStart = personStart;
+        this.grunnbeløpVerktøy = grunnbeløpVerktøy;
+        this.tidslinje = tidslinje;
+        this.vedtaksdager = vedtaksdager;
+        this.cache = cache;
+        this.dagsatser = dagsatser;
+        this.spesialiseringer = spesialiseringer;
+        this.fraPerson = fraPerson;
+        this.tilPerson = tilPerson;
+    }
+
+    /**
+     * Kalkulerer dagsats og spesialisering for alle personene i kolonnene, med årslønnene i øre.
+     * Kolonnene må være validert og like lange. Mellomlageret kan være null.
+     */
+    static BatchResultat kalkuler(long[] personIder, int[] år, long[] årslønner, GrunnbeløpVerktøy grunnbeløpVerktøy,
+                                  DagsatsCache cache) {
+        return kalkuler(personIder, år, årslønner, null, grunnbeløpVerktøy, null, null, cache);
+    }
+
+    /**
+     * Kalkulerer dagsats og spesialisering for personene, med årslønnene fra lageret.
+     * Personene må være validert. Finnes en person ikke i lageret, kastes unntak.
+     */
+    static BatchResultat kalkuler(long[] personIder, ÅrslønnLager lager, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return kalkuler(personIder, null, null, lager, grunnbeløpVerktøy, null, null, null);
+    }
+
+    /**
+     * Kalkulerer dagsats og spesialisering for alle personene i kolonnene, hver ut ifra grunnbeløpet
+     * som gjaldt på vedtaksdagen i personens første rad. Årslønnene er i øre.
+     * Kolonnene må være validert og like lange. Mellomlageret kan være null.
+     */
+    static BatchResultat kalkuler(long[] personIder, int[] år, long[] årslønner, GrunnbeløpTidslinje tidslinje,
+                                  long[] vedtaksdager, DagsatsCache cache) {
+        return kalkuler(personIder, år, årslønner, null, null, tidslinje, vedtaksdager, cache);
+    }
+
+    private static BatchResultat kalkuler(long[] personIder, int[] år, long[] årslønner, ÅrslønnLager lager,
+                                          GrunnbeløpVerktøy grunnbeløpVerktøy, GrunnbeløpTidslinje tidslinje,
+                                          long[] vedtaksdager, DagsatsCache cache) {
+        long start = Metrikker.AKTIVERT ? System.nanoTime() : 0;
+        int[] personStart = finnPersonStart(personIder);
+        int antallPersoner = personStart.length - 1;
+
+        long[] resultatIder = new long[antallPersoner];
+        for (int person = 0; person < antallPersoner; person++) {
+            resultatIder[person] = personIder[personStart[person]];
+        }
+        double[] dagsatser = new double[antallPersoner];
+        byte[] spesialiseringer = new byte[antallPersoner];
+
+        ForkJoinPool.commonPool().invoke(new BatchKalkulering(personIder, år, årslønner, lager, personStart,
+                grunnbeløpVerktøy, tidslinje, vedtaksdager, cache, dagsatser, spesialiseringer, 0, antallPersoner));
+        if (Metrikker.AKTIVERT) {
+            VARIGHET.registrerTidSiden(start);
+            PERSONER.øk(antallPersoner);
+        }
+        BatchResultat batchResultat = new BatchResultat(resultatIder, dagsatser, spesialiseringer);
+        Resultatstatistikk.standard().registrerLaget(batchResultat);
+        return batchResultat;
+    }
+
+    @Override
+    protected void compute() {
+        /* Deler utsnittet i to så lenge det er for stort til å kalkuleres av én oppgave. */
+        if (this.tilPerson - this.fraPerson > PERSONER_PER_OPPGAVE) {
+            int midten = (this.fraPerson + this.tilPerson) >>> 1;
+            invokeAll(del(this.fraPerson, midten), del(midten, this.tilPerson));
+            return;
+        }
+
+        /* Samler siste årslønn og summen av tre år i kolonner, med ett vindu som gjenbrukes for hver person. */
+        int antall = this.tilPerson - this.fraPerson;
+        long[] siste = new long[antall];
+        long[] sum = new long[antall];
+        ÅrslønnVindu vindu = new ÅrslønnVindu();
+        for (int indeks = 0; indeks < antall; indeks++) {
+            int person = this.fraPerson + indeks;
+            if (this.lager != null) {
+                long personId = this.personIder[this.personStart[person]];
+                if (!this.lager.hentVindu(personId, vindu)) {
+                    throw new IllegalArgumentException("Person " + personId + " finnes ikke i årslønnlageret.");
+                }
+            } else {
+                vindu.nullstill();
+                for (int rad = this.personStart[person]; rad < this.personStart[person + 1]; rad++) {
+                    vindu.leggTilØre(this.år[rad], this.årslønner[rad]);
+                }
+            }
+            siste[indeks] = vindu.hentSisteÅrslønnØre();
+            sum[indeks] = vindu.summerÅrslønnerØre();
+        }
+
+        /* Med ett grunnbeløp og uten mellomlager regnes hele utsnittet av kjernen, ellers én og én person. */
+        long[] beregninger = new long[antall];
+        if (this.tidslinje == null && this.cache == null) {
+            DagsatsKjerne.beregn(siste, sum, this.grunnbeløpVerktøy, beregninger, 0, antall);
+        } else {
+            for (int indeks = 0; indeks < antall; indeks++) {
+                GrunnbeløpVerktøy verktøy = this.tidslinje == null
+                        ? this.grunnbeløpVerktøy
+                        : this.tidslinje.hentVerktøy(this.vedtaksdager[this.personStart[this.fraPerson + indeks]]);
+                beregninger[indeks] = this.cache == null
+                        ? Dagsatsberegning.beregnØre(siste[indeks], sum[indeks], verktøy)
+                        : this.cache.beregnØre(siste[indeks], sum[indeks], verktøy);
+            }
+        }
+        for (int indeks = 0; indeks < antall; indeks++) {
+            this.dagsatser[this.fraPerson + indeks] = Dagsatsberegning.hentDagsats(beregninger[indeks]);
+            this.spesialiseringer[this.fraPerson + indeks] = (byte) Dagsatsberegning.hentSpesialisering(beregninger[indeks]).ordinal();
+        }
+    }
+
+    private BatchKalkulering del(int fra, int til) {
+        return new BatchKalkulering(this.personIder, this.år, this.årslønner, this.lager, this.personStart,
+                this.grunnbeløpVerktøy, this.tidslinje, this.vedtaksdager, this.cache, this.dagsatser, this.spesialiseringer, fra, til);
+    }
+
+    /* Finner første rad til hver person ved å se etter skifte i person-id. */
+    private static int[] finnPersonStart(long[] personIder) {
+        int antallPersoner = 0;
+        for (int rad = 0; rad < personIder.length; rad++) {
+            if (rad == 0 || personIder[rad] != personIder[rad - 1]) {
+                antallPersoner++;
+            }
+        }
+        int[] personStart = new int[antallPersoner + 1];
+        int person = 0;
+        for (int rad = 0; rad < personIder.length; rad++) {
+            if (rad == 0 || personIder[rad] != personIder[rad - 1]) {
+                personStart[person++] = rad;
+            }
+        }
+        personStart[antallPersoner] = personIder.length;
+        return personStart;
+    }
+}
@@ -0,0 +1,85 @@
+package no.nav.dagpenger;
+
+/**
+ * Resultat fra batch-kalkulering gjennom <code>DagpengerKalkulator.kalkulerDagsatser</code>.
+ * Resultatene ligger i kolonner av primitive tabeller, én plass per person, i samme rekkefølge som
+ * personene kom i inndataene.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class BatchResultat {
+
+    /* Spesialiseringene i samme rekkefølge som ordinalene lagret per person. */
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+
+    private final long[] personIder;
+    private final double[] dagsatser;
+    private final byte[] spesialiseringer;
+
+    BatchResultat(long[] personIder, double[] dagsatser, byte[] spesialiseringer) {
+        this.personIder = personIder;
+        this.dagsatser = dagsatser;
+        this.spesialiseringer = spesialiseringer;
+    }
+
+    /**
+     * Henter antall personer i resultatet.
+     * @return antall personer.
+     */
+    public int hentAntallPersoner() {
+        return this.personIder.length;
+    }
+
+    /**
+     * Henter id-en til personen på gitt plass.
+     * @param indeks Plassen til personen.
+     * @return id-en til personen.
+     */
+    public long hentPersonId(int indeks) {
+        return this.personIder[indeks];
+    }
+
+    /**
+     * Henter dagsatsen til personen på gitt plass.
+     * @param indeks Plassen til personen.
+     * @return dagsatsen personen har rett på.
+     */
+    public double hentDagsats(int indeks) {
+        return this.dagsatser[indeks];
+    }
+
+    /**
+     * Henter spesialiseringen til resultatet for personen på gitt plass.
+     * @param indeks Plassen til personen.
+     * @return spesialiseringen.
+     */
+    public Spesialisering hentSpesialisering(int indeks) {
+        return SPESIALISERINGER[this.spesialiseringer[indeks]];
+    }
+
+    /**
+     * Henter id-ene til alle personene. Tabellen deles med resultatet og skal ikke endres.
+     * @return person-id-er, én per person.
+     */
+    public long[] hentPersonIder() {
+        return this.personIder;
+    }
+
+    /**
+     * Henter dagsatsene til alle personene. Tabellen deles med resultatet og skal ikke endres.
+     * @return dagsatser, én per person.
+     */
+    public double[] hentDagsatser() {
+        return this.dagsatser;
+    }
+
+    /**
+     * Henter spesialiseringene til alle personene som ordinaler i <code>Spesialisering</code>.
+     * Tabellen deles med resultatet og skal ikke endres.
+     * @return ordinalen til spesialiseringen, én per person.
+     */
+    public byte[] hentSpesialiseringer() {
+        return this.spesialiseringer;
+    }
+}
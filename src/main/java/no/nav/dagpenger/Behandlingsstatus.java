@@ -0,0 +1,17 @@
+package no.nav.dagpenger;
+
+/**
+ * Hvor langt et resultat har kommet i saksbehandlingen.
+ * Et resultat starter som ubehandlet, og går én gang over til godkjent eller avslått.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public enum Behandlingsstatus {
+    /* Resultatet venter på en saksbehandler */
+    UBEHANDLET,
+    /* Resultatet er godkjent av en saksbehandler */
+    GODKJENT,
+    /* Resultatet er avslått av en saksbehandler */
+    AVSLÅTT
+}
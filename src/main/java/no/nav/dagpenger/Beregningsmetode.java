@@ -0,0 +1,35 @@
+package no.nav.dagpenger;
+
+/**
+ * Metodene dagsatsen kan beregnes etter.
+ * - Siste årslønn
+ * - Gjennomsnittet av de tre siste årslønnene
+ * - Maks årlig dagpengegrunnlag (6G)
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public enum Beregningsmetode {
+    /* Dagsats beregnet ut ifra siste årslønn */
+    SISTE_ÅRSLØNN("SISTE_ÅRSLØNN"),
+    /* Dagsats beregnet ut ifra gjennomsnittet av de tre siste årslønnene */
+    GJENNOMSNITT_AV_TRE_ÅR("GJENNOMSNITTET_AV_TRE_ÅR"),
+    /* Dagsats beregnet ut ifra maks årlig dagpengegrunnlag */
+    MAKS_ÅRLIG_DAGPENGERGRUNNLAG("MAKS_ÅRLIG_DAGPENGERGRUNNLAG");
+
+    /* Navnet metoden har hatt utad, som velgBeregningsMetode returnerer */
+    private final String navn;
+
+    /* Konstruktør til beregningsmetodene */
+    Beregningsmetode(String navn) {
+        this.navn = navn;
+    }
+
+    /**
+     * Henter navnet på beregningsmetoden.
+     * @return Navnet på metoden.
+     */
+    public String hentNavn() {
+        return this.navn;
+    }
+}
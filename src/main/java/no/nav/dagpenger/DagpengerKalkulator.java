@@ -1,12 +1,15 @@
 package no.nav.dagpenger;
 
+import no.nav.beløp.Øre;
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
 import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.MånedsinntektRegister;
 import no.nav.årslønn.Årslønn;
+import no.nav.årslønn.ÅrslønnLager;
+import no.nav.årslønn.ÅrslønnRegister;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.YearMonth;
 
 /**
  * Kalkulator for å beregne hvor mye dagpenger en person har rett på i Norge basert på dagens grunnbeløp (1G).
@@ -22,25 +25,32 @@ import java.util.List;
  *
  * @author Emil Elton Nilsen
  * refractored by Mila Toneff
- * @version 1.1
+ * @version 1.5
  */
 public class DagpengerKalkulator {
 
-    /* Konstanter til koden for enkel gjenbruk */
-    private static final int ARBEIDSDAGER_I_ÅRET = 260;
-    private static final String SISTE_ÅRSLØNN = "SISTE_ÅRSLØNN";
-    private static final String GJENNOMSNITT_AV_TRE_ÅR = "GJENNOMSNITTET_AV_TRE_ÅR";
-    private static final String MAKS_ÅRLIG_DAGPENGERGRUNNLAG = "MAKS_ÅRLIG_DAGPENGERGRUNNLAG";
-
     /* Verktøy og register av årslønn som lages
     ved oppretting av klasseinstans. */
     public final GrunnbeløpVerktøy grunnbeløpVerktøy;
-    public final List<Årslønn> årslønner;
+    public final ÅrslønnRegister årslønner;
+    /* Valgfritt mellomlager for beregninger, eller null */
+    private final DagsatsCache cache;
 
     /* Konstruktør som oppretter en kalkulator */
     public DagpengerKalkulator() {
-        this.grunnbeløpVerktøy = new GrunnbeløpVerktøy();
-        this.årslønner = new ArrayList<>();
+        this(new GrunnbeløpVerktøy());
+    }
+
+    /* Konstruktør som oppretter en kalkulator med et gitt grunnbeløpsverktøy */
+    public DagpengerKalkulator(GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        this(grunnbeløpVerktøy, null);
+    }
+
+    /* Konstruktør som oppretter en kalkulator som slår opp beregninger i et delt mellomlager */
+    public DagpengerKalkulator(GrunnbeløpVerktøy grunnbeløpVerktøy, DagsatsCache cache) {
+        this.grunnbeløpVerktøy = grunnbeløpVerktøy;
+        this.årslønner = new ÅrslønnRegister();
+        this.cache = cache;
     }
 
     /**
@@ -50,41 +60,20 @@ public class DagpengerKalkulator {
      * @return Dagsatsen en person har rett på.
      */
     public double kalkulerDagsats() {
-        /* Sjekker først om personen har rett til dagpenger.
-        Returnerer 0 hvis ikke. */
-        if (!harRettigheterTilDagpenger()) {
-            return 0;
-        }
-
-        /* Henter siste årslønn for beregning. */
-        double sisteÅrslønn = hentÅrslønnVedIndeks(0).hentÅrslønn();
-        /* Regner ut gjennomsnittet av de tre siste årslønnene. */
-        double gjennomsnittTreÅr = summerNyligeÅrslønner(3) / 3;
-        /* Henter maks årlig grunnlag for dagpenger til sammenligning */
-        double maksÅrligDagpengegrunnlag = grunnbeløpVerktøy.hentMaksÅrligDagpengegrunnlag();
-
-        /* Velger beregningsmetode basert på data til en person */
-        String beregningsMetode = velgBeregningsMetode();
-
-        /* Beregner dagsats basert på valgt metode
-        (siste årslønn, gjennomsnitt av tre år eller arbeidsdager i året): */
-        if (beregningsMetode.equals(SISTE_ÅRSLØNN)) {
-            /* Returnerer dagsats basert på siste årslønn. */
-            return Math.ceil(sisteÅrslønn / ARBEIDSDAGER_I_ÅRET);
-        }
-        
-        if (beregningsMetode.equals(GJENNOMSNITT_AV_TRE_ÅR)) {
-            /* Returnerer dagsats basert på gjennomsnittet av de siste tre årene. */
-            return Math.ceil(gjennomsnittTreÅr / ARBEIDSDAGER_I_ÅRET);
-        }
-        
-        if (beregningsMetode.equals(MAKS_ÅRLIG_DAGPENGERGRUNNLAG)) {
-            /* Returnerer dagsats basert på maks årlig dagpengegrunnlag. */
-            return Math.ceil(maksÅrligDagpengegrunnlag / ARBEIDSDAGER_I_ÅRET);
-        }
+        /* Reglene ligger i Dagsatsberegning, som også brukes ved batch-kalkulering.
+        Rett til dagpenger, beregningsmetode og dagsats vurderes der i ett pass. */
+        return Dagsatsberegning.hentDagsats(beregn());
+    }
 
-        /* Returnerer 0 hvis ingen beregningsmetode passer */
-        return 0;
+    /**
+     * Kalkulerer dagsatsen ut ifra grunnbeløpet som gjaldt på gitt dato, for eksempel ved ny beregning
+     * av en eldre sak. Grunnbeløpet slås opp i tidslinjen uten nettverkskall.
+     * @param tidslinje Tidslinje over grunnbeløpet.
+     * @param vedtaksdato Datoen saken skal beregnes for.
+     * @return Dagsatsen en person hadde rett på, 0kr ved avslag.
+     */
+    public double kalkulerDagsats(GrunnbeløpTidslinje tidslinje, LocalDate vedtaksdato) {
+        return Dagsatsberegning.hentDagsats(beregn(hentVerktøy(tidslinje, vedtaksdato)));
     }
 
     /**
@@ -92,19 +81,7 @@ public class DagpengerKalkulator {
      * @return True om personen har rett på dagpenger, ellers False.
      */
     public boolean harRettigheterTilDagpenger() {
-        /* Sjekker om summen av de siste tre års lønninger
-        overstiger kravet til dagpenger (3G). */
-        if (summerNyligeÅrslønner(3) >= grunnbeløpVerktøy.hentTotaltGrunnbeløpForGittAntallÅr(3)) {
-            return true;
-        }
-        /* Sjekker om den siste årslønnen er høy nok (1.5G) for rett til dagpenger. */
-        if (hentÅrslønnVedIndeks(0).hentÅrslønn() >= grunnbeløpVerktøy.hentMinimumÅrslønnForRettPåDagpenger()) {
-            return true;
-        }
-
-        /* Returnerer false hvis ingen av betingelsene blir oppfylt
-        Altså at personen ikke har rett på dagpenger */
-        return false;
+        return Dagsatsberegning.hentSpesialisering(beregn()) != Spesialisering.AVSLAG_FOR_LAV_INNTEKT;
     }
 
     /**
@@ -112,25 +89,192 @@ public class DagpengerKalkulator {
      * @return Beregningsmetode for dagsats.
      */
     public String velgBeregningsMetode() {
-        // Henter siste årslønn og lagrer den i en variabel for å unngå gjentatte kall.
-        double årslønnVedIndeks = hentÅrslønnVedIndeks(0).hentÅrslønn();
-    
-        // Sjekker om gjennomsnittet av de siste tre årene er større eller lik den siste årslønnen.
-        if (årslønnVedIndeks <= (summerNyligeÅrslønner(3) / 3)) {
-            return GJENNOMSNITT_AV_TRE_ÅR;
+        return Dagsatsberegning.hentBeregningsmetode(beregn()).hentNavn();
+    }
+
+    /**
+     * Finner hvilken spesialisering resultatet av kalkuleringen hører til.
+     * @return Spesialiseringen til resultatet.
+     */
+    public Spesialisering velgSpesialisering() {
+        return Dagsatsberegning.hentSpesialisering(beregn());
+    }
+
+    /**
+     * Kalkulerer dagsats og finner spesialisering i ett pass, og samler dem i et resultat til saksbehandling.
+     * @return Resultatet av kalkuleringen.
+     */
+    public Resultat kalkulerResultat() {
+        long beregning = beregn();
+        return Resultat.fraBeregning(0, beregning);
+    }
+
+    /**
+     * Kalkulerer dagsats og finner spesialisering ut ifra grunnbeløpet som gjaldt på gitt dato.
+     * @param tidslinje Tidslinje over grunnbeløpet.
+     * @param vedtaksdato Datoen saken skal beregnes for.
+     * @return Resultatet av kalkuleringen.
+     */
+    public Resultat kalkulerResultat(GrunnbeløpTidslinje tidslinje, LocalDate vedtaksdato) {
+        long beregning = beregn(hentVerktøy(tidslinje, vedtaksdato));
+        return Resultat.fraBeregning(0, beregning);
+    }
+
+    /**
+     * Kalkulerer dagsats og finner spesialisering ut ifra månedlige inntekter. Inntekten de 12 månedene før
+     * søknadsmåneden brukes som siste årslønn, og inntekten de 36 månedene før som summen av de tre siste årene.
+     * Begge leses rett fra de løpende summene i registeret, uten å gå gjennom månedene.
+     * @param inntekter Personens månedsinntekter.
+     * @param søknadsmåned Måneden personen søker om dagpenger.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det beregnes ut ifra.
+     * @return Resultatet av kalkuleringen.
+     */
+    public static Resultat kalkulerResultat(MånedsinntektRegister inntekter, YearMonth søknadsmåned,
+                                            GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        /* Feilhåndtering: Kaster unntak ved manglende inntekter, søknadsmåned eller grunnbeløpsverktøy. */
+        if (inntekter == null || søknadsmåned == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Inntekter, søknadsmåned og grunnbeløpsverktøy kan ikke være uten verdi (null).");
         }
-    
-        // Sjekker om den siste årslønnen overstiger det maksimale årlige dagpengegrunnlaget.
-        if (årslønnVedIndeks > grunnbeløpVerktøy.hentMaksÅrligDagpengegrunnlag()) {
-            return MAKS_ÅRLIG_DAGPENGERGRUNNLAG;
+        long beregning = Dagsatsberegning.beregnØre(
+                inntekter.summerFørØre(søknadsmåned, MånedsinntektRegister.MÅNEDER_SISTE_ÅR),
+                inntekter.summerFørØre(søknadsmåned, MånedsinntektRegister.MÅNEDER_TRE_ÅR), grunnbeløpVerktøy);
+        return Resultat.fraBeregning(0, beregning);
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang, fordelt over alle prosessorkjerner.
+     * Grunnbeløpet hentes én gang og brukes for hele batchen.
+     * @see #kalkulerDagsatser(long[], int[], double[], GrunnbeløpVerktøy)
+     */
+    public static BatchResultat kalkulerDagsatser(long[] personIder, int[] år, double[] årslønner) {
+        return kalkulerDagsatser(personIder, år, årslønner, new GrunnbeløpVerktøy());
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang, fordelt over alle prosessorkjerner.
+     * Inndataene er kolonner der hver rad er én årslønn for én person. Radene til en person må komme etter
+     * hverandre, men årene innenfor en person kan komme i vilkårlig rekkefølge. Har en person flere rader for
+     * samme år, gjelder den siste, som i registeret.
+     * Resultatet for hver person er det samme som <code>kalkulerDagsats</code> og <code>velgSpesialisering</code>
+     * ville gitt med de samme årslønnene lagt til i samme rekkefølge.
+     * @param personIder Person-id for hver rad.
+     * @param år Året for lønnen for hver rad.
+     * @param årslønner Årslønnen for hver rad.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele batchen skal beregnes ut ifra.
+     * @return Dagsats og spesialisering per person.
+     */
+    public static BatchResultat kalkulerDagsatser(long[] personIder, int[] år, double[] årslønner, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return kalkulerDagsatser(personIder, år, årslønner, grunnbeløpVerktøy, null);
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang, og slår opp beregningene i et mellomlager først.
+     * Nye kjøringer av de samme sakene, og personer med like inndata, hopper da over beregningen.
+     * @param personIder Person-id for hver rad.
+     * @param år Året for lønnen for hver rad.
+     * @param årslønner Årslønnen for hver rad.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele batchen skal beregnes ut ifra.
+     * @param cache Mellomlager for beregningene, eller null for å beregne alt.
+     * @return Dagsats og spesialisering per person.
+     * @see #kalkulerDagsatser(long[], int[], double[], GrunnbeløpVerktøy)
+     */
+    public static BatchResultat kalkulerDagsatser(long[] personIder, int[] år, double[] årslønner,
+                                                  GrunnbeløpVerktøy grunnbeløpVerktøy, DagsatsCache cache) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ulikt lange kolonner. */
+        if (personIder == null || år == null || årslønner == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Kolonner og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        if (personIder.length != år.length || personIder.length != årslønner.length) {
+            throw new IllegalArgumentException("Alle kolonner må ha like mange rader.");
         }
-    
-        // Returnerer "SISTE_ÅRSLØNN" hvis ingen av de andre betingelsene er oppfylt.
-        return SISTE_ÅRSLØNN;
+        return BatchKalkulering.kalkuler(personIder, år, Øre.fraKroner(årslønner), grunnbeløpVerktøy, cache);
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang, med årslønnene i øre. Kolonnene brukes som de er,
+     * uten å gjøres om fra kroner først.
+     * @param personIder Person-id for hver rad.
+     * @param år Året for lønnen for hver rad.
+     * @param årslønnerØre Årslønnen i øre for hver rad.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele batchen skal beregnes ut ifra.
+     * @param cache Mellomlager for beregningene, eller null for å beregne alt.
+     * @return Dagsats og spesialisering per person.
+     * @see #kalkulerDagsatser(long[], int[], double[], GrunnbeløpVerktøy)
+     */
+    public static BatchResultat kalkulerDagsatserØre(long[] personIder, int[] år, long[] årslønnerØre,
+                                                     GrunnbeløpVerktøy grunnbeløpVerktøy, DagsatsCache cache) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ulikt lange kolonner. */
+        if (personIder == null || år == null || årslønnerØre == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Kolonner og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        if (personIder.length != år.length || personIder.length != årslønnerØre.length) {
+            throw new IllegalArgumentException("Alle kolonner må ha like mange rader.");
+        }
+        return BatchKalkulering.kalkuler(personIder, år, årslønnerØre, grunnbeløpVerktøy, cache);
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang, med årslønnene rett fra et lager utenfor heapen.
+     * Siste årslønn og summen av tre år leses fra lagerets indeks, uten at det lages <code>Årslønn</code>-objekter.
+     * @param personIder Id-en til hver person som skal kalkuleres.
+     * @param lager Lageret med personenes årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele batchen skal beregnes ut ifra.
+     * @return Dagsats og spesialisering per person, i samme rekkefølge som person-id-ene.
+     * @throws IllegalArgumentException hvis en person ikke finnes i lageret.
+     */
+    public static BatchResultat kalkulerDagsatser(long[] personIder, ÅrslønnLager lager, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        /* Feilhåndtering: Kaster unntak ved manglende personer, lager eller grunnbeløpsverktøy. */
+        if (personIder == null || lager == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Personer, lager og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        return BatchKalkulering.kalkuler(personIder, lager, grunnbeløpVerktøy);
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang, der hver person beregnes ut ifra grunnbeløpet som
+     * gjaldt på personens vedtaksdato. Personer med ulike datoer kan blandes i samme batch.
+     * Vedtaksdagen leses fra personens første rad.
+     * @param personIder Person-id for hver rad.
+     * @param år Året for lønnen for hver rad.
+     * @param årslønner Årslønnen for hver rad.
+     * @param vedtaksdager Vedtaksdatoen for hver rad, som <code>LocalDate.toEpochDay()</code>.
+     * @param tidslinje Tidslinje over grunnbeløpet.
+     * @return Dagsats og spesialisering per person.
+     * @see #kalkulerDagsatser(long[], int[], double[], GrunnbeløpVerktøy)
+     */
+    public static BatchResultat kalkulerDagsatser(long[] personIder, int[] år, double[] årslønner, long[] vedtaksdager,
+                                                  GrunnbeløpTidslinje tidslinje) {
+        return kalkulerDagsatser(personIder, år, årslønner, vedtaksdager, tidslinje, null);
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer på én gang ut ifra grunnbeløpet på hver persons vedtaksdato,
+     * og slår opp beregningene i et mellomlager først. Grunnbeløpet er en del av nøkkelen i mellomlageret,
+     * så personer med ulike vedtaksdatoer kan dele det.
+     * @param personIder Person-id for hver rad.
+     * @param år Året for lønnen for hver rad.
+     * @param årslønner Årslønnen for hver rad.
+     * @param vedtaksdager Vedtaksdatoen for hver rad, som <code>LocalDate.toEpochDay()</code>.
+     * @param tidslinje Tidslinje over grunnbeløpet.
+     * @param cache Mellomlager for beregningene, eller null for å beregne alt.
+     * @return Dagsats og spesialisering per person.
+     * @see #kalkulerDagsatser(long[], int[], double[], long[], GrunnbeløpTidslinje)
+     */
+    public static BatchResultat kalkulerDagsatser(long[] personIder, int[] år, double[] årslønner, long[] vedtaksdager,
+                                                  GrunnbeløpTidslinje tidslinje, DagsatsCache cache) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ulikt lange kolonner. */
+        if (personIder == null || år == null || årslønner == null || vedtaksdager == null || tidslinje == null) {
+            throw new IllegalArgumentException("Kolonner og tidslinje kan ikke være uten verdi (null).");
+        }
+        if (personIder.length != år.length || personIder.length != årslønner.length || personIder.length != vedtaksdager.length) {
+            throw new IllegalArgumentException("Alle kolonner må ha like mange rader.");
+        }
+        return BatchKalkulering.kalkuler(personIder, år, Øre.fraKroner(årslønner), tidslinje, vedtaksdager, cache);
     }
 
     /**
      * Legger til gitt årslønn i registeret av årslønner.
+     * Har registeret allerede en årslønn for samme år, blir den erstattet.
      * @param årslønn Årslønn til en person.
      */
     public void leggTilÅrslønn(Årslønn årslønn) {
@@ -138,10 +282,9 @@ public class DagpengerKalkulator {
         if (årslønn == null) {
             throw new IllegalArgumentException("Årslønn kan ikke være uten verdi (null).");
         }
-        // Legger til årslønn i listen.
-        this.årslønner.add(årslønn);
-        // Sorterer listen slik at den nyeste årslønnen er først.
-        this.sorterÅrslønnerBasertPåNyesteÅrslønn();
+        // Legger til årslønn i registeret, som holder nyeste år først.
+        // Finnes året fra før, erstattes den gamle årslønnen.
+        this.årslønner.leggTil(årslønn);
     }
 
     /**
@@ -155,11 +298,39 @@ public class DagpengerKalkulator {
          * eller hvis den overskrider antall eksisterende årslønner.
          * Gir feilmelding som indikerer at antallet må være større enn null
          * eller mindre enn eksisterende årslønner. */
-        if (indeks < 0 || indeks >= årslønner.size()) {
-            throw new IndexOutOfBoundsException("Indeks må være mellom 0 og " + (this.årslønner.size() - 1) + ".");
+        if (indeks < 0 || indeks >= årslønner.hentAntall()) {
+            throw new IndexOutOfBoundsException("Indeks må være mellom 0 og " + (this.årslønner.hentAntall() - 1) + ".");
         }
         /* Returnerer årslønnen som ble funnet på indeksen. */
-        return this.årslønner.get(indeks);
+        return this.årslønner.hentVedIndeks(indeks);
+    }
+
+    /* Vurderer hele kalkuleringen i ett pass. Siste årslønn og summen av de tre siste årene
+    leses rett fra registeret uten å gå gjennom årslønnene. */
+    private long beregn() {
+        return beregn(this.grunnbeløpVerktøy);
+    }
+
+    private long beregn(GrunnbeløpVerktøy verktøy) {
+        long siste = hentSisteÅrslønnØre();
+        long sum = this.årslønner.summerNyligeÅrØre(3);
+        if (this.cache != null) {
+            return this.cache.beregnØre(siste, sum, verktøy);
+        }
+        return Dagsatsberegning.beregnØre(siste, sum, verktøy);
+    }
+
+    private static GrunnbeløpVerktøy hentVerktøy(GrunnbeløpTidslinje tidslinje, LocalDate vedtaksdato) {
+        /* Feilhåndtering: Kaster unntak ved manglende tidslinje. */
+        if (tidslinje == null) {
+            throw new IllegalArgumentException("Tidslinje kan ikke være uten verdi (null).");
+        }
+        return tidslinje.hentVerktøy(vedtaksdato);
+    }
+
+    /* Henter siste årslønn i øre, som alle reglene tar utgangspunkt i. */
+    private long hentSisteÅrslønnØre() {
+        return hentÅrslønnVedIndeks(0).hentÅrslønnØre();
     }
 
     /**
@@ -176,49 +347,19 @@ public class DagpengerKalkulator {
             throw new IllegalArgumentException("Antall år må være større enn null.");
         }
 
-        /* Utgangspunkt for sum av nylige årslønner.
-        Skal oppdateres når verdiene leses av senere. */
-        double sumAvNyligeÅrslønner = 0;
-
-        /* Løsning for feilhåndtering 2:
-         * Setter maks antall år å summeres til antall eksisterende årslønner
-         * hvis gitt antall overskrider tilgjengelig kapasitet.
-         */
-        int maksÅr = Math.min(antallÅrÅSummere, this.årslønner.size());
-
-        /* Itererer gjennom de tilgjengelige årslønnene opp til
-        maks antall år og summerer dem. */
-        for (int indeks = 0; indeks < maksÅr; indeks++) {  
-            sumAvNyligeÅrslønner += this.årslønner.get(indeks).hentÅrslønn();
-        }
-
-        /* Alternativ løsning for feilhåndtering 2:
-         * Kaster unntak hvis gitt antall overskrider tilgjengelig kapasitet.
-         * Gir feilmelding som indikerer at antallet er for høyt. 
+        /* Registeret summerer selv, og holder summen av de tre nyeste årene klar.
+         * Løsning for feilhåndtering 2:
+         * Er det færre årslønner enn gitt antall, summeres alle som finnes.
          */
-
-         /* if (antallÅrÅSummere > this.årslønner.size()) {
-            throw new IndexOutOfBoundsException("Antall år oppgitt overskrider antall mulige år å summere.");
-          }
-          
-          for (int indeks = 0; indeks < this.antallÅrÅSummere; indeks++) {
-            sumAvNyligeÅrslønner += this.årslønner.get(indeks).hentÅrslønn();
-          }
-          */
-
-        /* Returnerer funnet totalsum av nylige årslønner. */
-        return sumAvNyligeÅrslønner;
+        return this.årslønner.summerNyligeÅr(antallÅrÅSummere);
     }
 
     /**
      * Sorterer registeret slik at den nyligste årslønnen er det først elementet i registeret.
-     * Først blir årslønnene i registeret sortert ut at den eldstre årslønnen skal først i registeret,
-     * deretter blir registeret reversert.
+     * Registeret holdes alltid sortert med nyeste år først, så metoden gjør ingenting.
+     * @deprecated Trengs ikke lenger, siden <code>ÅrslønnRegister</code> sorterer ved innlegg.
      */
+    @Deprecated
     public void sorterÅrslønnerBasertPåNyesteÅrslønn() {
-        // Sorterer listen basert på året for hver årslønn i stigende rekkefølge (eldst til nyest).
-        this.årslønner.sort(Comparator.comparingInt(Årslønn::hentÅretForLønn));
-        // Reverserer listen slik at den nyeste årslønnen blir først.
-        Collections.reverse(this.årslønner);
     }
 }
@@ -0,0 +1,148 @@
+package no.nav.dagpenger;
+
+import no.nav.beløp.Øre;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Valgfritt mellomlager foran <code>Dagsatsberegning.beregn</code>, for kjøringer der mange personer har
+ * de samme inndataene, som avslag uten inntekt, alle over 6G, eller nye kjøringer av uendrede saker.
+ *
+ * Nøkkelen er alt beregningen avhenger av: siste årslønn, summen av de tre siste årene og grunnbeløpet,
+ * alle i øre.
+ * Siden grunnbeløpet er en del av nøkkelen, blir gamle oppføringer aldri brukt etter at G er regulert,
+ * og de byttes ut etter hvert som nye beregninger kommer inn. Batcher med ulike grunnbeløp, for eksempel
+ * fra en tidslinje, kan dele mellomlageret.
+ *
+ * Mellomlageret har fast størrelse. Hver nøkkel hører til én plass, og en ny beregning erstatter den
+ * som lå der. Oppføringene er uforanderlige, så lesing og skriving skjer uten låsing.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+public final class DagsatsCache {
+
+    private final Oppføring[] oppføringer;
+    private final int maske;
+    private final LongAdder antallTreff = new LongAdder();
+    private final LongAdder antallBom = new LongAdder();
+
+    /**
+     * Oppretter et mellomlager med plass til omtrent gitt antall beregninger.
+     * @param kapasitet Antall plasser, rundet opp til nærmeste toerpotens.
+     */
+    public DagsatsCache(int kapasitet) {
+        /* Feilhåndtering: Kaster unntak ved ugyldig kapasitet. */
+        if (kapasitet <= 0 || kapasitet > 1 << 30) {
+            throw new IllegalArgumentException("Kapasitet må være mellom 1 og " + (1 << 30) + ".");
+        }
+        int plasser = Integer.highestOneBit(kapasitet);
+        if (plasser < kapasitet) {
+            plasser <<= 1;
+        }
+        this.oppføringer = new Oppføring[plasser];
+        this.maske = plasser - 1;
+    }
+
+    /**
+     * Henter beregningen fra mellomlageret, eller beregner og lagrer den.
+     * @param sisteÅrslønn Personens siste årslønn.
+     * @param sumTreÅr Summen av personens tre siste årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Samme pakkede beregning som <code>Dagsatsberegning.beregn</code>.
+     */
+    public long beregn(double sisteÅrslønn, double sumTreÅr, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return beregnØre(Øre.fraKroner(sisteÅrslønn), Øre.fraKroner(sumTreÅr), grunnbeløpVerktøy);
+    }
+
+    /**
+     * Henter beregningen fra mellomlageret, eller beregner og lagrer den, med beløp i øre.
+     * @param siste Personens siste årslønn i øre.
+     * @param sum Summen av personens tre siste årslønner i øre.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Samme pakkede beregning som <code>Dagsatsberegning.beregnØre</code>.
+     */
+    public long beregnØre(long siste, long sum, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        long grunnbeløp = grunnbeløpVerktøy.hentGrunnbeløpØre();
+        int plass = spre(siste, sum, grunnbeløp) & this.maske;
+
+        Oppføring oppføring = this.oppføringer[plass];
+        if (oppføring != null && oppføring.siste == siste && oppføring.sum == sum && oppføring.grunnbeløp == grunnbeløp) {
+            this.antallTreff.increment();
+            return oppføring.beregning;
+        }
+        this.antallBom.increment();
+        long beregning = Dagsatsberegning.beregnØre(siste, sum, grunnbeløpVerktøy);
+        this.oppføringer[plass] = new Oppføring(siste, sum, grunnbeløp, beregning);
+        return beregning;
+    }
+
+    /**
+     * Henter antall beregninger som ble funnet i mellomlageret.
+     * @return Antall treff.
+     */
+    public long hentAntallTreff() {
+        return this.antallTreff.sum();
+    }
+
+    /**
+     * Henter antall beregninger som måtte gjøres fordi de ikke lå i mellomlageret.
+     * @return Antall bom.
+     */
+    public long hentAntallBom() {
+        return this.antallBom.sum();
+    }
+
+    /**
+     * Henter andelen oppslag som var treff.
+     * @return Treffraten mellom 0 og 1, eller 0 hvis det ikke er gjort oppslag.
+     */
+    public double hentTreffrate() {
+        long treff = hentAntallTreff();
+        long totalt = treff + hentAntallBom();
+        return totalt == 0 ? 0 : (double) treff / totalt;
+    }
+
+    /**
+     * Henter antall plasser i mellomlageret.
+     * @return Kapasiteten.
+     */
+    public int hentKapasitet() {
+        return this.oppføringer.length;
+    }
+
+    /**
+     * Tømmer mellomlageret og nullstiller statistikken.
+     */
+    public void tøm() {
+        for (int plass = 0; plass < this.oppføringer.length; plass++) {
+            this.oppføringer[plass] = null;
+        }
+        this.antallTreff.reset();
+        this.antallBom.reset();
+    }
+
+    private static int spre(long siste, long sum, long grunnbeløp) {
+        long blanding = siste * 0x9E3779B97F4A7C15L + sum;
+        blanding = blanding * 0xC2B2AE3D27D4EB4FL + grunnbeløp;
+        blanding ^= blanding >>> 29;
+        blanding *= 0xBF58476D1CE4E5B9L;
+        return (int) (blanding ^ (blanding >>> 32));
+    }
+
+    /* Uforanderlig oppføring, slik at en leser aldri ser en halvskrevet nøkkel. */
+    private static final class Oppføring {
+        private final long siste;
+        private final long sum;
+        private final long grunnbeløp;
+        private final long beregning;
+
+        private Oppføring(long siste, long sum, long grunnbeløp, long beregning) {
+            this.siste = siste;
+            this.sum = sum;
+            this.grunnbeløp = grunnbeløp;
+            this.beregning = beregning;
+        }
+    }
+}
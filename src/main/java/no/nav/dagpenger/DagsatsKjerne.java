@@ -0,0 +1,85 @@
+package no.nav.dagpenger;
+
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+
+/**
+ * Kalkulerer dagsats for mange personer på én gang, med siste årslønn og summen av de tre siste årene
+ * i hver sin kolonne (struct of arrays). Resultatet er det samme som <code>Dagsatsberegning.beregnØre</code>
+ * gir for hver person, pakket på samme måte.
+ *
+ * Når JVM-en er startet med <code>--add-modules jdk.incubator.vector</code>, regnes mange personer samtidig
+ * med vektorinstruksjoner (SIMD). Rett til dagpenger og valg av beregningsmetode blir da masker, og
+ * resultatene flettes sammen med maskene i stedet for med forgreninger. Uten modulen, eller med
+ * <code>-Ddagpenger.vektor=false</code>, brukes en vanlig løkke over <code>Dagsatsberegning.beregnØre</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class DagsatsKjerne {
+
+    /* Om vektorinstruksjonene kan brukes. Leses én gang ved oppstart, som Metrikker.AKTIVERT. */
+    private static final boolean VEKTORISERT = Boolean.parseBoolean(System.getProperty("dagpenger.vektor", "true"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VektorKjerne.erStøttet();
+
+    private DagsatsKjerne() {
+    }
+
+    /**
+     * Sjekker om kjernen bruker vektorinstruksjoner i denne JVM-en.
+     * @return True hvis personene regnes med vektorinstruksjoner, ellers False.
+     */
+    public static boolean erVektorisert() {
+        return VEKTORISERT;
+    }
+
+    /**
+     * Kalkulerer dagsats, beregningsmetode og spesialisering for alle personene i kolonnene.
+     * @param sisteÅrslønnØre Siste årslønn i øre per person.
+     * @param sumTreÅrØre Summen av de tre siste årslønnene i øre per person.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet alle personene skal beregnes ut ifra.
+     * @param beregninger Tabellen resultatene skrives til, pakket som fra <code>Dagsatsberegning.beregnØre</code>.
+     */
+    public static void beregn(long[] sisteÅrslønnØre, long[] sumTreÅrØre, GrunnbeløpVerktøy grunnbeløpVerktøy, long[] beregninger) {
+        beregn(sisteÅrslønnØre, sumTreÅrØre, grunnbeløpVerktøy, beregninger, 0, sjekk(sisteÅrslønnØre, sumTreÅrØre, grunnbeløpVerktøy, beregninger));
+    }
+
+    /**
+     * Kalkulerer som <code>beregn</code>, men alltid med den vanlige løkken. Brukes til å sammenligne
+     * med vektorversjonen.
+     * @param sisteÅrslønnØre Siste årslønn i øre per person.
+     * @param sumTreÅrØre Summen av de tre siste årslønnene i øre per person.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet alle personene skal beregnes ut ifra.
+     * @param beregninger Tabellen resultatene skrives til.
+     */
+    public static void beregnSkalar(long[] sisteÅrslønnØre, long[] sumTreÅrØre, GrunnbeløpVerktøy grunnbeløpVerktøy, long[] beregninger) {
+        beregnSkalar(sisteÅrslønnØre, sumTreÅrØre, grunnbeløpVerktøy, beregninger, 0,
+                sjekk(sisteÅrslønnØre, sumTreÅrØre, grunnbeløpVerktøy, beregninger));
+    }
+
+    /* Kalkulerer personene fra og med fra til til, uten å sjekke kolonnene. */
+    static void beregn(long[] siste, long[] sum, GrunnbeløpVerktøy verktøy, long[] beregninger, int fra, int til) {
+        if (!VEKTORISERT) {
+            beregnSkalar(siste, sum, verktøy, beregninger, fra, til);
+            return;
+        }
+        VektorKjerne.beregn(siste, sum, verktøy, beregninger, fra, til);
+    }
+
+    static void beregnSkalar(long[] siste, long[] sum, GrunnbeløpVerktøy verktøy, long[] beregninger, int fra, int til) {
+        for (int person = fra; person < til; person++) {
+            beregninger[person] = Dagsatsberegning.beregnØre(siste[person], sum[person], verktøy);
+        }
+    }
+
+    private static int sjekk(long[] siste, long[] sum, GrunnbeløpVerktøy verktøy, long[] beregninger) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ulikt lange kolonner. */
+        if (siste == null || sum == null || verktøy == null || beregninger == null) {
+            throw new IllegalArgumentException("Kolonner og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        if (siste.length != sum.length || siste.length != beregninger.length) {
+            throw new IllegalArgumentException("Alle kolonner må ha like mange rader.");
+        }
+        return siste.length;
+    }
+}
@@ -0,0 +1,194 @@
+package no.nav.dagpenger;
+
+import no.nav.beløp.Øre;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+
+/**
+ * Reglene for rett til dagpenger og beregning av dagsats, uttrykt med bare siste årslønn og summen av
+ * de tre siste årslønnene. Reglene er samlet her slik at kalkulering av én person i
+ * <code>DagpengerKalkulator</code> og kalkulering av mange personer i batch gir nøyaktig samme resultat.
+ *
+ * Hele vurderingen gjøres i ett pass av <code>beregn</code>, som returnerer dagsats, beregningsmetode og
+ * spesialisering pakket i én <code>long</code>, slik at det ikke lages noen objekter per beregning.
+ * Tersklene (1.5G, 3G og 6G) er regnet ut på forhånd i <code>GrunnbeløpVerktøy</code>.
+ * De øvrige metodene er tynne innpakninger rundt <code>beregn</code>.
+ *
+ * Beløpene regnes i hele øre med <code>long</code>, så alle sammenligninger er eksakte. Gjennomsnittet av
+ * tre år regnes aldri ut: siste årslønn sammenlignes med summen ganget med tre i stedet, og dagsatsen
+ * rundes opp med heltallsdivisjon rett fra summen. Personer med gjennomsnitt nøyaktig på en terskel får
+ * dermed samme resultat uansett maskin og rekkefølge. Metodene som tar kroner som <code>double</code>
+ * runder til nærmeste øre først.
+ *
+ * @author Mila Toneff
+ * @version 1.2
+ */
+public final class Dagsatsberegning {
+
+    /* Konstanter til koden for enkel gjenbruk */
+    static final int ARBEIDSDAGER_I_ÅRET = 260;
+    /* Dagsatsen i kroner er årlig grunnlag i øre delt på disse, rundet opp. */
+    static final long ØRE_PER_ÅRLIG_KRONE = ARBEIDSDAGER_I_ÅRET * Øre.PER_KRONE;
+    static final long ØRE_PER_ÅRLIG_KRONE_TRE_ÅR = 3 * ØRE_PER_ÅRLIG_KRONE;
+
+    /* Oppsett av en pakket beregning: dagsats i de øverste bitene, deretter metode og spesialisering. */
+    static final int BITER_SPESIALISERING = 4;
+    private static final int BITER_METODE = 4;
+    static final int FORSKYVNING_DAGSATS = BITER_SPESIALISERING + BITER_METODE;
+    private static final long MASKE = (1L << BITER_METODE) - 1;
+
+    /* Kopier av values(), som ellers lager en ny tabell ved hvert kall. */
+    private static final Beregningsmetode[] BEREGNINGSMETODER = Beregningsmetode.values();
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+
+    /* Én teller per kombinasjon av beregningsmetode og spesialisering, så hver beregning bare øker én. */
+    private static final Teller[] UTFALL = new Teller[BEREGNINGSMETODER.length * SPESIALISERINGER.length];
+    static {
+        for (Beregningsmetode beregningsmetode : BEREGNINGSMETODER) {
+            for (Spesialisering spesialisering : SPESIALISERINGER) {
+                UTFALL[beregningsmetode.ordinal() * SPESIALISERINGER.length + spesialisering.ordinal()] =
+                        Metrikker.teller("dagpenger.beregning." + beregningsmetode + "." + spesialisering);
+            }
+        }
+    }
+
+    private Dagsatsberegning() {
+    }
+
+    /**
+     * Vurderer rett til dagpenger, velger beregningsmetode og kalkulerer dagsats i ett pass.
+     * @param sisteÅrslønn Personens siste årslønn.
+     * @param sumTreÅr Summen av personens tre siste årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Dagsats, beregningsmetode og spesialisering pakket sammen. Hentes ut med
+     * <code>hentDagsats</code>, <code>hentBeregningsmetode</code> og <code>hentSpesialisering</code>.
+     * @see #beregnØre(long, long, GrunnbeløpVerktøy)
+     */
+    public static long beregn(double sisteÅrslønn, double sumTreÅr, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return beregnØre(Øre.fraKroner(sisteÅrslønn), Øre.fraKroner(sumTreÅr), grunnbeløpVerktøy);
+    }
+
+    /**
+     * Vurderer rett til dagpenger, velger beregningsmetode og kalkulerer dagsats i ett pass, med beløp i øre.
+     * @param sisteÅrslønnØre Personens siste årslønn i øre.
+     * @param sumTreÅrØre Summen av personens tre siste årslønner i øre.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Dagsats i hele kroner, beregningsmetode og spesialisering pakket sammen.
+     */
+    public static long beregnØre(long sisteÅrslønnØre, long sumTreÅrØre, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        long maksÅrligDagpengegrunnlag = grunnbeløpVerktøy.hentMaksÅrligDagpengegrunnlagØre();
+
+        /* Velger beregningsmetode, og regner dagsatsen av grunnlaget rundet opp til hele kroner.
+        Siste årslønn er høyst gjennomsnittet av tre år når tre ganger siste årslønn er høyst summen. */
+        Beregningsmetode beregningsmetode;
+        long dagsats;
+        if (sisteÅrslønnØre * 3 <= sumTreÅrØre) {
+            beregningsmetode = Beregningsmetode.GJENNOMSNITT_AV_TRE_ÅR;
+            dagsats = Math.ceilDiv(sumTreÅrØre, ØRE_PER_ÅRLIG_KRONE_TRE_ÅR);
+        } else if (sisteÅrslønnØre > maksÅrligDagpengegrunnlag) {
+            beregningsmetode = Beregningsmetode.MAKS_ÅRLIG_DAGPENGERGRUNNLAG;
+            dagsats = Math.ceilDiv(maksÅrligDagpengegrunnlag, ØRE_PER_ÅRLIG_KRONE);
+        } else {
+            beregningsmetode = Beregningsmetode.SISTE_ÅRSLØNN;
+            dagsats = Math.ceilDiv(sisteÅrslønnØre, ØRE_PER_ÅRLIG_KRONE);
+        }
+
+        /* Enten må summen av de tre siste årene overstige 3G,
+        eller så må siste årslønn overstige 1.5G. */
+        if (sumTreÅrØre < grunnbeløpVerktøy.hentTreÅrsGrunnbeløpØre()
+                && sisteÅrslønnØre < grunnbeløpVerktøy.hentMinimumÅrslønnØre()) {
+            return pakk(0, beregningsmetode, Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+        }
+
+        Spesialisering spesialisering = beregningsmetode == Beregningsmetode.MAKS_ÅRLIG_DAGPENGERGRUNNLAG
+                ? Spesialisering.INNVILGET_MED_MAKSSATS
+                : Spesialisering.INNVILGET;
+        return pakk(dagsats, beregningsmetode, spesialisering);
+    }
+
+    /**
+     * Henter dagsatsen fra en pakket beregning.
+     * @param beregning Resultat fra <code>beregn</code>.
+     * @return Dagsatsen personen har rett på, 0 ved avslag.
+     */
+    public static double hentDagsats(long beregning) {
+        return beregning >> FORSKYVNING_DAGSATS;
+    }
+
+    /**
+     * Henter beregningsmetoden fra en pakket beregning.
+     * @param beregning Resultat fra <code>beregn</code>.
+     * @return Beregningsmetoden, også ved avslag.
+     */
+    public static Beregningsmetode hentBeregningsmetode(long beregning) {
+        return BEREGNINGSMETODER[(int) ((beregning >>> BITER_SPESIALISERING) & MASKE)];
+    }
+
+    /**
+     * Henter spesialiseringen fra en pakket beregning.
+     * @param beregning Resultat fra <code>beregn</code>.
+     * @return Spesialiseringen til resultatet.
+     */
+    public static Spesialisering hentSpesialisering(long beregning) {
+        return SPESIALISERINGER[(int) (beregning & MASKE)];
+    }
+
+    /**
+     * Kalkulerer dagsatsen en person har rett på, eller 0kr hvis personen ikke har rett på dagpenger.
+     * @param sisteÅrslønn Personens siste årslønn.
+     * @param sumTreÅr Summen av personens tre siste årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Dagsatsen personen har rett på.
+     */
+    public static double kalkulerDagsats(double sisteÅrslønn, double sumTreÅr, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return hentDagsats(beregn(sisteÅrslønn, sumTreÅr, grunnbeløpVerktøy));
+    }
+
+    /**
+     * Sjekker om en person har rettighet til dagpenger eller ikke.
+     * @param sisteÅrslønn Personens siste årslønn.
+     * @param sumTreÅr Summen av personens tre siste årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return True om personen har rett på dagpenger, ellers False.
+     */
+    public static boolean harRettigheterTilDagpenger(double sisteÅrslønn, double sumTreÅr, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return hentSpesialisering(beregn(sisteÅrslønn, sumTreÅr, grunnbeløpVerktøy)) != Spesialisering.AVSLAG_FOR_LAV_INNTEKT;
+    }
+
+    /**
+     * Velger hva som skal være beregnings metode for dagsats.
+     * @param sisteÅrslønn Personens siste årslønn.
+     * @param sumTreÅr Summen av personens tre siste årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Navnet på beregningsmetoden for dagsats.
+     */
+    public static String velgBeregningsMetode(double sisteÅrslønn, double sumTreÅr, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return hentBeregningsmetode(beregn(sisteÅrslønn, sumTreÅr, grunnbeløpVerktøy)).hentNavn();
+    }
+
+    /**
+     * Finner hvilken spesialisering et resultat hører til, altså hvilken saksbehandler som skal behandle det.
+     * @param sisteÅrslønn Personens siste årslønn.
+     * @param sumTreÅr Summen av personens tre siste årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet det skal beregnes ut ifra.
+     * @return Spesialiseringen til resultatet.
+     */
+    public static Spesialisering velgSpesialisering(double sisteÅrslønn, double sumTreÅr, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        return hentSpesialisering(beregn(sisteÅrslønn, sumTreÅr, grunnbeløpVerktøy));
+    }
+
+    /* Teller utfallet av en beregning som er pakket uten å gå gjennom pakk, som i DagsatsKjerne. */
+    static void tell(long beregning) {
+        UTFALL[(int) ((beregning >>> BITER_SPESIALISERING) & MASKE) * SPESIALISERINGER.length + (int) (beregning & MASKE)].øk();
+    }
+
+    private static long pakk(long dagsats, Beregningsmetode beregningsmetode, Spesialisering spesialisering) {
+        if (Metrikker.AKTIVERT) {
+            UTFALL[beregningsmetode.ordinal() * SPESIALISERINGER.length + spesialisering.ordinal()].øk();
+        }
+        return dagsats << FORSKYVNING_DAGSATS
+                | (long) beregningsmetode.ordinal() << BITER_SPESIALISERING
+                | spesialisering.ordinal();
+    }
+}
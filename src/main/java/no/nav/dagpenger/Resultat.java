@@ -1,5 +1,9 @@
 package no.nav.dagpenger;
 
+import no.nav.metrikk.Metrikker;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * Resultat fra kalkulering gjennom DagpengerKalkulator
  * Et resultat inneholder informasjon om hvis en beregning gir rett på dagpenger,
@@ -11,16 +15,31 @@ package no.nav.dagpenger;
  * - Status for resultatet (innvilget, innvilget med makssats, eller avslag).
  * - Om resultatet har blitt godkjent av en saksbehandler.
  *
+ * Et nytt resultat er ubehandlet. Overgangen til godkjent eller avslått skjer med compare-and-set,
+ * slik at bare én saksbehandler kan behandle resultatet, selv om flere får tak i det samtidig.
+ * Resultater fra en beregning telles i <code>Resultatstatistikk</code> når de beregnes, og overgangene deres
+ * når de behandles. Et resultat laget med konstruktøren, for eksempel en kopi av et lagret vedtak, telles ikke.
+ * Når målinger er på, husker resultater fra en beregning også når de ble laget, for å måle ventetiden
+ * i saksbehandlingen. Ellers tar et resultat ikke plass til tidspunktet.
+ *
  * @author Mila Toneff
- * @version 1.0
+ * @version 1.4
  */
 public class Resultat {
+    /* Personen resultatet gjelder, eller 0 hvis resultatet ikke er knyttet til en person-id */
+    private final long personId;
     /* Beregnet dagsats hentet fra kalkulatoren */
     private final double beregnetDagsats;
     /* Spesialisering resultatet ligger innenfor */
     private final Spesialisering spesialisering;
-    /* Hvorvidt resultatet har blitt godkjent av en saksbehandler */
-    private boolean erGodkjent;
+    /* Om resultatet er telt i Resultatstatistikk, og overgangene derfor skal telles */
+    private final boolean telles;
+    /* Hvor langt resultatet har kommet i saksbehandlingen. Endres bare gjennom STATUS. */
+    private volatile Behandlingsstatus status;
+
+    /* Compare-and-set på status uten et eget atomisk objekt per resultat */
+    private static final AtomicReferenceFieldUpdater<Resultat, Behandlingsstatus> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(Resultat.class, Behandlingsstatus.class, "status");
 
     /**
      * Oppretter et nytt resultat med beregnet dagsats og spesialisering.
@@ -28,9 +47,73 @@ public class Resultat {
      * @param spesialisering Spesialiseringen for resultatet.
      */
     public Resultat(double beregnetDagsats, Spesialisering spesialisering) {
+        this(0, beregnetDagsats, spesialisering);
+    }
+
+    /**
+     * Oppretter et nytt resultat for en gitt person med beregnet dagsats og spesialisering.
+     * @param personId Id-en til personen resultatet gjelder.
+     * @param beregnetDagsats Dagsatsen som er beregnet.
+     * @param spesialisering Spesialiseringen for resultatet.
+     */
+    public Resultat(long personId, double beregnetDagsats, Spesialisering spesialisering) {
+        this(personId, beregnetDagsats, spesialisering, Behandlingsstatus.UBEHANDLET, false);
+    }
+
+    private Resultat(long personId, double beregnetDagsats, Spesialisering spesialisering,
+                     Behandlingsstatus status, boolean telles) {
+        this.personId = personId;
         this.beregnetDagsats = beregnetDagsats;
         this.spesialisering = spesialisering;
-        this.erGodkjent = spesialisering.erGodkjent();
+        this.status = status;
+        this.telles = telles;
+    }
+
+    /**
+     * Lager resultatet av en beregning fra <code>Dagsatsberegning</code>, og teller det i <code>Resultatstatistikk</code>.
+     * @param personId Id-en til personen resultatet gjelder, eller 0.
+     * @param beregning Beregningen, pakket som fra <code>Dagsatsberegning.beregnØre</code>.
+     * @return Det nye, ubehandlede resultatet.
+     */
+    public static Resultat fraBeregning(long personId, long beregning) {
+        Resultatstatistikk.standard().registrerBeregning(beregning);
+        return lagTelt(personId, Dagsatsberegning.hentDagsats(beregning), Dagsatsberegning.hentSpesialisering(beregning));
+    }
+
+    /* Resultatet for én person i en batch-kalkulering, som ble telt da batchen ble kalkulert. */
+    static Resultat fraBatch(BatchResultat batchResultat, int person) {
+        return lagTelt(batchResultat.hentPersonId(person), batchResultat.hentDagsats(person),
+                batchResultat.hentSpesialisering(person));
+    }
+
+    /* Et nytt, telt resultat, som også husker når det ble laget hvis målinger er på. */
+    private static Resultat lagTelt(long personId, double beregnetDagsats, Spesialisering spesialisering) {
+        return Metrikker.AKTIVERT
+                ? new Målt(personId, beregnetDagsats, spesialisering)
+                : new Resultat(personId, beregnetDagsats, spesialisering, Behandlingsstatus.UBEHANDLET, true);
+    }
+
+    /* Gjenskaper et lagret resultat med statusen det hadde, uten å telle det eller statusen på nytt. */
+    static Resultat gjenskap(long personId, double beregnetDagsats, Spesialisering spesialisering, Behandlingsstatus status) {
+        return new Resultat(personId, beregnetDagsats, spesialisering, status, false);
+    }
+
+    /**
+     * Henter id-en til personen resultatet gjelder.
+     * @return Person-id, eller 0 hvis resultatet ikke er knyttet til en person-id.
+     */
+    public long hentPersonId() {
+        return personId;
+    }
+
+    /* Om resultatet er telt i Resultatstatistikk */
+    boolean erTelt() {
+        return telles;
+    }
+
+    /* Tidspunktet resultatet ble laget, fra System.nanoTime(), eller 0 hvis det ikke er målt */
+    long hentOpprettetNanos() {
+        return 0;
     }
 
     /**
@@ -49,19 +132,84 @@ public class Resultat {
         return spesialisering;
     }
 
+    /**
+     * Henter hvor langt resultatet har kommet i saksbehandlingen.
+     * @return Behandlingsstatusen.
+     */
+    public Behandlingsstatus hentStatus() {
+        return status;
+    }
+
+    /**
+     * Sjekker om resultatet er behandlet av en saksbehandler.
+     * @return True hvis resultatet er godkjent eller avslått, ellers false.
+     */
+    public boolean erBehandlet() {
+        return status != Behandlingsstatus.UBEHANDLET;
+    }
+
     /**
      * Sjekker om resultatet er godkjent.
      * @return True hvis resultatet er godkjent, ellers false.
      */
     public boolean erGodkjent() {
-        return erGodkjent;
+        return status == Behandlingsstatus.GODKJENT;
+    }
+
+    /**
+     * Godkjenner eller avslår et ubehandlet resultat.
+     * Har resultatet allerede blitt behandlet, for eksempel av en annen saksbehandler, endres ingenting.
+     * @param erGodkjent Om resultatet er godkjent.
+     * @return True hvis dette kallet behandlet resultatet, false hvis det var behandlet fra før.
+     */
+    public boolean behandle(boolean erGodkjent) {
+        Behandlingsstatus ny = erGodkjent ? Behandlingsstatus.GODKJENT : Behandlingsstatus.AVSLÅTT;
+        if (!STATUS.compareAndSet(this, Behandlingsstatus.UBEHANDLET, ny)) {
+            return false;
+        }
+        registrerOvergang(Behandlingsstatus.UBEHANDLET, ny);
+        return true;
     }
 
     /**
-     * Setter resultatet som godkjent eller avslått av saksbehandleren.
+     * Setter resultatet som godkjent eller avslått av saksbehandleren, uansett tidligere status.
      * @param erGodkjent Om resultatet er godkjent.
+     * @see #behandle(boolean)
      */
     public void settGodkjenning(boolean erGodkjent) {
-        this.erGodkjent = erGodkjent;
+        Behandlingsstatus ny = erGodkjent ? Behandlingsstatus.GODKJENT : Behandlingsstatus.AVSLÅTT;
+        registrerOvergang(STATUS.getAndSet(this, ny), ny);
+    }
+
+    /* Setter et resultat behandlet med behandle(erGodkjent) tilbake som ubehandlet, for eksempel når
+    vedtaket ikke kunne journalføres. Har statusen endret seg siden, står den nye statusen. */
+    void angreBehandling(boolean erGodkjent) {
+        Behandlingsstatus ny = erGodkjent ? Behandlingsstatus.GODKJENT : Behandlingsstatus.AVSLÅTT;
+        if (STATUS.compareAndSet(this, ny, Behandlingsstatus.UBEHANDLET)) {
+            registrerOvergang(ny, Behandlingsstatus.UBEHANDLET);
+        }
+    }
+
+    private void registrerOvergang(Behandlingsstatus fra, Behandlingsstatus til) {
+        if (this.telles) {
+            Resultatstatistikk.standard().registrerOvergang(this.spesialisering, this.beregnetDagsats, fra, til);
+        }
+    }
+
+    /*
+     * Et telt resultat som husker når det ble laget, for å måle hvor lenge det venter på saksbehandling.
+     * Lages bare når målinger er på, så vanlige resultater ikke bærer med seg tidspunktet.
+     */
+    private static final class Målt extends Resultat {
+        private final long opprettetNanos = System.nanoTime();
+
+        private Målt(long personId, double beregnetDagsats, Spesialisering spesialisering) {
+            super(personId, beregnetDagsats, spesialisering, Behandlingsstatus.UBEHANDLET, true);
+        }
+
+        @Override
+        long hentOpprettetNanos() {
+            return opprettetNanos;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,483 @@
+package no.nav.dagpenger;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.function.IntConsumer;
+
+/**
+ * Kompakt lager for mange resultater, for eksempel alle resultatene fra en ny beregning av hele befolkningen
+ * mens de venter på saksbehandling. I stedet for ett <code>Resultat</code>-objekt per person ligger resultatene
+ * i kolonner av primitive tabeller, én plass per person: person-id, dagsats i hele kroner, spesialisering og
+ * behandlingsstatus. Et resultat tar 14 bytes, mot rundt 50 bytes for et <code>Resultat</code> med referansen til det.
+ *
+ * Å lete gjennom alle resultatene innenfor en spesialisering leser bare kolonnen med spesialiseringer,
+ * åtte plasser om gangen, så letingen går omtrent så fort som minnet kan levere bytene.
+ * En <code>Visning</code> gir tilgang til ett resultat med samme metoder som <code>Resultat</code>,
+ * og kan flyttes fra plass til plass uten å lage nye objekter.
+ *
+ * Resultater legges inn fra én tråd. Behandling og lesing kan skje fra mange tråder samtidig, også mens resultater
+ * legges inn, og en plass kan bare behandles én gang med <code>behandle</code>, som for <code>Resultat</code>.
+ * Resultater fra en batch-kalkulering er telt i <code>Resultatstatistikk</code> da de ble beregnet, og overgangene
+ * deres telles her. Som for <code>Resultat</code> telles ikke resultater som legges inn med dagsats og spesialisering.
+ *
+ * @author Mila Toneff
+ * @version 1.2
+ */
+public final class ResultatLager {
+
+    /** Antall bytes hvert resultat tar i lageret. */
+    public static final int BYTES_PER_RESULTAT = Long.BYTES + Integer.BYTES + 2;
+
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+    private static final Behandlingsstatus[] STATUSER = Behandlingsstatus.values();
+
+    /* Compare-and-set på statusen til én plass, og åtte spesialiseringer lest som ett tall. */
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final VarHandle ÅTTE_BYTES = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ENERE = 0x0101010101010101L;
+    private static final long HØYE_BITER = 0x8080808080808080L;
+    private static final long LAVE_BITER = 0x7F7F7F7F7F7F7F7FL;
+
+    private final long[] personIder;
+    private final int[] dagsatser;
+    private final byte[] spesialiseringer;
+    private final byte[] statuser;
+    /* Én bit per plass, satt for resultater som er telt i Resultatstatistikk. */
+    private final long[] telt;
+    /* Skrives etter kolonnene, så en plass under antall alltid er ferdig skrevet. */
+    private volatile int antall;
+
+    /**
+     * Oppretter et tomt lager med plass til et gitt antall resultater.
+     * @param kapasitet Høyeste antall resultater i lageret.
+     */
+    public ResultatLager(int kapasitet) {
+        /* Feilhåndtering: Kaster unntak ved negativ kapasitet. */
+        if (kapasitet < 0) {
+            throw new IllegalArgumentException("Kapasitet kan ikke være negativ.");
+        }
+        this.personIder = new long[kapasitet];
+        this.dagsatser = new int[kapasitet];
+        this.spesialiseringer = new byte[kapasitet];
+        this.statuser = new byte[kapasitet];
+        this.telt = new long[(kapasitet + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Oppretter et lager med alle personene i et batch-resultat, som ubehandlede resultater.
+     * @param batchResultat Resultatet fra en batch-kalkulering.
+     * @return Lageret, med personene i samme rekkefølge som i batch-resultatet.
+     */
+    public static ResultatLager fra(BatchResultat batchResultat) {
+        /* Feilhåndtering: Kaster unntak hvis batch-resultatet er null. */
+        if (batchResultat == null) {
+            throw new IllegalArgumentException("Batch-resultat kan ikke være uten verdi (null).");
+        }
+        ResultatLager lager = new ResultatLager(batchResultat.hentAntallPersoner());
+        lager.leggTilAlle(batchResultat);
+        return lager;
+    }
+
+    /**
+     * Legger til et ubehandlet resultat. Resultatet telles ikke i <code>Resultatstatistikk</code>.
+     * @param personId Id-en til personen resultatet gjelder. Kan ikke være 0.
+     * @param dagsats Dagsatsen i hele kroner.
+     * @param spesialisering Spesialiseringen for resultatet.
+     * @return Plassen resultatet fikk.
+     */
+    public int leggTil(long personId, double dagsats, Spesialisering spesialisering) {
+        return leggTil(personId, dagsats, spesialisering, false);
+    }
+
+    /**
+     * Legger til et ubehandlet resultat. Er resultatet telt i <code>Resultatstatistikk</code>, for eksempel fordi
+     * det er laget av <code>DagpengerKalkulator</code>, telles overgangene i lageret.
+     * @param resultat Resultatet, med person-id. Statusen tas ikke med.
+     * @return Plassen resultatet fikk.
+     */
+    public int leggTil(Resultat resultat) {
+        /* Feilhåndtering: Kaster unntak hvis resultatet er null. */
+        if (resultat == null) {
+            throw new IllegalArgumentException("Resultat kan ikke være uten verdi (null).");
+        }
+        return leggTil(resultat.hentPersonId(), resultat.hentBeregnetDagsats(), resultat.hentSpesialisering(), resultat.erTelt());
+    }
+
+    private int leggTil(long personId, double dagsats, Spesialisering spesialisering, boolean erTelt) {
+        /* Feilhåndtering: Kaster unntak ved manglende spesialisering eller person-id, eller en dagsats som ikke er hele kroner. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        if (personId == 0) {
+            throw new IllegalArgumentException("Resultat må ha person-id for å legges i lageret.");
+        }
+        int plass = nyPlass(1);
+        this.personIder[plass] = personId;
+        this.dagsatser[plass] = tilHeleKroner(dagsats);
+        this.spesialiseringer[plass] = (byte) spesialisering.ordinal();
+        if (erTelt) {
+            this.telt[plass >>> 6] |= 1L << plass;
+        }
+        this.antall = plass + 1;
+        return plass;
+    }
+
+    /**
+     * Legger til alle personene i et batch-resultat som ubehandlede resultater.
+     * Mangler en av personene person-id, legges ingen av dem inn.
+     * @param batchResultat Resultatet fra en batch-kalkulering. Alle personene må ha person-id.
+     * @return Plassen første person fikk. De andre følger etter i samme rekkefølge.
+     */
+    public int leggTilAlle(BatchResultat batchResultat) {
+        /* Feilhåndtering: Kaster unntak hvis batch-resultatet er null. */
+        if (batchResultat == null) {
+            throw new IllegalArgumentException("Batch-resultat kan ikke være uten verdi (null).");
+        }
+        int antallPersoner = batchResultat.hentAntallPersoner();
+        /* Feilhåndtering: Kaster unntak før noe legges inn hvis en av personene mangler person-id. */
+        long[] personIder = batchResultat.hentPersonIder();
+        for (int person = 0; person < antallPersoner; person++) {
+            if (personIder[person] == 0) {
+                throw new IllegalArgumentException("Resultat må ha person-id for å legges i lageret.");
+            }
+        }
+        int start = nyPlass(antallPersoner);
+        double[] dagsatser = batchResultat.hentDagsatser();
+        byte[] spesialiseringer = batchResultat.hentSpesialiseringer();
+        for (int person = 0; person < antallPersoner; person++) {
+            this.dagsatser[start + person] = tilHeleKroner(dagsatser[person]);
+        }
+        for (int plass = start; plass < start + antallPersoner; plass++) {
+            this.telt[plass >>> 6] |= 1L << plass;
+        }
+        System.arraycopy(personIder, 0, this.personIder, start, antallPersoner);
+        System.arraycopy(spesialiseringer, 0, this.spesialiseringer, start, antallPersoner);
+        this.antall = start + antallPersoner;
+        return start;
+    }
+
+    private int nyPlass(int antallPlasser) {
+        int plass = this.antall;
+        /* Feilhåndtering: Kaster unntak hvis lageret er fullt. */
+        if (antallPlasser > this.personIder.length - plass) {
+            throw new IllegalStateException("Lageret har ikke plass til " + antallPlasser + " resultater til.");
+        }
+        return plass;
+    }
+
+    private static int tilHeleKroner(double dagsats) {
+        int kroner = (int) dagsats;
+        /* Feilhåndtering: Kaster unntak for dagsatser som ikke kan lagres som hele kroner. */
+        if (kroner != dagsats || kroner < 0) {
+            throw new IllegalArgumentException("Dagsats må være et helt antall kroner, og ikke negativ: " + dagsats + ".");
+        }
+        return kroner;
+    }
+
+    /**
+     * Henter antall resultater i lageret.
+     * @return antall resultater.
+     */
+    public int hentAntall() {
+        return this.antall;
+    }
+
+    /**
+     * Henter hvor mange resultater lageret har plass til.
+     * @return kapasiteten.
+     */
+    public int hentKapasitet() {
+        return this.personIder.length;
+    }
+
+    /**
+     * Henter id-en til personen på en plass.
+     * @param plass Plassen til resultatet.
+     * @return id-en til personen.
+     */
+    public long hentPersonId(int plass) {
+        return this.personIder[sjekkPlass(plass)];
+    }
+
+    /**
+     * Henter dagsatsen på en plass.
+     * @param plass Plassen til resultatet.
+     * @return dagsatsen i hele kroner.
+     */
+    public double hentDagsats(int plass) {
+        return this.dagsatser[sjekkPlass(plass)];
+    }
+
+    /**
+     * Henter spesialiseringen på en plass.
+     * @param plass Plassen til resultatet.
+     * @return spesialiseringen.
+     */
+    public Spesialisering hentSpesialisering(int plass) {
+        return SPESIALISERINGER[this.spesialiseringer[sjekkPlass(plass)]];
+    }
+
+    /**
+     * Henter hvor langt resultatet på en plass har kommet i saksbehandlingen.
+     * @param plass Plassen til resultatet.
+     * @return Behandlingsstatusen.
+     */
+    public Behandlingsstatus hentStatus(int plass) {
+        return STATUSER[(byte) STATUS.getVolatile(this.statuser, sjekkPlass(plass))];
+    }
+
+    /**
+     * Godkjenner eller avslår et ubehandlet resultat.
+     * Har resultatet allerede blitt behandlet, for eksempel av en annen saksbehandler, endres ingenting.
+     * @param plass Plassen til resultatet.
+     * @param erGodkjent Om resultatet er godkjent.
+     * @return True hvis dette kallet behandlet resultatet, false hvis det var behandlet fra før.
+     * @see Resultat#behandle(boolean)
+     */
+    public boolean behandle(int plass, boolean erGodkjent) {
+        Behandlingsstatus ny = erGodkjent ? Behandlingsstatus.GODKJENT : Behandlingsstatus.AVSLÅTT;
+        if (!STATUS.compareAndSet(this.statuser, sjekkPlass(plass), (byte) Behandlingsstatus.UBEHANDLET.ordinal(), (byte) ny.ordinal())) {
+            return false;
+        }
+        registrerOvergang(plass, Behandlingsstatus.UBEHANDLET, ny);
+        return true;
+    }
+
+    /**
+     * Setter resultatet på en plass som godkjent eller avslått, uansett tidligere status.
+     * @param plass Plassen til resultatet.
+     * @param erGodkjent Om resultatet er godkjent.
+     * @see Resultat#settGodkjenning(boolean)
+     */
+    public void settGodkjenning(int plass, boolean erGodkjent) {
+        Behandlingsstatus ny = erGodkjent ? Behandlingsstatus.GODKJENT : Behandlingsstatus.AVSLÅTT;
+        byte fra = (byte) STATUS.getAndSet(this.statuser, sjekkPlass(plass), (byte) ny.ordinal());
+        registrerOvergang(plass, STATUSER[fra], ny);
+    }
+
+    /* Setter en plass behandlet med behandle(plass, erGodkjent) tilbake som ubehandlet.
+    Har statusen endret seg siden, står den nye statusen. */
+    void angreBehandling(int plass, boolean erGodkjent) {
+        Behandlingsstatus ny = erGodkjent ? Behandlingsstatus.GODKJENT : Behandlingsstatus.AVSLÅTT;
+        if (STATUS.compareAndSet(this.statuser, sjekkPlass(plass), (byte) ny.ordinal(), (byte) Behandlingsstatus.UBEHANDLET.ordinal())) {
+            registrerOvergang(plass, ny, Behandlingsstatus.UBEHANDLET);
+        }
+    }
+
+    private void registrerOvergang(int plass, Behandlingsstatus fra, Behandlingsstatus til) {
+        if ((this.telt[plass >>> 6] & 1L << plass) == 0) {
+            return;
+        }
+        Resultatstatistikk.standard().registrerOvergang(SPESIALISERINGER[this.spesialiseringer[plass]],
+                this.dagsatser[plass], fra, til);
+    }
+
+    /**
+     * Finner neste plass med en gitt spesialisering.
+     * @param spesialisering Spesialiseringen.
+     * @param fra Første plass som sjekkes.
+     * @return Plassen, eller -1 hvis det ikke er flere resultater med spesialiseringen.
+     */
+    public int finnNeste(Spesialisering spesialisering, int fra) {
+        /* Feilhåndtering: Kaster unntak hvis spesialiseringen er null. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        byte søkt = (byte) spesialisering.ordinal();
+        long mønster = ENERE * søkt;
+        int slutt = this.antall;
+        int plass = Math.max(fra, 0);
+        /* Åtte plasser om gangen: en byte lik den søkte blir null etter xor, og den laveste nullbyten finnes eksakt. */
+        for (; plass <= slutt - Long.BYTES; plass += Long.BYTES) {
+            long åtte = (long) ÅTTE_BYTES.get(this.spesialiseringer, plass) ^ mønster;
+            long nuller = (åtte - ENERE) & ~åtte & HØYE_BITER;
+            if (nuller != 0) {
+                return plass + (Long.numberOfTrailingZeros(nuller) >>> 3);
+            }
+        }
+        for (; plass < slutt; plass++) {
+            if (this.spesialiseringer[plass] == søkt) {
+                return plass;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Teller resultatene med en gitt spesialisering.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall resultater med spesialiseringen.
+     */
+    public int tell(Spesialisering spesialisering) {
+        /* Feilhåndtering: Kaster unntak hvis spesialiseringen er null. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        long mønster = ENERE * spesialisering.ordinal();
+        int slutt = this.antall;
+        int ulike = 0;
+        int plass = 0;
+        /* Høy bit settes i hver byte som ikke er null etter xor, uten mente mellom bytene. */
+        for (; plass <= slutt - Long.BYTES; plass += Long.BYTES) {
+            long åtte = (long) ÅTTE_BYTES.get(this.spesialiseringer, plass) ^ mønster;
+            ulike += Long.bitCount((((åtte & LAVE_BITER) + LAVE_BITER) | åtte) & HØYE_BITER);
+        }
+        int antallLike = plass - ulike;
+        for (; plass < slutt; plass++) {
+            if (this.spesialiseringer[plass] == spesialisering.ordinal()) {
+                antallLike++;
+            }
+        }
+        return antallLike;
+    }
+
+    /**
+     * Summerer dagsatsene til resultatene med en gitt spesialisering.
+     * @param spesialisering Spesialiseringen.
+     * @return Summen i hele kroner.
+     */
+    public long summerDagsatser(Spesialisering spesialisering) {
+        /* Feilhåndtering: Kaster unntak hvis spesialiseringen er null. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        byte søkt = (byte) spesialisering.ordinal();
+        int slutt = this.antall;
+        long sum = 0;
+        /* Uten hopp i løkken: masken er bare enere når spesialiseringen er lik, og ellers null. */
+        for (int plass = 0; plass < slutt; plass++) {
+            int maske = ((this.spesialiseringer[plass] ^ søkt) - 1) >> 31;
+            sum += this.dagsatser[plass] & maske;
+        }
+        return sum;
+    }
+
+    /**
+     * Går gjennom alle plassene med en gitt spesialisering, i rekkefølge.
+     * @param spesialisering Spesialiseringen.
+     * @param handling Får plassen til hvert resultat med spesialiseringen.
+     */
+    public void forHver(Spesialisering spesialisering, IntConsumer handling) {
+        /* Feilhåndtering: Kaster unntak hvis handlingen er null. */
+        if (handling == null) {
+            throw new IllegalArgumentException("Handling kan ikke være uten verdi (null).");
+        }
+        for (int plass = finnNeste(spesialisering, 0); plass >= 0; plass = finnNeste(spesialisering, plass + 1)) {
+            handling.accept(plass);
+        }
+    }
+
+    /**
+     * Lager en visning av resultatet på en plass.
+     * @param plass Plassen til resultatet.
+     * @return Visningen, som kan flyttes til andre plasser.
+     */
+    public Visning hentVisning(int plass) {
+        return new Visning().flytt(plass);
+    }
+
+    private int sjekkPlass(int plass) {
+        /* Feilhåndtering: Kaster unntak for plasser som ikke har et resultat ennå. */
+        if (plass < 0 || plass >= this.antall) {
+            throw new IndexOutOfBoundsException("Plass " + plass + " finnes ikke i lageret med " + this.antall + " resultater.");
+        }
+        return plass;
+    }
+
+    /**
+     * Visning av ett resultat i lageret, med samme metoder som <code>Resultat</code>.
+     * Visningen holder bare plassen, så den kan flyttes gjennom hele lageret uten å lage nye objekter.
+     * Endringer gjennom visningen skjer i lageret.
+     */
+    public final class Visning {
+
+        private int plass;
+
+        private Visning() {
+        }
+
+        /**
+         * Flytter visningen til en annen plass.
+         * @param plass Plassen til resultatet.
+         * @return Denne visningen.
+         */
+        public Visning flytt(int plass) {
+            this.plass = sjekkPlass(plass);
+            return this;
+        }
+
+        /**
+         * Henter plassen visningen står på.
+         * @return plassen.
+         */
+        public int hentPlass() {
+            return this.plass;
+        }
+
+        /**
+         * Henter id-en til personen resultatet gjelder.
+         * @return Person-id.
+         */
+        public long hentPersonId() {
+            return ResultatLager.this.hentPersonId(this.plass);
+        }
+
+        /**
+         * Henter den beregnede dagsatsen.
+         * @return Beregnet dagsats.
+         */
+        public double hentBeregnetDagsats() {
+            return hentDagsats(this.plass);
+        }
+
+        /**
+         * Henter spesialiseringen knyttet til resultatet.
+         * @return Spesialiseringen.
+         */
+        public Spesialisering hentSpesialisering() {
+            return ResultatLager.this.hentSpesialisering(this.plass);
+        }
+
+        /**
+         * Henter hvor langt resultatet har kommet i saksbehandlingen.
+         * @return Behandlingsstatusen.
+         */
+        public Behandlingsstatus hentStatus() {
+            return ResultatLager.this.hentStatus(this.plass);
+        }
+
+        /**
+         * Sjekker om resultatet er behandlet av en saksbehandler.
+         * @return True hvis resultatet er godkjent eller avslått, ellers false.
+         */
+        public boolean erBehandlet() {
+            return hentStatus() != Behandlingsstatus.UBEHANDLET;
+        }
+
+        /**
+         * Sjekker om resultatet er godkjent.
+         * @return True hvis resultatet er godkjent, ellers false.
+         */
+        public boolean erGodkjent() {
+            return hentStatus() == Behandlingsstatus.GODKJENT;
+        }
+
+        /**
+         * Godkjenner eller avslår et ubehandlet resultat.
+         * @param erGodkjent Om resultatet er godkjent.
+         * @return True hvis dette kallet behandlet resultatet, false hvis det var behandlet fra før.
+         */
+        public boolean behandle(boolean erGodkjent) {
+            return ResultatLager.this.behandle(this.plass, erGodkjent);
+        }
+
+        /**
+         * Setter resultatet som godkjent eller avslått, uansett tidligere status.
+         * @param erGodkjent Om resultatet er godkjent.
+         */
+        public void settGodkjenning(boolean erGodkjent) {
+            ResultatLager.this.settGodkjenning(this.plass, erGodkjent);
+        }
+    }
+}
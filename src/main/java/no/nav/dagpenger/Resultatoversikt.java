@@ -0,0 +1,120 @@
+package no.nav.dagpenger;
+
+import no.nav.beløp.Øre;
+
+/**
+ * Statistikk over resultater per spesialisering fra ett tidspunkt, laget av <code>Resultatstatistikk</code>.
+ * Oversikten endres ikke etter at den er laget.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class Resultatoversikt {
+
+    private final long[] verdier;
+
+    Resultatoversikt(long[] verdier) {
+        this.verdier = verdier;
+    }
+
+    /**
+     * Henter antall resultater som er laget innenfor en spesialisering.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall resultater.
+     */
+    public long hentAntall(Spesialisering spesialisering) {
+        return hent(spesialisering, Resultatstatistikk.LAGET);
+    }
+
+    /**
+     * Henter antall resultater innenfor en spesialisering som er godkjent.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall godkjente resultater.
+     */
+    public long hentAntallGodkjent(Spesialisering spesialisering) {
+        return hent(spesialisering, Resultatstatistikk.GODKJENT);
+    }
+
+    /**
+     * Henter antall resultater innenfor en spesialisering som er avslått.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall avslåtte resultater.
+     */
+    public long hentAntallAvslått(Spesialisering spesialisering) {
+        return hent(spesialisering, Resultatstatistikk.AVSLÅTT);
+    }
+
+    /**
+     * Henter antall resultater innenfor en spesialisering som venter på behandling.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall ubehandlede resultater.
+     */
+    public long hentAntallUbehandlet(Spesialisering spesialisering) {
+        return hentAntall(spesialisering) - hentAntallGodkjent(spesialisering) - hentAntallAvslått(spesialisering);
+    }
+
+    /**
+     * Henter summen av dagsatsene til resultatene innenfor en spesialisering.
+     * @param spesialisering Spesialiseringen.
+     * @return Summen av dagsatsene i kroner.
+     */
+    public double hentSumDagsats(Spesialisering spesialisering) {
+        return Øre.tilKroner(hent(spesialisering, Resultatstatistikk.DAGSATS_ØRE));
+    }
+
+    /**
+     * Henter antall resultater som er laget, for alle spesialiseringer.
+     * @return Antall resultater.
+     */
+    public long hentAntall() {
+        return summer(Resultatstatistikk.LAGET);
+    }
+
+    /**
+     * Henter summen av dagsatsene til alle resultater, det som ville blitt utbetalt per dag om alle ble godkjent.
+     * @return Summen av dagsatsene i kroner.
+     */
+    public double hentSumDagsats() {
+        return Øre.tilKroner(summer(Resultatstatistikk.DAGSATS_ØRE));
+    }
+
+    /**
+     * Henter summen av dagsatsene til de godkjente resultatene, det som utbetales per dag.
+     * @return Summen av de godkjente dagsatsene i kroner.
+     */
+    public double hentSumGodkjentDagsats() {
+        return Øre.tilKroner(summer(Resultatstatistikk.GODKJENT_DAGSATS_ØRE));
+    }
+
+    private long hent(Spesialisering spesialisering, int felt) {
+        /* Feilhåndtering: Kaster unntak hvis spesialiseringen er null. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        return this.verdier[spesialisering.ordinal() * Resultatstatistikk.ANTALL_FELT + felt];
+    }
+
+    private long summer(int felt) {
+        long sum = 0;
+        for (int start = 0; start < this.verdier.length; start += Resultatstatistikk.ANTALL_FELT) {
+            sum += this.verdier[start + felt];
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder tekst = new StringBuilder();
+        for (Spesialisering spesialisering : Spesialisering.values()) {
+            tekst.append(spesialisering).append(" antall=").append(hentAntall(spesialisering))
+                    .append(" ubehandlet=").append(hentAntallUbehandlet(spesialisering))
+                    .append(" godkjent=").append(hentAntallGodkjent(spesialisering))
+                    .append(" avslått=").append(hentAntallAvslått(spesialisering))
+                    .append(" dagsats=").append(Øre.tilKroner(hent(spesialisering, Resultatstatistikk.DAGSATS_ØRE)))
+                    .append('\n');
+        }
+        tekst.append("sum dagsats=").append(hentSumDagsats())
+                .append(" godkjent dagsats=").append(hentSumGodkjentDagsats()).append('\n');
+        return tekst.toString();
+    }
+}
@@ -0,0 +1,207 @@
+package no.nav.dagpenger;
+
+import no.nav.beløp.Øre;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Løpende statistikk over alle resultater i prosessen, per spesialisering: hvor mange som er laget, godkjent
+ * og avslått, og summen av dagsatsene. Statistikken holdes oppdatert når en dagsats beregnes og når resultatet
+ * behandles, så spørsmål besvares uten å gå gjennom resultatene. Kopier av resultater som allerede er telt,
+ * for eksempel vedtak lest fra en journal, telles ikke på nytt.
+ *
+ * Tellerne er spredt over flere striper, og hver tråd skriver til sin egen stripe, så trådene ikke konkurrerer
+ * om samme minneplass. Enkelttall leses uten låser, ved å summere stripene. En <code>Resultatoversikt</code>
+ * tar skrivelåsen på alle stripene et øyeblikk, og gir et sammenhengende bilde fra ett tidspunkt, der for eksempel
+ * antall behandlede aldri er større enn antall laget. En oppdatering tar bare leselåsen på sin egen stripe.
+ *
+ * @author Mila Toneff
+ * @version 1.2
+ */
+public final class Resultatstatistikk {
+
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+
+    /* Feltene per spesialisering i en stripe. Ubehandlede regnes ut fra de andre. */
+    static final int LAGET = 0;
+    static final int GODKJENT = 1;
+    static final int AVSLÅTT = 2;
+    static final int DAGSATS_ØRE = 3;
+    static final int GODKJENT_DAGSATS_ØRE = 4;
+    static final int ANTALL_FELT = 5;
+    static final int ANTALL_VERDIER = ANTALL_FELT * SPESIALISERINGER.length;
+
+    /* Ubrukte verdier foran og bak i hver stripe, så to striper ikke deler en cachelinje. */
+    private static final int FYLL = 8;
+
+    /* Lages etter konstantene over, som konstruktøren bruker. */
+    private static final Resultatstatistikk STANDARD = new Resultatstatistikk();
+
+    private final Stripe[] striper;
+
+    private Resultatstatistikk() {
+        int antall = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1;
+        this.striper = new Stripe[antall];
+        for (int i = 0; i < antall; i++) {
+            this.striper[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Henter statistikken alle resultater i prosessen oppdaterer.
+     * @return den felles statistikken.
+     */
+    public static Resultatstatistikk standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Teller en beregning fra <code>Dagsatsberegning</code> som et nytt resultat. Brukes der en beregning ikke blir
+     * et <code>Resultat</code>, for eksempel i svar fra en tjeneste. Ellers telles beregningen av
+     * <code>Resultat.fraBeregning</code>.
+     * @param beregning Beregningen, pakket som fra <code>Dagsatsberegning.beregnØre</code>.
+     */
+    public void registrerBeregning(long beregning) {
+        registrerLaget(Dagsatsberegning.hentSpesialisering(beregning), 1,
+                Øre.fraKroner(Dagsatsberegning.hentDagsats(beregning)));
+    }
+
+    /* Registrerer alle personene i en batch-kalkulering, én gang per spesialisering i stedet for én gang per person. */
+    void registrerLaget(BatchResultat batchResultat) {
+        long[] antallPer = new long[SPESIALISERINGER.length];
+        long[] dagsatsØrePer = new long[SPESIALISERINGER.length];
+        double[] dagsatser = batchResultat.hentDagsatser();
+        byte[] spesialiseringer = batchResultat.hentSpesialiseringer();
+        for (int person = 0; person < batchResultat.hentAntallPersoner(); person++) {
+            antallPer[spesialiseringer[person]]++;
+            dagsatsØrePer[spesialiseringer[person]] += Øre.fraKroner(dagsatser[person]);
+        }
+        for (Spesialisering spesialisering : SPESIALISERINGER) {
+            if (antallPer[spesialisering.ordinal()] > 0) {
+                registrerLaget(spesialisering, antallPer[spesialisering.ordinal()], dagsatsØrePer[spesialisering.ordinal()]);
+            }
+        }
+    }
+
+    /* Registrerer at mange resultater med samme spesialisering er laget, med summen av dagsatsene i øre. */
+    void registrerLaget(Spesialisering spesialisering, long antall, long dagsatsØre) {
+        Stripe stripe = hentStripe();
+        int start = FYLL + spesialisering.ordinal() * ANTALL_FELT;
+        long stempel = stripe.lås.readLock();
+        try {
+            stripe.verdier.getAndAdd(start + LAGET, antall);
+            stripe.verdier.getAndAdd(start + DAGSATS_ØRE, dagsatsØre);
+        } finally {
+            stripe.lås.unlockRead(stempel);
+        }
+    }
+
+    /* Registrerer at et resultat har gått fra én behandlingsstatus til en annen. */
+    void registrerOvergang(Spesialisering spesialisering, double dagsats, Behandlingsstatus fra, Behandlingsstatus til) {
+        if (fra == til) {
+            return;
+        }
+        Stripe stripe = hentStripe();
+        int start = FYLL + spesialisering.ordinal() * ANTALL_FELT;
+        long dagsatsØre = Øre.fraKroner(dagsats);
+        long stempel = stripe.lås.readLock();
+        try {
+            endre(stripe.verdier, start, fra, -1, dagsatsØre);
+            endre(stripe.verdier, start, til, 1, dagsatsØre);
+        } finally {
+            stripe.lås.unlockRead(stempel);
+        }
+    }
+
+    private static void endre(AtomicLongArray verdier, int start, Behandlingsstatus status, int fortegn, long dagsatsØre) {
+        if (status == Behandlingsstatus.GODKJENT) {
+            verdier.getAndAdd(start + GODKJENT, fortegn);
+            verdier.getAndAdd(start + GODKJENT_DAGSATS_ØRE, fortegn * dagsatsØre);
+        } else if (status == Behandlingsstatus.AVSLÅTT) {
+            verdier.getAndAdd(start + AVSLÅTT, fortegn);
+        }
+    }
+
+    /**
+     * Henter antall resultater som er laget innenfor en spesialisering. Leses uten låser.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall resultater.
+     */
+    public long hentAntall(Spesialisering spesialisering) {
+        return summer(spesialisering, LAGET);
+    }
+
+    /**
+     * Henter antall resultater innenfor en spesialisering som ikke er behandlet ennå. Leses uten låser,
+     * så mens resultater lages og behandles er tallet bare omtrentlig.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall ubehandlede resultater.
+     */
+    public long hentAntallUbehandlet(Spesialisering spesialisering) {
+        return summer(spesialisering, LAGET) - summer(spesialisering, GODKJENT) - summer(spesialisering, AVSLÅTT);
+    }
+
+    /**
+     * Henter summen av dagsatsene til alle resultater som er laget. Leses uten låser.
+     * @return Summen av dagsatsene i kroner.
+     */
+    public double hentSumDagsats() {
+        long sum = 0;
+        for (Spesialisering spesialisering : SPESIALISERINGER) {
+            sum += summer(spesialisering, DAGSATS_ØRE);
+        }
+        return Øre.tilKroner(sum);
+    }
+
+    /**
+     * Lager en oversikt over statistikken fra ett og samme tidspunkt.
+     * Oppdateringer som kommer mens oversikten lages, venter til den er ferdig.
+     * @return Oversikten.
+     */
+    public Resultatoversikt hentOversikt() {
+        long[] verdier = new long[ANTALL_VERDIER];
+        long[] stempler = new long[this.striper.length];
+        /* Låsene tas alltid i samme rekkefølge, så to oversikter samtidig ikke venter på hverandre. */
+        for (int i = 0; i < this.striper.length; i++) {
+            stempler[i] = this.striper[i].lås.writeLock();
+        }
+        try {
+            for (Stripe stripe : this.striper) {
+                for (int i = 0; i < ANTALL_VERDIER; i++) {
+                    verdier[i] += stripe.verdier.get(FYLL + i);
+                }
+            }
+        } finally {
+            for (int i = 0; i < this.striper.length; i++) {
+                this.striper[i].lås.unlockWrite(stempler[i]);
+            }
+        }
+        return new Resultatoversikt(verdier);
+    }
+
+    private long summer(Spesialisering spesialisering, int felt) {
+        /* Feilhåndtering: Kaster unntak hvis spesialiseringen er null. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        int indeks = FYLL + spesialisering.ordinal() * ANTALL_FELT + felt;
+        long sum = 0;
+        for (Stripe stripe : this.striper) {
+            sum += stripe.verdier.get(indeks);
+        }
+        return sum;
+    }
+
+    private Stripe hentStripe() {
+        long id = Thread.currentThread().threadId();
+        id = (id ^ (id >>> 16)) * 0x45D9F3B;
+        return this.striper[(int) (id ^ (id >>> 16)) & (this.striper.length - 1)];
+    }
+
+    /* Tellerne til en gruppe tråder, med en lås som bare oversikten tar eksklusivt. */
+    private static final class Stripe {
+        private final StampedLock lås = new StampedLock();
+        private final AtomicLongArray verdier = new AtomicLongArray(FYLL + ANTALL_VERDIER + FYLL);
+    }
+}
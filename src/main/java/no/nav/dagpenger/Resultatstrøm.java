@@ -0,0 +1,210 @@
+package no.nav.dagpenger;
+
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Strøm av resultater som mange mottakere kan abonnere på, for eksempel en <code>Saksbehandlingskø</code>,
+ * utbetalingssystemet og statistikk. Strømmen følger <code>java.util.concurrent.Flow</code>, og bygger på
+ * <code>SubmissionPublisher</code>.
+ *
+ * Hver mottaker har sin egen buffer med fast størrelse. Er bufferen til en mottaker full, venter den som
+ * publiserer til det er plass, så en treg mottaker bremser kalkuleringen i stedet for at resultatene hoper seg
+ * opp i minnet. Mottakerne får resultatene på egne virtuelle tråder, i samme rekkefølge som de ble publisert.
+ *
+ * Ved batch-kalkulering regnes personene ut i grupper. Mens én gruppe leveres til mottakerne, regnes den neste ut.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+public final class Resultatstrøm implements Flow.Publisher<Resultat>, AutoCloseable {
+
+    /* Tiden den som publiserer venter på at en mottaker skal få plass i bufferen. */
+    private static final Histogram VENTETID = Metrikker.histogram("dagpenger.strøm.ventetid");
+
+    /** Standard antall resultater hver mottaker kan ha liggende. */
+    public static final int STANDARD_BUFFERSTØRRELSE = 1024;
+
+    /* Hvor mange rader som kalkuleres i hver gruppe ved batch-kalkulering. */
+    static final int RADER_PER_GRUPPE = 1 << 16;
+
+    private final SubmissionPublisher<Resultat> utgiver;
+    /* Trådene mottakerne kjører på, hvis strømmen har laget dem selv. Ellers null. */
+    private final ExecutorService egneTråder;
+
+    /**
+     * Oppretter en strøm med standard bufferstørrelse, der mottakerne kjører på virtuelle tråder.
+     */
+    public Resultatstrøm() {
+        this(STANDARD_BUFFERSTØRRELSE);
+    }
+
+    /**
+     * Oppretter en strøm der mottakerne kjører på virtuelle tråder.
+     * @param bufferstørrelse Hvor mange resultater hver mottaker kan ha liggende før publiseringen venter.
+     *                        Rundes opp til nærmeste toerpotens.
+     */
+    public Resultatstrøm(int bufferstørrelse) {
+        this(Executors.newVirtualThreadPerTaskExecutor(), bufferstørrelse, true);
+    }
+
+    /**
+     * Oppretter en strøm der mottakerne kjører på gitte tråder.
+     * @param tråder Trådene mottakerne kjører på. Strømmen stopper dem ikke.
+     * @param bufferstørrelse Hvor mange resultater hver mottaker kan ha liggende før publiseringen venter.
+     *                        Rundes opp til nærmeste toerpotens.
+     */
+    public Resultatstrøm(Executor tråder, int bufferstørrelse) {
+        this(tråder, bufferstørrelse, false);
+    }
+
+    private Resultatstrøm(Executor tråder, int bufferstørrelse, boolean egne) {
+        /* Feilhåndtering: Kaster unntak ved manglende tråder eller ugyldig bufferstørrelse. */
+        if (tråder == null) {
+            throw new IllegalArgumentException("Tråder kan ikke være uten verdi (null).");
+        }
+        if (bufferstørrelse <= 0) {
+            throw new IllegalArgumentException("Bufferstørrelse må være større enn null.");
+        }
+        this.utgiver = new SubmissionPublisher<>(tråder, bufferstørrelse);
+        this.egneTråder = egne ? (ExecutorService) tråder : null;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Resultat> mottaker) {
+        this.utgiver.subscribe(mottaker);
+    }
+
+    /**
+     * Abonnerer med en enkel mottaker som får hvert resultat, for eksempel <code>kø::leggTil</code>.
+     * @param mottaker Mottakeren.
+     * @return En future som fullføres når strømmen er lukket og alle resultatene er mottatt,
+     *         eller feiler hvis mottakeren kaster et unntak.
+     */
+    public CompletableFuture<Void> abonner(Consumer<? super Resultat> mottaker) {
+        /* Feilhåndtering: Kaster unntak hvis mottakeren er null. */
+        if (mottaker == null) {
+            throw new IllegalArgumentException("Mottaker kan ikke være uten verdi (null).");
+        }
+        return this.utgiver.consume(mottaker);
+    }
+
+    /**
+     * Publiserer et resultat til alle mottakerne. Venter hvis bufferen til en mottaker er full.
+     * @param resultat Resultatet.
+     */
+    public void publiser(Resultat resultat) {
+        /* Feilhåndtering: Kaster unntak hvis resultatet er null. */
+        if (resultat == null) {
+            throw new IllegalArgumentException("Resultat kan ikke være uten verdi (null).");
+        }
+        if (Metrikker.AKTIVERT) {
+            long start = System.nanoTime();
+            this.utgiver.submit(resultat);
+            VENTETID.registrerTidSiden(start);
+        } else {
+            this.utgiver.submit(resultat);
+        }
+    }
+
+    /**
+     * Publiserer alle resultatene i en strøm, for eksempel fra <code>ÅrslønnFilLeser.lesResultater</code>.
+     * Strømmen leses ikke raskere enn mottakerne tar imot.
+     * @param resultater Resultatene.
+     * @return Antall resultater som ble publisert.
+     */
+    public long publiserAlle(Stream<? extends Resultat> resultater) {
+        /* Feilhåndtering: Kaster unntak hvis strømmen er null. */
+        if (resultater == null) {
+            throw new IllegalArgumentException("Resultater kan ikke være uten verdi (null).");
+        }
+        long[] antall = new long[1];
+        resultater.sequential().forEach(resultat -> {
+            publiser(resultat);
+            antall[0]++;
+        });
+        return antall[0];
+    }
+
+    /**
+     * Kalkulerer dagsats for mange personer og publiserer et resultat per person, i samme rekkefølge
+     * som <code>DagpengerKalkulator.kalkulerDagsatser</code> ville gitt dem. Personene regnes ut i grupper,
+     * og hver gruppe regnes ut mens den forrige leveres til mottakerne.
+     * @param personIder Person-id for hver rad.
+     * @param år Året for lønnen for hver rad.
+     * @param årslønner Årslønnen for hver rad.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele batchen skal beregnes ut ifra.
+     * @return Antall personer som ble publisert.
+     * @see DagpengerKalkulator#kalkulerDagsatser(long[], int[], double[], GrunnbeløpVerktøy)
+     */
+    public int publiserDagsatser(long[] personIder, int[] år, double[] årslønner, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ulikt lange kolonner. */
+        if (personIder == null || år == null || årslønner == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Kolonner og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        if (personIder.length != år.length || personIder.length != årslønner.length) {
+            throw new IllegalArgumentException("Alle kolonner må ha like mange rader.");
+        }
+        int antallPersoner = 0;
+        CompletableFuture<BatchResultat> neste = null;
+        for (int start = 0; start < personIder.length; ) {
+            /* Gruppen slutter ved et personskifte, så radene til en person ikke deles. */
+            int slutt = Math.min(start + RADER_PER_GRUPPE, personIder.length);
+            while (slutt < personIder.length && personIder[slutt] == personIder[slutt - 1]) {
+                slutt++;
+            }
+            int fra = start;
+            int til = slutt;
+            CompletableFuture<BatchResultat> gruppe = CompletableFuture.supplyAsync(() -> DagpengerKalkulator.kalkulerDagsatser(
+                    Arrays.copyOfRange(personIder, fra, til), Arrays.copyOfRange(år, fra, til),
+                    Arrays.copyOfRange(årslønner, fra, til), grunnbeløpVerktøy));
+            if (neste != null) {
+                antallPersoner += publiserAlle(neste.join());
+            }
+            neste = gruppe;
+            start = slutt;
+        }
+        if (neste != null) {
+            antallPersoner += publiserAlle(neste.join());
+        }
+        return antallPersoner;
+    }
+
+    private int publiserAlle(BatchResultat batchResultat) {
+        for (int person = 0; person < batchResultat.hentAntallPersoner(); person++) {
+            publiser(Resultat.fraBatch(batchResultat, person));
+        }
+        return batchResultat.hentAntallPersoner();
+    }
+
+    /**
+     * Henter antall mottakere som abonnerer på strømmen.
+     * @return antall mottakere.
+     */
+    public int hentAntallMottakere() {
+        return this.utgiver.getNumberOfSubscribers();
+    }
+
+    /**
+     * Lukker strømmen. Mottakerne får resultatene som allerede er publisert, og deretter beskjed om at strømmen
+     * er slutt. Har strømmen laget trådene selv, venter den til alle resultatene er levert.
+     */
+    @Override
+    public void close() {
+        this.utgiver.close();
+        if (this.egneTråder != null) {
+            this.egneTråder.close();
+        }
+    }
+}
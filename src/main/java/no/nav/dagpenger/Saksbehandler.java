@@ -1,5 +1,10 @@
 package no.nav.dagpenger;
 
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+
+import java.util.List;
+
 /**
  * Saksbehandler som godkjenner kalkulasjoner for dagpenger.
  * En saksbehandler har en egen spesialisering, og godkjenner eller avslår resultater innenfor sin spesialisering. 
@@ -7,26 +12,46 @@ package no.nav.dagpenger;
  * - Avslag på grunn av for lav inntekt
  * - Innvilget
  * - Innvilget med makssats
+ * Ubehandlede resultater innenfor spesialiseringen hentes fra en <code>Saksbehandlingskø</code>,
+ * eller letes fram i et <code>ResultatLager</code>.
  *
  * @author Mila Toneff
- * @version 1.0
+ * @version 1.4
  */
 public class Saksbehandler {
+    /* Tiden fra et resultat blir beregnet til det er behandlet */
+    private static final Histogram VENTETID = Metrikker.histogram("saksbehandling.ventetid");
+
     /* Spesialiseringen til saksbehandleren */
     private Spesialisering spesialisering;
+    /* Journalen vedtakene skrives til, eller null hvis de ikke journalføres */
+    private final Vedtaksjournal journal;
 
     /**
      * Oppretter en ny saksbehandler.
      * @param spesialisering Spesialisering for saksbehandleren.
     */
     public Saksbehandler(Spesialisering spesialisering) {
+        this(spesialisering, null);
+    }
+
+    /**
+     * Oppretter en ny saksbehandler som journalfører vedtakene sine.
+     * Et vedtak er lagret i journalen før behandlingen regnes som ferdig.
+     * Kan vedtaket ikke journalføres, settes resultatet tilbake som ubehandlet.
+     * @param spesialisering Spesialisering for saksbehandleren.
+     * @param journal Journalen vedtakene skrives til.
+    */
+    public Saksbehandler(Spesialisering spesialisering, Vedtaksjournal journal) {
         this.spesialisering = spesialisering;
+        this.journal = journal;
     }
 
     /**
      * Behandler resultat fra kalkulering av dagpenger til en person.
      * Sjekker om resulatet er innenfor spesialiseringen til saksbehandleren:
      * Setter godkjenning basert på den gjeldende spesialiseringen.
+     * Er resultatet allerede behandlet, for eksempel av en annen saksbehandler, står den behandlingen.
      * @param resultat Resultatet som skal vurderes.
      * @return True om resultatet er godkjent av saksbehandleren, ellers False.
     */
@@ -34,7 +59,14 @@ public class Saksbehandler {
         /* Sjekker om resultatet har riktig spesialisering */
         if (resultat.hentSpesialisering() == this.spesialisering) {
             /* Setter godkjenning basert på spesialiseringen og returnerer */
-            resultat.settGodkjenning(spesialisering.erGodkjent());
+            if (resultat.behandle(spesialisering.erGodkjent())) {
+                if (this.journal != null) {
+                    ventTilLagret(journalfør(resultat));
+                }
+                if (Metrikker.AKTIVERT) {
+                    registrerVentetid(resultat);
+                }
+            }
             return resultat.erGodkjent();
         }
 
@@ -42,6 +74,128 @@ public class Saksbehandler {
         return false;
     }
 
+    /**
+     * Henter ubehandlede resultater innenfor spesialiseringen til saksbehandleren.
+     * Resultatene er reservert for saksbehandleren til leietiden i køen er ute.
+     * @param kø Køen resultatene hentes fra.
+     * @param maksAntall Høyeste antall resultater som hentes.
+     * @return De hentede resultatene, tom hvis det ikke er flere.
+     */
+    public List<Resultat> hentUbehandledeResultater(Saksbehandlingskø kø, int maksAntall) {
+        /* Feilhåndtering: Kaster unntak hvis køen er null. */
+        if (kø == null) {
+            throw new IllegalArgumentException("Kø kan ikke være uten verdi (null).");
+        }
+        return kø.hentUbehandlede(this.spesialisering, maksAntall);
+    }
+
+    /**
+     * Henter og behandler opptil gitt antall ubehandlede resultater innenfor spesialiseringen.
+     * @param kø Køen resultatene hentes fra.
+     * @param maksAntall Høyeste antall resultater som behandles.
+     * @return Antall resultater denne saksbehandleren behandlet.
+     */
+    public int behandleUbehandledeResultater(Saksbehandlingskø kø, int maksAntall) {
+        int antallBehandlet = 0;
+        long sisteSekvensnummer = -1;
+        try {
+            for (Resultat resultat : hentUbehandledeResultater(kø, maksAntall)) {
+                if (resultat.behandle(this.spesialisering.erGodkjent())) {
+                    if (this.journal != null) {
+                        sisteSekvensnummer = journalfør(resultat);
+                    }
+                    antallBehandlet++;
+                    if (Metrikker.AKTIVERT) {
+                        registrerVentetid(resultat);
+                    }
+                }
+            }
+        } catch (RuntimeException exception) {
+            ventTilLagretEtterFeil(sisteSekvensnummer, exception);
+            throw exception;
+        }
+        /* Hele gruppen av vedtak lagres med én venting. */
+        if (sisteSekvensnummer >= 0) {
+            ventTilLagret(sisteSekvensnummer);
+        }
+        return antallBehandlet;
+    }
+
+    /**
+     * Behandler alle ubehandlede resultater innenfor spesialiseringen i et resultatlager.
+     * Flere saksbehandlere kan gå gjennom samme lager samtidig, og hvert resultat behandles bare én gang.
+     * @param lager Lageret resultatene ligger i.
+     * @return Antall resultater denne saksbehandleren behandlet.
+     */
+    public int behandleResultater(ResultatLager lager) {
+        /* Feilhåndtering: Kaster unntak hvis lageret er null. */
+        if (lager == null) {
+            throw new IllegalArgumentException("Lager kan ikke være uten verdi (null).");
+        }
+        int antallBehandlet = 0;
+        long sisteSekvensnummer = -1;
+        try {
+            for (int plass = lager.finnNeste(this.spesialisering, 0); plass >= 0;
+                 plass = lager.finnNeste(this.spesialisering, plass + 1)) {
+                if (lager.behandle(plass, this.spesialisering.erGodkjent())) {
+                    if (this.journal != null) {
+                        sisteSekvensnummer = journalfør(lager, plass);
+                    }
+                    antallBehandlet++;
+                }
+            }
+        } catch (RuntimeException exception) {
+            ventTilLagretEtterFeil(sisteSekvensnummer, exception);
+            throw exception;
+        }
+        /* Hele lageret lagres med én venting. */
+        if (sisteSekvensnummer >= 0) {
+            ventTilLagret(sisteSekvensnummer);
+        }
+        return antallBehandlet;
+    }
+
+    /* Journalfører et behandlet resultat. Feiler skrivingen, settes resultatet tilbake som ubehandlet,
+    slik at ingen avgjørelse står i minnet uten å være i journalen. */
+    private long journalfør(Resultat resultat) {
+        try {
+            return this.journal.journalfør(resultat);
+        } catch (RuntimeException exception) {
+            resultat.angreBehandling(this.spesialisering.erGodkjent());
+            throw exception;
+        }
+    }
+
+    private long journalfør(ResultatLager lager, int plass) {
+        try {
+            return this.journal.journalfør(lager, plass);
+        } catch (RuntimeException exception) {
+            lager.angreBehandling(plass, this.spesialisering.erGodkjent());
+            throw exception;
+        }
+    }
+
+    /* Vedtakene som ble journalført før feilen, er avgjort og skal fortsatt være lagret før unntaket gis videre. */
+    private void ventTilLagretEtterFeil(long sisteSekvensnummer, RuntimeException feil) {
+        if (sisteSekvensnummer < 0) {
+            return;
+        }
+        try {
+            ventTilLagret(sisteSekvensnummer);
+        } catch (RuntimeException exception) {
+            feil.addSuppressed(exception);
+        }
+    }
+
+    private void ventTilLagret(long sekvensnummer) {
+        try {
+            this.journal.ventTilLagret(sekvensnummer);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Avbrutt før vedtaket var lagret i journalen.", exception);
+        }
+    }
+
     /**
      * Henter spesialiseringen saksbehandleren er satt til.
      * @return spesialisering Spesialiseringen til saksbehandleren.
@@ -49,4 +203,12 @@ public class Saksbehandler {
     public Spesialisering hentSpesialisering() {
         return this.spesialisering;
     }
-}
\ No newline at end of file
+
+    /* Resultater som ikke er fra en beregning, for eksempel kopier, har ikke noe tidspunkt å måle fra. */
+    private static void registrerVentetid(Resultat resultat) {
+        long opprettet = resultat.hentOpprettetNanos();
+        if (opprettet != 0) {
+            VENTETID.registrerTidSiden(opprettet);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package no.nav.dagpenger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kø av ubehandlede resultater, delt opp etter spesialisering, som mange saksbehandlere kan hente fra samtidig.
+ *
+ * Hver spesialisering har sin egen kø uten låser, så saksbehandlere med ulik spesialisering aldri venter
+ * på hverandre. Et resultat som hentes, lånes ut til saksbehandleren for en gitt leietid. Blir det ikke
+ * behandlet innen leietiden er ute, for eksempel fordi saksbehandleren ble borte, legges det tilbake i køen.
+ * Overgangen fra ubehandlet til godkjent eller avslått skjer med compare-and-set i <code>Resultat</code>, så
+ * et resultat behandles bare én gang, selv om det har blitt lånt ut på nytt.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+public final class Saksbehandlingskø {
+
+    /* Hvor lenge et resultat er lånt ut før det legges tilbake i køen. */
+    private static final Duration STANDARD_LEIETID = Duration.ofMinutes(5);
+
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+
+    private final long leietidNanos;
+    /* Én del per spesialisering, indeksert med ordinal. */
+    private final Del[] deler;
+
+    /* Konstruktør som oppretter en kø med standard leietid */
+    public Saksbehandlingskø() {
+        this(STANDARD_LEIETID);
+    }
+
+    /**
+     * Oppretter en kø der hentede resultater lånes ut i gitt tid.
+     * @param leietid Hvor lenge en saksbehandler har på seg før resultatet kan hentes av en annen.
+     */
+    public Saksbehandlingskø(Duration leietid) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ugyldig leietid. */
+        if (leietid == null || leietid.isNegative() || leietid.isZero()) {
+            throw new IllegalArgumentException("Leietid må være større enn null.");
+        }
+        this.leietidNanos = leietid.toNanos();
+        this.deler = new Del[SPESIALISERINGER.length];
+        for (int i = 0; i < this.deler.length; i++) {
+            this.deler[i] = new Del();
+        }
+    }
+
+    /**
+     * Legger et resultat i køen til sin spesialisering. Resultater som allerede er behandlet, hoppes over.
+     * @param resultat Resultatet som skal behandles.
+     */
+    public void leggTil(Resultat resultat) {
+        /* Feilhåndtering: Kaster unntak hvis resultatet er null. */
+        if (resultat == null) {
+            throw new IllegalArgumentException("Resultat kan ikke være uten verdi (null).");
+        }
+        if (resultat.erBehandlet()) {
+            return;
+        }
+        this.deler[resultat.hentSpesialisering().ordinal()].leggTil(resultat);
+    }
+
+    /**
+     * Legger alle personene i et batch-resultat i køen, som ubehandlede resultater.
+     * @param batchResultat Resultatet fra en batch-kalkulering.
+     */
+    public void leggTilAlle(BatchResultat batchResultat) {
+        /* Feilhåndtering: Kaster unntak hvis batch-resultatet er null. */
+        if (batchResultat == null) {
+            throw new IllegalArgumentException("Batch-resultat kan ikke være uten verdi (null).");
+        }
+        for (int person = 0; person < batchResultat.hentAntallPersoner(); person++) {
+            leggTil(Resultat.fraBatch(batchResultat, person));
+        }
+    }
+
+    /**
+     * Henter ett ubehandlet resultat innenfor gitt spesialisering.
+     * @param spesialisering Spesialiseringen til saksbehandleren.
+     * @return Et ubehandlet resultat, eller null hvis køen er tom.
+     */
+    public Resultat hentUbehandlet(Spesialisering spesialisering) {
+        List<Resultat> resultater = hentUbehandlede(spesialisering, 1);
+        return resultater.isEmpty() ? null : resultater.get(0);
+    }
+
+    /**
+     * Henter opptil gitt antall ubehandlede resultater innenfor gitt spesialisering.
+     * Resultatene er lånt ut til kalleren til leietiden er ute, og ingen andre får dem i mellomtiden.
+     * @param spesialisering Spesialiseringen til saksbehandleren.
+     * @param maksAntall Høyeste antall resultater som hentes.
+     * @return De hentede resultatene, tom hvis køen er tom.
+     */
+    public List<Resultat> hentUbehandlede(Spesialisering spesialisering, int maksAntall) {
+        /* Feilhåndtering: Kaster unntak ved manglende spesialisering eller ugyldig antall. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        if (maksAntall <= 0) {
+            throw new IllegalArgumentException("Antall må være større enn null.");
+        }
+        return this.deler[spesialisering.ordinal()].hent(maksAntall, this.leietidNanos);
+    }
+
+    /**
+     * Henter omtrent hvor mange resultater som venter innenfor gitt spesialisering,
+     * medregnet utlånte resultater som ikke er behandlet.
+     * @param spesialisering Spesialiseringen.
+     * @return Antall resultater som venter.
+     */
+    public long hentAntallVentende(Spesialisering spesialisering) {
+        /* Feilhåndtering: Kaster unntak hvis spesialiseringen er null. */
+        if (spesialisering == null) {
+            throw new IllegalArgumentException("Spesialisering kan ikke være uten verdi (null).");
+        }
+        return this.deler[spesialisering.ordinal()].hentAntallVentende();
+    }
+
+    /* Køen til én spesialisering: resultater som venter, og resultater som er lånt ut. */
+    private static final class Del {
+        private final ConcurrentLinkedQueue<Resultat> ventende = new ConcurrentLinkedQueue<>();
+        /* Utlån i den rekkefølgen de ble gjort. Med lik leietid utløper de i samme rekkefølge. */
+        private final ConcurrentLinkedQueue<Utlån> utlånte = new ConcurrentLinkedQueue<>();
+        private final LongAdder antallVentende = new LongAdder();
+
+        private void leggTil(Resultat resultat) {
+            this.antallVentende.increment();
+            this.ventende.offer(resultat);
+        }
+
+        private List<Resultat> hent(int maksAntall, long leietidNanos) {
+            long nå = System.nanoTime();
+            leggTilbakeUtløpte(nå);
+
+            List<Resultat> hentede = new ArrayList<>(Math.min(maksAntall, 64));
+            long utløper = nå + leietidNanos;
+            while (hentede.size() < maksAntall) {
+                /* poll tar resultatet ut av køen atomisk, så to saksbehandlere får aldri det samme. */
+                Resultat resultat = this.ventende.poll();
+                if (resultat == null) {
+                    break;
+                }
+                if (resultat.erBehandlet()) {
+                    /* Lagt tilbake etter utløpt leietid, men behandlet i mellomtiden. */
+                    this.antallVentende.decrement();
+                    continue;
+                }
+                this.utlånte.offer(new Utlån(resultat, utløper));
+                hentede.add(resultat);
+            }
+            return hentede;
+        }
+
+        /* Rydder utlån fra starten av køen: behandlede fjernes, og ubehandlede med utløpt leietid legges tilbake. */
+        private void leggTilbakeUtløpte(long nå) {
+            Utlån utlån;
+            while ((utlån = this.utlånte.peek()) != null) {
+                boolean behandlet = utlån.resultat.erBehandlet();
+                if (!behandlet && nå - utlån.utløperNanos < 0) {
+                    return;
+                }
+                /* Bare tråden som fjerner utlånet legger resultatet tilbake. */
+                if (this.utlånte.remove(utlån)) {
+                    if (behandlet) {
+                        this.antallVentende.decrement();
+                    } else {
+                        this.ventende.offer(utlån.resultat);
+                    }
+                }
+            }
+        }
+
+        private long hentAntallVentende() {
+            return Math.max(0, this.antallVentende.sum());
+        }
+    }
+
+    /* Et resultat som er lånt ut, og når leietiden er ute. */
+    private static final class Utlån {
+        private final Resultat resultat;
+        private final long utløperNanos;
+
+        private Utlån(Resultat resultat, long utløperNanos) {
+            this.resultat = resultat;
+            this.utløperNanos = utløperNanos;
+        }
+    }
+}
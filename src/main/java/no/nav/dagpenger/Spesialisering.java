@@ -17,7 +17,7 @@ public enum Spesialisering {
     /* Spesialisering for innvilgelse */
     INNVILGET(true),
     /* Spesialisering for innvilgelse ved makssats */
-    INNVILGET_MED_MAKSSATS(true)
+    INNVILGET_MED_MAKSSATS(true);
 
     /* Variabel som indikerer om spesialiseringen skal gi
     godkjent resultat */
@@ -0,0 +1,331 @@
+package no.nav.dagpenger;
+
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+import no.nav.årslønn.ÅrslønnLager;
+import no.nav.årslønn.ÅrslønnVindu;
+
+import java.util.Arrays;
+
+/**
+ * Resultatene til mange personer, med en indeks over hvor nær personene ligger tersklene for rett til dagpenger
+ * og makssats, slik at en regulering av grunnbeløpet bare trenger å vurdere noen få personer på nytt.
+ *
+ * Reglene i <code>Dagsatsberegning</code> avhenger bare av grunnbeløpet gjennom tersklene 1.5G, 3G og 6G,
+ * og hver person har derfor to grunnbeløp der utfallet skifter:
+ * - Avslagsgrensen: personen får avslag nøyaktig når G i øre er over max(sum av tre år, 2 * siste årslønn) / 3,
+ *   rundet ned.
+ * - Maksgrensen: en person uten gjennomsnittsmetoden får makssats nøyaktig når G i øre er under
+ *   siste årslønn / 6, rundet opp. Om gjennomsnittsmetoden brukes, avhenger ikke av G.
+ *
+ * Personene ligger i bøtter etter hver av grensene. Når G endres, er det bare personer med en grense mellom
+ * gammel og ny G som kan skifte spesialisering, og bare bøttene som dekker det intervallet gås gjennom.
+ * Årslønnene ligger i samme rekkefølge som bøttene, så bøttene leses sammenhengende fra minnet.
+ * Alle andre beholder dagsatsen sin, som ikke avhenger av G, eller har makssats, som er felles for alle og
+ * bare lagres én gang. En regulering koster dermed tid etter antall personer nær en terskel, ikke antall personer.
+ *
+ * Indeksen er ikke trådsikker.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+public final class Terskelindeks {
+
+    /* Bøttene er 2^16 øre brede, drøyt 655 kr eller en halv prosent av G. Grenser over siste bøtte havner i den. */
+    private static final int BØTTESKIFT = 16;
+    private static final int ANTALL_BØTTER = 1 << 12;
+    private static final long UTEN_DAGSATS = (1L << Dagsatsberegning.FORSKYVNING_DAGSATS) - 1;
+
+    private static final Histogram VARIGHET = Metrikker.histogram("dagpenger.regulering.varighet");
+    private static final Teller NYVURDERT = Metrikker.teller("dagpenger.regulering.nyvurdert");
+
+    private final long[] personIder;
+    /* Pakket som fra Dagsatsberegning.beregnØre, men uten dagsats for personer med makssats. */
+    private final long[] beregninger;
+    /* Personene og årslønnene deres sortert etter bøtte for hver grense. */
+    private final Bøtter avslag;
+    private final Bøtter maks;
+    private GrunnbeløpVerktøy grunnbeløpVerktøy;
+    /* Makssatsen med gjeldende G, felles for alle som har den. */
+    private long maksDagsats;
+    private int antallNyvurdert;
+
+    private Terskelindeks(long[] personIder, long[] sisteÅrslønnØre, long[] sumTreÅrØre, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        int antall = personIder.length;
+        this.personIder = personIder;
+        this.grunnbeløpVerktøy = grunnbeløpVerktøy;
+        this.maksDagsats = maksDagsats(grunnbeløpVerktøy);
+        this.beregninger = new long[antall];
+        DagsatsKjerne.beregn(sisteÅrslønnØre, sumTreÅrØre, grunnbeløpVerktøy, this.beregninger, 0, antall);
+        for (int person = 0; person < antall; person++) {
+            this.beregninger[person] = utenMaksDagsats(this.beregninger[person]);
+        }
+
+        int[] avslagBøtter = new int[antall];
+        int[] maksBøtter = new int[antall];
+        for (int person = 0; person < antall; person++) {
+            avslagBøtter[person] = bøtte(avslagsgrense(sisteÅrslønnØre[person], sumTreÅrØre[person]));
+            /* Bare personer som ikke bruker gjennomsnittet av tre år, kan få makssats. */
+            maksBøtter[person] = sisteÅrslønnØre[person] * 3 > sumTreÅrØre[person] ? bøtte(maksgrense(sisteÅrslønnØre[person])) : -1;
+        }
+        this.avslag = new Bøtter(avslagBøtter, sisteÅrslønnØre, sumTreÅrØre);
+        this.maks = new Bøtter(maksBøtter, sisteÅrslønnØre, sumTreÅrØre);
+    }
+
+    /**
+     * Kalkulerer alle personene og bygger indeksen.
+     * @param personIder Id-en til hver person.
+     * @param sisteÅrslønnØre Siste årslønn i øre per person.
+     * @param sumTreÅrØre Summen av de tre siste årslønnene i øre per person.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet personene skal beregnes ut ifra til å begynne med.
+     * @return Indeksen med resultatene.
+     */
+    public static Terskelindeks bygg(long[] personIder, long[] sisteÅrslønnØre, long[] sumTreÅrØre, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        /* Feilhåndtering: Kaster unntak ved manglende eller ulikt lange kolonner. */
+        if (personIder == null || sisteÅrslønnØre == null || sumTreÅrØre == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Kolonner og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        if (personIder.length != sisteÅrslønnØre.length || personIder.length != sumTreÅrØre.length) {
+            throw new IllegalArgumentException("Alle kolonner må ha like mange rader.");
+        }
+        return new Terskelindeks(personIder.clone(), sisteÅrslønnØre, sumTreÅrØre, grunnbeløpVerktøy);
+    }
+
+    /**
+     * Kalkulerer personene med årslønnene fra et lager og bygger indeksen.
+     * @param personIder Id-en til hver person.
+     * @param lager Lageret med personenes årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet personene skal beregnes ut ifra til å begynne med.
+     * @return Indeksen med resultatene.
+     * @throws IllegalArgumentException hvis en person ikke finnes i lageret.
+     */
+    public static Terskelindeks bygg(long[] personIder, ÅrslønnLager lager, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        /* Feilhåndtering: Kaster unntak ved manglende personer, lager eller grunnbeløpsverktøy. */
+        if (personIder == null || lager == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Personer, lager og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        long[] siste = new long[personIder.length];
+        long[] sum = new long[personIder.length];
+        ÅrslønnVindu vindu = new ÅrslønnVindu();
+        for (int person = 0; person < personIder.length; person++) {
+            if (!lager.hentVindu(personIder[person], vindu)) {
+                throw new IllegalArgumentException("Person " + personIder[person] + " finnes ikke i årslønnlageret.");
+            }
+            siste[person] = vindu.hentSisteÅrslønnØre();
+            sum[person] = vindu.summerÅrslønnerØre();
+        }
+        return new Terskelindeks(personIder.clone(), siste, sum, grunnbeløpVerktøy);
+    }
+
+    /**
+     * Regulerer grunnbeløpet, og vurderer på nytt bare personene med en grense mellom gammel og ny G.
+     * Resultatet for hver person blir det samme som en full kalkulering med det nye grunnbeløpet ville gitt.
+     * @param nyttVerktøy Verktøy med det nye grunnbeløpet.
+     * @return Id-ene til personene som har fått ny spesialisering, i samme rekkefølge som i indeksen.
+     */
+    public long[] reguler(GrunnbeløpVerktøy nyttVerktøy) {
+        /* Feilhåndtering: Kaster unntak hvis verktøyet er null. */
+        if (nyttVerktøy == null) {
+            throw new IllegalArgumentException("Grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        long start = Metrikker.AKTIVERT ? System.nanoTime() : 0;
+        long gammelG = this.grunnbeløpVerktøy.hentGrunnbeløpØre();
+        long nyG = nyttVerktøy.hentGrunnbeløpØre();
+        long lav = Math.min(gammelG, nyG);
+        long høy = Math.max(gammelG, nyG);
+        this.grunnbeløpVerktøy = nyttVerktøy;
+        this.maksDagsats = maksDagsats(nyttVerktøy);
+        this.antallNyvurdert = 0;
+
+        /* Personene med ny spesialisering, som biter etter plass. En person som vurderes to ganger, er bare ny første gang. */
+        long[] endret = new long[(this.personIder.length + 63) >>> 6];
+        int antallEndret = 0;
+        if (lav != høy) {
+            /* Avslag skifter for grenser fra og med lav til under høy, makssats for grenser over lav til og med høy. */
+            Bøtter bøtter = this.avslag;
+            for (int plass = bøtter.start[bøtte(lav)]; plass < bøtter.start[bøtte(høy - 1) + 1]; plass++) {
+                long grense = avslagsgrense(bøtter.siste[plass], bøtter.sum[plass]);
+                if (grense >= lav && grense < høy) {
+                    antallEndret += nyvurder(bøtter, plass, endret);
+                }
+            }
+            bøtter = this.maks;
+            for (int plass = bøtter.start[bøtte(lav + 1)]; plass < bøtter.start[bøtte(høy) + 1]; plass++) {
+                long grense = maksgrense(bøtter.siste[plass]);
+                if (grense > lav && grense <= høy) {
+                    antallEndret += nyvurder(bøtter, plass, endret);
+                }
+            }
+        }
+
+        long[] endredePersoner = new long[antallEndret];
+        int plass = 0;
+        for (int ord = 0; ord < endret.length; ord++) {
+            for (long biter = endret[ord]; biter != 0; biter &= biter - 1) {
+                endredePersoner[plass++] = this.personIder[(ord << 6) + Long.numberOfTrailingZeros(biter)];
+            }
+        }
+        if (Metrikker.AKTIVERT) {
+            VARIGHET.registrerTidSiden(start);
+            NYVURDERT.øk(this.antallNyvurdert);
+        }
+        return endredePersoner;
+    }
+
+    /**
+     * Henter antall personer som ble vurdert på nytt ved siste regulering.
+     * @return antall personer som ble kalkulert på nytt.
+     */
+    public int hentAntallNyvurdert() {
+        return this.antallNyvurdert;
+    }
+
+    /**
+     * Henter antall personer i indeksen.
+     * @return antall personer.
+     */
+    public int hentAntallPersoner() {
+        return this.personIder.length;
+    }
+
+    /**
+     * Henter verktøyet med grunnbeløpet resultatene gjelder for.
+     * @return det gjeldende grunnbeløpsverktøyet.
+     */
+    public GrunnbeløpVerktøy hentGrunnbeløpVerktøy() {
+        return this.grunnbeløpVerktøy;
+    }
+
+    /**
+     * Henter id-en til personen på gitt plass.
+     * @param indeks Plassen til personen.
+     * @return id-en til personen.
+     */
+    public long hentPersonId(int indeks) {
+        return this.personIder[indeks];
+    }
+
+    /**
+     * Henter beregningen til personen på gitt plass, med gjeldende grunnbeløp.
+     * @param indeks Plassen til personen.
+     * @return Dagsats, beregningsmetode og spesialisering pakket som fra <code>Dagsatsberegning.beregnØre</code>.
+     */
+    public long hentBeregning(int indeks) {
+        long beregning = this.beregninger[indeks];
+        return harMakssats(beregning) ? beregning | this.maksDagsats << Dagsatsberegning.FORSKYVNING_DAGSATS : beregning;
+    }
+
+    /**
+     * Henter dagsatsen til personen på gitt plass, med gjeldende grunnbeløp.
+     * @param indeks Plassen til personen.
+     * @return dagsatsen personen har rett på, 0 ved avslag.
+     */
+    public double hentDagsats(int indeks) {
+        return Dagsatsberegning.hentDagsats(hentBeregning(indeks));
+    }
+
+    /**
+     * Henter spesialiseringen til personen på gitt plass, med gjeldende grunnbeløp.
+     * @param indeks Plassen til personen.
+     * @return spesialiseringen.
+     */
+    public Spesialisering hentSpesialisering(int indeks) {
+        return Dagsatsberegning.hentSpesialisering(this.beregninger[indeks]);
+    }
+
+    /**
+     * Samler resultatene med gjeldende grunnbeløp i et batch-resultat, for eksempel til journalføring.
+     * Resultatene telles i <code>Resultatstatistikk</code> som en ny beregning av alle personene.
+     * @return Dagsats og spesialisering per person.
+     */
+    public BatchResultat tilBatchResultat() {
+        double[] dagsatser = new double[this.personIder.length];
+        byte[] spesialiseringer = new byte[this.personIder.length];
+        for (int person = 0; person < this.personIder.length; person++) {
+            long beregning = hentBeregning(person);
+            dagsatser[person] = Dagsatsberegning.hentDagsats(beregning);
+            spesialiseringer[person] = (byte) Dagsatsberegning.hentSpesialisering(beregning).ordinal();
+        }
+        BatchResultat batchResultat = new BatchResultat(this.personIder.clone(), dagsatser, spesialiseringer);
+        Resultatstatistikk.standard().registrerLaget(batchResultat);
+        return batchResultat;
+    }
+
+    /* Kalkulerer personen på gitt plass i bøttene på nytt med gjeldende G, og merker den hvis spesialiseringen
+    ble en annen. Returnerer 1 hvis personen ble merket, ellers 0. */
+    private int nyvurder(Bøtter bøtter, int plass, long[] endret) {
+        this.antallNyvurdert++;
+        int person = bøtter.personer[plass];
+        long gammel = this.beregninger[person];
+        long ny = utenMaksDagsats(Dagsatsberegning.beregnØre(bøtter.siste[plass], bøtter.sum[plass], this.grunnbeløpVerktøy));
+        this.beregninger[person] = ny;
+        long bit = 1L << person;
+        if (Dagsatsberegning.hentSpesialisering(gammel) == Dagsatsberegning.hentSpesialisering(ny) || (endret[person >>> 6] & bit) != 0) {
+            return 0;
+        }
+        endret[person >>> 6] |= bit;
+        return 1;
+    }
+
+    /* Største G i øre der personen ikke får avslag: summen og to ganger siste årslønn er begge under 3G over den. */
+    private static long avslagsgrense(long siste, long sum) {
+        return Math.floorDiv(Math.max(sum, 2 * siste), 3);
+    }
+
+    /* Minste G i øre der personen ikke får makssats: siste årslønn er da høyst 6G. */
+    private static long maksgrense(long siste) {
+        return Math.ceilDiv(siste, 6);
+    }
+
+    private static boolean harMakssats(long beregning) {
+        return Dagsatsberegning.hentSpesialisering(beregning) == Spesialisering.INNVILGET_MED_MAKSSATS;
+    }
+
+    private static long utenMaksDagsats(long beregning) {
+        return harMakssats(beregning) ? beregning & UTEN_DAGSATS : beregning;
+    }
+
+    private static long maksDagsats(GrunnbeløpVerktøy verktøy) {
+        return Math.ceilDiv(verktøy.hentMaksÅrligDagpengegrunnlagØre(), Dagsatsberegning.ØRE_PER_ÅRLIG_KRONE);
+    }
+
+    private static int bøtte(long grense) {
+        return (int) Math.max(0, Math.min(ANTALL_BØTTER - 1, grense >> BØTTESKIFT));
+    }
+
+    /* Personer fordelt i bøtter etter én grense med tellesortering, med årslønnene i samme rekkefølge.
+    Bøtte b går fra plass start[b] til start[b + 1]. */
+    private static final class Bøtter {
+        private final int[] start = new int[ANTALL_BØTTER + 1];
+        private final int[] personer;
+        private final long[] siste;
+        private final long[] sum;
+
+        /* Personer med bøtte -1 er utenfor. */
+        private Bøtter(int[] bøtter, long[] sisteÅrslønnØre, long[] sumTreÅrØre) {
+            for (int bøtte : bøtter) {
+                if (bøtte >= 0) {
+                    this.start[bøtte + 1]++;
+                }
+            }
+            for (int bøtte = 0; bøtte < ANTALL_BØTTER; bøtte++) {
+                this.start[bøtte + 1] += this.start[bøtte];
+            }
+            int antall = this.start[ANTALL_BØTTER];
+            this.personer = new int[antall];
+            this.siste = new long[antall];
+            this.sum = new long[antall];
+            int[] neste = Arrays.copyOf(this.start, ANTALL_BØTTER);
+            for (int person = 0; person < bøtter.length; person++) {
+                if (bøtter[person] >= 0) {
+                    int plass = neste[bøtter[person]]++;
+                    this.personer[plass] = person;
+                    this.siste[plass] = sisteÅrslønnØre[person];
+                    this.sum[plass] = sumTreÅrØre[person];
+                }
+            }
+        }
+    }
+}
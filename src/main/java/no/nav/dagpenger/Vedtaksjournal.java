@@ -0,0 +1,647 @@
+package no.nav.dagpenger;
+
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Journal over kalkulerte resultater og saksbehandlernes vedtak, slik at ingen avgjørelser går tapt ved omstart.
+ *
+ * Journalen er en fil som bare skrives til på slutten, delt i segmenter som skrives gjennom minnekartlegging.
+ * Hver post er 24 byte med person-id, dagsats, spesialisering, behandlingsstatus og en sjekksum, og beskriver
+ * hele tilstanden til personens resultat, slik at siste post for en person alltid gjelder.
+ *
+ * Lagring til disk skjer i grupper: én bakgrunnstråd tvinger skrevne poster ut på disk med jevne mellomrom,
+ * og alle som venter med <code>ventTilLagret</code> slipper samtidig. Med jevne mellomrom skrives også et
+ * komprimert øyeblikksbilde med én post per person, og segmenter som er dekket av det slettes.
+ *
+ * Ved oppstart leses øyeblikksbildet og deretter segmentene etter det, i rekkefølge. En post med feil sjekksum,
+ * typisk en halvskrevet post fra et krasj, markerer slutten på journalen.
+ *
+ * @author Mila Toneff
+ * @version 1.3
+ */
+public final class Vedtaksjournal implements AutoCloseable {
+
+    /* Oppsett av en post. */
+    static final int POSTSTØRRELSE = 24;
+    private static final int FORSKYVNING_DAGSATS = 8;
+    private static final int FORSKYVNING_SPESIALISERING = 16;
+    private static final int FORSKYVNING_STATUS = 17;
+    private static final int FORSKYVNING_SJEKKSUM = 20;
+
+    /* Øyeblikksbildet starter med kjennetegn, antall poster det dekker og antall personer. */
+    private static final long KJENNETEGN = 0x564a4f5552_4e414cL;
+    private static final int HODESTØRRELSE = 24;
+    private static final String ØYEBLIKKSBILDE = "vedtaksjournal.snap";
+    private static final String SEGMENT_START = "vedtaksjournal-";
+    private static final String SEGMENT_SLUTT = ".seg";
+
+    /* Standardoppsett: 64 MB per segment, lagring hvert 2. millisekund og øyeblikksbilde hver 10. million post. */
+    private static final int STANDARD_POSTER_PER_SEGMENT = (64 << 20) / POSTSTØRRELSE;
+    private static final Duration STANDARD_LAGRINGSINTERVALL = Duration.ofMillis(2);
+    private static final long STANDARD_POSTER_MELLOM_ØYEBLIKKSBILDER = 10_000_000;
+
+    /* Øyeblikksbilder i bakgrunnen som feilet, og segmenter som ble forkastet ved åpning fordi de lå etter slutten. */
+    private static final Teller ØYEBLIKKSBILDE_FEILET = Metrikker.teller("dagpenger.journal.øyeblikksbilde_feilet");
+    private static final Teller FORKASTEDE_SEGMENTER = Metrikker.teller("dagpenger.journal.forkastede_segmenter");
+
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+    private static final Behandlingsstatus[] STATUSER = Behandlingsstatus.values();
+
+    private final Path mappe;
+    private final int posterPerSegment;
+    private final long lagringsintervallNanos;
+    private final long posterMellomØyeblikksbilder;
+
+    /* Siste tilstand for hver person, bygget opp fra journalen. Endres bare under lås på journalen. */
+    private final Tilstand tilstand = new Tilstand();
+    /* Segmentet det skrives til, og sekvensnummeret til første post i det. */
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    /* Sekvensnummeret neste post får, altså antall poster som er skrevet. */
+    private long nesteSekvensnummer;
+    /* Antall poster som er tvunget ut på disk. Skrives av lagringstråden. */
+    private volatile long lagret;
+    /* Antall poster dekket av siste øyeblikksbilde. */
+    private volatile long øyeblikksbildeSekvensnummer;
+    private volatile boolean lukket;
+    private final Thread lagringstråd;
+    private final Object lagringslås = new Object();
+    /* Hindrer at to øyeblikksbilder skrives samtidig. */
+    private final Object øyeblikksbildelås = new Object();
+
+    private Vedtaksjournal(Path mappe, int posterPerSegment, Duration lagringsintervall, long posterMellomØyeblikksbilder) {
+        this.mappe = mappe;
+        this.posterPerSegment = posterPerSegment;
+        this.lagringsintervallNanos = lagringsintervall.toNanos();
+        this.posterMellomØyeblikksbilder = posterMellomØyeblikksbilder;
+        this.lagringstråd = new Thread(this::lagreIBakgrunnen, "vedtaksjournal-lagring");
+        this.lagringstråd.setDaemon(true);
+    }
+
+    /**
+     * Åpner journalen i gitt mappe med standardoppsett, og gjenoppretter tilstanden fra det som ligger der.
+     * @param mappe Mappen journalen ligger i. Opprettes hvis den ikke finnes.
+     * @return Den åpne journalen.
+     * @throws IOException hvis journalen ikke kan leses eller opprettes.
+     */
+    public static Vedtaksjournal åpne(Path mappe) throws IOException {
+        return åpne(mappe, STANDARD_POSTER_PER_SEGMENT, STANDARD_LAGRINGSINTERVALL, STANDARD_POSTER_MELLOM_ØYEBLIKKSBILDER);
+    }
+
+    /**
+     * Åpner journalen i gitt mappe, og gjenoppretter tilstanden fra det som ligger der.
+     * @param mappe Mappen journalen ligger i. Opprettes hvis den ikke finnes.
+     * @param posterPerSegment Antall poster i hvert nye segment.
+     * @param lagringsintervall Hvor ofte skrevne poster tvinges ut på disk.
+     * @param posterMellomØyeblikksbilder Antall nye poster før et nytt øyeblikksbilde skrives, eller 0 for aldri.
+     * @return Den åpne journalen.
+     * @throws IOException hvis journalen ikke kan leses eller opprettes.
+     */
+    public static Vedtaksjournal åpne(Path mappe, int posterPerSegment, Duration lagringsintervall,
+                                      long posterMellomØyeblikksbilder) throws IOException {
+        /* Feilhåndtering: Kaster unntak ved manglende mappe eller ugyldig oppsett. */
+        if (mappe == null) {
+            throw new IllegalArgumentException("Mappe kan ikke være uten verdi (null).");
+        }
+        if (posterPerSegment <= 0 || posterPerSegment > Integer.MAX_VALUE / POSTSTØRRELSE) {
+            throw new IllegalArgumentException("Poster per segment må være mellom 1 og " + Integer.MAX_VALUE / POSTSTØRRELSE + ".");
+        }
+        if (lagringsintervall == null || lagringsintervall.isNegative() || lagringsintervall.isZero()) {
+            throw new IllegalArgumentException("Lagringsintervall må være større enn null.");
+        }
+        if (posterMellomØyeblikksbilder < 0) {
+            throw new IllegalArgumentException("Poster mellom øyeblikksbilder kan ikke være negativt.");
+        }
+        Files.createDirectories(mappe);
+        Vedtaksjournal journal = new Vedtaksjournal(mappe, posterPerSegment, lagringsintervall, posterMellomØyeblikksbilder);
+        journal.gjenopprett();
+        journal.lagringstråd.start();
+        return journal;
+    }
+
+    /**
+     * Journalfører et kalkulert resultat med gjeldende status.
+     * @param resultat Resultatet. Må ha person-id.
+     * @return Sekvensnummeret til posten, som kan gis til <code>ventTilLagret</code>.
+     */
+    public long journalfør(Resultat resultat) {
+        /* Feilhåndtering: Kaster unntak hvis resultatet er null. Manglende person-id avvises i skriv. */
+        if (resultat == null) {
+            throw new IllegalArgumentException("Resultat kan ikke være uten verdi (null).");
+        }
+        return skriv(resultat.hentPersonId(), resultat.hentBeregnetDagsats(),
+                resultat.hentSpesialisering(), resultat.hentStatus());
+    }
+
+    /* Journalfører resultatet på en plass i et resultatlager med gjeldende status. */
+    long journalfør(ResultatLager lager, int plass) {
+        return skriv(lager.hentPersonId(plass), lager.hentDagsats(plass),
+                lager.hentSpesialisering(plass), lager.hentStatus(plass));
+    }
+
+    /**
+     * Journalfører alle personene i et batch-resultat som ubehandlede resultater.
+     * Mangler en av personene person-id, journalføres ingen av dem.
+     * @param batchResultat Resultatet fra en batch-kalkulering. Alle personene må ha person-id.
+     * @return Sekvensnummeret til siste post.
+     */
+    public long journalførAlle(BatchResultat batchResultat) {
+        /* Feilhåndtering: Kaster unntak hvis batch-resultatet er null. */
+        if (batchResultat == null) {
+            throw new IllegalArgumentException("Batch-resultat kan ikke være uten verdi (null).");
+        }
+        for (int person = 0; person < batchResultat.hentAntallPersoner(); person++) {
+            sjekkPersonId(batchResultat.hentPersonId(person));
+        }
+        long sekvensnummer = -1;
+        for (int person = 0; person < batchResultat.hentAntallPersoner(); person++) {
+            sekvensnummer = skriv(batchResultat.hentPersonId(person), batchResultat.hentDagsats(person),
+                    batchResultat.hentSpesialisering(person), Behandlingsstatus.UBEHANDLET);
+        }
+        return sekvensnummer;
+    }
+
+    /**
+     * Venter til posten med gitt sekvensnummer, og alle før den, er lagret på disk.
+     * Mange tråder som venter samtidig deles om én lagring.
+     * @param sekvensnummer Sekvensnummeret fra <code>journalfør</code>.
+     * @throws InterruptedException hvis tråden avbrytes mens den venter.
+     */
+    public void ventTilLagret(long sekvensnummer) throws InterruptedException {
+        if (this.lagret > sekvensnummer) {
+            return;
+        }
+        LockSupport.unpark(this.lagringstråd);
+        synchronized (this.lagringslås) {
+            while (this.lagret <= sekvensnummer) {
+                if (this.lukket) {
+                    throw new IllegalStateException("Journalen er lukket.");
+                }
+                this.lagringslås.wait();
+            }
+        }
+    }
+
+    /**
+     * Henter resultatet til en person slik det står i journalen.
+     * @param personId Id-en til personen.
+     * @return Resultatet med siste journalførte status, eller null hvis personen ikke finnes.
+     */
+    public synchronized Resultat hentResultat(long personId) {
+        int plass = this.tilstand.finn(personId);
+        return plass < 0 ? null : this.tilstand.lagResultat(plass);
+    }
+
+    /**
+     * Henter antall personer med resultat i journalen.
+     * @return Antall personer.
+     */
+    public synchronized int hentAntallResultater() {
+        return this.tilstand.antall;
+    }
+
+    /**
+     * Henter antall poster som er skrevet til journalen siden den ble opprettet.
+     * @return Antall poster.
+     */
+    public synchronized long hentAntallPoster() {
+        return this.nesteSekvensnummer;
+    }
+
+    /**
+     * Legger alle ubehandlede resultater i journalen i en saksbehandlingskø, typisk etter en omstart.
+     * @param kø Køen resultatene skal behandles fra.
+     * @return Antall resultater som ble lagt i køen.
+     */
+    public synchronized int leggUbehandledeIKø(Saksbehandlingskø kø) {
+        /* Feilhåndtering: Kaster unntak hvis køen er null. */
+        if (kø == null) {
+            throw new IllegalArgumentException("Kø kan ikke være uten verdi (null).");
+        }
+        int antall = 0;
+        for (int plass = 0; plass < this.tilstand.nøkler.length; plass++) {
+            if (this.tilstand.nøkler[plass] != 0 && this.tilstand.statuser[plass] == Behandlingsstatus.UBEHANDLET.ordinal()) {
+                kø.leggTil(this.tilstand.lagResultat(plass));
+                antall++;
+            }
+        }
+        return antall;
+    }
+
+    /**
+     * Skriver et komprimert øyeblikksbilde med én post per person, og sletter segmenter det dekker.
+     * Gjøres også automatisk av lagringstråden.
+     * @throws IOException hvis øyeblikksbildet ikke kan skrives.
+     */
+    public void lagreØyeblikksbilde() throws IOException {
+        synchronized (this.øyeblikksbildelås) {
+            Tilstand kopi;
+            long sekvensnummer;
+            /* Tilstanden kopieres under lås, og skrives uten, så journalføring bare står stille under kopieringen. */
+            synchronized (this) {
+                kopi = this.tilstand.kopi();
+                sekvensnummer = this.nesteSekvensnummer;
+                /* Alt øyeblikksbildet dekker, må være på disk før segmentene kan slettes. */
+                this.segment.force();
+            }
+            skrivØyeblikksbilde(kopi, sekvensnummer);
+            this.øyeblikksbildeSekvensnummer = sekvensnummer;
+            slettDekkedeSegmenter(sekvensnummer);
+        }
+    }
+
+    /**
+     * Lagrer alt som er skrevet og stopper lagringstråden.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (this.lukket) {
+                return;
+            }
+            this.lukket = true;
+        }
+        LockSupport.unpark(this.lagringstråd);
+        try {
+            this.lagringstråd.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        long skrevet;
+        synchronized (this) {
+            this.segment.force();
+            skrevet = this.nesteSekvensnummer;
+        }
+        synchronized (this.lagringslås) {
+            this.lagret = skrevet;
+            this.lagringslås.notifyAll();
+        }
+    }
+
+    /* Person-id 0 markerer slutten på journalen og en ledig plass i tilstanden, så den kan aldri skrives. */
+    private static void sjekkPersonId(long personId) {
+        /* Feilhåndtering: Kaster unntak hvis resultatet mangler person-id. */
+        if (personId == 0) {
+            throw new IllegalArgumentException("Resultat må ha person-id for å journalføres.");
+        }
+    }
+
+    /* Skriver én post og oppdaterer tilstanden. */
+    private synchronized long skriv(long personId, double dagsats, Spesialisering spesialisering, Behandlingsstatus status) {
+        sjekkPersonId(personId);
+        if (this.lukket) {
+            throw new IllegalStateException("Journalen er lukket.");
+        }
+        long sekvensnummer = this.nesteSekvensnummer;
+        int posisjon = (int) (sekvensnummer - this.segmentStart) * POSTSTØRRELSE;
+        if (posisjon >= this.segment.capacity()) {
+            nyttSegment(sekvensnummer);
+            posisjon = 0;
+        }
+        skrivPost(this.segment, posisjon, personId, dagsats, (byte) spesialisering.ordinal(), (byte) status.ordinal());
+        this.tilstand.sett(personId, dagsats, (byte) spesialisering.ordinal(), (byte) status.ordinal());
+        this.nesteSekvensnummer = sekvensnummer + 1;
+        return sekvensnummer;
+    }
+
+    /* Tvinger fullt segment ut på disk og begynner på et nytt. Sjelden, så det gjøres under låsen. */
+    private void nyttSegment(long start) {
+        try {
+            if (this.segment != null) {
+                this.segment.force();
+            }
+            this.segment = kartlegg(segmentfil(start), (long) this.posterPerSegment * POSTSTØRRELSE);
+            this.segmentStart = start;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Kunne ikke opprette nytt journalsegment.", exception);
+        }
+    }
+
+    /* Lagringstråden: tvinger skrevne poster ut på disk i grupper, og skriver øyeblikksbilder. */
+    private void lagreIBakgrunnen() {
+        while (!this.lukket) {
+            LockSupport.parkNanos(this.lagringsintervallNanos);
+            MappedByteBuffer gjeldende;
+            long skrevet;
+            synchronized (this) {
+                gjeldende = this.segment;
+                skrevet = this.nesteSekvensnummer;
+            }
+            if (skrevet > this.lagret) {
+                /* Tidligere segmenter er tvunget ut da de ble fulle. */
+                gjeldende.force();
+                synchronized (this.lagringslås) {
+                    this.lagret = skrevet;
+                    this.lagringslås.notifyAll();
+                }
+            }
+            if (this.posterMellomØyeblikksbilder > 0
+                    && skrevet - this.øyeblikksbildeSekvensnummer >= this.posterMellomØyeblikksbilder) {
+                try {
+                    lagreØyeblikksbilde();
+                } catch (IOException exception) {
+                    /* Journalen er fortsatt komplett, oppstarten blir bare tregere. */
+                    if (Metrikker.AKTIVERT) {
+                        ØYEBLIKKSBILDE_FEILET.øk();
+                    }
+                }
+            }
+        }
+    }
+
+    /* Leser øyeblikksbildet og segmentene etter det, og finner hvor neste post skal skrives. */
+    private void gjenopprett() throws IOException {
+        long fra = lesØyeblikksbilde();
+        this.øyeblikksbildeSekvensnummer = fra;
+
+        TreeMap<Long, Path> segmenter = finnSegmenter();
+        long neste = fra;
+        boolean slutt = false;
+        for (var oppføring : segmenter.entrySet()) {
+            long start = oppføring.getKey();
+            Path fil = oppføring.getValue();
+            long antallPoster = Files.size(fil) / POSTSTØRRELSE;
+            if (slutt || start > neste) {
+                /* Poster etter en halvskrevet post, eller etter et hull, kan ikke stoles på. */
+                if (Metrikker.AKTIVERT) {
+                    FORKASTEDE_SEGMENTER.øk();
+                }
+                Files.delete(fil);
+                continue;
+            }
+            if (start + antallPoster <= fra) {
+                continue;
+            }
+            MappedByteBuffer buffer = kartlegg(fil, antallPoster * POSTSTØRRELSE);
+            int post = (int) (Math.max(neste, start) - start);
+            for (; post < antallPoster; post++) {
+                if (!lesPost(buffer, post * POSTSTØRRELSE)) {
+                    slutt = true;
+                    /* Gamle, hele poster etter slutten ville ellers blitt lest igjen når nye poster fyller hullet. */
+                    nullstill(buffer, post * POSTSTØRRELSE);
+                    break;
+                }
+            }
+            neste = start + post;
+            this.segment = buffer;
+            this.segmentStart = start;
+        }
+        this.nesteSekvensnummer = neste;
+        this.lagret = neste;
+        if (this.segment == null) {
+            nyttSegment(neste);
+        }
+    }
+
+    /* Leser en post inn i tilstanden. Returnerer false hvis posten er tom eller ødelagt. */
+    private boolean lesPost(ByteBuffer buffer, int posisjon) {
+        long personId = buffer.getLong(posisjon);
+        long dagsatsBiter = buffer.getLong(posisjon + FORSKYVNING_DAGSATS);
+        int meta = buffer.getInt(posisjon + FORSKYVNING_SPESIALISERING);
+        if (buffer.getInt(posisjon + FORSKYVNING_SJEKKSUM) != sjekksum(personId, dagsatsBiter, meta)) {
+            return false;
+        }
+        byte spesialisering = buffer.get(posisjon + FORSKYVNING_SPESIALISERING);
+        byte status = buffer.get(posisjon + FORSKYVNING_STATUS);
+        if (personId == 0 || spesialisering < 0 || spesialisering >= SPESIALISERINGER.length
+                || status < 0 || status >= STATUSER.length) {
+            return false;
+        }
+        this.tilstand.sett(personId, Double.longBitsToDouble(dagsatsBiter), spesialisering, status);
+        return true;
+    }
+
+    private static void nullstill(MappedByteBuffer buffer, int fra) {
+        for (int posisjon = fra; posisjon < buffer.capacity(); posisjon += Long.BYTES) {
+            buffer.putLong(posisjon, 0);
+        }
+        buffer.force();
+    }
+
+    private static void skrivPost(ByteBuffer buffer, int posisjon, long personId, double dagsats, byte spesialisering, byte status) {
+        long dagsatsBiter = Double.doubleToRawLongBits(dagsats);
+        buffer.putLong(posisjon, personId);
+        buffer.putLong(posisjon + FORSKYVNING_DAGSATS, dagsatsBiter);
+        buffer.put(posisjon + FORSKYVNING_SPESIALISERING, spesialisering);
+        buffer.put(posisjon + FORSKYVNING_STATUS, status);
+        buffer.putShort(posisjon + FORSKYVNING_STATUS + 1, (short) 0);
+        int meta = buffer.getInt(posisjon + FORSKYVNING_SPESIALISERING);
+        buffer.putInt(posisjon + FORSKYVNING_SJEKKSUM, sjekksum(personId, dagsatsBiter, meta));
+    }
+
+    /* Sjekksum som avslører halvskrevne og tomme poster. Aldri 0 for en tom post. */
+    private static int sjekksum(long personId, long dagsatsBiter, int meta) {
+        long blanding = (personId * 0x9E3779B97F4A7C15L) ^ (dagsatsBiter * 0xC2B2AE3D27D4EB4FL) ^ (meta * 0x165667B19E3779F9L);
+        blanding ^= blanding >>> 31;
+        return (int) (blanding ^ (blanding >>> 32)) ^ 0x5EED5EED;
+    }
+
+    private long lesØyeblikksbilde() throws IOException {
+        Path fil = this.mappe.resolve(ØYEBLIKKSBILDE);
+        if (!Files.isRegularFile(fil)) {
+            return 0;
+        }
+        MappedByteBuffer buffer = kartleggForLesing(fil);
+        if (buffer.capacity() < HODESTØRRELSE || buffer.getLong(0) != KJENNETEGN) {
+            throw new IOException("Ugyldig øyeblikksbilde av journalen: " + fil);
+        }
+        long sekvensnummer = buffer.getLong(8);
+        long antall = buffer.getLong(16);
+        if (buffer.capacity() != HODESTØRRELSE + antall * POSTSTØRRELSE) {
+            throw new IOException("Ufullstendig øyeblikksbilde av journalen: " + fil);
+        }
+        this.tilstand.sikreKapasitet((int) antall);
+        for (int post = 0; post < antall; post++) {
+            if (!lesPost(buffer, HODESTØRRELSE + post * POSTSTØRRELSE)) {
+                throw new IOException("Ødelagt post " + post + " i øyeblikksbilde av journalen: " + fil);
+            }
+        }
+        return sekvensnummer;
+    }
+
+    private void skrivØyeblikksbilde(Tilstand kopi, long sekvensnummer) throws IOException {
+        Path midlertidig = Files.createTempFile(this.mappe, "vedtaksjournal", ".tmp");
+        try {
+            try (FileChannel kanal = FileChannel.open(midlertidig, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(HODESTØRRELSE + 4096 * POSTSTØRRELSE);
+                buffer.putLong(KJENNETEGN).putLong(sekvensnummer).putLong(kopi.antall);
+                for (int plass = 0; plass < kopi.nøkler.length; plass++) {
+                    if (kopi.nøkler[plass] == 0) {
+                        continue;
+                    }
+                    if (buffer.remaining() < POSTSTØRRELSE) {
+                        skrivUt(kanal, buffer);
+                    }
+                    skrivPost(buffer, buffer.position(), kopi.nøkler[plass], kopi.dagsatser[plass],
+                            kopi.spesialiseringer[plass], kopi.statuser[plass]);
+                    buffer.position(buffer.position() + POSTSTØRRELSE);
+                }
+                skrivUt(kanal, buffer);
+                kanal.force(true);
+            }
+            Files.move(midlertidig, this.mappe.resolve(ØYEBLIKKSBILDE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(midlertidig);
+        }
+    }
+
+    private static void skrivUt(FileChannel kanal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            kanal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /* Sletter segmenter der alle postene er dekket av øyeblikksbildet. Segmentet det skrives til beholdes. */
+    private void slettDekkedeSegmenter(long sekvensnummer) throws IOException {
+        long gjeldendeStart;
+        synchronized (this) {
+            gjeldendeStart = this.segmentStart;
+        }
+        for (var oppføring : finnSegmenter().entrySet()) {
+            Path fil = oppføring.getValue();
+            if (oppføring.getKey() != gjeldendeStart
+                    && oppføring.getKey() + Files.size(fil) / POSTSTØRRELSE <= sekvensnummer) {
+                Files.deleteIfExists(fil);
+            }
+        }
+    }
+
+    /* Finner segmentfilene sortert etter sekvensnummeret til første post. */
+    private TreeMap<Long, Path> finnSegmenter() throws IOException {
+        TreeMap<Long, Path> segmenter = new TreeMap<>();
+        try (Stream<Path> filer = Files.list(this.mappe)) {
+            for (Path fil : (Iterable<Path>) filer::iterator) {
+                String navn = fil.getFileName().toString();
+                if (navn.startsWith(SEGMENT_START) && navn.endsWith(SEGMENT_SLUTT)) {
+                    segmenter.put(Long.parseLong(navn.substring(SEGMENT_START.length(), navn.length() - SEGMENT_SLUTT.length())), fil);
+                }
+            }
+        }
+        return segmenter;
+    }
+
+    private Path segmentfil(long start) {
+        return this.mappe.resolve(String.format("%s%019d%s", SEGMENT_START, start, SEGMENT_SLUTT));
+    }
+
+    private static MappedByteBuffer kartlegg(Path fil, long størrelse) throws IOException {
+        try (FileChannel kanal = FileChannel.open(fil, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return kanal.map(FileChannel.MapMode.READ_WRITE, 0, størrelse);
+        }
+    }
+
+    private static MappedByteBuffer kartleggForLesing(Path fil) throws IOException {
+        try (FileChannel kanal = FileChannel.open(fil, StandardOpenOption.READ)) {
+            return kanal.map(FileChannel.MapMode.READ_ONLY, 0, kanal.size());
+        }
+    }
+
+    /* Siste tilstand per person i en åpen hashtabell av primitive kolonner, uten et objekt per person.
+    Person-id 0 markerer en ledig plass. */
+    private static final class Tilstand {
+        private long[] nøkler = new long[1024];
+        private double[] dagsatser = new double[1024];
+        private byte[] spesialiseringer = new byte[1024];
+        private byte[] statuser = new byte[1024];
+        private int antall;
+
+        private int finn(long personId) {
+            int maske = this.nøkler.length - 1;
+            for (int plass = spre(personId) & maske; ; plass = (plass + 1) & maske) {
+                if (this.nøkler[plass] == personId) {
+                    return plass;
+                }
+                if (this.nøkler[plass] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        private void sett(long personId, double dagsats, byte spesialisering, byte status) {
+            /* Feilhåndtering: 0 betyr en ledig plass i tabellen, og kan ikke være en nøkkel. */
+            if (personId == 0) {
+                throw new IllegalArgumentException("Person-id 0 kan ikke lagres i journalen.");
+            }
+            if ((this.antall + 1) * 2 > this.nøkler.length) {
+                utvid(this.nøkler.length * 2);
+            }
+            int maske = this.nøkler.length - 1;
+            int plass = spre(personId) & maske;
+            while (this.nøkler[plass] != 0 && this.nøkler[plass] != personId) {
+                plass = (plass + 1) & maske;
+            }
+            if (this.nøkler[plass] == 0) {
+                this.nøkler[plass] = personId;
+                this.antall++;
+            }
+            this.dagsatser[plass] = dagsats;
+            this.spesialiseringer[plass] = spesialisering;
+            this.statuser[plass] = status;
+        }
+
+        private void sikreKapasitet(int antallPersoner) {
+            int kapasitet = this.nøkler.length;
+            while (kapasitet < antallPersoner * 2L) {
+                kapasitet *= 2;
+            }
+            if (kapasitet > this.nøkler.length) {
+                utvid(kapasitet);
+            }
+        }
+
+        private void utvid(int kapasitet) {
+            Tilstand større = new Tilstand();
+            større.nøkler = new long[kapasitet];
+            større.dagsatser = new double[kapasitet];
+            større.spesialiseringer = new byte[kapasitet];
+            større.statuser = new byte[kapasitet];
+            for (int plass = 0; plass < this.nøkler.length; plass++) {
+                if (this.nøkler[plass] != 0) {
+                    større.sett(this.nøkler[plass], this.dagsatser[plass], this.spesialiseringer[plass], this.statuser[plass]);
+                }
+            }
+            this.nøkler = større.nøkler;
+            this.dagsatser = større.dagsatser;
+            this.spesialiseringer = større.spesialiseringer;
+            this.statuser = større.statuser;
+        }
+
+        private Tilstand kopi() {
+            Tilstand kopi = new Tilstand();
+            kopi.nøkler = this.nøkler.clone();
+            kopi.dagsatser = this.dagsatser.clone();
+            kopi.spesialiseringer = this.spesialiseringer.clone();
+            kopi.statuser = this.statuser.clone();
+            kopi.antall = this.antall;
+            return kopi;
+        }
+
+        private Resultat lagResultat(int plass) {
+            return Resultat.gjenskap(this.nøkler[plass], this.dagsatser[plass],
+                    SPESIALISERINGER[this.spesialiseringer[plass]], STATUSER[this.statuser[plass]]);
+        }
+
+        private static int spre(long personId) {
+            long blanding = personId * 0x9E3779B97F4A7C15L;
+            return (int) (blanding ^ (blanding >>> 32));
+        }
+    }
+}
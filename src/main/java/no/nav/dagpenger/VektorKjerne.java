@@ -0,0 +1,108 @@
+package no.nav.dagpenger;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Metrikker;
+
+/**
+ * Vektorversjonen av reglene i <code>Dagsatsberegning.beregnØre</code>, for <code>DagsatsKjerne</code>.
+ * Klassen er den eneste som bruker <code>jdk.incubator.vector</code>, og lastes bare når modulen finnes.
+ *
+ * Alle tre beregningsmetodene rundes opp med samme divisor: dagsatsen av siste årslønn er
+ * <code>ceil(siste / 260)</code>, som er det samme som <code>ceil(3 * siste / 780)</code>, og gjennomsnittet er
+ * <code>ceil(sum / 780)</code>. Telleren velges med masker, og deles én gang. Heltallsdivisjon finnes ikke som
+ * vektorinstruksjon, og divisjon i <code>double</code> er treg, så telleren ganges med den inverse divisoren i
+ * <code>double</code> i stedet. For tellere under 2^45 bommer den avkuttede kvotienten med høyst én, og resten i
+ * heltall retter den opp og avgjør om den skal rundes opp. Større beløp regnes i den vanlige løkken.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+final class VektorKjerne {
+
+    private static final VectorSpecies<Long> ART = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLE_ART = DoubleVector.SPECIES_PREFERRED;
+
+    /* Beløp under dette gir tellere (opptil tre ganger beløpet) under 2^45, omtrent 88 milliarder kroner. */
+    private static final long GRENSE = 1L << 43;
+    private static final long DIVISOR = Dagsatsberegning.ØRE_PER_ÅRLIG_KRONE_TRE_ÅR;
+    private static final double INVERS_DIVISOR = 1.0 / DIVISOR;
+
+    private static final long SISTE = Beregningsmetode.SISTE_ÅRSLØNN.ordinal();
+    private static final long GJENNOMSNITT = Beregningsmetode.GJENNOMSNITT_AV_TRE_ÅR.ordinal();
+    private static final long MAKS = Beregningsmetode.MAKS_ÅRLIG_DAGPENGERGRUNNLAG.ordinal();
+    private static final long INNVILGET = Spesialisering.INNVILGET.ordinal();
+    private static final long MAKSSATS = Spesialisering.INNVILGET_MED_MAKSSATS.ordinal();
+    private static final long AVSLAG = Spesialisering.AVSLAG_FOR_LAV_INNTEKT.ordinal();
+
+    private VektorKjerne() {
+    }
+
+    /* Vektorene må ha minst to plasser og like mange long- og double-plasser for å lønne seg. */
+    static boolean erStøttet() {
+        return ART.length() >= 2 && ART.length() == DOUBLE_ART.length();
+    }
+
+    static void beregn(long[] siste, long[] sum, GrunnbeløpVerktøy verktøy, long[] beregninger, int fra, int til) {
+        long maks = verktøy.hentMaksÅrligDagpengegrunnlagØre();
+        long treG = verktøy.hentTreÅrsGrunnbeløpØre();
+        long minimum = verktøy.hentMinimumÅrslønnØre();
+        if (maks >= GRENSE) {
+            DagsatsKjerne.beregnSkalar(siste, sum, verktøy, beregninger, fra, til);
+            return;
+        }
+
+        int person = fra;
+        for (int vektorSlutt = fra + ART.loopBound(til - fra); person < vektorSlutt; person += ART.length()) {
+            LongVector sisteÅrslønn = LongVector.fromArray(ART, siste, person);
+            LongVector sumTreÅr = LongVector.fromArray(ART, sum, person);
+            /* -GRENSE < x < GRENSE er det samme som at x + GRENSE er under 2 * GRENSE uten fortegn. */
+            VectorMask<Long> forStor = sisteÅrslønn.add(GRENSE).compare(VectorOperators.UNSIGNED_GE, 2 * GRENSE)
+                    .or(sumTreÅr.add(GRENSE).compare(VectorOperators.UNSIGNED_GE, 2 * GRENSE));
+            if (forStor.anyTrue()) {
+                DagsatsKjerne.beregnSkalar(siste, sum, verktøy, beregninger, person, person + ART.length());
+                continue;
+            }
+
+            /* Beregningsmetode som masker: gjennomsnitt når 3 * siste <= sum, ellers maks over 6G, ellers siste.
+            Ganger med tre ved å legge sammen, siden multiplikasjon av long er treg som vektorinstruksjon. */
+            LongVector treSiste = sisteÅrslønn.add(sisteÅrslønn).add(sisteÅrslønn);
+            VectorMask<Long> gjennomsnitt = treSiste.compare(VectorOperators.LE, sumTreÅr);
+            VectorMask<Long> overMaks = sisteÅrslønn.compare(VectorOperators.GT, maks).andNot(gjennomsnitt);
+            VectorMask<Long> avslag = sumTreÅr.compare(VectorOperators.LT, treG)
+                    .and(sisteÅrslønn.compare(VectorOperators.LT, minimum));
+
+            /* Dagsats: ceil(teller / 78000). Omtrentlig kvotient i double, rettet opp med resten.
+            Resten regnes også i double, der den er eksakt for så små tall. */
+            LongVector teller = treSiste.blend(maks * 3, overMaks).blend(sumTreÅr, gjennomsnitt);
+            DoubleVector tellerDouble = (DoubleVector) teller.convertShape(VectorOperators.L2D, DOUBLE_ART, 0);
+            LongVector kvotient = (LongVector) tellerDouble.mul(INVERS_DIVISOR).convertShape(VectorOperators.D2L, ART, 0);
+            DoubleVector kvotientDouble = (DoubleVector) kvotient.convertShape(VectorOperators.L2D, DOUBLE_ART, 0);
+            DoubleVector rest = kvotientDouble.mul(-DIVISOR).add(tellerDouble);
+            LongVector dagsats = kvotient
+                    .add(1, rest.compare(VectorOperators.GT, 0).cast(ART))
+                    .sub(1, rest.compare(VectorOperators.LE, -DIVISOR).cast(ART))
+                    .blend(0, avslag);
+
+            LongVector metode = LongVector.broadcast(ART, SISTE).blend(MAKS, overMaks).blend(GJENNOMSNITT, gjennomsnitt);
+            LongVector spesialisering = LongVector.broadcast(ART, INNVILGET).blend(MAKSSATS, overMaks).blend(AVSLAG, avslag);
+
+            dagsats.lanewise(VectorOperators.LSHL, Dagsatsberegning.FORSKYVNING_DAGSATS)
+                    .or(metode.lanewise(VectorOperators.LSHL, Dagsatsberegning.BITER_SPESIALISERING))
+                    .or(spesialisering)
+                    .intoArray(beregninger, person);
+            /* Den vanlige løkken teller i Dagsatsberegning, vektorene telles her. */
+            if (Metrikker.AKTIVERT) {
+                for (int plass = person; plass < person + ART.length(); plass++) {
+                    Dagsatsberegning.tell(beregninger[plass]);
+                }
+            }
+        }
+        /* Resten som ikke fyller en hel vektor. */
+        DagsatsKjerne.beregnSkalar(siste, sum, verktøy, beregninger, person, til);
+    }
+}
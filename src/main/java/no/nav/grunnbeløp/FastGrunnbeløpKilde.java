@@ -0,0 +1,39 @@
+package no.nav.grunnbeløp;
+
+import java.time.LocalDate;
+
+/**
+ * Grunnbeløpskilde med et fast grunnbeløp i minnet, for tester, ytelsestester og kjøringer uten nettverk.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class FastGrunnbeløpKilde implements GrunnbeløpKilde {
+
+    private final Grunnbeløp grunnbeløp;
+
+    /**
+     * Oppretter en kilde med et gitt grunnbeløp.
+     * @param grunnbeløp grunnbeløpet kilden alltid gir.
+     */
+    public FastGrunnbeløpKilde(Grunnbeløp grunnbeløp) {
+        /* Feilhåndtering: Kaster unntak hvis grunnbeløpet er null. */
+        if (grunnbeløp == null) {
+            throw new IllegalArgumentException("Grunnbeløp kan ikke være uten verdi (null).");
+        }
+        this.grunnbeløp = grunnbeløp;
+    }
+
+    /**
+     * Oppretter en kilde med et gitt grunnbeløp som gjelder fra og med i dag.
+     * @param beløp grunnbeløpet i kroner.
+     */
+    public FastGrunnbeløpKilde(double beløp) {
+        this(new Grunnbeløp(beløp, LocalDate.now()));
+    }
+
+    @Override
+    public Grunnbeløp hentGjeldendeGrunnbeløp() {
+        return this.grunnbeløp;
+    }
+}
@@ -0,0 +1,99 @@
+package no.nav.grunnbeløp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Grunnbeløpskilde som leser grunnbeløpet fra en liten lokal fil.
+ * Filen brukes også som øyeblikksbilde av sist hentede grunnbeløp, slik at en prosess kan starte
+ * uten å vente på grunnbeløp API'et. Filen har to linjer:
+ * <pre>
+ * grunnbeløp=124028
+ * dato=2024-05-01
+ * </pre>
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class FilGrunnbeløpKilde implements GrunnbeløpKilde {
+
+    private static final String NØKKEL_GRUNNBELØP = "grunnbeløp=";
+    private static final String NØKKEL_DATO = "dato=";
+
+    private final Path fil;
+
+    /**
+     * Oppretter en kilde som leser fra gitt fil.
+     * @param fil Filen med grunnbeløpet.
+     */
+    public FilGrunnbeløpKilde(Path fil) {
+        /* Feilhåndtering: Kaster unntak hvis filen er null. */
+        if (fil == null) {
+            throw new IllegalArgumentException("Fil kan ikke være uten verdi (null).");
+        }
+        this.fil = fil;
+    }
+
+    @Override
+    public Grunnbeløp hentGjeldendeGrunnbeløp() throws IOException {
+        return les(this.fil);
+    }
+
+    /**
+     * Sjekker om filen finnes.
+     * @return True hvis filen finnes, ellers False.
+     */
+    public boolean finnes() {
+        return Files.isRegularFile(this.fil);
+    }
+
+    /**
+     * Skriver et grunnbeløp til filen. Filen erstattes i sin helhet, slik at en samtidig leser
+     * aldri ser en halvskrevet fil.
+     * @param grunnbeløp Grunnbeløpet som skal lagres.
+     * @throws IOException hvis filen ikke kan skrives.
+     */
+    public void lagre(Grunnbeløp grunnbeløp) throws IOException {
+        Path mappe = this.fil.toAbsolutePath().getParent();
+        if (mappe != null) {
+            Files.createDirectories(mappe);
+        }
+        Path midlertidig = Files.createTempFile(mappe, "grunnbelop", ".tmp");
+        try {
+            Files.write(midlertidig, List.of(
+                    NØKKEL_GRUNNBELØP + grunnbeløp.hentBeløp(),
+                    NØKKEL_DATO + grunnbeløp.hentVirkningsdato()), StandardCharsets.UTF_8);
+            Files.move(midlertidig, this.fil, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(midlertidig);
+        }
+    }
+
+    private static Grunnbeløp les(Path fil) throws IOException {
+        Double beløp = null;
+        LocalDate dato = null;
+        for (String linje : Files.readAllLines(fil, StandardCharsets.UTF_8)) {
+            linje = linje.trim();
+            try {
+                if (linje.startsWith(NØKKEL_GRUNNBELØP)) {
+                    beløp = Double.parseDouble(linje.substring(NØKKEL_GRUNNBELØP.length()));
+                } else if (linje.startsWith(NØKKEL_DATO)) {
+                    dato = LocalDate.parse(linje.substring(NØKKEL_DATO.length()));
+                }
+            } catch (NumberFormatException | DateTimeParseException exception) {
+                throw new IOException("Ugyldig linje i " + fil + ": " + linje, exception);
+            }
+        }
+        /* Feilhåndtering: Kaster unntak hvis filen mangler grunnbeløp eller dato. */
+        if (beløp == null || dato == null) {
+            throw new IOException("Filen " + fil + " mangler grunnbeløp eller dato.");
+        }
+        return new Grunnbeløp(beløp, dato);
+    }
+}
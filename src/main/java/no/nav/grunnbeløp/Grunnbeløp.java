@@ -0,0 +1,68 @@
+package no.nav.grunnbeløp;
+
+import java.time.LocalDate;
+
+/**
+ * Et grunnbeløp (1G) og datoen det gjelder fra.
+ * Grunnbeløpet reguleres hvert år med virkning fra 1. mai.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class Grunnbeløp {
+
+    private final double beløp;
+    private final LocalDate virkningsdato;
+
+    /**
+     * Oppretter et grunnbeløp.
+     * @param beløp grunnbeløpet i kroner.
+     * @param virkningsdato datoen grunnbeløpet gjelder fra.
+     */
+    public Grunnbeløp(double beløp, LocalDate virkningsdato) {
+        /* Feilhåndtering: Et grunnbeløp på 0 eller mindre ville gitt alle rett på dagpenger. */
+        if (!(beløp > 0)) {
+            throw new IllegalArgumentException("Grunnbeløp må være større enn null.");
+        }
+        if (virkningsdato == null) {
+            throw new IllegalArgumentException("Virkningsdato kan ikke være uten verdi (null).");
+        }
+        this.beløp = beløp;
+        this.virkningsdato = virkningsdato;
+    }
+
+    /**
+     * Henter grunnbeløpet.
+     * @return grunnbeløpet i kroner.
+     */
+    public double hentBeløp() {
+        return beløp;
+    }
+
+    /**
+     * Henter datoen grunnbeløpet gjelder fra.
+     * @return virkningsdatoen.
+     */
+    public LocalDate hentVirkningsdato() {
+        return virkningsdato;
+    }
+
+    @Override
+    public boolean equals(Object annet) {
+        if (!(annet instanceof Grunnbeløp)) {
+            return false;
+        }
+        Grunnbeløp grunnbeløp = (Grunnbeløp) annet;
+        return this.beløp == grunnbeløp.beløp && this.virkningsdato.equals(grunnbeløp.virkningsdato);
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(this.beløp) * 31 + this.virkningsdato.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.beløp + " fra " + this.virkningsdato;
+    }
+}
@@ -1,6 +1,9 @@
 package no.nav.grunnbeløp;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
 import org.json.JSONObject;
 
 import java.io.IOException;
@@ -8,21 +11,92 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Har ansvaret for å kontakte grunnbeløp API'et til NAV og henter dagens grunnbeløp.
+ * Adressen til API'et leses fra <code>G_API_URL</code> i <code>.env</code> først når den trengs,
+ * slik at det ikke skjer noe ved oppstart.
+ *
+ * Spørringene er asynkrone og har tidsavbrudd. Tråder som spør samtidig deler én spørring, slik at mange
+ * kalkulatorer som starter samtidig ikke sender hver sin. Tar svaret lengre tid enn de fleste tidligere svar,
+ * sendes en ekstra spørring, og det første svaret som kommer brukes. Feiler alt, feiler også spørringen.
+ * Om et eldre grunnbeløp kan brukes i stedet, og når det skal prøves igjen, avgjøres av <code>GrunnbeløpCache</code>.
  *
  * @author Emil Elton Nilsen
- * @version 1.0
+ * @version 1.3
  */
-public class GrunnbeløpAPI {
+public class GrunnbeløpAPI implements GrunnbeløpKilde {
+
+    /* Adressen som brukes hvis G_API_URL ikke er satt. */
+    private static final String STANDARD_ADRESSE = "https://g.nav.no/api/v1/grunnbel%C3%B8p";
+    /* Hvor lenge en spørring kan ta før den gis opp. */
+    private static final Duration STANDARD_TIDSAVBRUDD = Duration.ofSeconds(5);
+    /* Andelen tidligere svar som skal ha kommet før en ekstra spørring sendes. */
+    private static final double STANDARD_SIKRINGSPERSENTIL = 0.95;
+    /* Ventetid før ekstra spørring når det ikke finnes nok tidligere svar å regne persentil av. */
+    private static final long STANDARD_SIKRINGSFORSINKELSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /* Antall tidligere svartider som huskes, og hvor mange som trengs før persentilen brukes. */
+    private static final int ANTALL_SVARTIDER = 64;
+    private static final int MINSTE_ANTALL_SVARTIDER = 8;
 
-    private final static Dotenv DOTENV = Dotenv.load();
+    private static final Histogram SVARTID = Metrikker.histogram("grunnbeløp.api.svartid");
+    private static final Teller FEIL = Metrikker.teller("grunnbeløp.api.feil");
+    private static final Teller EKSTRA_SPØRRINGER = Metrikker.teller("grunnbeløp.api.ekstra_spørringer");
 
+    private final URI adresse;
     private final HttpClient grunnbeløpHTTPKlient;
+    private final Duration tidsavbrudd;
+    private final double sikringspersentil;
+
+    /* Spørringen som pågår nå, som alle samtidige kall venter på. */
+    private final AtomicReference<CompletableFuture<Grunnbeløp>> pågåendeSpørring = new AtomicReference<>();
+    /* Ringbuffer med de siste svartidene i nanosekunder. */
+    private final long[] svartider = new long[ANTALL_SVARTIDER];
+    private final AtomicInteger antallSvar = new AtomicInteger();
 
     public GrunnbeløpAPI() {
-        this.grunnbeløpHTTPKlient = HttpClient.newHttpClient();
+        this(URI.create(hentInnstilling("G_API_URL", STANDARD_ADRESSE)));
+    }
+
+    /**
+     * Oppretter en klient mot grunnbeløp API'et på gitt adresse.
+     * @param adresse adressen til API'et.
+     */
+    public GrunnbeløpAPI(URI adresse) {
+        this(adresse, STANDARD_TIDSAVBRUDD, STANDARD_SIKRINGSPERSENTIL);
+    }
+
+    /**
+     * Oppretter en klient mot grunnbeløp API'et på gitt adresse.
+     * @param adresse adressen til API'et.
+     * @param tidsavbrudd hvor lenge tilkobling og svar kan ta før spørringen gis opp.
+     * @param sikringspersentil andelen tidligere svar (mellom 0 og 1) som skal ha kommet før en ekstra spørring
+     *                          sendes, eller 0 for aldri å sende ekstra spørringer.
+     */
+    public GrunnbeløpAPI(URI adresse, Duration tidsavbrudd, double sikringspersentil) {
+        /* Feilhåndtering: Kaster unntak ved manglende adresse eller ugyldige innstillinger. */
+        if (adresse == null) {
+            throw new IllegalArgumentException("Adresse kan ikke være uten verdi (null).");
+        }
+        if (tidsavbrudd == null || tidsavbrudd.isNegative() || tidsavbrudd.isZero()) {
+            throw new IllegalArgumentException("Tidsavbrudd må være større enn null.");
+        }
+        if (sikringspersentil < 0 || sikringspersentil >= 1) {
+            throw new IllegalArgumentException("Sikringspersentil må være mellom 0 og 1.");
+        }
+        this.adresse = adresse;
+        this.tidsavbrudd = tidsavbrudd;
+        this.sikringspersentil = sikringspersentil;
+        this.grunnbeløpHTTPKlient = HttpClient.newBuilder().connectTimeout(tidsavbrudd).build();
     }
 
     /**
@@ -34,10 +108,159 @@ public class GrunnbeløpAPI {
      * @throws InterruptedException
      */
     public double hentGrunnbeløp() throws IOException, InterruptedException {
-        HttpRequest grunnbeløpSpørring = HttpRequest.newBuilder(URI.create(DOTENV.get("G_API_URL"))).build();
+        return hentGjeldendeGrunnbeløp().hentBeløp();
+    }
+
+    /**
+     * Kontakter grunnbeløp API'et til NAV og henter dagens grunnbeløp med datoen det gjelder fra.
+     * Venter på <code>hentGjeldendeGrunnbeløpAsynkront</code>.
+     * @return dagens grunnbeløp med virkningsdato.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    @Override
+    public Grunnbeløp hentGjeldendeGrunnbeløp() throws IOException, InterruptedException {
+        try {
+            return hentGjeldendeGrunnbeløpAsynkront().get();
+        } catch (ExecutionException exception) {
+            Throwable årsak = exception.getCause();
+            if (årsak instanceof IOException) {
+                throw (IOException) årsak;
+            }
+            throw new IOException("Kunne ikke hente grunnbeløp: " + årsak.getMessage(), årsak);
+        }
+    }
+
+    /**
+     * Henter dagens grunnbeløp uten å blokkere kallende tråd.
+     * @return fremtidig grunnbeløp.
+     * @see #hentGjeldendeGrunnbeløpAsynkront()
+     */
+    public CompletableFuture<Double> hentGrunnbeløpAsynkront() {
+        return hentGjeldendeGrunnbeløpAsynkront().thenApply(Grunnbeløp::hentBeløp);
+    }
+
+    /**
+     * Henter dagens grunnbeløp med virkningsdato uten å blokkere kallende tråd.
+     * Pågår det allerede en spørring, venter kallet på den i stedet for å sende en ny.
+     * Feiler alle forsøkene, fullføres den med feilen fra siste forsøk.
+     * @return fremtidig grunnbeløp.
+     */
+    public CompletableFuture<Grunnbeløp> hentGjeldendeGrunnbeløpAsynkront() {
+        while (true) {
+            CompletableFuture<Grunnbeløp> pågående = this.pågåendeSpørring.get();
+            if (pågående != null && !pågående.isDone()) {
+                /* Hver kaller får sin egen kopi, slik at én som avbryter ikke avbryter de andre. */
+                return pågående.copy();
+            }
+            /* En ferdig spørring kan ligge igjen et øyeblikk før den ryddes bort, og erstattes da. */
+            CompletableFuture<Grunnbeløp> ny = new CompletableFuture<>();
+            if (this.pågåendeSpørring.compareAndSet(pågående, ny)) {
+                ny.whenComplete((grunnbeløp, feil) -> this.pågåendeSpørring.compareAndSet(ny, null));
+                sendMedSikring(ny);
+                return ny.copy();
+            }
+        }
+    }
+
+    /* Sender spørringen, og en ekstra spørring hvis svaret drøyer. Første vellykkede svar vinner. */
+    private void sendMedSikring(CompletableFuture<Grunnbeløp> resultat) {
+        AtomicInteger gjenstående = new AtomicInteger(1);
+        send(resultat, gjenstående);
+
+        if (this.sikringspersentil > 0) {
+            gjenstående.incrementAndGet();
+            CompletableFuture.delayedExecutor(hentSikringsforsinkelseNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (resultat.isDone()) {
+                    gjenstående.decrementAndGet();
+                    return;
+                }
+                if (Metrikker.AKTIVERT) {
+                    EKSTRA_SPØRRINGER.øk();
+                }
+                send(resultat, gjenstående);
+            });
+        }
+    }
+
+    private void send(CompletableFuture<Grunnbeløp> resultat, AtomicInteger gjenstående) {
+        HttpRequest grunnbeløpSpørring = HttpRequest.newBuilder(this.adresse).timeout(this.tidsavbrudd).build();
+        long start = System.nanoTime();
+        this.grunnbeløpHTTPKlient.sendAsync(grunnbeløpSpørring, HttpResponse.BodyHandlers.ofString())
+                .thenApply(grunnbeløpRespons -> {
+                    try {
+                        return tolkRespons(grunnbeløpRespons);
+                    } catch (IOException exception) {
+                        throw new CompletionException(exception);
+                    }
+                })
+                .whenComplete((grunnbeløp, feil) -> {
+                    if (Metrikker.AKTIVERT) {
+                        if (feil == null) {
+                            SVARTID.registrerTidSiden(start);
+                        } else {
+                            FEIL.øk();
+                        }
+                    }
+                    if (feil == null) {
+                        registrerSvartid(System.nanoTime() - start);
+                        resultat.complete(grunnbeløp);
+                    } else if (gjenstående.decrementAndGet() == 0) {
+                        /* Alle spørringene feilet. Et eldre grunnbeløp er ikke et nytt svar, så feilen gis videre. */
+                        resultat.completeExceptionally(feil instanceof CompletionException ? feil.getCause() : feil);
+                    }
+                });
+    }
+
+    private void registrerSvartid(long nanos) {
+        /* Telleren kan gå rundt etter mange svar, så plassen regnes alltid som ikke-negativ. */
+        int plass = Math.floorMod(this.antallSvar.getAndIncrement(), ANTALL_SVARTIDER);
+        synchronized (this.svartider) {
+            this.svartider[plass] = nanos;
+        }
+    }
+
+    /* Regner ut persentilen av de siste svartidene, som er ventetiden før en ekstra spørring sendes. */
+    private long hentSikringsforsinkelseNanos() {
+        int antallSvar = this.antallSvar.get();
+        /* Har telleren gått rundt, er alle plassene fylt. */
+        int antall = antallSvar < 0 ? ANTALL_SVARTIDER : Math.min(antallSvar, ANTALL_SVARTIDER);
+        if (antall < MINSTE_ANTALL_SVARTIDER) {
+            return Math.min(STANDARD_SIKRINGSFORSINKELSE_NANOS, this.tidsavbrudd.toNanos() / 2);
+        }
+        long[] sortert;
+        synchronized (this.svartider) {
+            sortert = Arrays.copyOf(this.svartider, antall);
+        }
+        Arrays.sort(sortert);
+        return sortert[Math.min(antall - 1, (int) Math.ceil(this.sikringspersentil * antall) - 1)];
+    }
 
-        HttpResponse<String> grunnbeløpRespons =  this.grunnbeløpHTTPKlient.send(grunnbeløpSpørring, HttpResponse.BodyHandlers.ofString());
+    /* Gjør om en respons fra API'et til et grunnbeløp. */
+    static Grunnbeløp tolkRespons(HttpResponse<String> grunnbeløpRespons) throws IOException {
+        /* Feilhåndtering: Kaster unntak hvis API'et svarer med feil. */
+        if (grunnbeløpRespons.statusCode() != 200) {
+            throw new IOException("Grunnbeløp API'et svarte med status " + grunnbeløpRespons.statusCode() + ".");
+        }
+        JSONObject grunnbeløpJSON = new JSONObject(grunnbeløpRespons.body());
+        LocalDate virkningsdato = grunnbeløpJSON.has("dato")
+                ? LocalDate.parse(grunnbeløpJSON.getString("dato"))
+                : LocalDate.now();
+        return new Grunnbeløp(grunnbeløpJSON.getDouble("grunnbeløp"), virkningsdato);
+    }
+
+    /**
+     * Henter en innstilling fra <code>.env</code> eller miljøvariabler.
+     * @param nøkkel navnet på innstillingen.
+     * @param standardverdi verdien som brukes hvis innstillingen ikke er satt.
+     * @return verdien til innstillingen.
+     */
+    static String hentInnstilling(String nøkkel, String standardverdi) {
+        return Innstillinger.DOTENV.get(nøkkel, standardverdi);
+    }
 
-        return new JSONObject(grunnbeløpRespons.body()).getDouble("grunnbeløp");
+    /* Holder .env-innstillingene, og leses først ved første bruk. */
+    private static final class Innstillinger {
+        private static final Dotenv DOTENV = Dotenv.configure().ignoreIfMissing().load();
     }
 }
@@ -0,0 +1,303 @@
+package no.nav.grunnbeløp;
+
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prosess-felles mellomlager for grunnbeløpet (1G).
+ * Grunnbeløpet hentes én gang, og deles deretter av alle <code>GrunnbeløpVerktøy</code> og kalkulatorer
+ * i prosessen. Lesing skjer uten låsing mot et uforanderlig øyeblikksbilde, mens en bakgrunnstråd
+ * henter grunnbeløpet på nytt før levetiden til øyeblikksbildet går ut.
+ *
+ * Med en øyeblikksbildefil lagres hvert hentede grunnbeløp lokalt. Ved oppstart leses filen først,
+ * slik at grunnbeløpet er klart med en gang, og kilden kontaktes i bakgrunnen.
+ *
+ * @author Mila Toneff
+ * @version 1.3
+ */
+public final class GrunnbeløpCache {
+
+    /* Hvor lenge et hentet grunnbeløp regnes som gyldig. G reguleres én gang i året,
+    så en halv dag er god margin. */
+    private static final Duration STANDARD_LEVETID = Duration.ofHours(12);
+    /* Andelen av levetiden som går før grunnbeløpet hentes på nytt i bakgrunnen. */
+    private static final double ANDEL_FØR_OPPFRISKING = 0.8;
+    /* Ventetid før nytt forsøk hvis en henting feiler. */
+    private static final Duration VENTETID_VED_FEIL = Duration.ofMinutes(1);
+
+    /* Hentinger som feilet og ble svelget, fordi et eldre grunnbeløp kunne brukes i stedet. */
+    private static final Teller SVELGEDE_FEIL = Metrikker.teller("grunnbeløp.cache.svelgede_feil");
+    /* Øyeblikksbildefiler som ikke kunne leses ved oppstart, eller ikke kunne skrives etter en henting. */
+    private static final Teller LESING_FEILET = Metrikker.teller("grunnbeløp.cache.øyeblikksbilde_lesing_feilet");
+    private static final Teller LAGRING_FEILET = Metrikker.teller("grunnbeløp.cache.øyeblikksbilde_lagring_feilet");
+
+    /* Mellomlageret som brukes av hele prosessen. Opprettes ved første bruk. */
+    private static volatile GrunnbeløpCache standard;
+
+    private final GrunnbeløpKilde kilde;
+    private final FilGrunnbeløpKilde øyeblikksbildefil;
+    private final long levetidNanos;
+    private final long oppfriskingNanos;
+    private final long ventetidVedFeilNanos;
+
+    /* Sist hentede grunnbeløp. Byttes ut i sin helhet, og leses derfor uten låsing. */
+    private volatile Øyeblikksbilde øyeblikksbilde;
+    /* Bakgrunnstråd for oppfrisking. Opprettes først når den trengs. */
+    private ScheduledExecutorService oppfrisker;
+    /* Neste planlagte oppfrisking, slik at det aldri ligger mer enn én i kø. */
+    private ScheduledFuture<?> planlagtOppfrisking;
+    /* Settes når mellomlageret stoppes, slik at ingen nye oppfriskinger planlegges. */
+    private boolean stoppet;
+
+    /**
+     * Oppretter et mellomlager som henter grunnbeløpet fra gitt kilde.
+     * @param kilde Kilden som gir dagens grunnbeløp, typisk <code>GrunnbeløpAPI</code>.
+     * @param levetid Hvor lenge et hentet grunnbeløp er gyldig.
+     */
+    public GrunnbeløpCache(GrunnbeløpKilde kilde, Duration levetid) {
+        this(kilde, levetid, null);
+    }
+
+    /**
+     * Oppretter et mellomlager som henter grunnbeløpet fra gitt kilde, og lagrer det i en lokal fil.
+     * Finnes filen allerede, brukes grunnbeløpet i den med en gang, og kilden kontaktes i bakgrunnen.
+     * @param kilde Kilden som gir dagens grunnbeløp, typisk <code>GrunnbeløpAPI</code>.
+     * @param levetid Hvor lenge et hentet grunnbeløp er gyldig.
+     * @param øyeblikksbildefil Filen sist hentede grunnbeløp lagres i, eller null for ingen fil.
+     */
+    public GrunnbeløpCache(GrunnbeløpKilde kilde, Duration levetid, Path øyeblikksbildefil) {
+        this(kilde, levetid, øyeblikksbildefil, VENTETID_VED_FEIL);
+    }
+
+    /**
+     * Oppretter et mellomlager med egen ventetid før nytt forsøk når kilden feiler.
+     * @param kilde Kilden som gir dagens grunnbeløp, typisk <code>GrunnbeløpAPI</code>.
+     * @param levetid Hvor lenge et hentet grunnbeløp er gyldig.
+     * @param øyeblikksbildefil Filen sist hentede grunnbeløp lagres i, eller null for ingen fil.
+     * @param ventetidVedFeil Hvor lenge et eldre grunnbeløp brukes før kilden prøves igjen.
+     */
+    public GrunnbeløpCache(GrunnbeløpKilde kilde, Duration levetid, Path øyeblikksbildefil, Duration ventetidVedFeil) {
+        /* Feilhåndtering: Kaster unntak ved manglende kilde eller ugyldig levetid. */
+        if (kilde == null) {
+            throw new IllegalArgumentException("Kilde kan ikke være uten verdi (null).");
+        }
+        if (levetid == null || levetid.isNegative() || levetid.isZero()) {
+            throw new IllegalArgumentException("Levetid må være større enn null.");
+        }
+        if (ventetidVedFeil == null || ventetidVedFeil.isNegative() || ventetidVedFeil.isZero()) {
+            throw new IllegalArgumentException("Ventetid ved feil må være større enn null.");
+        }
+        this.kilde = kilde;
+        this.øyeblikksbildefil = øyeblikksbildefil != null ? new FilGrunnbeløpKilde(øyeblikksbildefil) : null;
+        this.levetidNanos = levetid.toNanos();
+        this.oppfriskingNanos = (long) (this.levetidNanos * ANDEL_FØR_OPPFRISKING);
+        this.ventetidVedFeilNanos = ventetidVedFeil.toNanos();
+        lesØyeblikksbildefil();
+    }
+
+    /**
+     * Henter mellomlageret som deles av hele prosessen.
+     * Ved første kall opprettes et mellomlager som henter grunnbeløpet fra NAV sitt grunnbeløp API.
+     * Er <code>G_FIL</code> satt i <code>.env</code>, lagres grunnbeløpet i den filen og leses derfra ved oppstart.
+     * @return prosessens felles mellomlager.
+     */
+    public static GrunnbeløpCache standard() {
+        GrunnbeløpCache cache = standard;
+        if (cache == null) {
+            synchronized (GrunnbeløpCache.class) {
+                cache = standard;
+                if (cache == null) {
+                    String fil = GrunnbeløpAPI.hentInnstilling("G_FIL", null);
+                    cache = new GrunnbeløpCache(new GrunnbeløpAPI(), STANDARD_LEVETID, fil != null ? Path.of(fil) : null);
+                    standard = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Erstatter mellomlageret som deles av hele prosessen, for eksempel med en lokal kilde i tester
+     * eller en fil i batch-kjøringer uten nettverk.
+     * @param cache Nytt felles mellomlager.
+     */
+    public static void settStandard(GrunnbeløpCache cache) {
+        /* Feilhåndtering: Kaster unntak hvis mellomlageret er null. */
+        if (cache == null) {
+            throw new IllegalArgumentException("Mellomlager kan ikke være uten verdi (null).");
+        }
+        synchronized (GrunnbeløpCache.class) {
+            GrunnbeløpCache forrige = standard;
+            standard = cache;
+            if (forrige != null && forrige != cache) {
+                forrige.stopp();
+            }
+        }
+    }
+
+    /**
+     * Henter dagens grunnbeløp.
+     * @return dagens grunnbeløp.
+     * @see #hentGjeldendeGrunnbeløp()
+     */
+    public double hentGrunnbeløp() {
+        return hentGjeldendeGrunnbeløp().hentBeløp();
+    }
+
+    /**
+     * Henter dagens grunnbeløp med virkningsdato.
+     * Er grunnbeløpet allerede hentet, returneres det uten låsing og uten å kontakte kilden.
+     * @return dagens grunnbeløp.
+     * @throws IllegalStateException hvis grunnbeløpet aldri har latt seg hente.
+     */
+    public Grunnbeløp hentGjeldendeGrunnbeløp() {
+        Øyeblikksbilde gjeldende = this.øyeblikksbilde;
+        /* Vanlig tilfelle: gyldig grunnbeløp ligger klart. */
+        if (gjeldende != null && System.nanoTime() - gjeldende.utløperNanos < 0) {
+            return gjeldende.grunnbeløp;
+        }
+        /* Første henting, eller levetiden har gått ut uten at bakgrunnstråden fikk hentet nytt. */
+        return hentSynkront(gjeldende);
+    }
+
+    /**
+     * Stopper bakgrunnstråden for oppfrisking. Sist hentede grunnbeløp kan fortsatt leses.
+     */
+    public synchronized void stopp() {
+        this.stoppet = true;
+        if (this.oppfrisker != null) {
+            this.oppfrisker.shutdownNow();
+            this.oppfrisker = null;
+        }
+    }
+
+    /* Bruker grunnbeløpet fra øyeblikksbildefilen, og henter nytt fra kilden i bakgrunnen. */
+    private synchronized void lesØyeblikksbildefil() {
+        if (this.øyeblikksbildefil == null || !this.øyeblikksbildefil.finnes()) {
+            return;
+        }
+        try {
+            Grunnbeløp lagret = this.øyeblikksbildefil.hentGjeldendeGrunnbeløp();
+            this.øyeblikksbilde = new Øyeblikksbilde(lagret, System.nanoTime() + this.levetidNanos);
+            planleggOppfrisking(0);
+        } catch (IOException exception) {
+            /* En ødelagt fil er det samme som ingen fil. Grunnbeløpet hentes fra kilden ved første bruk. */
+            if (Metrikker.AKTIVERT) {
+                LESING_FEILET.øk();
+            }
+        }
+    }
+
+    /* Henter grunnbeløpet mens kallende tråd venter. Bare én tråd henter om gangen,
+    de andre får resultatet når de slipper inn. */
+    private synchronized Grunnbeløp hentSynkront(Øyeblikksbilde sett) {
+        Øyeblikksbilde gjeldende = this.øyeblikksbilde;
+        /* En annen tråd har hentet grunnbeløpet mens vi ventet. */
+        if (gjeldende != sett && gjeldende != null) {
+            return gjeldende.grunnbeløp;
+        }
+        try {
+            return oppdater().grunnbeløp;
+        } catch (Exception exception) {
+            if (exception instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            /* Utløpt grunnbeløp er bedre enn ingen grunnbeløp. */
+            if (gjeldende != null) {
+                return brukEldreGrunnbeløp(gjeldende).grunnbeløp;
+            }
+            /* Uten grunnbeløp kan ingen beregning gjøres riktig. */
+            throw new IllegalStateException("Grunnbeløpet er ikke tilgjengelig: " + exception.getMessage(), exception);
+        }
+    }
+
+    /* Henter grunnbeløpet, publiserer nytt øyeblikksbilde og planlegger neste oppfrisking. */
+    private synchronized Øyeblikksbilde oppdater() throws Exception {
+        Grunnbeløp grunnbeløp = this.kilde.hentGjeldendeGrunnbeløp();
+        Øyeblikksbilde nytt = new Øyeblikksbilde(grunnbeløp, System.nanoTime() + this.levetidNanos);
+        this.øyeblikksbilde = nytt;
+        planleggOppfrisking(this.oppfriskingNanos);
+        lagreØyeblikksbilde(grunnbeløp);
+        return nytt;
+    }
+
+    private void lagreØyeblikksbilde(Grunnbeløp grunnbeløp) {
+        if (this.øyeblikksbildefil == null) {
+            return;
+        }
+        try {
+            this.øyeblikksbildefil.lagre(grunnbeløp);
+        } catch (IOException exception) {
+            /* Grunnbeløpet er hentet, det blir bare ikke lagret til neste oppstart. */
+            if (Metrikker.AKTIVERT) {
+                LAGRING_FEILET.øk();
+            }
+        }
+    }
+
+    /* Oppfrisking i bakgrunnen. Feiler den, beholdes gjeldende grunnbeløp og nytt forsøk planlegges. */
+    private void oppfriskIBakgrunnen() {
+        try {
+            oppdater();
+        } catch (Exception exception) {
+            synchronized (this) {
+                Øyeblikksbilde gjeldende = this.øyeblikksbilde;
+                if (gjeldende != null) {
+                    brukEldreGrunnbeløp(gjeldende);
+                }
+            }
+        }
+    }
+
+    /* Kilden feilet. Eldre grunnbeløp brukes til neste forsøk, men lagres ikke og får ikke full levetid på nytt,
+    slik at ikke hver henting venter på en kilde som er nede. */
+    private Øyeblikksbilde brukEldreGrunnbeløp(Øyeblikksbilde gjeldende) {
+        if (Metrikker.AKTIVERT) {
+            SVELGEDE_FEIL.øk();
+        }
+        long nesteForsøk = System.nanoTime() + this.ventetidVedFeilNanos;
+        Øyeblikksbilde eldre = gjeldende;
+        if (gjeldende.utløperNanos - nesteForsøk < 0) {
+            eldre = new Øyeblikksbilde(gjeldende.grunnbeløp, nesteForsøk);
+            this.øyeblikksbilde = eldre;
+        }
+        planleggOppfrisking(this.ventetidVedFeilNanos);
+        return eldre;
+    }
+
+    private void planleggOppfrisking(long forsinkelseNanos) {
+        if (this.stoppet) {
+            return;
+        }
+        if (this.planlagtOppfrisking != null) {
+            this.planlagtOppfrisking.cancel(false);
+        }
+        if (this.oppfrisker == null) {
+            this.oppfrisker = Executors.newSingleThreadScheduledExecutor(oppgave -> {
+                Thread tråd = new Thread(oppgave, "grunnbeløp-oppfrisker");
+                tråd.setDaemon(true);
+                return tråd;
+            });
+        }
+        this.planlagtOppfrisking = this.oppfrisker.schedule(this::oppfriskIBakgrunnen, forsinkelseNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /* Uforanderlig par av grunnbeløp og tidspunktet det slutter å være gyldig. */
+    private static final class Øyeblikksbilde {
+        private final Grunnbeløp grunnbeløp;
+        private final long utløperNanos;
+
+        private Øyeblikksbilde(Grunnbeløp grunnbeløp, long utløperNanos) {
+            this.grunnbeløp = grunnbeløp;
+            this.utløperNanos = utløperNanos;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package no.nav.grunnbeløp;
+
+import java.io.IOException;
+
+/**
+ * En kilde som kan gi gjeldende grunnbeløp.
+ * Kildene er NAV sitt grunnbeløp API (<code>GrunnbeløpAPI</code>), en lokal fil (<code>FilGrunnbeløpKilde</code>)
+ * og et fast grunnbeløp i minnet (<code>FastGrunnbeløpKilde</code>).
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface GrunnbeløpKilde {
+
+    /**
+     * Henter gjeldende grunnbeløp fra kilden.
+     * @return gjeldende grunnbeløp med virkningsdato.
+     * @throws IOException hvis kilden ikke kan leses.
+     * @throws InterruptedException hvis tråden blir avbrutt mens den venter på kilden.
+     */
+    Grunnbeløp hentGjeldendeGrunnbeløp() throws IOException, InterruptedException;
+}
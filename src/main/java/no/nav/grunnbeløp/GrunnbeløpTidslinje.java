@@ -0,0 +1,206 @@
+package no.nav.grunnbeløp;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Uforanderlig tidslinje over grunnbeløpet (1G) bakover i tid, for å beregne saker ut ifra grunnbeløpet
+ * som gjaldt på vedtaksdatoen i stedet for dagens.
+ *
+ * Tidslinjen lastes én gang, og holder et ferdig <code>GrunnbeløpVerktøy</code> for hver dag fra første
+ * virkningsdato til siste. Oppslag er dermed én tabellindeksering, uten søk og uten nettverk.
+ * Datoer etter siste virkningsdato får siste grunnbeløp.
+ *
+ * Historikk kan leses fra en fil med én regulering per linje,
+ * <pre>
+ * # virkningsdato=grunnbeløp
+ * 2023-05-01=118620
+ * 2024-05-01=124028
+ * </pre>
+ * eller fra JSON på samme form som grunnbeløp API'et, en liste av objekter med <code>dato</code> og
+ * <code>grunnbeløp</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class GrunnbeløpTidslinje {
+
+    /* Historikken som følger med programmet. */
+    private static final String HISTORIKK_RESSURS = "/grunnbelop-historikk.txt";
+
+    private final List<Grunnbeløp> grunnbeløp;
+    private final long førsteDag;
+    /* Verktøy for hver dag fra første til siste virkningsdato. Dager med samme grunnbeløp deler verktøy. */
+    private final GrunnbeløpVerktøy[] verktøyPerDag;
+
+    /**
+     * Oppretter en tidslinje fra en liste av grunnbeløp i vilkårlig rekkefølge.
+     * @param grunnbeløp Grunnbeløpene med virkningsdato.
+     */
+    public GrunnbeløpTidslinje(List<Grunnbeløp> grunnbeløp) {
+        /* Feilhåndtering: Kaster unntak ved tom historikk eller to grunnbeløp med samme virkningsdato. */
+        if (grunnbeløp == null || grunnbeløp.isEmpty()) {
+            throw new IllegalArgumentException("Tidslinjen må ha minst ett grunnbeløp.");
+        }
+        List<Grunnbeløp> sortert = new ArrayList<>(grunnbeløp);
+        sortert.sort(Comparator.comparing(Grunnbeløp::hentVirkningsdato));
+        for (int i = 1; i < sortert.size(); i++) {
+            if (sortert.get(i).hentVirkningsdato().equals(sortert.get(i - 1).hentVirkningsdato())) {
+                throw new IllegalArgumentException("To grunnbeløp har virkningsdato " + sortert.get(i).hentVirkningsdato() + ".");
+            }
+        }
+        this.grunnbeløp = List.copyOf(sortert);
+        this.førsteDag = sortert.get(0).hentVirkningsdato().toEpochDay();
+
+        long sisteDag = sortert.get(sortert.size() - 1).hentVirkningsdato().toEpochDay();
+        this.verktøyPerDag = new GrunnbeløpVerktøy[Math.toIntExact(sisteDag - this.førsteDag + 1)];
+        for (int i = 0; i < sortert.size(); i++) {
+            int fra = (int) (sortert.get(i).hentVirkningsdato().toEpochDay() - this.førsteDag);
+            int til = i + 1 < sortert.size()
+                    ? (int) (sortert.get(i + 1).hentVirkningsdato().toEpochDay() - this.førsteDag)
+                    : this.verktøyPerDag.length;
+            GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(sortert.get(i).hentBeløp());
+            for (int dag = fra; dag < til; dag++) {
+                this.verktøyPerDag[dag] = verktøy;
+            }
+        }
+    }
+
+    /**
+     * Henter tidslinjen med historikken som følger med programmet.
+     * @return tidslinje over kjente grunnbeløp.
+     */
+    public static GrunnbeløpTidslinje historisk() {
+        return Historikk.TIDSLINJE;
+    }
+
+    /**
+     * Leser en tidslinje fra fil. Filen kan være på linjeformat eller JSON, se klassebeskrivelsen.
+     * @param fil Filen med historikken.
+     * @return tidslinjen i filen.
+     * @throws IOException hvis filen ikke kan leses eller har ugyldig innhold.
+     */
+    public static GrunnbeløpTidslinje lesFil(Path fil) throws IOException {
+        return tolk(Files.readString(fil, StandardCharsets.UTF_8), fil.toString());
+    }
+
+    /**
+     * Tolker historikk på JSON-form, slik en historikk-tjeneste ville svart.
+     * @param json En liste av objekter med <code>dato</code> og <code>grunnbeløp</code>.
+     * @return tidslinjen i listen.
+     * @throws IOException hvis innholdet er ugyldig.
+     */
+    public static GrunnbeløpTidslinje fraJSON(String json) throws IOException {
+        List<Grunnbeløp> grunnbeløp = new ArrayList<>();
+        try {
+            JSONArray liste = new JSONArray(json);
+            for (int i = 0; i < liste.length(); i++) {
+                JSONObject objekt = liste.getJSONObject(i);
+                grunnbeløp.add(new Grunnbeløp(objekt.getDouble("grunnbeløp"), LocalDate.parse(objekt.getString("dato"))));
+            }
+        } catch (JSONException | DateTimeParseException exception) {
+            throw new IOException("Ugyldig grunnbeløpshistorikk: " + exception.getMessage(), exception);
+        }
+        return new GrunnbeløpTidslinje(grunnbeløp);
+    }
+
+    /**
+     * Henter verktøyet med grunnbeløpet som gjaldt på gitt dato.
+     * @param dato Datoen, typisk vedtaksdatoen til en sak.
+     * @return verktøy med grunnbeløpet som gjaldt på datoen.
+     */
+    public GrunnbeløpVerktøy hentVerktøy(LocalDate dato) {
+        /* Feilhåndtering: Kaster unntak hvis datoen er null. */
+        if (dato == null) {
+            throw new IllegalArgumentException("Dato kan ikke være uten verdi (null).");
+        }
+        return hentVerktøy(dato.toEpochDay());
+    }
+
+    /**
+     * Henter verktøyet med grunnbeløpet som gjaldt på gitt dag, uten å lage et <code>LocalDate</code>.
+     * @param epokedag Dagen som i <code>LocalDate.toEpochDay()</code>.
+     * @return verktøy med grunnbeløpet som gjaldt på dagen.
+     */
+    public GrunnbeløpVerktøy hentVerktøy(long epokedag) {
+        long indeks = epokedag - this.førsteDag;
+        /* Feilhåndtering: Før første virkningsdato finnes det ikke noe grunnbeløp å beregne ut ifra. */
+        if (indeks < 0) {
+            throw new IllegalArgumentException("Tidslinjen har ikke grunnbeløp før " + LocalDate.ofEpochDay(this.førsteDag) + ".");
+        }
+        if (indeks >= this.verktøyPerDag.length) {
+            return this.verktøyPerDag[this.verktøyPerDag.length - 1];
+        }
+        return this.verktøyPerDag[(int) indeks];
+    }
+
+    /**
+     * Henter grunnbeløpet som gjaldt på gitt dato.
+     * @param dato Datoen.
+     * @return grunnbeløpet (1G) på datoen.
+     */
+    public double hentGrunnbeløp(LocalDate dato) {
+        return hentVerktøy(dato).hentGrunnbeløp();
+    }
+
+    /**
+     * Henter alle grunnbeløpene i tidslinjen, eldste først.
+     * @return grunnbeløpene med virkningsdato.
+     */
+    public List<Grunnbeløp> hentGrunnbeløp() {
+        return this.grunnbeløp;
+    }
+
+    private static GrunnbeløpTidslinje tolk(String innhold, String kilde) throws IOException {
+        if (innhold.strip().startsWith("[")) {
+            return fraJSON(innhold);
+        }
+        List<Grunnbeløp> grunnbeløp = new ArrayList<>();
+        for (String linje : innhold.split("\n")) {
+            linje = linje.trim();
+            if (linje.isEmpty() || linje.startsWith("#")) {
+                continue;
+            }
+            int skille = linje.indexOf('=');
+            try {
+                if (skille < 0) {
+                    throw new IOException("Mangler '='.");
+                }
+                grunnbeløp.add(new Grunnbeløp(Double.parseDouble(linje.substring(skille + 1).trim()),
+                        LocalDate.parse(linje.substring(0, skille).trim())));
+            } catch (IOException | NumberFormatException | DateTimeParseException exception) {
+                throw new IOException("Ugyldig linje i " + kilde + ": " + linje, exception);
+            }
+        }
+        return new GrunnbeløpTidslinje(grunnbeløp);
+    }
+
+    /* Holder historikken som følger med programmet, og leses først ved første bruk. */
+    private static final class Historikk {
+        private static final GrunnbeløpTidslinje TIDSLINJE = les();
+
+        private static GrunnbeløpTidslinje les() {
+            try (InputStream inn = GrunnbeløpTidslinje.class.getResourceAsStream(HISTORIKK_RESSURS)) {
+                if (inn == null) {
+                    throw new IOException("Finner ikke " + HISTORIKK_RESSURS + ".");
+                }
+                return tolk(new String(inn.readAllBytes(), StandardCharsets.UTF_8), HISTORIKK_RESSURS);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+    }
+}
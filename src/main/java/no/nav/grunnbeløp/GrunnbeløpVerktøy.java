@@ -1,25 +1,55 @@
 package no.nav.grunnbeløp;
 
-import java.io.IOException;
+import no.nav.beløp.Øre;
 
 /**
  * Verktøy med forskjellige hjelpemetoder til å kalkulere forskjellige grunnbeløpsverdier, som
  * bruker i prossesen for å kalkulere hvilken dagsats en person har rett på. Grunnbeløpet brukt
- * i disse metodene hente fra NAV sitt grunnebeløp API.
+ * i disse metodene hente fra NAV sitt grunnebeløp API, via det felles mellomlageret <code>GrunnbeløpCache</code>.
+ *
+ * Tersklene regnes ut én gang per grunnbeløp, i hele øre, slik at reglene kan sammenligne eksakt med heltall.
+ * Metodene som gir kroner er for visning og bakoverkompatibilitet.
  *
  * @author Emil Elton Nilsen
- * @version 1.0
+ * @version 1.1
  */
 public class GrunnbeløpVerktøy {
 
-    private double grunnbeløp;
+    private final double grunnbeløp;
+    /* Grunnbeløpet og tersklene reglene sammenligner mot, i øre. */
+    private final long grunnbeløpØre;
+    private final long treÅrsGrunnbeløpØre;
+    private final long minimumÅrslønnØre;
+    private final long maksÅrligDagpengegrunnlagØre;
 
+    /**
+     * Oppretter et verktøy med dagens grunnbeløp fra det felles mellomlageret.
+     * Etter første henting i prosessen gjør ikke dette noe nettverkskall.
+     */
     public GrunnbeløpVerktøy() {
-        try {
-            this.grunnbeløp = new GrunnbeløpAPI().hentGrunnbeløp();
-        } catch (IOException | InterruptedException exception) {
-            System.out.println("Problemer med tilkobling til grunnbeløp API'et" + exception.getMessage());
-        }
+        this(GrunnbeløpCache.standard().hentGrunnbeløp());
+    }
+
+    /**
+     * Oppretter et verktøy med et gitt grunnbeløp.
+     * @param grunnbeløp grunnbeløpet (1G) som skal brukes i beregningene.
+     */
+    public GrunnbeløpVerktøy(double grunnbeløp) {
+        this.grunnbeløp = grunnbeløp;
+        this.grunnbeløpØre = Øre.fraKroner(grunnbeløp);
+        this.treÅrsGrunnbeløpØre = this.grunnbeløpØre * 3;
+        /* 1.5G er ikke alltid et helt antall øre. En årslønn i hele øre er under 1.5G nøyaktig når den er
+        under 1.5G rundet opp, så terskelen kan lagres som et heltall. */
+        this.minimumÅrslønnØre = Math.ceilDiv(this.grunnbeløpØre * 3, 2);
+        this.maksÅrligDagpengegrunnlagØre = this.grunnbeløpØre * 6;
+    }
+
+    /**
+     * Henter grunnbeløpet verktøyet beregner ut ifra.
+     * @return grunnbeløpet (1G).
+     */
+    public double hentGrunnbeløp() {
+        return this.grunnbeløp;
     }
 
     /**
@@ -28,7 +58,7 @@ public class GrunnbeløpVerktøy {
      * @return grunnbeløpet over gitt antall år.
      */
     public double hentTotaltGrunnbeløpForGittAntallÅr(int antallÅr) {
-        return this.grunnbeløp * antallÅr;
+        return Øre.tilKroner(this.grunnbeløpØre * antallÅr);
     }
 
     /**
@@ -36,7 +66,7 @@ public class GrunnbeløpVerktøy {
      * @return 1.5G basert på dagens grunnbeløp.
      */
     public double hentMinimumÅrslønnForRettPåDagpenger() {
-        return this.grunnbeløp * 1.5;
+        return (double) (this.grunnbeløpØre * 3) / (2 * Øre.PER_KRONE);
     }
 
     /**
@@ -44,6 +74,38 @@ public class GrunnbeløpVerktøy {
      * @return 6G basert på dagens grunnbeløp.
      */
     public double hentMaksÅrligDagpengegrunnlag() {
-        return this.grunnbeløp * 6;
+        return Øre.tilKroner(this.maksÅrligDagpengegrunnlagØre);
+    }
+
+    /**
+     * Henter grunnbeløpet i øre.
+     * @return grunnbeløpet (1G) i øre.
+     */
+    public long hentGrunnbeløpØre() {
+        return this.grunnbeløpØre;
+    }
+
+    /**
+     * Henter grunnbeløpet for tre år i øre, som summen av de tre siste årslønnene sammenlignes med.
+     * @return 3G i øre.
+     */
+    public long hentTreÅrsGrunnbeløpØre() {
+        return this.treÅrsGrunnbeløpØre;
+    }
+
+    /**
+     * Henter hvor mye en person må tjene det siste året for å ha rett på dagpenger, i øre.
+     * @return 1.5G i øre, rundet opp til helt øre.
+     */
+    public long hentMinimumÅrslønnØre() {
+        return this.minimumÅrslønnØre;
+    }
+
+    /**
+     * Henter maks årlig dagpengegrunnlag i øre.
+     * @return 6G i øre.
+     */
+    public long hentMaksÅrligDagpengegrunnlagØre() {
+        return this.maksÅrligDagpengegrunnlagØre;
     }
 }
@@ -0,0 +1,494 @@
+package no.nav.innlesing;
+
+import no.nav.dagpenger.Resultat;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Kalkulerer en hel fil med årslønner i flere deler, der hver del kan kjøres i sin egen prosess,
+ * på én eller flere maskiner som har filen. Delene er sammenhengende biter av filen, delt ved starten på en
+ * person, så hver del leser bare sin egen bit og kjøretiden deles på antall prosesser.
+ *
+ * Hver del skriver resultatene til sin egen fil i en mappe, og lagrer jevnlig et sjekkpunkt med hvor langt den
+ * har kommet. Stopper en prosess, fortsetter en ny kjøring av samme del fra siste sjekkpunkt, så det som går
+ * tapt er høyst det som ble kalkulert siden sjekkpunktet. Når alle delene er ferdige, slås filene sammen
+ * til én resultatfil med personene i samme rekkefølge som i filen med årslønner:
+ * <pre>
+ * personId,dagsats,spesialisering
+ * 1,2116,INNVILGET
+ * </pre>
+ *
+ * Fra kommandolinjen:
+ * <pre>
+ * del &lt;årslønner&gt; &lt;mappe&gt; &lt;antall deler&gt; &lt;del&gt; [grunnbeløp]
+ * slåSammen &lt;årslønner&gt; &lt;mappe&gt; &lt;antall deler&gt; &lt;resultatfil&gt; [grunnbeløp]
+ * kjør &lt;årslønner&gt; &lt;mappe&gt; &lt;antall deler&gt; &lt;resultatfil&gt; [grunnbeløp]
+ * </pre>
+ * <code>kjør</code> starter én prosess per del på denne maskinen, starter prosesser som feiler på nytt,
+ * og slår sammen resultatene til slutt. Prosessene får de samme JVM-argumentene som denne prosessen, unntatt
+ * feilsøkere, agenter, JMX-porter og opptak som bare én prosess kan ha.
+ *
+ * Et sjekkpunkt gjelder bare for filen med årslønner det ble laget fra: samme størrelse, samme tidspunkt for
+ * siste endring, og samme innhold i begynnelsen og slutten av filen. Kjøres delene på flere maskiner, må filen
+ * kopieres med tidspunktet bevart.
+ *
+ * @author Mila Toneff
+ * @version 1.2
+ */
+public final class Batchkjøring {
+
+    /** Standard antall personer mellom hvert sjekkpunkt. */
+    public static final int STANDARD_PERSONER_PER_SJEKKPUNKT = 100_000;
+
+    /* Hvor mange ganger kjør starter en del som feiler. */
+    private static final int MAKS_FORSØK = 3;
+
+    private static final String OVERSKRIFT = "personId,dagsats,spesialisering\n";
+
+    /* Antall bytes fra begynnelsen og slutten av filen med årslønner som inngår i fingeravtrykket. */
+    private static final int AVTRYKKSLENGDE = 1 << 16;
+    /* JVM-argumenter som ikke gis videre til prosessene for delene, fordi bare én prosess kan bruke dem. */
+    private static final List<String> PERSONLIGE_JVM_ARGUMENTER = List.of(
+            "-agentlib:", "-agentpath:", "-javaagent:", "-Xrunjdwp", "-Xdebug",
+            "-Dcom.sun.management.jmxremote", "-XX:StartFlightRecording", "-XX:FlightRecorderOptions");
+
+    private static final String NØKKEL_FINGERAVTRYKK = "fingeravtrykk=";
+    private static final String NØKKEL_GRUNNBELØP = "grunnbeløpØre=";
+    private static final String NØKKEL_POSISJON = "posisjon=";
+    private static final String NØKKEL_UTDATASTØRRELSE = "utdatastørrelse=";
+    private static final String NØKKEL_ANTALL_PERSONER = "antallPersoner=";
+    private static final String NØKKEL_FERDIG = "ferdig=";
+
+    private final Path årslønner;
+    private final Path mappe;
+    private final int antallDeler;
+    private final GrunnbeløpVerktøy grunnbeløpVerktøy;
+    private final int personerPerSjekkpunkt;
+
+    /**
+     * Oppretter en batchkjøring med standard antall personer mellom hvert sjekkpunkt.
+     * @param årslønner Filen med årslønner, på et av formatene <code>ÅrslønnFilLeser</code> leser.
+     * @param mappe Mappen resultatfilene og sjekkpunktene til delene skrives i.
+     * @param antallDeler Antall deler filen deles i.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele kjøringen skal beregnes ut ifra.
+     */
+    public Batchkjøring(Path årslønner, Path mappe, int antallDeler, GrunnbeløpVerktøy grunnbeløpVerktøy) {
+        this(årslønner, mappe, antallDeler, grunnbeløpVerktøy, STANDARD_PERSONER_PER_SJEKKPUNKT);
+    }
+
+    /**
+     * Oppretter en batchkjøring.
+     * @param årslønner Filen med årslønner, på et av formatene <code>ÅrslønnFilLeser</code> leser.
+     * @param mappe Mappen resultatfilene og sjekkpunktene til delene skrives i.
+     * @param antallDeler Antall deler filen deles i.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele kjøringen skal beregnes ut ifra.
+     * @param personerPerSjekkpunkt Antall personer mellom hvert sjekkpunkt.
+     */
+    public Batchkjøring(Path årslønner, Path mappe, int antallDeler, GrunnbeløpVerktøy grunnbeløpVerktøy,
+                        int personerPerSjekkpunkt) {
+        /* Feilhåndtering: Kaster unntak ved manglende verdier eller ugyldige antall. */
+        if (årslønner == null || mappe == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Fil, mappe og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        if (antallDeler <= 0) {
+            throw new IllegalArgumentException("Antall deler må være større enn null.");
+        }
+        if (personerPerSjekkpunkt <= 0) {
+            throw new IllegalArgumentException("Antall personer per sjekkpunkt må være større enn null.");
+        }
+        this.årslønner = årslønner;
+        this.mappe = mappe;
+        this.antallDeler = antallDeler;
+        this.grunnbeløpVerktøy = grunnbeløpVerktøy;
+        this.personerPerSjekkpunkt = personerPerSjekkpunkt;
+    }
+
+    /**
+     * Kjører en del ferdig, fra siste sjekkpunkt hvis delen er kjørt før.
+     * @param del Delen, fra 0 til antall deler.
+     * @throws IOException hvis filene ikke kan leses eller skrives.
+     */
+    public void kjørDel(int del) throws IOException {
+        kjørDel(del, Long.MAX_VALUE);
+    }
+
+    /**
+     * Kjører en del fra siste sjekkpunkt, men kalkulerer høyst et gitt antall personer.
+     * Kjøringen stopper med et sjekkpunkt, så neste kjøring av delen fortsetter der denne slapp.
+     * @param del Delen, fra 0 til antall deler.
+     * @param maksPersoner Høyeste antall personer som kalkuleres i denne kjøringen.
+     * @return True hvis delen er ferdig, ellers False.
+     * @throws IOException hvis filene ikke kan leses eller skrives.
+     */
+    public boolean kjørDel(int del, long maksPersoner) throws IOException {
+        sjekkDel(del);
+        /* Feilhåndtering: Kaster unntak hvis kjøringen ikke kan kalkulere noen personer. */
+        if (maksPersoner <= 0) {
+            throw new IllegalArgumentException("Maks antall personer må være større enn null.");
+        }
+        long filstørrelse = Files.size(this.årslønner);
+        String fingeravtrykk = fingeravtrykk(filstørrelse);
+        Sjekkpunkt sjekkpunkt = lesSjekkpunkt(del, fingeravtrykk);
+        if (sjekkpunkt == null) {
+            long start = ÅrslønnFilLeser.finnPersonstart(this.årslønner, grense(del, filstørrelse));
+            sjekkpunkt = new Sjekkpunkt(start, 0, 0, false);
+        }
+        if (sjekkpunkt.ferdig) {
+            return true;
+        }
+        long slutt = ÅrslønnFilLeser.finnPersonstart(this.årslønner, grense(del + 1, filstørrelse));
+
+        Files.createDirectories(this.mappe);
+        try (FileChannel utdata = FileChannel.open(utdatafil(del), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ÅrslønnFilLeser leser = new ÅrslønnFilLeser(this.årslønner, this.grunnbeløpVerktøy,
+                     ÅrslønnFilLeser.STANDARD_VINDUSSTØRRELSE, sjekkpunkt.posisjon, slutt)) {
+            /* Det en tidligere kjøring skrev etter siste sjekkpunkt, skrives på nytt. */
+            utdata.truncate(sjekkpunkt.utdatastørrelse);
+            utdata.position(sjekkpunkt.utdatastørrelse);
+
+            StringBuilder rader = new StringBuilder();
+            Resultat[] resultat = new Resultat[1];
+            long antallPersoner = sjekkpunkt.antallPersoner;
+            long utdatastørrelse = sjekkpunkt.utdatastørrelse;
+            long kalkulert = 0;
+            boolean ferdig = false;
+            while (!ferdig && kalkulert < maksPersoner) {
+                if (leser.tryAdvance(neste -> resultat[0] = neste)) {
+                    leggTilRad(rader, resultat[0]);
+                    antallPersoner++;
+                    kalkulert++;
+                } else {
+                    ferdig = true;
+                }
+                if (ferdig || kalkulert == maksPersoner || kalkulert % this.personerPerSjekkpunkt == 0) {
+                    /* Resultatene lagres før sjekkpunktet, så sjekkpunktet aldri peker forbi det som er lagret. */
+                    utdatastørrelse += skrivUt(utdata, rader);
+                    utdata.force(false);
+                    lagreSjekkpunkt(del, fingeravtrykk,
+                            new Sjekkpunkt(leser.hentNestePersonstart(), utdatastørrelse, antallPersoner, ferdig));
+                }
+            }
+            return ferdig;
+        }
+    }
+
+    /**
+     * Sjekker om en del er kjørt ferdig.
+     * @param del Delen, fra 0 til antall deler.
+     * @return True hvis delen er ferdig, ellers False.
+     * @throws IOException hvis sjekkpunktet ikke kan leses.
+     */
+    public boolean erFerdig(int del) throws IOException {
+        sjekkDel(del);
+        Sjekkpunkt sjekkpunkt = lesSjekkpunkt(del, fingeravtrykk(Files.size(this.årslønner)));
+        return sjekkpunkt != null && sjekkpunkt.ferdig;
+    }
+
+    /**
+     * Slår sammen resultatene fra alle delene til én fil, med personene i samme rekkefølge som i filen med
+     * årslønner. Resultatfilen erstattes i sin helhet, så den er aldri halvskrevet.
+     * @param resultatfil Filen resultatene skrives til.
+     * @return Antall personer i resultatfilen.
+     * @throws IOException hvis filene ikke kan leses eller skrives.
+     * @throws IllegalStateException hvis en av delene ikke er ferdig.
+     */
+    public long slåSammen(Path resultatfil) throws IOException {
+        /* Feilhåndtering: Kaster unntak hvis resultatfilen er null, eller en del ikke er ferdig. */
+        if (resultatfil == null) {
+            throw new IllegalArgumentException("Resultatfil kan ikke være uten verdi (null).");
+        }
+        String fingeravtrykk = fingeravtrykk(Files.size(this.årslønner));
+        long antallPersoner = 0;
+        for (int del = 0; del < this.antallDeler; del++) {
+            Sjekkpunkt sjekkpunkt = lesSjekkpunkt(del, fingeravtrykk);
+            if (sjekkpunkt == null || !sjekkpunkt.ferdig) {
+                throw new IllegalStateException("Del " + del + " av " + this.antallDeler + " er ikke ferdig.");
+            }
+            antallPersoner += sjekkpunkt.antallPersoner;
+        }
+
+        Path absolutt = resultatfil.toAbsolutePath();
+        Files.createDirectories(absolutt.getParent());
+        Path midlertidig = Files.createTempFile(absolutt.getParent(), "resultater", ".tmp");
+        try {
+            try (FileChannel ut = FileChannel.open(midlertidig, StandardOpenOption.WRITE)) {
+                skrivUt(ut, new StringBuilder(OVERSKRIFT));
+                for (int del = 0; del < this.antallDeler; del++) {
+                    try (FileChannel inn = FileChannel.open(utdatafil(del), StandardOpenOption.READ)) {
+                        long størrelse = inn.size();
+                        for (long kopiert = 0; kopiert < størrelse; ) {
+                            kopiert += inn.transferTo(kopiert, størrelse - kopiert, ut);
+                        }
+                    }
+                }
+                ut.force(true);
+            }
+            Files.move(midlertidig, absolutt, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lagreMappe(absolutt.getParent());
+        } finally {
+            Files.deleteIfExists(midlertidig);
+        }
+        return antallPersoner;
+    }
+
+    /* Posisjonen filen deles ved foran en del, før den flyttes til starten på en person. */
+    private long grense(int del, long filstørrelse) {
+        return del >= this.antallDeler ? filstørrelse : Math.multiplyExact(filstørrelse, del) / this.antallDeler;
+    }
+
+    private void sjekkDel(int del) {
+        /* Feilhåndtering: Kaster unntak hvis delen ikke finnes. */
+        if (del < 0 || del >= this.antallDeler) {
+            throw new IllegalArgumentException("Del må være fra 0 til " + this.antallDeler + ".");
+        }
+    }
+
+    private static void leggTilRad(StringBuilder rader, Resultat resultat) {
+        rader.append(resultat.hentPersonId()).append(',')
+                .append((long) resultat.hentBeregnetDagsats()).append(',')
+                .append(resultat.hentSpesialisering().name()).append('\n');
+    }
+
+    /* Skriver radene til slutten av filen og tømmer dem. Returnerer antall bytes som ble skrevet. */
+    private static long skrivUt(FileChannel kanal, StringBuilder rader) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(rader.toString());
+        int antallBytes = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            kanal.write(buffer);
+        }
+        rader.setLength(0);
+        return antallBytes;
+    }
+
+    /*
+     * Kjennetegner filen med årslønner: størrelsen, tidspunktet for siste endring, og en CRC32C-sjekksum av
+     * begynnelsen og slutten. Fanger opp en fil som er skrevet om med samme lengde, uten å lese hele filen.
+     */
+    private String fingeravtrykk(long filstørrelse) throws IOException {
+        long endret = Files.getLastModifiedTime(this.årslønner).to(TimeUnit.NANOSECONDS);
+        CRC32C sjekksum = new CRC32C();
+        try (FileChannel kanal = FileChannel.open(this.årslønner, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(AVTRYKKSLENGDE);
+            long hale = Math.max(Math.min(AVTRYKKSLENGDE, filstørrelse), filstørrelse - AVTRYKKSLENGDE);
+            for (long start : new long[]{0, hale}) {
+                buffer.clear();
+                buffer.limit((int) Math.min(AVTRYKKSLENGDE, filstørrelse - start));
+                int lest = 0;
+                while (buffer.hasRemaining() && lest >= 0) {
+                    lest = kanal.read(buffer, start + buffer.position());
+                }
+                sjekksum.update(buffer.flip());
+            }
+        }
+        return filstørrelse + "/" + endret + "/" + Long.toHexString(sjekksum.getValue());
+    }
+
+    private Path utdatafil(int del) {
+        return this.mappe.resolve("del-" + del + "-av-" + this.antallDeler + ".csv");
+    }
+
+    private Path sjekkpunktfil(int del) {
+        return this.mappe.resolve("del-" + del + "-av-" + this.antallDeler + ".sjekkpunkt");
+    }
+
+    /*
+     * Erstatter sjekkpunktet i sin helhet, så en prosess som stopper midt i aldri etterlater et halvskrevet sjekkpunkt.
+     * Innholdet er på disk før flyttingen, og flyttingen er på disk før kjøringen går videre, så heller ikke et
+     * strømbrudd kan gi et tomt sjekkpunkt eller et sjekkpunkt som peker bakover.
+     */
+    private void lagreSjekkpunkt(int del, String fingeravtrykk, Sjekkpunkt sjekkpunkt) throws IOException {
+        Path midlertidig = Files.createTempFile(this.mappe, "sjekkpunkt", ".tmp");
+        try {
+            try (FileChannel ut = FileChannel.open(midlertidig, StandardOpenOption.WRITE)) {
+                skrivUt(ut, new StringBuilder()
+                        .append(NØKKEL_FINGERAVTRYKK).append(fingeravtrykk).append('\n')
+                        .append(NØKKEL_GRUNNBELØP).append(this.grunnbeløpVerktøy.hentGrunnbeløpØre()).append('\n')
+                        .append(NØKKEL_POSISJON).append(sjekkpunkt.posisjon).append('\n')
+                        .append(NØKKEL_UTDATASTØRRELSE).append(sjekkpunkt.utdatastørrelse).append('\n')
+                        .append(NØKKEL_ANTALL_PERSONER).append(sjekkpunkt.antallPersoner).append('\n')
+                        .append(NØKKEL_FERDIG).append(sjekkpunkt.ferdig).append('\n'));
+                ut.force(true);
+            }
+            Files.move(midlertidig, sjekkpunktfil(del), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lagreMappe(this.mappe);
+        } finally {
+            Files.deleteIfExists(midlertidig);
+        }
+    }
+
+    /* Lagrer en flytting i mappen til disk. Ikke alle plattformer kan åpne en mappe, og der er flyttingen det beste vi får. */
+    private static void lagreMappe(Path mappe) {
+        try (FileChannel kanal = FileChannel.open(mappe, StandardOpenOption.READ)) {
+            kanal.force(true);
+        } catch (IOException exception) {
+            /* Mappen kan ikke lagres eksplisitt på denne plattformen. */
+        }
+    }
+
+    /*
+     * Leser sjekkpunktet til en del, eller null hvis delen ikke er kjørt før.
+     * Et sjekkpunkt som ikke kan tolkes, for eksempel etter et krasj, gir også null, så delen kjøres på nytt fra start.
+     */
+    private Sjekkpunkt lesSjekkpunkt(int del, String fingeravtrykk) throws IOException {
+        Path fil = sjekkpunktfil(del);
+        if (!Files.isRegularFile(fil)) {
+            return null;
+        }
+        List<String> linjer;
+        try {
+            linjer = Files.readAllLines(fil, StandardCharsets.UTF_8);
+        } catch (CharacterCodingException exception) {
+            return null;
+        }
+        String lagretFingeravtrykk = verdi(linjer, NØKKEL_FINGERAVTRYKK);
+        String grunnbeløp = verdi(linjer, NØKKEL_GRUNNBELØP);
+        String posisjon = verdi(linjer, NØKKEL_POSISJON);
+        String utdatastørrelse = verdi(linjer, NØKKEL_UTDATASTØRRELSE);
+        String antallPersoner = verdi(linjer, NØKKEL_ANTALL_PERSONER);
+        String ferdig = verdi(linjer, NØKKEL_FERDIG);
+        if (lagretFingeravtrykk == null || grunnbeløp == null || posisjon == null || utdatastørrelse == null
+                || antallPersoner == null || !(ferdig != null && (ferdig.equals("true") || ferdig.equals("false")))) {
+            return null;
+        }
+        Sjekkpunkt sjekkpunkt;
+        long grunnbeløpØre;
+        try {
+            grunnbeløpØre = Long.parseLong(grunnbeløp);
+            sjekkpunkt = new Sjekkpunkt(Long.parseLong(posisjon), Long.parseLong(utdatastørrelse),
+                    Long.parseLong(antallPersoner), Boolean.parseBoolean(ferdig));
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+        if (sjekkpunkt.posisjon < 0 || sjekkpunkt.utdatastørrelse < 0 || sjekkpunkt.antallPersoner < 0) {
+            return null;
+        }
+        /* Feilhåndtering: Kaster unntak hvis sjekkpunktet er fra en annen fil eller et annet grunnbeløp,
+        siden resultatene da ikke kan blandes. */
+        if (!lagretFingeravtrykk.equals(fingeravtrykk)) {
+            throw new IllegalStateException("Sjekkpunktet " + fil + " er fra en annen fil med årslønner.");
+        }
+        if (grunnbeløpØre != this.grunnbeløpVerktøy.hentGrunnbeløpØre()) {
+            throw new IllegalStateException("Sjekkpunktet " + fil + " er beregnet med et annet grunnbeløp.");
+        }
+        return sjekkpunkt;
+    }
+
+    /* Verdien til en nøkkel i sjekkpunktet, eller null hvis den mangler. */
+    private static String verdi(List<String> linjer, String nøkkel) {
+        for (String linje : linjer) {
+            if (linje.startsWith(nøkkel)) {
+                return linje.substring(nøkkel.length()).trim();
+            }
+        }
+        return null;
+    }
+
+    /* Hvor langt en del har kommet: neste person i filen med årslønner, og hvor mye som er skrevet av resultater. */
+    private static final class Sjekkpunkt {
+        private final long posisjon;
+        private final long utdatastørrelse;
+        private final long antallPersoner;
+        private final boolean ferdig;
+
+        private Sjekkpunkt(long posisjon, long utdatastørrelse, long antallPersoner, boolean ferdig) {
+            this.posisjon = posisjon;
+            this.utdatastørrelse = utdatastørrelse;
+            this.antallPersoner = antallPersoner;
+            this.ferdig = ferdig;
+        }
+    }
+
+    /**
+     * Kjører en del, slår sammen delene, eller kjører alle delene i egne prosesser. Se klassebeskrivelsen.
+     * @param args Kommando og argumenter.
+     * @throws Exception hvis kjøringen feiler.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Bruk: del|slåSammen|kjør <årslønner> <mappe> <antall deler> <del|resultatfil> [grunnbeløp]");
+            System.exit(2);
+        }
+        Path årslønner = Path.of(args[1]);
+        Path mappe = Path.of(args[2]);
+        int antallDeler = Integer.parseInt(args[3]);
+        /* Alle delene må bruke samme grunnbeløp, så det hentes én gang og gis videre til prosessene. */
+        GrunnbeløpVerktøy verktøy = args.length > 5
+                ? new GrunnbeløpVerktøy(Double.parseDouble(args[5]))
+                : new GrunnbeløpVerktøy();
+        Batchkjøring kjøring = new Batchkjøring(årslønner, mappe, antallDeler, verktøy);
+
+        switch (args[0]) {
+            case "del" -> kjøring.kjørDel(Integer.parseInt(args[4]));
+            case "slåSammen" -> System.out.println(kjøring.slåSammen(Path.of(args[4])) + " personer skrevet til " + args[4]);
+            case "kjør" -> {
+                long start = System.nanoTime();
+                kjøring.kjørAlleIProsesser();
+                long antallPersoner = kjøring.slåSammen(Path.of(args[4]));
+                System.out.printf("%d personer skrevet til %s på %.1f s med %d prosesser%n", antallPersoner, args[4],
+                        (System.nanoTime() - start) / 1e9, antallDeler);
+            }
+            default -> {
+                System.err.println("Ukjent kommando: " + args[0]);
+                System.exit(2);
+            }
+        }
+    }
+
+    /* Starter én prosess per del som ikke er ferdig, og starter prosesser som feiler på nytt fra sjekkpunktet. */
+    private void kjørAlleIProsesser() throws IOException, InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> jvmArgumenter = new ArrayList<>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (PERSONLIGE_JVM_ARGUMENTER.stream().noneMatch(argument::startsWith)) {
+                jvmArgumenter.add(argument);
+            }
+        }
+        int[] forsøk = new int[this.antallDeler];
+        List<Integer> gjenstående = new ArrayList<>();
+        for (int del = 0; del < this.antallDeler; del++) {
+            if (!erFerdig(del)) {
+                gjenstående.add(del);
+            }
+        }
+        while (!gjenstående.isEmpty()) {
+            List<Process> prosesser = new ArrayList<>();
+            for (int del : gjenstående) {
+                List<String> kommando = new ArrayList<>();
+                kommando.add(java);
+                kommando.addAll(jvmArgumenter);
+                kommando.addAll(List.of("-cp", System.getProperty("java.class.path"), Batchkjøring.class.getName(),
+                        "del", this.årslønner.toString(), this.mappe.toString(), String.valueOf(this.antallDeler),
+                        String.valueOf(del), String.valueOf(this.grunnbeløpVerktøy.hentGrunnbeløp())));
+                prosesser.add(new ProcessBuilder(kommando).inheritIO().start());
+                forsøk[del]++;
+            }
+            List<Integer> feilet = new ArrayList<>();
+            for (int i = 0; i < prosesser.size(); i++) {
+                int del = gjenstående.get(i);
+                if (prosesser.get(i).waitFor() != 0 || !erFerdig(del)) {
+                    /* Feilhåndtering: Gir opp en del som har feilet for mange ganger. */
+                    if (forsøk[del] >= MAKS_FORSØK) {
+                        throw new IllegalStateException("Del " + del + " feilet " + MAKS_FORSØK + " ganger.");
+                    }
+                    System.err.println("Del " + del + " feilet, og startes på nytt fra siste sjekkpunkt.");
+                    feilet.add(del);
+                }
+            }
+            gjenstående = feilet;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package no.nav.innlesing;
+
+import no.nav.beløp.Øre;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.Resultat;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.ÅrslønnVindu;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Leser årslønner fra en stor fil og kalkulerer et <code>Resultat</code> per person, uten å holde filen i minnet.
+ * Filen minnekartlegges i vinduer, og radene tolkes direkte fra bytene uten å lage en <code>String</code> per linje.
+ * Rader for samme person må komme etter hverandre. For hver person holdes bare de tre nyeste årene,
+ * slik at minnebruken er den samme uansett hvor stor filen er.
+ *
+ * Filen kan være på ett av to formater, og formatet avgjøres per linje:
+ * - CSV: <code>personId,år,årslønn</code>, med komma eller semikolon som skilletegn. En overskriftslinje hoppes over.
+ * - NDJSON: <code>{"personId": 1, "år": 2024, "årslønn": 550000}</code>, ett JSON-objekt per linje.
+ * Årslønnen tolkes rett til hele øre, rundet til nærmeste øre ved mer enn to desimaler.
+ *
+ * En leser kan også lese bare en del av filen, fra starten på én person til starten på en annen. Det brukes av
+ * <code>Batchkjøring</code> til å dele filen mellom flere prosesser, og til å fortsette fra et sjekkpunkt.
+ *
+ * @author Mila Toneff
+ * @version 1.3
+ */
+public final class ÅrslønnFilLeser implements Spliterator<Resultat>, AutoCloseable {
+
+    /* Hvor mye av filen som minnekartlegges om gangen. */
+    static final int STANDARD_VINDUSSTØRRELSE = 64 << 20;
+
+    /* Nøklene i NDJSON-formatet, som bytes slik at de kan sammenlignes uten å lage strenger. */
+    private static final byte[] NØKKEL_PERSON_ID = "personId".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NØKKEL_ÅR = "år".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NØKKEL_ÅRSLØNN = "årslønn".getBytes(StandardCharsets.UTF_8);
+
+    /* Største heltallsdel av en årslønn, som i Øre.fraKroner. */
+    private static final long MAKS_KRONER = 1_000_000_000_000_000L;
+
+    private final FileChannel kanal;
+    private final long filstørrelse;
+    private final int vindusstørrelse;
+    private final GrunnbeløpVerktøy grunnbeløpVerktøy;
+    /* Personer som starter her eller senere i filen, leses ikke. */
+    private final long slutt;
+    /* Gjenbrukes for hver person. */
+    private final ÅrslønnVindu årslønnVindu = new ÅrslønnVindu();
+
+    /* Kartlagt del av filen, hvor den starter i filen, og neste posisjon å lese fra i vinduet. */
+    private MappedByteBuffer vindu;
+    private long vindusstart;
+    private int posisjon;
+
+    /* Sist tolkede rad, og hvor i filen linjen starter. */
+    private long radstart;
+    private long radPersonId;
+    private int radÅr;
+    private long radÅrslønnØre;
+    /* Om sist tolkede rad tilhører neste person og ikke er lagt i et vindu ennå. */
+    private boolean harVentendeRad;
+
+    /* Posisjon under tolking av en linje. */
+    private int tolkeposisjon;
+
+    ÅrslønnFilLeser(Path fil, GrunnbeløpVerktøy grunnbeløpVerktøy, int vindusstørrelse) throws IOException {
+        this(fil, grunnbeløpVerktøy, vindusstørrelse, 0, Long.MAX_VALUE);
+    }
+
+    /* Leser personene som starter fra og med start og før slutt. Start må være starten på en linje. */
+    ÅrslønnFilLeser(Path fil, GrunnbeløpVerktøy grunnbeløpVerktøy, int vindusstørrelse, long start, long slutt) throws IOException {
+        /* Feilhåndtering: Kaster unntak ved manglende fil eller grunnbeløpsverktøy. */
+        if (fil == null || grunnbeløpVerktøy == null) {
+            throw new IllegalArgumentException("Fil og grunnbeløpsverktøy kan ikke være uten verdi (null).");
+        }
+        this.kanal = FileChannel.open(fil, StandardOpenOption.READ);
+        this.filstørrelse = this.kanal.size();
+        this.vindusstørrelse = vindusstørrelse;
+        this.grunnbeløpVerktøy = grunnbeløpVerktøy;
+        this.slutt = slutt;
+        kartlegg(Math.min(start, this.filstørrelse));
+    }
+
+    /**
+     * Finner starten på første person etter en gitt posisjon i filen, for å dele filen uten å dele en person.
+     * Personen på første hele linje fra posisjonen hoppes over, siden den kan ha startet før posisjonen.
+     * To lesere som deler filen ved samme posisjon, finner derfor alltid samme grense.
+     * @param fil Filen med årslønner.
+     * @param posisjon Posisjonen i filen.
+     * @return Posisjonen der personen starter, 0 for posisjon 0, eller filstørrelsen hvis det ikke er flere personer.
+     * @throws IOException hvis filen ikke kan leses.
+     */
+    static long finnPersonstart(Path fil, long posisjon) throws IOException {
+        if (posisjon <= 0) {
+            return 0;
+        }
+        /* Verktøyet brukes ikke, siden ingen personer kalkuleres. */
+        try (ÅrslønnFilLeser leser = new ÅrslønnFilLeser(fil, new GrunnbeløpVerktøy(0), STANDARD_VINDUSSTØRRELSE,
+                posisjon - 1, Long.MAX_VALUE)) {
+            if (posisjon >= leser.filstørrelse) {
+                return leser.filstørrelse;
+            }
+            /* Byten før posisjonen er enten et linjeskift, eller en del av linjen som hoppes over. */
+            leser.hoppOverLinje();
+            if (!leser.lesNesteRad()) {
+                return leser.filstørrelse;
+            }
+            long personId = leser.radPersonId;
+            while (leser.lesNesteRad()) {
+                if (leser.radPersonId != personId) {
+                    return leser.radstart;
+                }
+            }
+            return leser.filstørrelse;
+        }
+    }
+
+    /**
+     * Leser årslønner fra gitt fil og kalkulerer et resultat per person.
+     * Strømmen leser filen etter hvert som den konsumeres, og må lukkes når den er ferdig brukt.
+     * @param fil Filen med årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele filen skal beregnes ut ifra.
+     * @return Strøm med ett resultat per person, i samme rekkefølge som i filen.
+     * @throws IOException hvis filen ikke kan åpnes.
+     */
+    public static Stream<Resultat> lesResultater(Path fil, GrunnbeløpVerktøy grunnbeløpVerktøy) throws IOException {
+        return lesResultater(fil, grunnbeløpVerktøy, STANDARD_VINDUSSTØRRELSE);
+    }
+
+    /**
+     * Leser årslønner fra gitt fil med en gitt størrelse på vinduet som minnekartlegges om gangen.
+     * @param fil Filen med årslønner.
+     * @param grunnbeløpVerktøy Verktøy med grunnbeløpet hele filen skal beregnes ut ifra.
+     * @param vindusstørrelse Antall bytes som kartlegges om gangen. Må være større enn den lengste linjen.
+     * @return Strøm med ett resultat per person, i samme rekkefølge som i filen.
+     * @throws IOException hvis filen ikke kan åpnes.
+     */
+    public static Stream<Resultat> lesResultater(Path fil, GrunnbeløpVerktøy grunnbeløpVerktøy, int vindusstørrelse) throws IOException {
+        /* Feilhåndtering: Kaster unntak hvis vinduet ikke har plass til noe. */
+        if (vindusstørrelse <= 0) {
+            throw new IllegalArgumentException("Vindusstørrelse må være større enn null.");
+        }
+        ÅrslønnFilLeser leser = new ÅrslønnFilLeser(fil, grunnbeløpVerktøy, vindusstørrelse);
+        return StreamSupport.stream(leser, false).onClose(leser::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Resultat> handling) {
+        /* Første rad til personen er enten lest allerede, eller så leses den nå. */
+        if (!this.harVentendeRad && !lesNesteRad()) {
+            return false;
+        }
+        /* Personen hører til neste del av filen. */
+        if (this.radstart >= this.slutt) {
+            this.harVentendeRad = true;
+            return false;
+        }
+        long personId = this.radPersonId;
+        this.årslønnVindu.nullstill();
+        this.årslønnVindu.leggTilØre(this.radÅr, this.radÅrslønnØre);
+        this.harVentendeRad = false;
+
+        /* Leser rader til personen skifter, eller filen er slutt. */
+        while (lesNesteRad()) {
+            if (this.radPersonId != personId) {
+                this.harVentendeRad = true;
+                break;
+            }
+            this.årslønnVindu.leggTilØre(this.radÅr, this.radÅrslønnØre);
+        }
+
+        long beregning = Dagsatsberegning.beregnØre(this.årslønnVindu.hentSisteÅrslønnØre(),
+                this.årslønnVindu.summerÅrslønnerØre(), this.grunnbeløpVerktøy);
+        handling.accept(Resultat.fraBeregning(personId, beregning));
+        return true;
+    }
+
+    /**
+     * Henter posisjonen i filen der neste person starter, eller filstørrelsen hvis filen er lest til slutt.
+     * Et sjekkpunkt med denne posisjonen kan gis til en ny leser for å fortsette med neste person.
+     * @return posisjonen til neste person.
+     */
+    long hentNestePersonstart() {
+        if (this.harVentendeRad) {
+            return this.radstart;
+        }
+        return Math.min(this.vindusstart + this.posisjon, this.filstørrelse);
+    }
+
+    @Override
+    public Spliterator<Resultat> trySplit() {
+        /* Personer kan gå over grensen mellom to deler av filen, så filen leses sekvensielt. */
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Lukker filen.
+     */
+    @Override
+    public void close() {
+        try {
+            this.kanal.close();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /* Leser neste rad med data, og hopper over tomme linjer og overskrifter. */
+    private boolean lesNesteRad() {
+        while (this.vindusstart + this.posisjon < this.filstørrelse) {
+            int linjestart = this.posisjon;
+            int linjeslutt = finnLinjeskift(linjestart);
+            /* Linjen går forbi vinduet, så vinduet flyttes til starten av linjen. */
+            if (linjeslutt < 0 && this.vindusstart + this.vindu.limit() < this.filstørrelse) {
+                kartlegg(this.vindusstart + linjestart);
+                linjestart = 0;
+                linjeslutt = finnLinjeskift(0);
+                if (linjeslutt < 0 && this.vindusstart + this.vindu.limit() < this.filstørrelse) {
+                    throw new IllegalStateException("Linje ved posisjon " + this.vindusstart + " er lengre enn lesevinduet.");
+                }
+            }
+            /* Siste linje i filen trenger ikke slutte med linjeskift. */
+            if (linjeslutt < 0) {
+                linjeslutt = this.vindu.limit();
+            }
+            this.posisjon = linjeslutt + 1;
+            this.radstart = this.vindusstart + linjestart;
+            if (tolkLinje(linjestart, linjeslutt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Hopper til starten på neste linje. */
+    private void hoppOverLinje() {
+        int linjeslutt = finnLinjeskift(this.posisjon);
+        if (linjeslutt < 0 && this.vindusstart + this.vindu.limit() < this.filstørrelse) {
+            kartlegg(this.vindusstart + this.posisjon);
+            linjeslutt = finnLinjeskift(0);
+            if (linjeslutt < 0 && this.vindusstart + this.vindu.limit() < this.filstørrelse) {
+                throw new IllegalStateException("Linje ved posisjon " + this.vindusstart + " er lengre enn lesevinduet.");
+            }
+        }
+        this.posisjon = linjeslutt < 0 ? this.vindu.limit() : linjeslutt + 1;
+    }
+
+    private int finnLinjeskift(int fra) {
+        int grense = this.vindu.limit();
+        for (int indeks = fra; indeks < grense; indeks++) {
+            if (this.vindu.get(indeks) == '\n') {
+                return indeks;
+            }
+        }
+        return -1;
+    }
+
+    private void kartlegg(long start) {
+        try {
+            long lengde = Math.min(this.vindusstørrelse, this.filstørrelse - start);
+            this.vindu = this.kanal.map(FileChannel.MapMode.READ_ONLY, start, lengde);
+            this.vindusstart = start;
+            this.posisjon = 0;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /* Tolker en linje. Returnerer false for linjer uten data. */
+    private boolean tolkLinje(int start, int slutt) {
+        if (slutt > start && this.vindu.get(slutt - 1) == '\r') {
+            slutt--;
+        }
+        if (slutt == start) {
+            return false;
+        }
+        byte første = this.vindu.get(start);
+        this.tolkeposisjon = start;
+        if (første == '{') {
+            tolkJson(slutt);
+            return true;
+        }
+        /* En CSV-linje som ikke starter med et tall, er en overskrift. */
+        if (første < '0' || første > '9') {
+            return false;
+        }
+        this.radPersonId = tolkHeltall(slutt);
+        hoppOverSkilletegn(slutt);
+        this.radÅr = (int) tolkHeltall(slutt);
+        hoppOverSkilletegn(slutt);
+        this.radÅrslønnØre = tolkØre(slutt);
+        return true;
+    }
+
+    private void tolkJson(int slutt) {
+        boolean harPersonId = false;
+        boolean harÅr = false;
+        boolean harÅrslønn = false;
+        while (true) {
+            /* Finner starten på neste nøkkel. */
+            while (this.tolkeposisjon < slutt && this.vindu.get(this.tolkeposisjon) != '"') {
+                this.tolkeposisjon++;
+            }
+            if (this.tolkeposisjon >= slutt) {
+                break;
+            }
+            int nøkkelstart = ++this.tolkeposisjon;
+            while (this.tolkeposisjon < slutt && this.vindu.get(this.tolkeposisjon) != '"') {
+                this.tolkeposisjon++;
+            }
+            int nøkkelslutt = this.tolkeposisjon++;
+            /* Hopper fram til verdien, som kan stå i anførselstegn. */
+            while (this.tolkeposisjon < slutt) {
+                byte tegn = this.vindu.get(this.tolkeposisjon);
+                if (tegn != ':' && tegn != ' ' && tegn != '"') {
+                    break;
+                }
+                this.tolkeposisjon++;
+            }
+            if (erNøkkel(nøkkelstart, nøkkelslutt, NØKKEL_PERSON_ID)) {
+                this.radPersonId = tolkHeltall(slutt);
+                harPersonId = true;
+            } else if (erNøkkel(nøkkelstart, nøkkelslutt, NØKKEL_ÅR)) {
+                this.radÅr = (int) tolkHeltall(slutt);
+                harÅr = true;
+            } else if (erNøkkel(nøkkelstart, nøkkelslutt, NØKKEL_ÅRSLØNN)) {
+                this.radÅrslønnØre = tolkØre(slutt);
+                harÅrslønn = true;
+            }
+            /* Hopper over resten av verdien. */
+            while (this.tolkeposisjon < slutt && this.vindu.get(this.tolkeposisjon) != ',') {
+                this.tolkeposisjon++;
+            }
+        }
+        /* Feilhåndtering: Kaster unntak hvis et av feltene mangler. */
+        if (!harPersonId || !harÅr || !harÅrslønn) {
+            throw ugyldigRad();
+        }
+    }
+
+    private boolean erNøkkel(int start, int slutt, byte[] nøkkel) {
+        if (slutt - start != nøkkel.length) {
+            return false;
+        }
+        for (int indeks = 0; indeks < nøkkel.length; indeks++) {
+            if (this.vindu.get(start + indeks) != nøkkel[indeks]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void hoppOverSkilletegn(int slutt) {
+        /* Feilhåndtering: Kaster unntak hvis raden har for få felter. */
+        if (this.tolkeposisjon >= slutt) {
+            throw ugyldigRad();
+        }
+        byte tegn = this.vindu.get(this.tolkeposisjon);
+        if (tegn != ',' && tegn != ';') {
+            throw ugyldigRad();
+        }
+        this.tolkeposisjon++;
+    }
+
+    private long tolkHeltall(int slutt) {
+        int start = this.tolkeposisjon;
+        long verdi = 0;
+        while (this.tolkeposisjon < slutt) {
+            byte tegn = this.vindu.get(this.tolkeposisjon);
+            if (tegn < '0' || tegn > '9') {
+                break;
+            }
+            verdi = verdi * 10 + (tegn - '0');
+            this.tolkeposisjon++;
+        }
+        /* Feilhåndtering: Kaster unntak hvis feltet ikke inneholder et tall. */
+        if (this.tolkeposisjon == start) {
+            throw ugyldigRad();
+        }
+        return verdi;
+    }
+
+    /* Tolker et beløp i kroner med valgfrie desimaler rett til øre, rundet til nærmeste øre. */
+    private long tolkØre(int slutt) {
+        boolean negativ = this.tolkeposisjon < slutt && this.vindu.get(this.tolkeposisjon) == '-';
+        if (negativ) {
+            this.tolkeposisjon++;
+        }
+        long kroner = tolkHeltall(slutt);
+        /* Feilhåndtering: Kaster unntak ved beløp for store til å regnes eksakt i øre. */
+        if (kroner >= MAKS_KRONER) {
+            throw ugyldigRad();
+        }
+        long øre = 0;
+        if (this.tolkeposisjon < slutt && this.vindu.get(this.tolkeposisjon) == '.') {
+            this.tolkeposisjon++;
+            int start = this.tolkeposisjon;
+            /* De to første desimalene er øre, den tredje avgjør avrundingen, og resten hoppes over. */
+            while (this.tolkeposisjon < slutt) {
+                byte tegn = this.vindu.get(this.tolkeposisjon);
+                if (tegn < '0' || tegn > '9') {
+                    break;
+                }
+                int desimal = this.tolkeposisjon - start;
+                if (desimal < 2) {
+                    øre = øre * 10 + (tegn - '0');
+                } else if (desimal == 2 && tegn >= '5') {
+                    øre++;
+                }
+                this.tolkeposisjon++;
+            }
+            /* Feilhåndtering: Kaster unntak hvis det ikke står noen desimaler etter punktumet. */
+            if (this.tolkeposisjon == start) {
+                throw ugyldigRad();
+            }
+            if (this.tolkeposisjon - start == 1) {
+                øre *= 10;
+            }
+        }
+        long verdi = kroner * Øre.PER_KRONE + øre;
+        return negativ ? -verdi : verdi;
+    }
+
+    private IllegalArgumentException ugyldigRad() {
+        return new IllegalArgumentException("Ugyldig rad ved posisjon " + (this.vindusstart + this.tolkeposisjon) + ".");
+    }
+}
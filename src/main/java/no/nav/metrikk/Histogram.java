@@ -0,0 +1,171 @@
+package no.nav.metrikk;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram over tider eller andre positive verdier, med fast relativ presisjon som i HdrHistogram.
+ *
+ * Verdiene legges i bøtter etter eksponent og de neste <code>UNDERBITER</code> bitene, så feilen i en persentil
+ * er under 2^-UNDERBITER (drøyt 3 %) uansett størrelse, fra nanosekunder til timer. Registrering er én
+ * indeksberegning og én atomisk økning. Bøttene er delt i striper etter tråd, så samtidige tråder sjelden
+ * skriver til samme minneplass, og stripene summeres først når histogrammet leses.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class Histogram implements HistogramMBean {
+
+    /* Antall biter under den høyeste som skiller bøttene innenfor en eksponent. */
+    private static final int UNDERBITER = 5;
+    private static final int BØTTER_PER_EKSPONENT = 1 << UNDERBITER;
+    private static final int ANTALL_BØTTER = (64 - UNDERBITER + 1) * BØTTER_PER_EKSPONENT;
+    private static final int ANTALL_STRIPER = Math.min(16, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final String navn;
+    private final AtomicLongArray[] striper = new AtomicLongArray[ANTALL_STRIPER];
+    private final LongAdder sum = new LongAdder();
+    private volatile long maks;
+
+    Histogram(String navn) {
+        this.navn = navn;
+        for (int i = 0; i < ANTALL_STRIPER; i++) {
+            this.striper[i] = new AtomicLongArray(ANTALL_BØTTER);
+        }
+    }
+
+    /**
+     * Registrerer en verdi. Negative verdier regnes som 0.
+     * @param verdi Verdien, typisk en tid i nanosekunder.
+     */
+    public void registrer(long verdi) {
+        if (verdi < 0) {
+            verdi = 0;
+        }
+        int stripe = (int) Thread.currentThread().threadId() & (ANTALL_STRIPER - 1);
+        this.striper[stripe].getAndIncrement(bøtte(verdi));
+        this.sum.add(verdi);
+        if (verdi > this.maks) {
+            oppdaterMaks(verdi);
+        }
+    }
+
+    /**
+     * Registrerer tiden som har gått siden gitt starttid.
+     * @param startNanos Starttiden fra <code>System.nanoTime()</code>.
+     */
+    public void registrerTidSiden(long startNanos) {
+        registrer(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Henter verdien som gitt andel av de registrerte verdiene er mindre enn eller lik.
+     * @param andel Andelen mellom 0 og 1, for eksempel 0.99.
+     * @return Persentilen, som øvre grense i bøtten den faller i. 0 hvis histogrammet er tomt.
+     */
+    public long hentPersentil(double andel) {
+        long[] antall = summerBøtter();
+        long totalt = 0;
+        for (long a : antall) {
+            totalt += a;
+        }
+        if (totalt == 0) {
+            return 0;
+        }
+        long grense = Math.max(1, (long) Math.ceil(andel * totalt));
+        long sett = 0;
+        for (int bøtte = 0; bøtte < antall.length; bøtte++) {
+            sett += antall[bøtte];
+            if (sett >= grense) {
+                return Math.min(øvreGrense(bøtte), this.maks);
+            }
+        }
+        return this.maks;
+    }
+
+    @Override
+    public long getAntall() {
+        long totalt = 0;
+        for (long a : summerBøtter()) {
+            totalt += a;
+        }
+        return totalt;
+    }
+
+    @Override
+    public double getGjennomsnitt() {
+        long antall = getAntall();
+        return antall == 0 ? 0 : (double) this.sum.sum() / antall;
+    }
+
+    @Override
+    public long getP50() {
+        return hentPersentil(0.50);
+    }
+
+    @Override
+    public long getP99() {
+        return hentPersentil(0.99);
+    }
+
+    @Override
+    public long getP999() {
+        return hentPersentil(0.999);
+    }
+
+    @Override
+    public long getMaks() {
+        return this.maks;
+    }
+
+    /**
+     * Henter navnet histogrammet er registrert med.
+     * @return navnet.
+     */
+    public String hentNavn() {
+        return this.navn;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s antall=%d snitt=%.0f p50=%d p99=%d p999=%d maks=%d",
+                this.navn, getAntall(), getGjennomsnitt(), getP50(), getP99(), getP999(), getMaks());
+    }
+
+    private synchronized void oppdaterMaks(long verdi) {
+        if (verdi > this.maks) {
+            this.maks = verdi;
+        }
+    }
+
+    private long[] summerBøtter() {
+        long[] antall = new long[ANTALL_BØTTER];
+        for (AtomicLongArray stripe : this.striper) {
+            for (int bøtte = 0; bøtte < ANTALL_BØTTER; bøtte++) {
+                antall[bøtte] += stripe.get(bøtte);
+            }
+        }
+        return antall;
+    }
+
+    /* Små verdier får hver sin bøtte. Større verdier deles etter eksponent og de neste UNDERBITER bitene. */
+    static int bøtte(long verdi) {
+        if (verdi < BØTTER_PER_EKSPONENT) {
+            return (int) verdi;
+        }
+        int eksponent = 63 - Long.numberOfLeadingZeros(verdi);
+        int underbøtte = (int) (verdi >>> (eksponent - UNDERBITER)) & (BØTTER_PER_EKSPONENT - 1);
+        return (eksponent - UNDERBITER + 1) * BØTTER_PER_EKSPONENT + underbøtte;
+    }
+
+    /* Den største verdien som havner i gitt bøtte. */
+    static long øvreGrense(int bøtte) {
+        if (bøtte < BØTTER_PER_EKSPONENT) {
+            return bøtte;
+        }
+        int eksponent = bøtte / BØTTER_PER_EKSPONENT + UNDERBITER - 1;
+        long underbøtte = bøtte % BØTTER_PER_EKSPONENT;
+        long nedre = (1L << eksponent) | (underbøtte << (eksponent - UNDERBITER));
+        return nedre + (1L << (eksponent - UNDERBITER)) - 1;
+    }
+}
@@ -0,0 +1,46 @@
+package no.nav.metrikk;
+
+/**
+ * JMX-grensesnittet til et <code>Histogram</code>. Alle tider er i nanosekunder.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public interface HistogramMBean {
+
+    /**
+     * Henter antall registrerte verdier.
+     * @return antallet.
+     */
+    long getAntall();
+
+    /**
+     * Henter gjennomsnittet av de registrerte verdiene.
+     * @return gjennomsnittet.
+     */
+    double getGjennomsnitt();
+
+    /**
+     * Henter medianen.
+     * @return 50-persentilen.
+     */
+    long getP50();
+
+    /**
+     * Henter 99-persentilen.
+     * @return 99-persentilen.
+     */
+    long getP99();
+
+    /**
+     * Henter 99,9-persentilen.
+     * @return 99,9-persentilen.
+     */
+    long getP999();
+
+    /**
+     * Henter den største registrerte verdien.
+     * @return maksimum.
+     */
+    long getMaks();
+}
@@ -0,0 +1,94 @@
+package no.nav.metrikk;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Felles register over tellere og histogrammer i prosessen.
+ *
+ * Målingene slås på med systemegenskapen <code>dagpenger.metrikker=true</code>. Bryteren er en
+ * <code>static final</code>-konstant, så når målingene er av, fjerner JIT-kompilatoren hele målepunktet,
+ * og det koster ingenting. Målepunkter skrives derfor slik:
+ * <pre>
+ * if (Metrikker.AKTIVERT) {
+ *     BEREGNINGER.øk();
+ * }
+ * </pre>
+ * Når målingene er på, registreres hver teller og hvert histogram som en MBean under
+ * <code>no.nav.dagpenger</code>, og alle kan skrives ut som tekst med <code>dump</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+public final class Metrikker {
+
+    /** Om målingene er slått på. Leses én gang ved oppstart. */
+    public static final boolean AKTIVERT = Boolean.getBoolean("dagpenger.metrikker");
+
+    private static final String JMX_DOMENE = "no.nav.dagpenger";
+
+    private static final Map<String, Teller> TELLERE = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> HISTOGRAMMER = new ConcurrentHashMap<>();
+
+    private Metrikker() {
+    }
+
+    /**
+     * Henter telleren med gitt navn, og oppretter den ved første kall.
+     * @param navn Navnet på telleren, for eksempel <code>dagpenger.beregninger</code>.
+     * @return telleren.
+     */
+    public static Teller teller(String navn) {
+        return TELLERE.computeIfAbsent(sjekkNavn(navn), nytt -> registrer(new Teller(nytt), "Teller", nytt));
+    }
+
+    /**
+     * Henter histogrammet med gitt navn, og oppretter det ved første kall.
+     * @param navn Navnet på histogrammet, for eksempel <code>grunnbeløp.api.svartid</code>.
+     * @return histogrammet.
+     */
+    public static Histogram histogram(String navn) {
+        return HISTOGRAMMER.computeIfAbsent(sjekkNavn(navn), nytt -> registrer(new Histogram(nytt), "Histogram", nytt));
+    }
+
+    /**
+     * Skriver alle tellere og histogrammer som tekst, én linje per måling, sortert etter navn.
+     * Tider er i nanosekunder.
+     * @return målingene som tekst.
+     */
+    public static String dump() {
+        Map<String, Object> sortert = new TreeMap<>();
+        sortert.putAll(TELLERE);
+        sortert.putAll(HISTOGRAMMER);
+        StringBuilder tekst = new StringBuilder();
+        for (Object måling : sortert.values()) {
+            tekst.append(måling).append('\n');
+        }
+        return tekst.toString();
+    }
+
+    private static String sjekkNavn(String navn) {
+        /* Feilhåndtering: Kaster unntak hvis navnet mangler. */
+        if (navn == null || navn.isBlank()) {
+            throw new IllegalArgumentException("Navn kan ikke være tomt eller uten verdi (null).");
+        }
+        return navn;
+    }
+
+    private static <T> T registrer(T måling, String type, String navn) {
+        if (!AKTIVERT) {
+            return måling;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(måling,
+                    new ObjectName(JMX_DOMENE + ":type=" + type + ",name=" + ObjectName.quote(navn)));
+        } catch (JMException exception) {
+            /* Målingen virker fortsatt og er med i dump, den er bare ikke synlig over JMX. */
+        }
+        return måling;
+    }
+}
@@ -0,0 +1,53 @@
+package no.nav.metrikk;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Teller som mange tråder kan øke samtidig uten å konkurrere om samme minneplass.
+ * Økningene spres over flere celler, og summeres først når telleren leses.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class Teller implements TellerMBean {
+
+    private final String navn;
+    private final LongAdder antall = new LongAdder();
+
+    Teller(String navn) {
+        this.navn = navn;
+    }
+
+    /**
+     * Øker telleren med én.
+     */
+    public void øk() {
+        this.antall.increment();
+    }
+
+    /**
+     * Øker telleren med gitt antall.
+     * @param antall Antallet telleren økes med.
+     */
+    public void øk(long antall) {
+        this.antall.add(antall);
+    }
+
+    @Override
+    public long getAntall() {
+        return this.antall.sum();
+    }
+
+    /**
+     * Henter navnet telleren er registrert med.
+     * @return navnet.
+     */
+    public String hentNavn() {
+        return this.navn;
+    }
+
+    @Override
+    public String toString() {
+        return this.navn + " antall=" + getAntall();
+    }
+}
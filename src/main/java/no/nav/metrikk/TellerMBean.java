@@ -0,0 +1,16 @@
+package no.nav.metrikk;
+
+/**
+ * JMX-grensesnittet til en <code>Teller</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public interface TellerMBean {
+
+    /**
+     * Henter hvor mange ganger telleren er økt.
+     * @return antallet.
+     */
+    long getAntall();
+}
@@ -0,0 +1,347 @@
+package no.nav.tjeneste;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import no.nav.beløp.Øre;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.Resultatstatistikk;
+import no.nav.grunnbeløp.GrunnbeløpCache;
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Metrikker;
+import no.nav.årslønn.ÅrslønnVindu;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * HTTP-tjeneste som kalkulerer dagsats, slik at andre systemer kan bruke kalkulatoren.
+ * Tjenesten bruker <code>HttpServer</code> fra JDK-en, og hver forespørsel kjører på sin egen virtuelle tråd.
+ *
+ * <code>POST /dagsats</code> tar imot én person som et JSON-objekt, eller mange personer som en JSON-liste:
+ * <pre>
+ * {"personId": 1, "vedtaksdato": "2024-06-01", "årslønner": [{"år": 2023, "årslønn": 550000}, ...]}
+ * </pre>
+ * <code>personId</code> og <code>vedtaksdato</code> kan utelates. Uten vedtaksdato brukes dagens grunnbeløp fra
+ * det felles mellomlageret, ellers grunnbeløpet som gjaldt på datoen. Svaret har samme form som forespørselen,
+ * med <code>dagsats</code>, <code>beregningsmetode</code> og <code>spesialisering</code> per person. Svar på lister
+ * strømmes ut etter hvert som personene er kalkulert.
+ *
+ * Mangler en person vedtaksdato og dagens grunnbeløp ikke kan hentes, svarer tjenesten 503. En forespørsel
+ * som er større enn grensen, avvises med 413 før den tolkes.
+ *
+ * <code>GET /helse</code> svarer OK når tjenesten kjører, og <code>GET /metrikker</code> gir målingene som tekst.
+ * <code>GET /statistikk</code> gir antall resultater og summen av dagsatsene per spesialisering i prosessen,
+ * der hver person tjenesten har kalkulert er med.
+ *
+ * @author Mila Toneff
+ * @version 1.3
+ */
+public final class KalkulatorTjeneste implements AutoCloseable {
+
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String TEKST = "text/plain; charset=utf-8";
+    /* Standard grense for størrelsen på en forespørsel: 16 MB, godt over en liste med titusener av personer. */
+    private static final int STANDARD_MAKS_FORESPØRSEL = 16 << 20;
+
+    static {
+        /*
+         * HttpServer skriver hodet og innholdet i svaret hver for seg. Uten TCP_NODELAY holder Nagle-algoritmen
+         * tilbake innholdet til klienten har kvittert for hodet, som kan ta 40 ms med forsinket kvittering.
+         */
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer tjener;
+    private final ExecutorService tråder;
+    private final GrunnbeløpCache grunnbeløpCache;
+    private final GrunnbeløpTidslinje tidslinje;
+    private final int maksForespørsel;
+    /* Verktøyet for dagens grunnbeløp, som byttes ut når mellomlageret får nytt grunnbeløp. */
+    private volatile GrunnbeløpVerktøy gjeldendeVerktøy;
+
+    /**
+     * Starter tjenesten på gitt port med det felles grunnbeløpsmellomlageret og grunnbeløpshistorikken
+     * som følger med programmet.
+     * @param port Porten tjenesten lytter på, eller 0 for en ledig port.
+     * @return Den startede tjenesten.
+     * @throws IOException hvis porten ikke kan åpnes.
+     */
+    public static KalkulatorTjeneste start(int port) throws IOException {
+        return new KalkulatorTjeneste(new InetSocketAddress(port), GrunnbeløpCache.standard(), GrunnbeløpTidslinje.historisk());
+    }
+
+    /**
+     * Starter tjenesten.
+     * @param adresse Adressen tjenesten lytter på.
+     * @param grunnbeløpCache Mellomlageret dagens grunnbeløp hentes fra, delt av alle forespørsler.
+     * @param tidslinje Grunnbeløpet bakover i tid, for forespørsler med vedtaksdato.
+     * @throws IOException hvis adressen ikke kan åpnes.
+     */
+    public KalkulatorTjeneste(InetSocketAddress adresse, GrunnbeløpCache grunnbeløpCache, GrunnbeløpTidslinje tidslinje) throws IOException {
+        this(adresse, grunnbeløpCache, tidslinje, STANDARD_MAKS_FORESPØRSEL);
+    }
+
+    /**
+     * Starter tjenesten med egen grense for størrelsen på en forespørsel.
+     * @param adresse Adressen tjenesten lytter på.
+     * @param grunnbeløpCache Mellomlageret dagens grunnbeløp hentes fra, delt av alle forespørsler.
+     * @param tidslinje Grunnbeløpet bakover i tid, for forespørsler med vedtaksdato.
+     * @param maksForespørsel Største antall byte i en forespørsel. Større forespørsler får 413.
+     * @throws IOException hvis adressen ikke kan åpnes.
+     */
+    public KalkulatorTjeneste(InetSocketAddress adresse, GrunnbeløpCache grunnbeløpCache, GrunnbeløpTidslinje tidslinje,
+                              int maksForespørsel) throws IOException {
+        /* Feilhåndtering: Kaster unntak ved manglende adresse, mellomlager eller tidslinje, eller ugyldig grense. */
+        if (adresse == null || grunnbeløpCache == null || tidslinje == null) {
+            throw new IllegalArgumentException("Adresse, mellomlager og tidslinje kan ikke være uten verdi (null).");
+        }
+        if (maksForespørsel <= 0 || maksForespørsel == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maks størrelse på en forespørsel må være mellom 1 og " + (Integer.MAX_VALUE - 1) + ".");
+        }
+        this.grunnbeløpCache = grunnbeløpCache;
+        this.tidslinje = tidslinje;
+        this.maksForespørsel = maksForespørsel;
+        this.tråder = Executors.newVirtualThreadPerTaskExecutor();
+        this.tjener = HttpServer.create(adresse, 1024);
+        this.tjener.setExecutor(this.tråder);
+        this.tjener.createContext("/dagsats", this::behandleDagsats);
+        this.tjener.createContext("/helse", bareGet(() -> "OK"));
+        this.tjener.createContext("/metrikker", bareGet(Metrikker::dump));
+        this.tjener.createContext("/statistikk", bareGet(() -> Resultatstatistikk.standard().hentOversikt().toString()));
+        this.tjener.start();
+    }
+
+    /**
+     * Henter porten tjenesten lytter på.
+     * @return porten.
+     */
+    public int hentPort() {
+        return this.tjener.getAddress().getPort();
+    }
+
+    /**
+     * Stopper tjenesten. Forespørsler som er i gang får fullføre.
+     */
+    @Override
+    public void close() {
+        this.tjener.stop(1);
+        this.tråder.close();
+    }
+
+    /* Svarer på GET med teksten, og avviser andre metoder. */
+    private static HttpHandler bareGet(Supplier<String> tekst) {
+        return utveksling -> {
+            try (utveksling) {
+                if (!"GET".equals(utveksling.getRequestMethod())) {
+                    utveksling.getResponseHeaders().set("Allow", "GET");
+                    svar(utveksling, 405, JSON, feil("Bare GET er støttet."));
+                    return;
+                }
+                svar(utveksling, 200, TEKST, tekst.get());
+            }
+        };
+    }
+
+    private void behandleDagsats(HttpExchange utveksling) throws IOException {
+        try (utveksling) {
+            if (!"POST".equals(utveksling.getRequestMethod())) {
+                utveksling.getResponseHeaders().set("Allow", "POST");
+                svar(utveksling, 405, JSON, feil("Bare POST er støttet."));
+                return;
+            }
+            byte[] innhold = lesInnhold(utveksling);
+            if (innhold == null) {
+                svar(utveksling, 413, JSON, feil("Forespørselen er større enn " + this.maksForespørsel + " byte."));
+                return;
+            }
+            Object forespørsel;
+            try {
+                forespørsel = new JSONTokener(new InputStreamReader(new ByteArrayInputStream(innhold), StandardCharsets.UTF_8)).nextValue();
+            } catch (JSONException exception) {
+                svar(utveksling, 400, JSON, feil("Ugyldig JSON: " + exception.getMessage()));
+                return;
+            }
+
+            /* Hver person sjekkes før svaret begynner, så en feil kan gi 400 i stedet for et halvt svar. */
+            JSONArray personer = forespørsel instanceof JSONArray liste ? liste : null;
+            boolean trengerGjeldende = false;
+            for (int i = 0; i < (personer == null ? 1 : personer.length()); i++) {
+                Object person = personer == null ? forespørsel : personer.opt(i);
+                String melding = valider(person);
+                if (melding != null) {
+                    svar(utveksling, 400, JSON, feil(personer == null ? melding : "Person " + i + ": " + melding));
+                    return;
+                }
+                trengerGjeldende |= !((JSONObject) person).has("vedtaksdato");
+            }
+            /* Dagens grunnbeløp hentes også før svaret begynner, så en utilgjengelig kilde gir 503. */
+            GrunnbeløpVerktøy gjeldende = null;
+            if (trengerGjeldende) {
+                try {
+                    gjeldende = hentGjeldendeVerktøy();
+                } catch (IllegalStateException exception) {
+                    svar(utveksling, 503, JSON, feil(exception.getMessage()));
+                    return;
+                }
+            }
+
+            ÅrslønnVindu vindu = new ÅrslønnVindu();
+            if (personer != null) {
+                strømListe(utveksling, personer, vindu, gjeldende);
+            } else {
+                StringBuilder tekst = new StringBuilder(128);
+                kalkuler((JSONObject) forespørsel, vindu, gjeldende, tekst);
+                svar(utveksling, 200, JSON, tekst.toString());
+            }
+        }
+    }
+
+    /*
+     * Leser innholdet i forespørselen, eller gir null hvis det er større enn grensen. Oppgitt lengde sjekkes først,
+     * og det leses aldri mer enn én byte over grensen, så en forespørsel uten lengde heller ikke kan fylle minnet.
+     */
+    private byte[] lesInnhold(HttpExchange utveksling) throws IOException {
+        String lengde = utveksling.getRequestHeaders().getFirst("Content-Length");
+        if (lengde != null) {
+            try {
+                if (Long.parseLong(lengde.trim()) > this.maksForespørsel) {
+                    return null;
+                }
+            } catch (NumberFormatException exception) {
+                /* Ugyldig lengde. Grensen sjekkes likevel mot det som faktisk leses. */
+            }
+        }
+        byte[] innhold = utveksling.getRequestBody().readNBytes(this.maksForespørsel + 1);
+        return innhold.length > this.maksForespørsel ? null : innhold;
+    }
+
+    /* Skriver svaret for en liste av personer etter hvert som hver person er kalkulert. */
+    private void strømListe(HttpExchange utveksling, JSONArray personer, ÅrslønnVindu vindu,
+                            GrunnbeløpVerktøy gjeldende) throws IOException {
+        utveksling.getResponseHeaders().set("Content-Type", JSON);
+        /* Lengde 0 betyr at svaret sendes i biter, uten å kjenne lengden på forhånd. */
+        utveksling.sendResponseHeaders(200, 0);
+        try (Writer ut = new BufferedWriter(new OutputStreamWriter(utveksling.getResponseBody(), StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder tekst = new StringBuilder(128);
+            ut.write('[');
+            for (int i = 0; i < personer.length(); i++) {
+                tekst.setLength(0);
+                if (i > 0) {
+                    tekst.append(',');
+                }
+                kalkuler(personer.getJSONObject(i), vindu, gjeldende, tekst);
+                ut.append(tekst);
+            }
+            ut.write(']');
+        }
+    }
+
+    /* Sjekker at en person har gyldig form. Returnerer feilmeldingen, eller null hvis personen er gyldig. */
+    private String valider(Object forespørsel) {
+        if (!(forespørsel instanceof JSONObject person)) {
+            return "Forventet et JSON-objekt.";
+        }
+        JSONArray årslønner = person.optJSONArray("årslønner");
+        if (årslønner == null || årslønner.isEmpty()) {
+            return "Mangler årslønner.";
+        }
+        for (int i = 0; i < årslønner.length(); i++) {
+            JSONObject årslønn = årslønner.optJSONObject(i);
+            if (årslønn == null || !(årslønn.opt("år") instanceof Number år) || !(årslønn.opt("årslønn") instanceof Number)) {
+                return "Årslønn " + i + " må ha tallene år og årslønn.";
+            }
+            if (år.doubleValue() != år.intValue()) {
+                return "Årslønn " + i + ": år må være et helt tall.";
+            }
+            double kroner = årslønn.getDouble("årslønn");
+            if (kroner < 0) {
+                return "Årslønn " + i + ": årslønn kan ikke være negativ.";
+            }
+            try {
+                Øre.fraKroner(kroner);
+            } catch (IllegalArgumentException exception) {
+                return "Årslønn " + i + ": " + exception.getMessage();
+            }
+        }
+        if (person.has("personId") && !(person.opt("personId") instanceof Number)) {
+            return "personId må være et tall.";
+        }
+        if (person.has("vedtaksdato")) {
+            try {
+                this.tidslinje.hentVerktøy(LocalDate.parse(person.getString("vedtaksdato")));
+            } catch (JSONException | DateTimeParseException | IllegalArgumentException exception) {
+                return "Ugyldig vedtaksdato: " + exception.getMessage();
+            }
+        }
+        return null;
+    }
+
+    /* Kalkulerer én validert person og skriver svaret som JSON. Personer uten vedtaksdato bruker dagens grunnbeløp. */
+    private void kalkuler(JSONObject person, ÅrslønnVindu vindu, GrunnbeløpVerktøy gjeldende, StringBuilder tekst) {
+        vindu.nullstill();
+        JSONArray årslønner = person.getJSONArray("årslønner");
+        for (int i = 0; i < årslønner.length(); i++) {
+            JSONObject årslønn = årslønner.getJSONObject(i);
+            vindu.leggTil(årslønn.getInt("år"), årslønn.getDouble("årslønn"));
+        }
+        GrunnbeløpVerktøy verktøy = person.has("vedtaksdato")
+                ? this.tidslinje.hentVerktøy(LocalDate.parse(person.getString("vedtaksdato")))
+                : gjeldende;
+        long beregning = Dagsatsberegning.beregnØre(vindu.hentSisteÅrslønnØre(), vindu.summerÅrslønnerØre(), verktøy);
+        Resultatstatistikk.standard().registrerBeregning(beregning);
+
+        tekst.append('{');
+        if (person.has("personId")) {
+            tekst.append("\"personId\":").append(person.getLong("personId")).append(',');
+        }
+        tekst.append("\"dagsats\":").append((long) Dagsatsberegning.hentDagsats(beregning))
+                .append(",\"beregningsmetode\":\"").append(Dagsatsberegning.hentBeregningsmetode(beregning).hentNavn())
+                .append("\",\"spesialisering\":\"").append(Dagsatsberegning.hentSpesialisering(beregning))
+                .append("\"}");
+    }
+
+    /*
+     * Gjenbruker verktøyet så lenge grunnbeløpet i mellomlageret er det samme.
+     * Kaster IllegalStateException hvis grunnbeløpet aldri har latt seg hente.
+     */
+    private GrunnbeløpVerktøy hentGjeldendeVerktøy() {
+        double grunnbeløp = this.grunnbeløpCache.hentGrunnbeløp();
+        GrunnbeløpVerktøy verktøy = this.gjeldendeVerktøy;
+        if (verktøy == null || verktøy.hentGrunnbeløp() != grunnbeløp) {
+            verktøy = new GrunnbeløpVerktøy(grunnbeløp);
+            this.gjeldendeVerktøy = verktøy;
+        }
+        return verktøy;
+    }
+
+    private static String feil(String melding) {
+        return "{\"feil\":" + JSONObject.quote(melding) + "}";
+    }
+
+    private static void svar(HttpExchange utveksling, int status, String innholdstype, String tekst) throws IOException {
+        byte[] innhold = tekst.getBytes(StandardCharsets.UTF_8);
+        utveksling.getResponseHeaders().set("Content-Type", innholdstype);
+        utveksling.sendResponseHeaders(status, innhold.length);
+        utveksling.getResponseBody().write(innhold);
+        utveksling.close();
+    }
+}
@@ -0,0 +1,79 @@
+package no.nav.årslønn;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fil som er minnekartlagt i deler på <code>DEL</code> byte, så den kan være større enn de 2 GB én
+ * <code>MappedByteBuffer</code> rekker over. Posisjoner er <code>long</code>, og verdier som er justert
+ * etter sin egen størrelse krysser aldri en delegrense.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+final class KartlagtFil {
+
+    /* Størrelsen på hver del: 64 MB. */
+    static final int DEL = 1 << 26;
+    private static final int DELBITER = Integer.numberOfTrailingZeros(DEL);
+
+    private final Path fil;
+    /* Byttes ut i sin helhet av utvid, så en leser uten lås alltid ser en tabell der alle delene er kartlagt. */
+    private volatile MappedByteBuffer[] deler = new MappedByteBuffer[0];
+    private long størrelse;
+
+    /* Kartlegger de første størrelse byte av filen, og oppretter eller forlenger filen om nødvendig. */
+    KartlagtFil(Path fil, long størrelse) throws IOException {
+        this.fil = fil;
+        utvid(størrelse);
+    }
+
+    /* Kartlegger filen fram til ny størrelse. Delene som allerede er kartlagt beholdes. */
+    void utvid(long nyStørrelse) throws IOException {
+        if (nyStørrelse <= this.størrelse) {
+            return;
+        }
+        int antallDeler = (int) ((nyStørrelse + DEL - 1) >>> DELBITER);
+        MappedByteBuffer[] nye = Arrays.copyOf(this.deler, antallDeler);
+        try (FileChannel kanal = FileChannel.open(this.fil, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            /* En del som ikke var full, kartlegges på nytt med full lengde. */
+            for (int del = Math.max(0, this.deler.length - 1); del < antallDeler; del++) {
+                long start = (long) del << DELBITER;
+                nye[del] = kanal.map(FileChannel.MapMode.READ_WRITE, start, Math.min(DEL, nyStørrelse - start));
+            }
+        }
+        this.deler = nye;
+        this.størrelse = nyStørrelse;
+    }
+
+    long størrelse() {
+        return this.størrelse;
+    }
+
+    long getLong(long posisjon) {
+        return this.deler[(int) (posisjon >>> DELBITER)].getLong((int) posisjon & (DEL - 1));
+    }
+
+    void putLong(long posisjon, long verdi) {
+        this.deler[(int) (posisjon >>> DELBITER)].putLong((int) posisjon & (DEL - 1), verdi);
+    }
+
+    int getInt(long posisjon) {
+        return this.deler[(int) (posisjon >>> DELBITER)].getInt((int) posisjon & (DEL - 1));
+    }
+
+    void putInt(long posisjon, int verdi) {
+        this.deler[(int) (posisjon >>> DELBITER)].putInt((int) posisjon & (DEL - 1), verdi);
+    }
+
+    /* Tvinger alt som er skrevet ut på disk. */
+    void force() {
+        for (MappedByteBuffer del : this.deler) {
+            del.force();
+        }
+    }
+}
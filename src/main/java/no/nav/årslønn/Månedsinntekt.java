@@ -0,0 +1,72 @@
+package no.nav.årslønn;
+
+import no.nav.beløp.Øre;
+
+import java.time.YearMonth;
+
+/**
+ * Representerer en person sin inntekt i én kalendermåned, slik den kommer fra en månedlig inntektsrapport.
+ * En ny rapport for en måned som allerede er rapportert, er en korreksjon og erstatter den gamle.
+ * Inntekten lagres i hele øre, så summer og sammenligninger blir eksakte.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public class Månedsinntekt {
+
+    private final YearMonth måned;
+    private final long inntektØre;
+
+    /**
+     * Oppretter en månedsinntekt i kroner, rundet til nærmeste øre.
+     * @param måned Måneden inntekten tilhører.
+     * @param inntekt Inntekten i kroner.
+     */
+    public Månedsinntekt(YearMonth måned, double inntekt) {
+        this(måned, Øre.fraKroner(inntekt));
+    }
+
+    /* Privat, så et heltall som new Månedsinntekt(måned, 45000) alltid tolkes som kroner. */
+    private Månedsinntekt(YearMonth måned, long inntektØre) {
+        /* Feilhåndtering: Kaster unntak hvis måneden er null. */
+        if (måned == null) {
+            throw new IllegalArgumentException("Måned kan ikke være uten verdi (null).");
+        }
+        this.måned = måned;
+        this.inntektØre = inntektØre;
+    }
+
+    /**
+     * Oppretter en månedsinntekt i øre.
+     * @param måned Måneden inntekten tilhører.
+     * @param inntektØre Inntekten i øre.
+     * @return månedsinntekten.
+     */
+    public static Månedsinntekt fraØre(YearMonth måned, long inntektØre) {
+        return new Månedsinntekt(måned, inntektØre);
+    }
+
+    /**
+     * Henter måneden inntekten tilhører.
+     * @return måneden.
+     */
+    public YearMonth hentMåned() {
+        return måned;
+    }
+
+    /**
+     * Henter inntekten.
+     * @return inntekten i kroner.
+     */
+    public double hentInntekt() {
+        return Øre.tilKroner(inntektØre);
+    }
+
+    /**
+     * Henter inntekten i øre.
+     * @return inntekten i øre.
+     */
+    public long hentInntektØre() {
+        return inntektØre;
+    }
+}
@@ -0,0 +1,175 @@
+package no.nav.årslønn;
+
+import no.nav.beløp.Øre;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Register over en person sine månedsinntekter, lagret som løpende summer fra første rapporterte måned.
+ * Plass <code>i</code> i summene er inntekten for alle månedene før måned nummer <code>i</code>, så inntekten
+ * for et hvilket som helst sammenhengende tidsrom, for eksempel de siste 12 eller 36 månedene før søknaden,
+ * er differansen mellom to plasser, uansett hvor lang historikken er.
+ *
+ * Måneder uten rapport regnes som måneder uten inntekt. En ny måned etter den siste legges til på slutten.
+ * En korreksjon av en tidligere måned endrer bare summene fra den måneden og ut, som for ferske korreksjoner
+ * er noen få plasser. Registeret er ikke trådsikkert, på samme måte som <code>ÅrslønnRegister</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public class MånedsinntektRegister {
+
+    /** Antall måneder reglene for siste årslønn ser tilbake. */
+    public static final int MÅNEDER_SISTE_ÅR = 12;
+    /** Antall måneder reglene for de tre siste årene ser tilbake. */
+    public static final int MÅNEDER_TRE_ÅR = 36;
+
+    /* Hvor langt tidsrom et register kan dekke, så en feil i en rapport ikke gir en enorm tabell. */
+    static final int MAKS_ANTALL_MÅNEDER = 100 * 12;
+
+    /* Første måned i registeret, som antall måneder siden år 0. */
+    private int førsteMåned;
+    private int antallMåneder;
+    /* summer[i] er inntekten i øre for månedene før måned nummer i. Plassene etter antallMåneder er ubrukte. */
+    private long[] summer = new long[1 + MÅNEDER_TRE_ÅR];
+
+    /**
+     * Legger til inntekten for en måned, eller erstatter inntekten hvis måneden finnes fra før.
+     * @param månedsinntekt Inntekten som skal legges til.
+     */
+    public void leggTil(Månedsinntekt månedsinntekt) {
+        /* Feilhåndtering: Kaster unntak hvis månedsinntekten er null. */
+        if (månedsinntekt == null) {
+            throw new IllegalArgumentException("Månedsinntekt kan ikke være uten verdi (null).");
+        }
+        leggTilØre(tilMånedsnummer(månedsinntekt.hentMåned()), månedsinntekt.hentInntektØre());
+    }
+
+    private void leggTilØre(int måned, long inntektØre) {
+        if (this.antallMåneder == 0) {
+            this.førsteMåned = måned;
+            this.antallMåneder = 1;
+        } else if (måned < this.førsteMåned) {
+            /* Eldre enn alt i registeret: flytter summene, og månedene imellom blir uten inntekt. */
+            int flytt = this.førsteMåned - måned;
+            int antall = sjekkAntall(this.antallMåneder + flytt);
+            long[] nye = new long[Math.max(this.summer.length, antall + 1)];
+            System.arraycopy(this.summer, 0, nye, flytt, this.antallMåneder + 1);
+            this.summer = nye;
+            this.førsteMåned = måned;
+            this.antallMåneder = antall;
+        } else if (måned >= this.førsteMåned + this.antallMåneder) {
+            /* Nyere enn alt i registeret: månedene imellom blir uten inntekt. */
+            int antall = sjekkAntall(måned - this.førsteMåned + 1);
+            if (antall + 1 > this.summer.length) {
+                this.summer = Arrays.copyOf(this.summer, Math.max(antall + 1, 2 * this.summer.length));
+            }
+            Arrays.fill(this.summer, this.antallMåneder + 1, antall + 1, this.summer[this.antallMåneder]);
+            this.antallMåneder = antall;
+        }
+
+        int plass = måned - this.førsteMåned;
+        long endring = inntektØre - (this.summer[plass + 1] - this.summer[plass]);
+        if (endring != 0) {
+            for (int i = plass + 1; i <= this.antallMåneder; i++) {
+                this.summer[i] += endring;
+            }
+        }
+    }
+
+    /**
+     * Henter inntekten for en måned.
+     * @param måned Måneden.
+     * @return inntekten i øre, 0 hvis måneden ikke er rapportert.
+     */
+    public long hentØre(YearMonth måned) {
+        return summerØre(måned, måned);
+    }
+
+    /**
+     * Summerer inntekten for alle månedene i et tidsrom.
+     * @param fraOgMed Første måned i tidsrommet.
+     * @param tilOgMed Siste måned i tidsrommet.
+     * @return summen i øre, 0 hvis tidsrommet er tomt eller ingen måneder i det er rapportert.
+     */
+    public long summerØre(YearMonth fraOgMed, YearMonth tilOgMed) {
+        /* Feilhåndtering: Kaster unntak hvis en av månedene er null. */
+        if (fraOgMed == null || tilOgMed == null) {
+            throw new IllegalArgumentException("Måned kan ikke være uten verdi (null).");
+        }
+        return summer(tilMånedsnummer(fraOgMed), tilMånedsnummer(tilOgMed));
+    }
+
+    /**
+     * Summerer inntekten for et antall hele måneder før en gitt måned, for eksempel de 12 eller 36 månedene
+     * før søknadsmåneden. Selve måneden er ikke med.
+     * @param måned Måneden det summeres tilbake fra, for eksempel søknadsmåneden.
+     * @param antallMåneder Antall måneder å summere.
+     * @return summen i øre.
+     */
+    public long summerFørØre(YearMonth måned, int antallMåneder) {
+        /* Feilhåndtering: Kaster unntak ved manglende måned eller ugyldig antall. */
+        if (måned == null) {
+            throw new IllegalArgumentException("Måned kan ikke være uten verdi (null).");
+        }
+        if (antallMåneder <= 0) {
+            throw new IllegalArgumentException("Antall måneder må være større enn null.");
+        }
+        int tilOgMed = tilMånedsnummer(måned) - 1;
+        return summer(tilOgMed - antallMåneder + 1, tilOgMed);
+    }
+
+    /**
+     * Summerer inntekten for et antall hele måneder før en gitt måned.
+     * @param måned Måneden det summeres tilbake fra.
+     * @param antallMåneder Antall måneder å summere.
+     * @return summen i kroner.
+     * @see #summerFørØre(YearMonth, int)
+     */
+    public double summerFør(YearMonth måned, int antallMåneder) {
+        return Øre.tilKroner(summerFørØre(måned, antallMåneder));
+    }
+
+    /**
+     * Henter antall måneder fra første til siste rapporterte måned, medregnet måneder uten rapport imellom.
+     * @return antall måneder.
+     */
+    public int hentAntallMåneder() {
+        return this.antallMåneder;
+    }
+
+    /**
+     * Henter den siste rapporterte måneden.
+     * @return siste måned, eller null hvis registeret er tomt.
+     */
+    public YearMonth hentSisteMåned() {
+        if (this.antallMåneder == 0) {
+            return null;
+        }
+        int måned = this.førsteMåned + this.antallMåneder - 1;
+        return YearMonth.of(Math.floorDiv(måned, 12), Math.floorMod(måned, 12) + 1);
+    }
+
+    /* Summen for månedene fra og med første til og med siste, begrenset til månedene i registeret. */
+    private long summer(int fraOgMed, int tilOgMed) {
+        int fra = Math.max(fraOgMed - this.førsteMåned, 0);
+        int til = Math.min(tilOgMed - this.førsteMåned, this.antallMåneder - 1);
+        if (fra > til) {
+            return 0;
+        }
+        return this.summer[til + 1] - this.summer[fra];
+    }
+
+    private static int sjekkAntall(int antallMåneder) {
+        /* Feilhåndtering: Kaster unntak hvis registeret ville dekket et urimelig langt tidsrom. */
+        if (antallMåneder > MAKS_ANTALL_MÅNEDER) {
+            throw new IllegalArgumentException("Inntektene kan ikke dekke mer enn " + MAKS_ANTALL_MÅNEDER + " måneder.");
+        }
+        return antallMåneder;
+    }
+
+    private static int tilMånedsnummer(YearMonth måned) {
+        return måned.getYear() * 12 + måned.getMonthValue() - 1;
+    }
+}
@@ -0,0 +1,48 @@
+package no.nav.årslønn;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Samler en strøm av månedlige inntektsrapporter og korreksjoner for mange personer i ett
+ * <code>MånedsinntektRegister</code> per person. Hver rapport legges inn i registeret til personen med en gang,
+ * så historikken aldri må summeres på nytt når en person skal kalkuleres.
+ * Klassen er ikke trådsikker. Rapportene leses inn fra én tråd.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public class Månedsinntekter {
+
+    private final Map<Long, MånedsinntektRegister> registre = new HashMap<>();
+
+    /**
+     * Legger inn en rapport for en person. En rapport for en måned som finnes fra før, er en korreksjon.
+     * @param personId Id-en til personen.
+     * @param månedsinntekt Inntekten personen har hatt i måneden.
+     */
+    public void motta(long personId, Månedsinntekt månedsinntekt) {
+        /* Feilhåndtering: Kaster unntak hvis månedsinntekten er null, før det lages et register. */
+        if (månedsinntekt == null) {
+            throw new IllegalArgumentException("Månedsinntekt kan ikke være uten verdi (null).");
+        }
+        this.registre.computeIfAbsent(personId, id -> new MånedsinntektRegister()).leggTil(månedsinntekt);
+    }
+
+    /**
+     * Henter registeret til en person.
+     * @param personId Id-en til personen.
+     * @return registeret, eller null hvis det ikke har kommet noen rapporter for personen.
+     */
+    public MånedsinntektRegister hentRegister(long personId) {
+        return this.registre.get(personId);
+    }
+
+    /**
+     * Henter antall personer det har kommet rapporter for.
+     * @return antall personer.
+     */
+    public int hentAntallPersoner() {
+        return this.registre.size();
+    }
+}
@@ -0,0 +1,193 @@
+package no.nav.årslønn;
+
+import no.nav.beløp.Øre;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Lager syntetiske inntektshistorikker for tester og ytelsestester, uten ekte persondata og uten grunnbeløp API'et.
+ *
+ * Historikken til en person avhenger bare av frøet og person-id-en, så samme person blir lik hver gang,
+ * uansett rekkefølge og antall tråder. Inntektene er gitt i grunnbeløp, og fordelt slik at alle reglene blir brukt:
+ * - 10 % med lav inntekt og mange år uten inntekt.
+ * - 20 % med siste årslønn tett rundt 1.5G.
+ * - 20 % med lav siste årslønn, men summen av de tre siste årene tett rundt 3G.
+ * - 40 % med vanlige inntekter mellom 1.6G og 6G, der noen år er uten inntekt.
+ * - 10 % med inntekt over 6G, med en lang hale.
+ * Hver person har fra tre til fem år, og for omtrent en tredjedel kommer årene i tilfeldig rekkefølge.
+ *
+ * @author Mila Toneff
+ * @version 1.0
+ */
+public final class SyntetiskBefolkning {
+
+    /** Det nyeste året i historikkene. */
+    public static final int SISTE_ÅR = 2023;
+
+    /* Hvor tett rundt tersklene personene nær 1.5G og 3G ligger, som andel av terskelen. */
+    private static final double SPREDNING_TERSKEL = 0.03;
+    /* Formen på halen over 6G. Lavere verdi gir flere svært høye inntekter. */
+    private static final double HALEEKSPONENT = 2.5;
+    private static final double MAKS_GRUNNBELØP = 100;
+
+    private final long frø;
+    private final long grunnbeløpØre;
+
+    /**
+     * Oppretter en generator med gitt frø og grunnbeløp.
+     * @param frø Frøet alle historikkene avledes fra.
+     * @param grunnbeløp Grunnbeløpet i kroner som inntektene fordeles rundt.
+     */
+    public SyntetiskBefolkning(long frø, double grunnbeløp) {
+        /* Feilhåndtering: Kaster unntak ved ugyldig grunnbeløp. */
+        if (!(grunnbeløp > 0)) {
+            throw new IllegalArgumentException("Grunnbeløp må være større enn null.");
+        }
+        this.frø = frø;
+        this.grunnbeløpØre = Øre.fraKroner(grunnbeløp);
+    }
+
+    /**
+     * Lager inntektshistorikken til en person, i den rekkefølgen årene ville kommet inn.
+     * @param personId Id-en til personen.
+     * @return Årslønnene til personen, fra tre til fem år.
+     */
+    public Årslønn[] generer(long personId) {
+        SplittableRandom tilfeldig = new SplittableRandom(bland(this.frø + personId * 0xBF58476D1CE4E5B9L));
+        long[] øre = new long[3 + tilfeldig.nextInt(3)];
+        double profil = tilfeldig.nextDouble();
+        if (profil < 0.1) {
+            lagLav(tilfeldig, øre);
+        } else if (profil < 0.3) {
+            lagNærSisteÅrslønn(tilfeldig, øre);
+        } else if (profil < 0.5) {
+            lagNærTreÅr(tilfeldig, øre);
+        } else if (profil < 0.9) {
+            lagVanlig(tilfeldig, øre);
+        } else {
+            lagHøy(tilfeldig, øre);
+        }
+
+        /* øre[0] er det nyeste året. */
+        Årslønn[] årslønner = new Årslønn[øre.length];
+        for (int i = 0; i < øre.length; i++) {
+            årslønner[i] = Årslønn.fraØre(SISTE_ÅR - i, øre[i]);
+        }
+        if (tilfeldig.nextInt(3) == 0) {
+            for (int i = årslønner.length - 1; i > 0; i--) {
+                int j = tilfeldig.nextInt(i + 1);
+                Årslønn byttet = årslønner[i];
+                årslønner[i] = årslønner[j];
+                årslønner[j] = byttet;
+            }
+        } else {
+            /* Eldste år først, slik årene vanligvis kommer. */
+            for (int i = 0, j = årslønner.length - 1; i < j; i++, j--) {
+                Årslønn byttet = årslønner[i];
+                årslønner[i] = årslønner[j];
+                årslønner[j] = byttet;
+            }
+        }
+        return årslønner;
+    }
+
+    /**
+     * Skriver historikkene til et antall personer til en CSV-fil som <code>ÅrslønnFilLeser</code> kan lese,
+     * med alle radene til en person etter hverandre.
+     * @param fil Filen som skrives.
+     * @param førstePersonId Id-en til den første personen. De neste får fortløpende id-er.
+     * @param antallPersoner Antall personer som skrives.
+     * @return Antall årslønner som ble skrevet.
+     * @throws IOException Hvis filen ikke kan skrives.
+     */
+    public long skrivFil(Path fil, long førstePersonId, int antallPersoner) throws IOException {
+        /* Feilhåndtering: Kaster unntak ved manglende fil eller ugyldig antall. */
+        if (fil == null) {
+            throw new IllegalArgumentException("Fil kan ikke være uten verdi (null).");
+        }
+        if (antallPersoner < 0) {
+            throw new IllegalArgumentException("Antall personer kan ikke være negativt.");
+        }
+        long antallPoster = 0;
+        StringBuilder linje = new StringBuilder(48);
+        try (BufferedWriter ut = Files.newBufferedWriter(fil, StandardCharsets.UTF_8)) {
+            ut.write("personId,år,årslønn\n");
+            for (long personId = førstePersonId; personId < førstePersonId + antallPersoner; personId++) {
+                for (Årslønn årslønn : generer(personId)) {
+                    long øre = årslønn.hentÅrslønnØre();
+                    linje.setLength(0);
+                    linje.append(personId).append(',').append(årslønn.hentÅretForLønn()).append(',')
+                            .append(øre / Øre.PER_KRONE).append('.');
+                    if (øre % Øre.PER_KRONE < 10) {
+                        linje.append('0');
+                    }
+                    linje.append(øre % Øre.PER_KRONE).append('\n');
+                    ut.append(linje);
+                    antallPoster++;
+                }
+            }
+        }
+        return antallPoster;
+    }
+
+    /* Under 1.5G hvert år, og ofte uten inntekt. */
+    private void lagLav(SplittableRandom tilfeldig, long[] øre) {
+        for (int i = 0; i < øre.length; i++) {
+            øre[i] = tilfeldig.nextInt(5) < 2 ? 0 : andelAvG(tilfeldig.nextDouble(1.2));
+        }
+    }
+
+    /* Siste årslønn like over eller under 1.5G, eldre år under. */
+    private void lagNærSisteÅrslønn(SplittableRandom tilfeldig, long[] øre) {
+        øre[0] = andelAvG(1.5 * (1 + tilfeldig.nextDouble(-SPREDNING_TERSKEL, SPREDNING_TERSKEL)));
+        for (int i = 1; i < øre.length; i++) {
+            øre[i] = andelAvG(tilfeldig.nextDouble(1.5));
+        }
+    }
+
+    /* Siste årslønn under 1.5G, men de tre siste årene til sammen like over eller under 3G. */
+    private void lagNærTreÅr(SplittableRandom tilfeldig, long[] øre) {
+        long sum = andelAvG(3 * (1 + tilfeldig.nextDouble(-SPREDNING_TERSKEL, SPREDNING_TERSKEL)));
+        øre[0] = andelAvG(tilfeldig.nextDouble(0.5, 1.4));
+        long resten = sum - øre[0];
+        øre[1] = (long) (resten * tilfeldig.nextDouble(0.3, 0.7));
+        øre[2] = resten - øre[1];
+        for (int i = 3; i < øre.length; i++) {
+            øre[i] = andelAvG(tilfeldig.nextDouble(2));
+        }
+    }
+
+    /* Et fast inntektsnivå mellom 1.6G og 6G som varierer litt fra år til år. */
+    private void lagVanlig(SplittableRandom tilfeldig, long[] øre) {
+        double nivå = tilfeldig.nextDouble(1.6, 6);
+        for (int i = 0; i < øre.length; i++) {
+            boolean utenInntekt = i > 0 && tilfeldig.nextInt(10) == 0;
+            øre[i] = utenInntekt ? 0 : andelAvG(nivå * tilfeldig.nextDouble(0.9, 1.1));
+        }
+    }
+
+    /* Over 6G, fordelt som en Pareto-hale, og vanlige inntekter de eldre årene. */
+    private void lagHøy(SplittableRandom tilfeldig, long[] øre) {
+        double nivå = Math.min(MAKS_GRUNNBELØP, 6 / Math.pow(1 - tilfeldig.nextDouble(), 1 / HALEEKSPONENT));
+        øre[0] = andelAvG(nivå);
+        for (int i = 1; i < øre.length; i++) {
+            øre[i] = andelAvG(nivå * tilfeldig.nextDouble(0.5, 1.1));
+        }
+    }
+
+    private long andelAvG(double andel) {
+        return Math.round(this.grunnbeløpØre * andel);
+    }
+
+    /* Sprer bitene i frøet, så personer med naboid-er får uavhengige tallrekker. */
+    private static long bland(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
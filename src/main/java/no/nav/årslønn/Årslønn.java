@@ -1,20 +1,43 @@
 package no.nav.årslønn;
 
+import no.nav.beløp.Øre;
+
 /**
  * Representeren en person sin lønn et kalenderår.
  * Holder på informasjon som hvilket år lønnen tilhører, og selve lønnen det kalenderåret.
+ * Lønnen lagres i hele øre, så summer og sammenligninger blir eksakte.
  *
  * @author Emil Elton Nilsen
- * @version 1.0
+ * @version 1.1
  */
 public class Årslønn {
 
     private final int åretForLønn;
-    private final double årslønn;
+    private final long årslønnØre;
 
+    /**
+     * Oppretter en årslønn i kroner, rundet til nærmeste øre.
+     * @param åretForLønn Året lønnen tilhører.
+     * @param årslønn Lønnen i kroner.
+     */
     public Årslønn(int åretForLønn, double årslønn) {
+        this(åretForLønn, Øre.fraKroner(årslønn));
+    }
+
+    /* Privat, så et heltall som new Årslønn(2024, 550000) alltid tolkes som kroner. */
+    private Årslønn(int åretForLønn, long årslønnØre) {
         this.åretForLønn = åretForLønn;
-        this.årslønn = årslønn;
+        this.årslønnØre = årslønnØre;
+    }
+
+    /**
+     * Oppretter en årslønn i øre.
+     * @param åretForLønn Året lønnen tilhører.
+     * @param årslønnØre Lønnen i øre.
+     * @return årslønnen.
+     */
+    public static Årslønn fraØre(int åretForLønn, long årslønnØre) {
+        return new Årslønn(åretForLønn, årslønnØre);
     }
 
     /**
@@ -27,10 +50,18 @@ public class Årslønn {
 
     /**
      * Henter årslønnen.
-     * @return årslønnen.
+     * @return årslønnen i kroner.
      */
     public double hentÅrslønn() {
-        return årslønn;
+        return Øre.tilKroner(årslønnØre);
+    }
+
+    /**
+     * Henter årslønnen i øre.
+     * @return årslønnen i øre.
+     */
+    public long hentÅrslønnØre() {
+        return årslønnØre;
     }
 
 }
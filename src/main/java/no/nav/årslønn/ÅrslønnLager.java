@@ -0,0 +1,526 @@
+package no.nav.årslønn;
+
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Lager over årslønnene til mange personer, i minnekartlagte filer utenfor Java-heapen. Lageret er ment for
+ * en hel befolkning, der en <code>DagpengerKalkulator</code> med et register per person ville gitt titalls
+ * millioner små objekter på heapen.
+ *
+ * Lageret er to filer i en mappe:
+ * - Postene, der hver årslønn er en post på 32 byte med person-id, år, lønn i øre, plassen til personens
+ *   forrige post og en sjekksum. Poster legges bare til på slutten, og en korreksjon er en ny post for samme år.
+ * - Indeksen, en åpen hashtabell på person-id med 64 byte, altså én cache-linje, per person. Plassen holder de
+ *   tre nyeste årene med lønn, som i <code>ÅrslønnVindu</code>, og plassen til personens nyeste post.
+ *   Siste årslønn og summen av de tre siste årene leses dermed i ett oppslag, uten å gå gjennom postene.
+ *
+ * Etter <code>lagre</code> eller <code>close</code> er indeksen merket som ren, og neste åpning kartlegger bare
+ * filene, uansett hvor mange personer lageret har. Før første endring etter det merkes indeksen som skitten.
+ * Åpnes et lager med skitten indeks, typisk etter et krasj, bygges indeksen opp igjen fra postene, og første
+ * post med feil sjekksum markerer slutten.
+ *
+ * Oppslag kan gjøres fra mange tråder samtidig med tillegg. Et oppslag leser uten lås, og leser på nytt med lås
+ * bare hvis et tillegg kom imellom.
+ *
+ * Bare én prosess kan ha lageret åpent om gangen. Det sikres med en fillås i mappen, som slippes ved <code>close</code>.
+ *
+ * @author Mila Toneff
+ * @version 1.2
+ */
+public final class ÅrslønnLager implements AutoCloseable {
+
+    /* Oppsett av en post. */
+    static final int POSTSTØRRELSE = 32;
+    private static final int POST_LØNN = 8;
+    private static final int POST_FORRIGE = 16;
+    private static final int POST_ÅR = 24;
+    private static final int POST_SJEKKSUM = 28;
+
+    /* Oppsett av en plass i indeksen. Person-id 0 markerer en ledig plass. */
+    static final int PLASSSTØRRELSE = 64;
+    private static final int PLASS_NYESTE_POST = 8;
+    private static final int PLASS_LØNN = 16;
+    private static final int PLASS_ÅR = 40;
+    private static final int PLASS_ANTALL = 52;
+
+    /* Begge filene starter med et hode på 64 byte med kjennetegn. Indeksen har også kapasitet, antall personer
+    og antall poster den dekker, der -1 betyr at indeksen er skitten. */
+    private static final int HODESTØRRELSE = 64;
+    private static final long KJENNETEGN_POSTER = 0x494e4e5445_4b5450L;
+    private static final long KJENNETEGN_INDEKS = 0x494e4e5445_4b4958L;
+    private static final int HODE_KAPASITET = 8;
+    private static final int HODE_ANTALL_PERSONER = 16;
+    private static final int HODE_ANTALL_POSTER = 24;
+
+    /* Hvor mange ganger indeksen er bygget på nytt fordi den var skitten eller ødelagt ved åpning. */
+    private static final Teller GJENOPPBYGD = Metrikker.teller("årslønn.lager.indeks_gjenoppbygd");
+
+    private static final String POSTFIL = "inntekter.poster";
+    private static final String INDEKSFIL = "inntekter.indeks";
+    /* Filen fillåsen tas på. Den åpnes ikke til noe annet, så ingen annen kanal kan slippe låsen ved et uhell. */
+    private static final String LÅSFIL = "inntekter.lås";
+    private static final long MINSTE_KAPASITET = 1024;
+
+    private final Path mappe;
+    private final KartlagtFil poster;
+    /* Holder fillåsen på mappen så lenge lageret er åpent. */
+    private final FileChannel låsfil;
+    /* Tillegg tar skrivelåsen. Oppslag leser optimistisk, og tar leselåsen bare hvis et tillegg kom imellom. */
+    private final StampedLock lås = new StampedLock();
+    /* Indeksen byttes ut når den blir for full. Volatil, så et oppslag uten lås aldri ser en halvt publisert indeks. */
+    private volatile Indeks indeks;
+    private long antallPoster;
+    /* Om indeksen er endret siden den sist ble merket som ren. */
+    private boolean skitten;
+    private boolean lukket;
+    /* Vindu til å oppdatere indeksen, brukt under skrivelåsen. */
+    private final ÅrslønnVindu skrivevindu = new ÅrslønnVindu();
+
+    private ÅrslønnLager(Path mappe, FileChannel låsfil) throws IOException {
+        this.mappe = mappe;
+        this.låsfil = låsfil;
+        Path postfil = mappe.resolve(POSTFIL);
+        long filstørrelse = Files.isRegularFile(postfil) ? Files.size(postfil) : 0;
+        this.poster = new KartlagtFil(postfil, Math.max(KartlagtFil.DEL, (filstørrelse + KartlagtFil.DEL - 1) & -KartlagtFil.DEL));
+        long kjennetegn = this.poster.getLong(0);
+        if (kjennetegn == 0) {
+            this.poster.putLong(0, KJENNETEGN_POSTER);
+        } else if (kjennetegn != KJENNETEGN_POSTER) {
+            throw new IOException("Ugyldig postfil i årslønnlageret: " + postfil);
+        }
+        this.indeks = lesIndeks();
+        if (this.indeks == null) {
+            gjenoppbyggIndeks();
+        }
+    }
+
+    /**
+     * Åpner lageret i gitt mappe. Er indeksen ren, går åpningen like raskt uansett størrelse.
+     * @param mappe Mappen lageret ligger i. Opprettes hvis den ikke finnes.
+     * @return Det åpne lageret.
+     * @throws IOException hvis lageret ikke kan leses eller opprettes.
+     */
+    public static ÅrslønnLager åpne(Path mappe) throws IOException {
+        /* Feilhåndtering: Kaster unntak hvis mappen mangler. */
+        if (mappe == null) {
+            throw new IllegalArgumentException("Mappe kan ikke være uten verdi (null).");
+        }
+        Files.createDirectories(mappe);
+        FileChannel låsfil = FileChannel.open(mappe.resolve(LÅSFIL), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            /* Feilhåndtering: Kaster unntak hvis en annen prosess, eller et annet lager i denne prosessen, har mappen åpen. */
+            FileLock lås;
+            try {
+                lås = låsfil.tryLock();
+            } catch (OverlappingFileLockException exception) {
+                lås = null;
+            }
+            if (lås == null) {
+                throw new IOException("Årslønnlageret i " + mappe + " er allerede åpnet av en annen.");
+            }
+            return new ÅrslønnLager(mappe, låsfil);
+        } catch (IOException | RuntimeException exception) {
+            låsfil.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Legger til en årslønn for en person. Har personen allerede en årslønn for samme år, erstatter den nye
+     * den gamle, som i <code>ÅrslønnRegister</code>.
+     * @param personId Id-en til personen. Kan ikke være 0.
+     * @param åretForLønn Året lønnen tilhører.
+     * @param årslønnØre Lønnen i øre.
+     */
+    public void leggTilØre(long personId, int åretForLønn, long årslønnØre) {
+        /* Feilhåndtering: Kaster unntak hvis person-id er 0, som markerer ledige plasser i indeksen. */
+        if (personId == 0) {
+            throw new IllegalArgumentException("Person-id kan ikke være 0.");
+        }
+        long stempel = this.lås.writeLock();
+        try {
+            if (this.lukket) {
+                throw new IllegalStateException("Årslønnlageret er lukket.");
+            }
+            if (!this.skitten) {
+                /* Merket må være på disk før indeksen endres, så et krasj aldri etterlater en halvendret ren indeks. */
+                this.indeks.fil.putLong(HODE_ANTALL_POSTER, -1);
+                this.indeks.fil.force();
+                this.skitten = true;
+            }
+            long post = this.antallPoster;
+            if (posisjon(post + 1) > this.poster.størrelse()) {
+                this.poster.utvid(this.poster.størrelse() + KartlagtFil.DEL);
+            }
+            long plass = this.indeks.finn(personId);
+            long forrige = plass < 0 ? -1 : this.indeks.fil.getLong(this.indeks.posisjon(plass) + PLASS_NYESTE_POST);
+            skrivPost(post, personId, åretForLønn, årslønnØre, forrige);
+            indekser(post, personId, åretForLønn, årslønnØre);
+            this.antallPoster = post + 1;
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Kunne ikke legge til årslønn i årslønnlageret.", exception);
+        } finally {
+            this.lås.unlockWrite(stempel);
+        }
+    }
+
+    /**
+     * Legger til en årslønn for en person.
+     * @param personId Id-en til personen. Kan ikke være 0.
+     * @param årslønn Årslønnen.
+     * @see #leggTilØre(long, int, long)
+     */
+    public void leggTil(long personId, Årslønn årslønn) {
+        /* Feilhåndtering: Kaster unntak hvis årslønn er null. */
+        if (årslønn == null) {
+            throw new IllegalArgumentException("Årslønn kan ikke være uten verdi (null).");
+        }
+        leggTilØre(personId, årslønn.hentÅretForLønn(), årslønn.hentÅrslønnØre());
+    }
+
+    /**
+     * Fyller et vindu med de tre nyeste årslønnene til en person, rett fra indeksen.
+     * Vinduet kan gjenbrukes for hver person, så oppslaget lager ingen objekter.
+     * @param personId Id-en til personen.
+     * @param vindu Vinduet som nullstilles og fylles.
+     * @return True hvis personen finnes i lageret, ellers False og et tomt vindu.
+     */
+    public boolean hentVindu(long personId, ÅrslønnVindu vindu) {
+        /* Feilhåndtering: Kaster unntak hvis vinduet er null. */
+        if (vindu == null) {
+            throw new IllegalArgumentException("Vindu kan ikke være uten verdi (null).");
+        }
+        long stempel = this.lås.tryOptimisticRead();
+        if (stempel != 0) {
+            try {
+                boolean funnet = lesVindu(personId, vindu);
+                if (this.lås.validate(stempel)) {
+                    return funnet;
+                }
+            } catch (RuntimeException exception) {
+                /* Et tillegg imellom kan gi en lesing som feiler. Den gjøres på nytt med lås nedenfor. */
+            }
+        }
+        stempel = this.lås.readLock();
+        try {
+            return lesVindu(personId, vindu);
+        } finally {
+            this.lås.unlockRead(stempel);
+        }
+    }
+
+    /**
+     * Henter alle årslønnene til en person som et register, ved å følge personens poster fra den nyeste.
+     * @param personId Id-en til personen.
+     * @return Registeret med personens årslønner, eller null hvis personen ikke finnes.
+     */
+    public ÅrslønnRegister hentRegister(long personId) {
+        long stempel = this.lås.readLock();
+        try {
+            long plass = this.indeks.finn(personId);
+            if (plass < 0) {
+                return null;
+            }
+            ÅrslønnRegister register = new ÅrslønnRegister();
+            long post = this.indeks.fil.getLong(this.indeks.posisjon(plass) + PLASS_NYESTE_POST);
+            for (; post >= 0; post = this.poster.getLong(posisjon(post) + POST_FORRIGE)) {
+                int år = this.poster.getInt(posisjon(post) + POST_ÅR);
+                /* Den nyeste posten for et år gjelder, og den kommer først. */
+                if (register.hentForÅr(år) == null) {
+                    register.leggTil(Årslønn.fraØre(år, this.poster.getLong(posisjon(post) + POST_LØNN)));
+                }
+            }
+            return register;
+        } finally {
+            this.lås.unlockRead(stempel);
+        }
+    }
+
+    /**
+     * Henter antall personer i lageret.
+     * @return antall personer.
+     */
+    public int hentAntallPersoner() {
+        long stempel = this.lås.readLock();
+        try {
+            return this.indeks.antallPersoner;
+        } finally {
+            this.lås.unlockRead(stempel);
+        }
+    }
+
+    /**
+     * Henter antall poster i lageret, medregnet korreksjoner.
+     * @return antall poster.
+     */
+    public long hentAntallPoster() {
+        long stempel = this.lås.readLock();
+        try {
+            return this.antallPoster;
+        } finally {
+            this.lås.unlockRead(stempel);
+        }
+    }
+
+    /**
+     * Tvinger postene og indeksen ut på disk, og merker indeksen som ren, så neste åpning ikke trenger å
+     * bygge den opp igjen.
+     */
+    public void lagre() {
+        long stempel = this.lås.writeLock();
+        try {
+            merkRen();
+        } finally {
+            this.lås.unlockWrite(stempel);
+        }
+    }
+
+    /**
+     * Lagrer lageret og slipper fillåsen. Oppslag virker fortsatt etterpå, men nye årslønner kan ikke legges til.
+     */
+    @Override
+    public void close() {
+        long stempel = this.lås.writeLock();
+        try {
+            if (!this.lukket) {
+                merkRen();
+                this.lukket = true;
+                this.låsfil.close();
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Kunne ikke slippe låsen på årslønnlageret.", exception);
+        } finally {
+            this.lås.unlockWrite(stempel);
+        }
+    }
+
+    private boolean lesVindu(long personId, ÅrslønnVindu vindu) {
+        vindu.nullstill();
+        Indeks gjeldende = this.indeks;
+        long plass = gjeldende.finn(personId);
+        if (plass < 0) {
+            return false;
+        }
+        lesVindu(gjeldende.fil, gjeldende.posisjon(plass), vindu);
+        return true;
+    }
+
+    private static void lesVindu(KartlagtFil fil, long posisjon, ÅrslønnVindu vindu) {
+        int antall = fil.getInt(posisjon + PLASS_ANTALL);
+        for (int plass = 0; plass < antall; plass++) {
+            vindu.leggTilØre(fil.getInt(posisjon + PLASS_ÅR + plass * Integer.BYTES), fil.getLong(posisjon + PLASS_LØNN + plass * Long.BYTES));
+        }
+    }
+
+    /* Oppdaterer personens plass i indeksen med en ny post. */
+    private void indekser(long post, long personId, int år, long lønnØre) throws IOException {
+        long plass = this.indeks.finn(personId);
+        if (plass < 0) {
+            if ((this.indeks.antallPersoner + 1) * 2L > this.indeks.kapasitet) {
+                utvidIndeks();
+            }
+            plass = this.indeks.settInn(personId);
+        }
+        KartlagtFil fil = this.indeks.fil;
+        long posisjon = this.indeks.posisjon(plass);
+        this.skrivevindu.nullstill();
+        lesVindu(fil, posisjon, this.skrivevindu);
+        this.skrivevindu.leggTilØre(år, lønnØre);
+        for (int indeks = 0; indeks < this.skrivevindu.hentAntall(); indeks++) {
+            fil.putInt(posisjon + PLASS_ÅR + indeks * Integer.BYTES, this.skrivevindu.hentÅr(indeks));
+            fil.putLong(posisjon + PLASS_LØNN + indeks * Long.BYTES, this.skrivevindu.hentLønnØre(indeks));
+        }
+        fil.putInt(posisjon + PLASS_ANTALL, this.skrivevindu.hentAntall());
+        fil.putLong(posisjon + PLASS_NYESTE_POST, post);
+    }
+
+    /* Flytter alle personene til en indeks med dobbel kapasitet. */
+    private void utvidIndeks() throws IOException {
+        Indeks gammel = this.indeks;
+        Indeks ny = nyIndeks(gammel.kapasitet * 2);
+        for (long plass = 0; plass < gammel.kapasitet; plass++) {
+            long fra = gammel.posisjon(plass);
+            long personId = gammel.fil.getLong(fra);
+            if (personId != 0) {
+                long til = ny.posisjon(ny.settInn(personId));
+                for (int forskyvning = Long.BYTES; forskyvning < PLASSSTØRRELSE; forskyvning += Long.BYTES) {
+                    ny.fil.putLong(til + forskyvning, gammel.fil.getLong(fra + forskyvning));
+                }
+            }
+        }
+        ny.flytt(this.mappe.resolve(INDEKSFIL));
+        this.indeks = ny;
+    }
+
+    /* Lager en tom, skitten indeks i en midlertidig fil, som flyttes på plass når den er fylt. */
+    private Indeks nyIndeks(long kapasitet) throws IOException {
+        Path midlertidig = Files.createTempFile(this.mappe, "inntekter", ".tmp");
+        KartlagtFil fil = new KartlagtFil(midlertidig, HODESTØRRELSE + kapasitet * PLASSSTØRRELSE);
+        fil.putLong(0, KJENNETEGN_INDEKS);
+        fil.putLong(HODE_KAPASITET, kapasitet);
+        fil.putLong(HODE_ANTALL_POSTER, -1);
+        return new Indeks(midlertidig, fil, kapasitet, 0);
+    }
+
+    /* Leser indeksen hvis den er ren og dekker nøyaktig postene som finnes. Returnerer ellers null. */
+    private Indeks lesIndeks() throws IOException {
+        Path fil = this.mappe.resolve(INDEKSFIL);
+        if (!Files.isRegularFile(fil) || Files.size(fil) < HODESTØRRELSE) {
+            return null;
+        }
+        KartlagtFil kartlagt = new KartlagtFil(fil, Files.size(fil));
+        long kapasitet = kartlagt.getLong(HODE_KAPASITET);
+        long antall = kartlagt.getLong(HODE_ANTALL_POSTER);
+        if (kartlagt.getLong(0) != KJENNETEGN_INDEKS || kapasitet <= 0 || Long.bitCount(kapasitet) != 1
+                || kartlagt.størrelse() != HODESTØRRELSE + kapasitet * PLASSSTØRRELSE
+                || antall < 0 || posisjon(antall) > this.poster.størrelse()
+                || (antall > 0 && !erGyldig(antall - 1)) || erGyldig(antall)) {
+            if (Metrikker.AKTIVERT) {
+                GJENOPPBYGD.øk();
+            }
+            return null;
+        }
+        this.antallPoster = antall;
+        return new Indeks(fil, kartlagt, kapasitet, (int) kartlagt.getLong(HODE_ANTALL_PERSONER));
+    }
+
+    /* Finner slutten på postene og bygger en ny indeks fra dem. */
+    private void gjenoppbyggIndeks() throws IOException {
+        long antall = 0;
+        while (erGyldig(antall)) {
+            antall++;
+        }
+        /* Rester av halvskrevne poster ville ellers blitt lest igjen når nye poster fyller hullet. */
+        for (long posisjon = posisjon(antall); posisjon < this.poster.størrelse(); posisjon += Long.BYTES) {
+            if (this.poster.getLong(posisjon) != 0) {
+                this.poster.putLong(posisjon, 0);
+            }
+        }
+        this.indeks = nyIndeks(MINSTE_KAPASITET);
+        this.indeks.flytt(this.mappe.resolve(INDEKSFIL));
+        for (long post = 0; post < antall; post++) {
+            long posisjon = posisjon(post);
+            indekser(post, this.poster.getLong(posisjon), this.poster.getInt(posisjon + POST_ÅR), this.poster.getLong(posisjon + POST_LØNN));
+        }
+        this.antallPoster = antall;
+        this.skitten = true;
+        merkRen();
+    }
+
+    /* Tvinger alt ut på disk før indeksen merkes som ren. */
+    private void merkRen() {
+        if (!this.skitten) {
+            return;
+        }
+        this.poster.force();
+        this.indeks.fil.putLong(HODE_ANTALL_PERSONER, this.indeks.antallPersoner);
+        this.indeks.fil.force();
+        this.indeks.fil.putLong(HODE_ANTALL_POSTER, this.antallPoster);
+        this.indeks.fil.force();
+        this.skitten = false;
+    }
+
+    private void skrivPost(long post, long personId, int år, long lønnØre, long forrige) {
+        long posisjon = posisjon(post);
+        this.poster.putLong(posisjon, personId);
+        this.poster.putLong(posisjon + POST_LØNN, lønnØre);
+        this.poster.putLong(posisjon + POST_FORRIGE, forrige);
+        this.poster.putInt(posisjon + POST_ÅR, år);
+        this.poster.putInt(posisjon + POST_SJEKKSUM, sjekksum(personId, lønnØre, forrige, år));
+    }
+
+    /* Sjekker at posten er hel og peker bakover til en tidligere post. */
+    private boolean erGyldig(long post) {
+        long posisjon = posisjon(post);
+        if (posisjon + POSTSTØRRELSE > this.poster.størrelse()) {
+            return false;
+        }
+        long personId = this.poster.getLong(posisjon);
+        long lønnØre = this.poster.getLong(posisjon + POST_LØNN);
+        long forrige = this.poster.getLong(posisjon + POST_FORRIGE);
+        int år = this.poster.getInt(posisjon + POST_ÅR);
+        return personId != 0 && forrige >= -1 && forrige < post
+                && this.poster.getInt(posisjon + POST_SJEKKSUM) == sjekksum(personId, lønnØre, forrige, år);
+    }
+
+    private static long posisjon(long post) {
+        return HODESTØRRELSE + post * POSTSTØRRELSE;
+    }
+
+    /* Sjekksum som avslører halvskrevne og tomme poster. Aldri 0 for en tom post. */
+    private static int sjekksum(long personId, long lønnØre, long forrige, int år) {
+        long blanding = (personId * 0x9E3779B97F4A7C15L) ^ (lønnØre * 0xC2B2AE3D27D4EB4FL)
+                ^ (forrige * 0x165667B19E3779F9L) ^ (år * 0x27D4EB2F165667C5L);
+        blanding ^= blanding >>> 31;
+        return (int) (blanding ^ (blanding >>> 32)) ^ 0x5EED5EED;
+    }
+
+    /* Hashtabellen over personer, med lineær prøving. Kapasiteten er en toerpotens og holdes minst dobbelt
+    så stor som antall personer, så det alltid finnes ledige plasser. */
+    private static final class Indeks {
+        private Path sti;
+        private final KartlagtFil fil;
+        private final long kapasitet;
+        private int antallPersoner;
+
+        private Indeks(Path sti, KartlagtFil fil, long kapasitet, int antallPersoner) {
+            this.sti = sti;
+            this.fil = fil;
+            this.kapasitet = kapasitet;
+            this.antallPersoner = antallPersoner;
+        }
+
+        private long finn(long personId) {
+            long maske = this.kapasitet - 1;
+            for (long plass = spre(personId) & maske; ; plass = (plass + 1) & maske) {
+                long nøkkel = this.fil.getLong(posisjon(plass));
+                if (nøkkel == personId) {
+                    return plass;
+                }
+                if (nøkkel == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /* Setter inn en person som ikke finnes fra før, uten årslønner og uten poster. */
+        private long settInn(long personId) {
+            long maske = this.kapasitet - 1;
+            long plass = spre(personId) & maske;
+            while (this.fil.getLong(posisjon(plass)) != 0) {
+                plass = (plass + 1) & maske;
+            }
+            this.fil.putLong(posisjon(plass) + PLASS_NYESTE_POST, -1);
+            this.fil.putLong(posisjon(plass), personId);
+            this.antallPersoner++;
+            return plass;
+        }
+
+        private long posisjon(long plass) {
+            return HODESTØRRELSE + plass * PLASSSTØRRELSE;
+        }
+
+        /* Flytter indeksfilen på plass. Kartleggingen følger med filen. */
+        private void flytt(Path til) throws IOException {
+            Files.move(this.sti, til, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.sti = til;
+        }
+
+        private static long spre(long personId) {
+            long blanding = personId * 0x9E3779B97F4A7C15L;
+            return blanding ^ (blanding >>> 32);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package no.nav.årslønn;
+
+import no.nav.beløp.Øre;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Register over en person sine årslønner, ordnet etter år med nyeste år først.
+ * Hvert år finnes bare én gang. Legges det til en årslønn for et år som allerede finnes, erstatter den
+ * den gamle, slik at korreksjoner kan komme i vilkårlig rekkefølge.
+ * Registeret holder summen av de tre nyeste årene oppdatert ved hvert innlegg, slik at reglene for dagpenger
+ * kan lese den uten å gå gjennom årslønnene på nytt. Summene regnes i øre, så de er eksakte.
+ *
+ * @author Mila Toneff
+ * @version 1.1
+ */
+public class ÅrslønnRegister implements Iterable<Årslønn> {
+
+    /* Antall år som summeres løpende. */
+    public static final int ANTALL_ÅR_I_LØPENDE_SUM = 3;
+
+    /* Årslønnene ordnet med nyeste år først. */
+    private final TreeMap<Integer, Årslønn> årslønner = new TreeMap<>(Comparator.reverseOrder());
+    /* Summen av de inntil tre nyeste årslønnene, og den nyeste årslønnen. */
+    private long løpendeSumØre;
+    private Årslønn nyeste;
+
+    /**
+     * Legger til en årslønn, eller erstatter årslønnen for samme år hvis den finnes fra før.
+     * @param årslønn Årslønnen som skal legges til.
+     * @return Årslønnen som ble erstattet, eller null hvis året ikke fantes fra før.
+     */
+    public Årslønn leggTil(Årslønn årslønn) {
+        /* Feilhåndtering: Kaster unntak hvis årslønn er null. */
+        if (årslønn == null) {
+            throw new IllegalArgumentException("Årslønn kan ikke være uten verdi (null).");
+        }
+        Årslønn erstattet = this.årslønner.put(årslønn.hentÅretForLønn(), årslønn);
+
+        /* Den løpende summen må bare regnes ut på nytt hvis året er blant de tre nyeste. */
+        if (erBlantNyligeÅr(årslønn.hentÅretForLønn())) {
+            oppdaterLøpendeSum();
+        }
+        return erstattet;
+    }
+
+    /**
+     * Henter antall år i registeret.
+     * @return antall årslønner.
+     */
+    public int hentAntall() {
+        return this.årslønner.size();
+    }
+
+    /**
+     * Sjekker om registeret er tomt.
+     * @return True hvis registeret ikke har noen årslønner, ellers False.
+     */
+    public boolean erTomt() {
+        return this.årslønner.isEmpty();
+    }
+
+    /**
+     * Henter den nyeste årslønnen.
+     * @return nyeste årslønn, eller null hvis registeret er tomt.
+     */
+    public Årslønn hentNyeste() {
+        return this.nyeste;
+    }
+
+    /**
+     * Henter årslønnen for et gitt år.
+     * @param år Året for lønnen.
+     * @return årslønnen, eller null hvis året ikke finnes i registeret.
+     */
+    public Årslønn hentForÅr(int år) {
+        return this.årslønner.get(år);
+    }
+
+    /**
+     * Henter årslønnen på gitt plass, der plass 0 er nyeste år.
+     * @param indeks Plassen til årslønnen.
+     * @return årslønnen på gitt plass.
+     */
+    public Årslønn hentVedIndeks(int indeks) {
+        /* Feilhåndtering: Kaster unntak hvis indeksen er utenfor registeret. */
+        if (indeks < 0 || indeks >= this.årslønner.size()) {
+            throw new IndexOutOfBoundsException("Indeks må være mellom 0 og " + (this.årslønner.size() - 1) + ".");
+        }
+        if (indeks == 0) {
+            return this.nyeste;
+        }
+        Iterator<Årslønn> iterator = this.årslønner.values().iterator();
+        for (int hoppOver = 0; hoppOver < indeks; hoppOver++) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    /**
+     * Summerer de nyeste årslønnene. Summen av de tre nyeste årene er regnet ut på forhånd.
+     * @param antallÅr Antall år å summere. Er det færre år i registeret, summeres alle.
+     * @return summen av de nyeste årslønnene i kroner.
+     */
+    public double summerNyligeÅr(int antallÅr) {
+        return Øre.tilKroner(summerNyligeÅrØre(antallÅr));
+    }
+
+    /**
+     * Summerer de nyeste årslønnene i øre. Summen av de tre nyeste årene er regnet ut på forhånd.
+     * @param antallÅr Antall år å summere. Er det færre år i registeret, summeres alle.
+     * @return summen av de nyeste årslønnene i øre.
+     */
+    public long summerNyligeÅrØre(int antallÅr) {
+        /* Feilhåndtering: Kaster unntak hvis antall år er 0 eller mindre. */
+        if (antallÅr <= 0) {
+            throw new IllegalArgumentException("Antall år må være større enn null.");
+        }
+        if (antallÅr == ANTALL_ÅR_I_LØPENDE_SUM || (antallÅr > ANTALL_ÅR_I_LØPENDE_SUM
+                && this.årslønner.size() <= ANTALL_ÅR_I_LØPENDE_SUM)) {
+            return this.løpendeSumØre;
+        }
+        return summer(antallÅr);
+    }
+
+    /**
+     * Itererer over årslønnene med nyeste år først.
+     * @return iterator over årslønnene, uten mulighet til å fjerne.
+     */
+    @Override
+    public Iterator<Årslønn> iterator() {
+        return Collections.unmodifiableCollection(this.årslønner.values()).iterator();
+    }
+
+    /* Sjekker om et år i registeret er blant de tre nyeste. */
+    private boolean erBlantNyligeÅr(int år) {
+        if (this.årslønner.size() <= ANTALL_ÅR_I_LØPENDE_SUM) {
+            return true;
+        }
+        /* Året er blant de tre nyeste hvis det ikke er eldre enn det tredje nyeste året. */
+        Iterator<Integer> nyesteÅr = this.årslønner.keySet().iterator();
+        int tredjeNyesteÅr = nyesteÅr.next();
+        for (int plass = 1; plass < ANTALL_ÅR_I_LØPENDE_SUM; plass++) {
+            tredjeNyesteÅr = nyesteÅr.next();
+        }
+        return år >= tredjeNyesteÅr;
+    }
+
+    private void oppdaterLøpendeSum() {
+        this.nyeste = this.årslønner.firstEntry().getValue();
+        this.løpendeSumØre = summer(ANTALL_ÅR_I_LØPENDE_SUM);
+    }
+
+    /* Summerer de nyeste årene i rekkefølge, nyeste først. */
+    private long summer(int antallÅr) {
+        long sum = 0;
+        int summert = 0;
+        for (Map.Entry<Integer, Årslønn> oppføring : this.årslønner.entrySet()) {
+            if (summert++ == antallÅr) {
+                break;
+            }
+            sum += oppføring.getValue().hentÅrslønnØre();
+        }
+        return sum;
+    }
+}
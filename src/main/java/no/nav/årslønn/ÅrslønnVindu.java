@@ -0,0 +1,130 @@
+package no.nav.årslønn;
+
+import no.nav.beløp.Øre;
+
+/**
+ * Holder på de tre nyeste årslønnene til én person mens årslønnene leses inn i vilkårlig rekkefølge.
+ * Vinduet brukes der en person sine årslønner kommer som rader, for eksempel i batch-kalkulering,
+ * slik at det ikke trengs en liste med <code>Årslønn</code>-objekter per person.
+ * Et vindu kan nullstilles og gjenbrukes for neste person uten nye allokeringer.
+ *
+ * Har en person flere årslønner for samme år, erstatter den sist innleste de tidligere,
+ * på samme måte som i <code>ÅrslønnRegister</code>. Lønnene holdes i øre.
+ *
+ * @author Mila Toneff
+ * @version 1.2
+ */
+public final class ÅrslønnVindu {
+
+    /* Antall år vinduet holder på. */
+    public static final int ANTALL_ÅR = 3;
+
+    /* År og lønn, sortert med nyeste år først. */
+    private final int[] år = new int[ANTALL_ÅR];
+    private final long[] lønn = new long[ANTALL_ÅR];
+    private int antall;
+
+    /**
+     * Tømmer vinduet slik at det kan brukes for en ny person.
+     */
+    public void nullstill() {
+        this.antall = 0;
+    }
+
+    /**
+     * Legger til en årslønn i vinduet. Er året eldre enn de tre nyeste, blir årslønnen ikke tatt vare på.
+     * @param åretForLønn året lønnen tilhører.
+     * @param årslønn lønnen det året i kroner, rundet til nærmeste øre.
+     */
+    public void leggTil(int åretForLønn, double årslønn) {
+        leggTilØre(åretForLønn, Øre.fraKroner(årslønn));
+    }
+
+    /**
+     * Legger til en årslønn i øre i vinduet. Er året eldre enn de tre nyeste, blir årslønnen ikke tatt vare på.
+     * @param åretForLønn året lønnen tilhører.
+     * @param årslønnØre lønnen det året i øre.
+     */
+    public void leggTilØre(int åretForLønn, long årslønnØre) {
+        /* Finner plassen til årslønnen: etter alle nyere år. */
+        int plass = 0;
+        while (plass < this.antall && this.år[plass] > åretForLønn) {
+            plass++;
+        }
+        if (plass >= ANTALL_ÅR) {
+            return;
+        }
+        /* Året finnes fra før, så lønnen erstattes. */
+        if (plass < this.antall && this.år[plass] == åretForLønn) {
+            this.lønn[plass] = årslønnØre;
+            return;
+        }
+        /* Flytter eldre årslønner ett hakk bak, den eldste faller ut hvis vinduet er fullt. */
+        int siste = Math.min(this.antall, ANTALL_ÅR - 1);
+        for (int indeks = siste; indeks > plass; indeks--) {
+            this.år[indeks] = this.år[indeks - 1];
+            this.lønn[indeks] = this.lønn[indeks - 1];
+        }
+        this.år[plass] = åretForLønn;
+        this.lønn[plass] = årslønnØre;
+        this.antall = siste + 1;
+    }
+
+    /**
+     * Henter antall årslønner i vinduet.
+     * @return antall årslønner, maks tre.
+     */
+    public int hentAntall() {
+        return this.antall;
+    }
+
+    /* Året på gitt plass, der plass 0 er nyeste år. Brukes av ÅrslønnLager for å lagre vinduet. */
+    int hentÅr(int plass) {
+        return this.år[plass];
+    }
+
+    /* Lønnen i øre på gitt plass, der plass 0 er nyeste år. */
+    long hentLønnØre(int plass) {
+        return this.lønn[plass];
+    }
+
+    /**
+     * Henter den nyeste årslønnen i vinduet.
+     * @return siste årslønn i kroner.
+     */
+    public double hentSisteÅrslønn() {
+        return Øre.tilKroner(hentSisteÅrslønnØre());
+    }
+
+    /**
+     * Henter den nyeste årslønnen i vinduet i øre.
+     * @return siste årslønn i øre.
+     */
+    public long hentSisteÅrslønnØre() {
+        /* Feilhåndtering: Kaster unntak hvis vinduet er tomt. */
+        if (this.antall == 0) {
+            throw new IllegalStateException("Vinduet har ingen årslønner.");
+        }
+        return this.lønn[0];
+    }
+
+    /**
+     * Summerer årslønnene i vinduet, altså de tre nyeste årene.
+     * @return summen av årslønnene i kroner.
+     */
+    public double summerÅrslønner() {
+        return Øre.tilKroner(summerÅrslønnerØre());
+    }
+
+    /**
+     * Summerer årslønnene i vinduet i øre, altså de tre nyeste årene.
+     * @return summen av årslønnene i øre.
+     */
+    public long summerÅrslønnerØre() {
+        long sum = 0;
+        for (int indeks = 0; indeks < this.antall; indeks++) {
+            sum += this.lønn[indeks];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,77 @@
+package dagpenger;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchKalkuleringTester {
+
+    private static final GrunnbeløpVerktøy GRUNNBELØP_VERKTØY = new GrunnbeløpVerktøy(124028);
+
+    @Test
+    public void testBatchGirSammeResultatSomÉnOgÉnPerson() {
+        Random tilfeldig = new Random(42);
+        int antallRader = 60000;
+        long[] personIder = new long[antallRader];
+        int[] år = new int[antallRader];
+        double[] årslønner = new double[antallRader];
+
+        /* Personer med 1-6 år i vilkårlig rekkefølge, av og til med samme år flere ganger. */
+        int rad = 0;
+        long personId = 1000;
+        while (rad < antallRader) {
+            int antallÅr = Math.min(1 + tilfeldig.nextInt(6), antallRader - rad);
+            for (int i = 0; i < antallÅr; i++, rad++) {
+                personIder[rad] = personId;
+                år[rad] = 2018 + tilfeldig.nextInt(7);
+                årslønner[rad] = tilfeldig.nextInt(5) == 0 ? 0 : tilfeldig.nextInt(1_000_000);
+            }
+            personId += 1 + tilfeldig.nextInt(3);
+        }
+
+        BatchResultat batchResultat = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, GRUNNBELØP_VERKTØY);
+
+        rad = 0;
+        for (int person = 0; person < batchResultat.hentAntallPersoner(); person++) {
+            DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator(GRUNNBELØP_VERKTØY);
+            assertEquals(personIder[rad], batchResultat.hentPersonId(person));
+            while (rad < antallRader && personIder[rad] == batchResultat.hentPersonId(person)) {
+                dagpengerKalkulator.leggTilÅrslønn(new Årslønn(år[rad], årslønner[rad]));
+                rad++;
+            }
+            assertEquals(dagpengerKalkulator.kalkulerDagsats(), batchResultat.hentDagsats(person));
+            assertEquals(dagpengerKalkulator.velgSpesialisering(), batchResultat.hentSpesialisering(person));
+        }
+        assertEquals(antallRader, rad);
+    }
+
+    @Test
+    public void testBatchMedEksempelpersoner() {
+        long[] personIder = {1, 1, 1, 2, 2, 2, 3, 3, 3};
+        int[] år = {2024, 2022, 2023, 2024, 2023, 2022, 2024, 2023, 2022};
+        double[] årslønner = {550000, 110000, 24000, 830000, 24000, 110000, 80000, 100000, 70000};
+
+        BatchResultat batchResultat = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, GRUNNBELØP_VERKTØY);
+
+        assertEquals(3, batchResultat.hentAntallPersoner());
+        assertEquals(2116, batchResultat.hentDagsats(0));
+        assertEquals(Spesialisering.INNVILGET, batchResultat.hentSpesialisering(0));
+        assertEquals(2863, batchResultat.hentDagsats(1));
+        assertEquals(Spesialisering.INNVILGET_MED_MAKSSATS, batchResultat.hentSpesialisering(1));
+        assertEquals(0, batchResultat.hentDagsats(2));
+        assertEquals(Spesialisering.AVSLAG_FOR_LAV_INNTEKT, batchResultat.hentSpesialisering(2));
+    }
+
+    @Test
+    public void testBatchMedUliktLangeKolonnerGirUnntak() {
+        assertThrows(IllegalArgumentException.class, () -> DagpengerKalkulator.kalkulerDagsatser(
+                new long[2], new int[1], new double[2], GRUNNBELØP_VERKTØY));
+    }
+}
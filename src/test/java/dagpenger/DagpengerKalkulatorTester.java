@@ -1,13 +1,29 @@
 package dagpenger;
 
 import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.FastGrunnbeløpKilde;
+import no.nav.grunnbeløp.GrunnbeløpCache;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
 import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DagpengerKalkulatorTester {
 
+    /* Grunnbeløpet fra 1. mai 2024, som forventede dagsatser under er regnet ut fra. */
+    private static final double GRUNNBELØP = 124028;
+
+    @BeforeAll
+    public static void settOppGrunnbeløp() {
+        GrunnbeløpCache.settStandard(new GrunnbeløpCache(new FastGrunnbeløpKilde(GRUNNBELØP), Duration.ofHours(12)));
+    }
+
     @Test
     public void testSkalHaRettigheterTilDagpengerUtifraSisteTreÅrslønner()  {
         DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator();
@@ -107,4 +123,71 @@ public class DagpengerKalkulatorTester {
         dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 70000));
         assertEquals(0, dagpengerKalkulator.kalkulerDagsats());
     }
+
+    @Test
+    public void testResultatHarDagsatsOgSpesialisering() {
+        DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator();
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2024, 830000));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2023, 24000));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 110000));
+        Resultat resultat = dagpengerKalkulator.kalkulerResultat();
+        assertEquals(2863, resultat.hentBeregnetDagsats());
+        assertEquals(Spesialisering.INNVILGET_MED_MAKSSATS, resultat.hentSpesialisering());
+    }
+
+    @Test
+    public void testResultatVedAvslag() {
+        DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator();
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2024, 80000));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2023, 100000));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 70000));
+        Resultat resultat = dagpengerKalkulator.kalkulerResultat();
+        assertEquals(0, resultat.hentBeregnetDagsats());
+        assertEquals(Spesialisering.AVSLAG_FOR_LAV_INNTEKT, resultat.hentSpesialisering());
+    }
+
+    @Test
+    public void testDagsatsAvGjennomsnittRegnesEksaktIØre() {
+        /* Summen er nøyaktig 1219 * 3 * 260 kr. Med double ble summen litt for stor, og dagsatsen rundet opp til 1220. */
+        DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator();
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2024, 253064.07));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2023, 454367.78));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 243388.15));
+        assertEquals("GJENNOMSNITTET_AV_TRE_ÅR", dagpengerKalkulator.velgBeregningsMetode());
+        assertEquals(1219, dagpengerKalkulator.kalkulerDagsats());
+    }
+
+    @Test
+    public void testSisteÅrslønnLikGjennomsnittetBrukerGjennomsnittet() {
+        DagpengerKalkulator dagpengerKalkulator = new DagpengerKalkulator();
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2024, 400000.10));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2023, 400000.05));
+        dagpengerKalkulator.leggTilÅrslønn(new Årslønn(2022, 400000.15));
+        assertEquals("GJENNOMSNITTET_AV_TRE_ÅR", dagpengerKalkulator.velgBeregningsMetode());
+        assertEquals(1539, dagpengerKalkulator.kalkulerDagsats());
+    }
+
+    @Test
+    public void testTersklerIHeleØre() {
+        /* 1.5G er 150000,015 kr, så 150000,01 kr er under terskelen og 150000,02 kr over. */
+        GrunnbeløpVerktøy grunnbeløpVerktøy = new GrunnbeløpVerktøy(100000.01);
+        assertEquals(10000001, grunnbeløpVerktøy.hentGrunnbeløpØre());
+        assertEquals(15000002, grunnbeløpVerktøy.hentMinimumÅrslønnØre());
+        assertEquals(30000003, grunnbeløpVerktøy.hentTreÅrsGrunnbeløpØre());
+        assertEquals(60000006, grunnbeløpVerktøy.hentMaksÅrligDagpengegrunnlagØre());
+
+        DagpengerKalkulator underTerskelen = new DagpengerKalkulator(grunnbeløpVerktøy);
+        underTerskelen.leggTilÅrslønn(Årslønn.fraØre(2024, 15000001));
+        assertFalse(underTerskelen.harRettigheterTilDagpenger());
+        DagpengerKalkulator overTerskelen = new DagpengerKalkulator(grunnbeløpVerktøy);
+        overTerskelen.leggTilÅrslønn(Årslønn.fraØre(2024, 15000002));
+        assertTrue(overTerskelen.harRettigheterTilDagpenger());
+    }
+
+    @Test
+    public void testUgyldigeBeløp() {
+        assertThrows(IllegalArgumentException.class, () -> new Årslønn(2024, Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new Årslønn(2024, 1e16));
+        assertEquals(55000012, new Årslønn(2024, 550000.123).hentÅrslønnØre());
+    }
 }
@@ -0,0 +1,127 @@
+package dagpenger;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.DagsatsCache;
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagsatsCacheTester {
+
+    private static final GrunnbeløpVerktøy G_2024 = new GrunnbeløpVerktøy(124028);
+    private static final GrunnbeløpVerktøy G_2025 = new GrunnbeløpVerktøy(130160);
+
+    @Test
+    public void testSammeBeregningSomUtenMellomlager() {
+        DagsatsCache cache = new DagsatsCache(1 << 12);
+        Random tilfeldig = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            /* Få ulike verdier, så mange oppslag treffer. */
+            double siste = tilfeldig.nextInt(20) * 50000.0;
+            double sum = siste + tilfeldig.nextInt(20) * 100000.0;
+            GrunnbeløpVerktøy verktøy = i % 2 == 0 ? G_2024 : G_2025;
+            assertEquals(Dagsatsberegning.beregn(siste, sum, verktøy), cache.beregn(siste, sum, verktøy));
+        }
+        assertEquals(20_000, cache.hentAntallTreff() + cache.hentAntallBom());
+        assertTrue(cache.hentTreffrate() > 0.5);
+    }
+
+    @Test
+    public void testNyttGrunnbeløpGirNyBeregning() {
+        DagsatsCache cache = new DagsatsCache(64);
+        long før = cache.beregn(1000000, 2100000, G_2024);
+        long etter = cache.beregn(1000000, 2100000, G_2025);
+        assertEquals(2863.0, Dagsatsberegning.hentDagsats(før));
+        assertEquals(3004.0, Dagsatsberegning.hentDagsats(etter));
+        assertEquals(0, cache.hentAntallTreff());
+        assertEquals(2, cache.hentAntallBom());
+    }
+
+    @Test
+    public void testKalkulatorMedMellomlager() {
+        DagsatsCache cache = new DagsatsCache(64);
+        for (int i = 0; i < 3; i++) {
+            DagpengerKalkulator kalkulator = new DagpengerKalkulator(G_2024, cache);
+            kalkulator.leggTilÅrslønn(new Årslønn(2023, 550000));
+            kalkulator.leggTilÅrslønn(new Årslønn(2022, 500000));
+            kalkulator.leggTilÅrslønn(new Årslønn(2021, 450000));
+            assertEquals(2116.0, kalkulator.kalkulerDagsats());
+            assertTrue(kalkulator.harRettigheterTilDagpenger());
+        }
+        assertEquals(1, cache.hentAntallBom());
+        assertEquals(5, cache.hentAntallTreff());
+    }
+
+    @Test
+    public void testGjentattBatchHopperOverBeregningen() {
+        int antallPersoner = 10_000;
+        long[] personIder = new long[antallPersoner * 3];
+        int[] år = new int[antallPersoner * 3];
+        double[] årslønner = new double[antallPersoner * 3];
+        Random tilfeldig = new Random(7);
+        for (int person = 0; person < antallPersoner; person++) {
+            double lønn = tilfeldig.nextInt(2000) * 500.0;
+            for (int j = 0; j < 3; j++) {
+                personIder[person * 3 + j] = person + 1;
+                år[person * 3 + j] = 2021 + j;
+                årslønner[person * 3 + j] = lønn;
+            }
+        }
+        DagsatsCache cache = new DagsatsCache(1 << 14);
+        BatchResultat første = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, G_2024, cache);
+        long bomFørste = cache.hentAntallBom();
+        BatchResultat andre = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, G_2024, cache);
+        BatchResultat utenMellomlager = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, G_2024);
+
+        assertArrayEquals(utenMellomlager.hentDagsatser(), første.hentDagsatser());
+        assertArrayEquals(utenMellomlager.hentDagsatser(), andre.hentDagsatser());
+        assertArrayEquals(utenMellomlager.hentSpesialiseringer(), andre.hentSpesialiseringer());
+        /* Andre kjøring skal nesten bare treffe. */
+        assertTrue(cache.hentAntallBom() - bomFørste < antallPersoner / 10);
+    }
+
+    @Test
+    public void testBatchMedTidslinjeBrukerMellomlageret() {
+        long[] personIder = {1, 2, 3, 4};
+        int[] år = {2023, 2023, 2023, 2023};
+        double[] årslønner = {1000000, 1000000, 550000, 550000};
+        long[] vedtaksdager = {
+                LocalDate.of(2023, 12, 1).toEpochDay(), LocalDate.of(2024, 6, 1).toEpochDay(),
+                LocalDate.of(2023, 12, 1).toEpochDay(), LocalDate.of(2024, 6, 1).toEpochDay()};
+        GrunnbeløpTidslinje tidslinje = GrunnbeløpTidslinje.historisk();
+        DagsatsCache cache = new DagsatsCache(64);
+
+        BatchResultat utenMellomlager = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, vedtaksdager, tidslinje);
+        BatchResultat første = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, vedtaksdager, tidslinje, cache);
+        assertEquals(4, cache.hentAntallBom());
+        BatchResultat andre = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, vedtaksdager, tidslinje, cache);
+        assertEquals(4, cache.hentAntallTreff());
+
+        assertArrayEquals(utenMellomlager.hentDagsatser(), første.hentDagsatser());
+        assertArrayEquals(utenMellomlager.hentDagsatser(), andre.hentDagsatser());
+        assertArrayEquals(utenMellomlager.hentSpesialiseringer(), andre.hentSpesialiseringer());
+        assertEquals(2738.0, andre.hentDagsats(0));
+        assertEquals(2863.0, andre.hentDagsats(1));
+    }
+
+    @Test
+    public void testKapasitetOgTømming() {
+        DagsatsCache cache = new DagsatsCache(1000);
+        assertEquals(1024, cache.hentKapasitet());
+        cache.beregn(100, 300, G_2024);
+        cache.beregn(100, 300, G_2024);
+        cache.tøm();
+        assertEquals(0, cache.hentAntallTreff());
+        cache.beregn(100, 300, G_2024);
+        assertEquals(1, cache.hentAntallBom());
+        assertThrows(IllegalArgumentException.class, () -> new DagsatsCache(0));
+    }
+}
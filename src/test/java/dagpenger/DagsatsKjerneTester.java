@@ -0,0 +1,98 @@
+package dagpenger;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.DagsatsKjerne;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagsatsKjerneTester {
+
+    private static final GrunnbeløpVerktøy GRUNNBELØP_VERKTØY = new GrunnbeløpVerktøy(124028);
+
+    @Test
+    public void testKjernenErVektorisertITestene() {
+        assertTrue(DagsatsKjerne.erVektorisert());
+    }
+
+    @Test
+    public void testKjernenGirSammeResultatSomDagsatsberegning() {
+        /* Et antall som ikke går opp i vektorlengden, så resten etter siste hele vektor også blir sjekket. */
+        int antall = 100_003;
+        long[] siste = new long[antall];
+        long[] sum = new long[antall];
+        Random tilfeldig = new Random(7);
+        long[] terskler = {
+                GRUNNBELØP_VERKTØY.hentMinimumÅrslønnØre(),
+                GRUNNBELØP_VERKTØY.hentTreÅrsGrunnbeløpØre(),
+                GRUNNBELØP_VERKTØY.hentMaksÅrligDagpengegrunnlagØre()
+        };
+        for (int person = 0; person < antall; person++) {
+            siste[person] = switch (person % 4) {
+                /* Rett rundt en terskel. */
+                case 0 -> terskler[tilfeldig.nextInt(3)] + tilfeldig.nextInt(3) - 1;
+                case 1 -> tilfeldig.nextLong(150_000_000);
+                case 2 -> tilfeldig.nextInt(10) == 0 ? -tilfeldig.nextLong(1_000_000) : 0;
+                default -> tilfeldig.nextLong(100_000_000);
+            };
+            sum[person] = switch (person % 3) {
+                /* Siste årslønn lik gjennomsnittet, eller rett ved siden av. */
+                case 0 -> siste[person] * 3 + tilfeldig.nextInt(3) - 1;
+                case 1 -> siste[person] + tilfeldig.nextLong(200_000_000);
+                default -> terskler[1] + tilfeldig.nextInt(3) - 1;
+            };
+        }
+        /* Beløp for store til å regnes eksakt i double tas av den vanlige løkken. */
+        siste[17] = 1L << 55;
+        sum[17] = 3L << 55;
+
+        long[] vektor = new long[antall];
+        long[] skalar = new long[antall];
+        DagsatsKjerne.beregn(siste, sum, GRUNNBELØP_VERKTØY, vektor);
+        DagsatsKjerne.beregnSkalar(siste, sum, GRUNNBELØP_VERKTØY, skalar);
+        for (int person = 0; person < antall; person++) {
+            assertEquals(Dagsatsberegning.beregnØre(siste[person], sum[person], GRUNNBELØP_VERKTØY), vektor[person],
+                    "siste=" + siste[person] + " sum=" + sum[person]);
+        }
+        assertArrayEquals(skalar, vektor);
+    }
+
+    @Test
+    public void testKjernenGirSammeDagsatsSomKalkulatoren() {
+        Random tilfeldig = new Random(11);
+        int antall = 1000;
+        long[] siste = new long[antall];
+        long[] sum = new long[antall];
+        DagpengerKalkulator[] kalkulatorer = new DagpengerKalkulator[antall];
+        for (int person = 0; person < antall; person++) {
+            long[] årslønner = {tilfeldig.nextLong(100_000_000), tilfeldig.nextLong(100_000_000), tilfeldig.nextLong(100_000_000)};
+            kalkulatorer[person] = new DagpengerKalkulator(GRUNNBELØP_VERKTØY);
+            for (int år = 0; år < 3; år++) {
+                kalkulatorer[person].leggTilÅrslønn(Årslønn.fraØre(2024 - år, årslønner[år]));
+            }
+            siste[person] = årslønner[0];
+            sum[person] = årslønner[0] + årslønner[1] + årslønner[2];
+        }
+
+        long[] beregninger = new long[antall];
+        DagsatsKjerne.beregn(siste, sum, GRUNNBELØP_VERKTØY, beregninger);
+        for (int person = 0; person < antall; person++) {
+            assertEquals(kalkulatorer[person].kalkulerDagsats(), Dagsatsberegning.hentDagsats(beregninger[person]));
+            assertEquals(kalkulatorer[person].velgSpesialisering(), Dagsatsberegning.hentSpesialisering(beregninger[person]));
+            assertEquals(kalkulatorer[person].velgBeregningsMetode(), Dagsatsberegning.hentBeregningsmetode(beregninger[person]).hentNavn());
+        }
+    }
+
+    @Test
+    public void testUliktLangeKolonnerGirUnntak() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DagsatsKjerne.beregn(new long[3], new long[2], GRUNNBELØP_VERKTØY, new long[3]));
+        assertThrows(IllegalArgumentException.class,
+                () -> DagsatsKjerne.beregn(new long[3], new long[3], null, new long[3]));
+    }
+}
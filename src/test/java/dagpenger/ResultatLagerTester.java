@@ -0,0 +1,205 @@
+package dagpenger;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.Behandlingsstatus;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.ResultatLager;
+import no.nav.dagpenger.Resultatoversikt;
+import no.nav.dagpenger.Resultatstatistikk;
+import no.nav.dagpenger.Saksbehandler;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultatLagerTester {
+
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+
+    @Test
+    public void testLagerFraBatchResultatHarSammeKolonner() {
+        BatchResultat batchResultat = DagpengerKalkulator.kalkulerDagsatser(
+                new long[]{1, 1, 1, 2, 2, 2, 3, 3, 3},
+                new int[]{2024, 2023, 2022, 2024, 2023, 2022, 2024, 2023, 2022},
+                new double[]{550000, 24000, 110000, 830000, 24000, 110000, 80000, 100000, 70000},
+                new GrunnbeløpVerktøy(124028));
+
+        ResultatLager lager = ResultatLager.fra(batchResultat);
+
+        assertEquals(3, lager.hentAntall());
+        assertEquals(3, lager.hentKapasitet());
+        for (int plass = 0; plass < 3; plass++) {
+            assertEquals(batchResultat.hentPersonId(plass), lager.hentPersonId(plass));
+            assertEquals(batchResultat.hentDagsats(plass), lager.hentDagsats(plass));
+            assertEquals(batchResultat.hentSpesialisering(plass), lager.hentSpesialisering(plass));
+            assertEquals(Behandlingsstatus.UBEHANDLET, lager.hentStatus(plass));
+        }
+        assertEquals(2116.0, lager.hentDagsats(0));
+        assertEquals(Spesialisering.INNVILGET_MED_MAKSSATS, lager.hentSpesialisering(1));
+    }
+
+    @Test
+    public void testVisningFlyttesOgBehandlerILageret() {
+        ResultatLager lager = new ResultatLager(4);
+        lager.leggTil(11, 2116, Spesialisering.INNVILGET);
+        lager.leggTil(12, 0, Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+
+        ResultatLager.Visning visning = lager.hentVisning(0);
+        assertEquals(11, visning.hentPersonId());
+        assertEquals(2116.0, visning.hentBeregnetDagsats());
+        assertEquals(Spesialisering.INNVILGET, visning.hentSpesialisering());
+        assertFalse(visning.erBehandlet());
+        assertTrue(visning.behandle(true));
+        assertFalse(visning.behandle(false));
+        assertTrue(visning.erGodkjent());
+        assertEquals(Behandlingsstatus.GODKJENT, lager.hentStatus(0));
+
+        assertSame(visning, visning.flytt(1));
+        assertEquals(1, visning.hentPlass());
+        assertEquals(12, visning.hentPersonId());
+        visning.settGodkjenning(false);
+        assertTrue(visning.erBehandlet());
+        assertFalse(visning.erGodkjent());
+        assertEquals(Behandlingsstatus.AVSLÅTT, lager.hentStatus(1));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> visning.flytt(2));
+    }
+
+    @Test
+    public void testLetingGirSammeSvarSomÉnOgÉnPlass() {
+        Random tilfeldig = new Random(5);
+        /* Lengder som ikke går opp i åtte, og lange strekk uten treff. */
+        for (int antall : new int[]{0, 1, 7, 8, 9, 63, 1000, 4099}) {
+            ResultatLager lager = new ResultatLager(antall);
+            for (int plass = 0; plass < antall; plass++) {
+                Spesialisering spesialisering = tilfeldig.nextInt(10) < 8
+                        ? Spesialisering.INNVILGET : SPESIALISERINGER[tilfeldig.nextInt(SPESIALISERINGER.length)];
+                lager.leggTil(plass + 1, tilfeldig.nextInt(3000), spesialisering);
+            }
+            for (Spesialisering spesialisering : SPESIALISERINGER) {
+                List<Integer> forventet = new ArrayList<>();
+                long forventetSum = 0;
+                for (int plass = 0; plass < antall; plass++) {
+                    if (lager.hentSpesialisering(plass) == spesialisering) {
+                        forventet.add(plass);
+                        forventetSum += (long) lager.hentDagsats(plass);
+                    }
+                }
+                List<Integer> funnet = new ArrayList<>();
+                lager.forHver(spesialisering, funnet::add);
+                assertEquals(forventet, funnet, antall + " plasser, " + spesialisering);
+                assertEquals(forventet.size(), lager.tell(spesialisering));
+                assertEquals(forventetSum, lager.summerDagsatser(spesialisering));
+                for (int fra = 0; fra < Math.min(antall, 20); fra++) {
+                    int første = fra;
+                    int neste = forventet.stream().filter(plass -> plass >= første).findFirst().orElse(-1);
+                    assertEquals(neste, lager.finnNeste(spesialisering, fra));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSaksbehandlereBehandlerHvertResultatÉnGang() throws Exception {
+        int antall = 20_000;
+        ResultatLager lager = new ResultatLager(antall);
+        for (int plass = 0; plass < antall; plass++) {
+            lager.leggTil(plass + 1, 2116, plass % 3 == 0 ? Spesialisering.AVSLAG_FOR_LAV_INNTEKT : Spesialisering.INNVILGET);
+        }
+        int saksbehandlere = 4;
+        int behandlet = 0;
+        try (ExecutorService tråder = Executors.newFixedThreadPool(saksbehandlere)) {
+            List<Future<Integer>> svar = new ArrayList<>();
+            for (int i = 0; i < saksbehandlere; i++) {
+                svar.add(tråder.submit(() -> new Saksbehandler(Spesialisering.INNVILGET).behandleResultater(lager)));
+            }
+            for (Future<Integer> antallBehandlet : svar) {
+                behandlet += antallBehandlet.get();
+            }
+        }
+        assertEquals(lager.tell(Spesialisering.INNVILGET), behandlet);
+        for (int plass = 0; plass < antall; plass++) {
+            Behandlingsstatus forventet = plass % 3 == 0 ? Behandlingsstatus.UBEHANDLET : Behandlingsstatus.GODKJENT;
+            assertEquals(forventet, lager.hentStatus(plass));
+        }
+        assertEquals(0, new Saksbehandler(Spesialisering.INNVILGET).behandleResultater(lager));
+    }
+
+    @Test
+    public void testOppdatererResultatstatistikk() {
+        Resultatstatistikk statistikk = Resultatstatistikk.standard();
+        Resultatoversikt før = statistikk.hentOversikt();
+
+        /* Batch-kalkuleringen teller resultatene, så lageret teller bare overgangene. */
+        BatchResultat batchResultat = DagpengerKalkulator.kalkulerDagsatser(
+                new long[]{1, 2}, new int[]{2024, 2024}, new double[]{550000, 100000}, new GrunnbeløpVerktøy(124028));
+        Resultatoversikt etterBatch = statistikk.hentOversikt();
+        ResultatLager lager = new ResultatLager(3);
+        assertEquals(0, lager.leggTilAlle(batchResultat));
+        lager.leggTil(3, 1500, Spesialisering.INNVILGET);
+        assertTrue(lager.behandle(0, true));
+        lager.settGodkjenning(1, false);
+        lager.settGodkjenning(2, true);
+
+        Resultatoversikt etter = statistikk.hentOversikt();
+        assertEquals(etterBatch.hentAntall(), etter.hentAntall());
+        assertEquals(1, etter.hentAntall(Spesialisering.INNVILGET) - før.hentAntall(Spesialisering.INNVILGET));
+        assertEquals(1, etter.hentAntall(Spesialisering.AVSLAG_FOR_LAV_INNTEKT) - før.hentAntall(Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+        assertEquals(1, etter.hentAntallGodkjent(Spesialisering.INNVILGET) - før.hentAntallGodkjent(Spesialisering.INNVILGET));
+        assertEquals(1, etter.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT) - før.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+        assertEquals(2116.0, etter.hentSumDagsats(Spesialisering.INNVILGET) - før.hentSumDagsats(Spesialisering.INNVILGET));
+        assertEquals(2116.0, etter.hentSumGodkjentDagsats() - før.hentSumGodkjentDagsats());
+
+        /* Et beregnet resultat tar med seg at det er telt, og overgangen telles i lageret. */
+        ResultatLager enkelt = new ResultatLager(1);
+        enkelt.leggTil(Resultat.fraBeregning(4, Dagsatsberegning.beregn(100000, 100000, new GrunnbeløpVerktøy(124028))));
+        enkelt.settGodkjenning(0, false);
+        Resultatoversikt sist = statistikk.hentOversikt();
+        assertEquals(1, sist.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT) - etter.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+        assertEquals(sist.hentAntall(Spesialisering.AVSLAG_FOR_LAV_INNTEKT) - sist.hentAntallGodkjent(Spesialisering.AVSLAG_FOR_LAV_INNTEKT)
+                - sist.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT), sist.hentAntallUbehandlet(Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+    }
+
+    @Test
+    public void testBatchMedPersonIdNullLeggesIkkeInn() {
+        BatchResultat batchResultat = DagpengerKalkulator.kalkulerDagsatser(
+                new long[]{7, 0, 8}, new int[]{2024, 2024, 2024}, new double[]{550000, 550000, 550000},
+                new GrunnbeløpVerktøy(124028));
+        ResultatLager lager = new ResultatLager(3);
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTilAlle(batchResultat));
+        assertThrows(IllegalArgumentException.class, () -> ResultatLager.fra(batchResultat));
+        assertEquals(0, lager.hentAntall());
+        lager.leggTil(9, 2116, Spesialisering.INNVILGET);
+        assertEquals(9, lager.hentPersonId(0));
+    }
+
+    @Test
+    public void testUgyldigeVerdierKasterUnntak() {
+        assertThrows(IllegalArgumentException.class, () -> new ResultatLager(-1));
+        assertThrows(IllegalArgumentException.class, () -> ResultatLager.fra(null));
+
+        ResultatLager lager = new ResultatLager(1);
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTil(1, 2116, null));
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTil(1, 2116.5, Spesialisering.INNVILGET));
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTil(1, -1, Spesialisering.INNVILGET));
+        assertThrows(IllegalArgumentException.class, () -> lager.finnNeste(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTil(0, 2116, Spesialisering.INNVILGET));
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTil(new Resultat(2116, Spesialisering.INNVILGET)));
+        assertThrows(IndexOutOfBoundsException.class, () -> lager.hentPersonId(0));
+        assertEquals(0, lager.hentAntall());
+
+        lager.leggTil(1, 2116, Spesialisering.INNVILGET);
+        assertThrows(IllegalStateException.class, () -> lager.leggTil(2, 2116, Spesialisering.INNVILGET));
+        assertThrows(IndexOutOfBoundsException.class, () -> lager.behandle(1, true));
+    }
+}
@@ -0,0 +1,157 @@
+package dagpenger;
+
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Resultatoversikt;
+import no.nav.dagpenger.Resultatstatistikk;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultatstatistikkTester {
+
+    private static final Spesialisering[] SPESIALISERINGER = Spesialisering.values();
+    private static final GrunnbeløpVerktøy GRUNNBELØP_VERKTØY = new GrunnbeløpVerktøy(124028);
+
+    @Test
+    public void testTellerLagedeOgBehandledeResultater() {
+        Resultatstatistikk statistikk = Resultatstatistikk.standard();
+        Resultatoversikt før = statistikk.hentOversikt();
+
+        Resultat første = beregn(1, 550000);
+        Resultat andre = beregn(2, 390000);
+        Resultat tredje = beregn(3, 100000);
+        assertEquals(Spesialisering.INNVILGET, andre.hentSpesialisering());
+        assertEquals(1500.0, andre.hentBeregnetDagsats());
+        assertTrue(første.behandle(true));
+        assertFalse(første.behandle(false));
+        assertTrue(tredje.behandle(false));
+
+        Resultatoversikt etter = statistikk.hentOversikt();
+        assertEquals(2, etter.hentAntall(Spesialisering.INNVILGET) - før.hentAntall(Spesialisering.INNVILGET));
+        assertEquals(1, etter.hentAntallGodkjent(Spesialisering.INNVILGET) - før.hentAntallGodkjent(Spesialisering.INNVILGET));
+        assertEquals(1, etter.hentAntallUbehandlet(Spesialisering.INNVILGET) - før.hentAntallUbehandlet(Spesialisering.INNVILGET));
+        assertEquals(1, etter.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT) - før.hentAntallAvslått(Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+        assertEquals(3616.0, etter.hentSumDagsats(Spesialisering.INNVILGET) - før.hentSumDagsats(Spesialisering.INNVILGET));
+        assertEquals(3616.0, etter.hentSumDagsats() - før.hentSumDagsats());
+        assertEquals(2116.0, etter.hentSumGodkjentDagsats() - før.hentSumGodkjentDagsats());
+
+        /* Ny godkjenning flytter resultatet fra godkjent til avslått. */
+        første.settGodkjenning(false);
+        andre.settGodkjenning(true);
+        Resultatoversikt sist = statistikk.hentOversikt();
+        assertEquals(1, sist.hentAntallAvslått(Spesialisering.INNVILGET) - før.hentAntallAvslått(Spesialisering.INNVILGET));
+        assertEquals(1, sist.hentAntallGodkjent(Spesialisering.INNVILGET) - før.hentAntallGodkjent(Spesialisering.INNVILGET));
+        assertEquals(0, sist.hentAntallUbehandlet(Spesialisering.INNVILGET) - før.hentAntallUbehandlet(Spesialisering.INNVILGET));
+        assertEquals(1500.0, sist.hentSumGodkjentDagsats() - før.hentSumGodkjentDagsats());
+        assertEquals(sist.hentAntallUbehandlet(Spesialisering.INNVILGET), statistikk.hentAntallUbehandlet(Spesialisering.INNVILGET));
+    }
+
+    @Test
+    public void testResultaterSomIkkeErBeregnetTellesIkke() {
+        Resultatstatistikk statistikk = Resultatstatistikk.standard();
+        Resultatoversikt før = statistikk.hentOversikt();
+
+        /* En kopi av et resultat, for eksempel fra et annet system, er ikke en ny beregning. */
+        Resultat kopi = new Resultat(1, 2116, Spesialisering.INNVILGET);
+        assertTrue(kopi.behandle(true));
+        kopi.settGodkjenning(false);
+
+        Resultatoversikt etter = statistikk.hentOversikt();
+        for (Spesialisering spesialisering : SPESIALISERINGER) {
+            assertEquals(før.hentAntall(spesialisering), etter.hentAntall(spesialisering));
+            assertEquals(før.hentAntallGodkjent(spesialisering), etter.hentAntallGodkjent(spesialisering));
+            assertEquals(før.hentAntallAvslått(spesialisering), etter.hentAntallAvslått(spesialisering));
+        }
+        assertEquals(før.hentSumDagsats(), etter.hentSumDagsats());
+
+        statistikk.registrerBeregning(Dagsatsberegning.beregn(830000, 830000, GRUNNBELØP_VERKTØY));
+        Resultatoversikt sist = statistikk.hentOversikt();
+        assertEquals(1, sist.hentAntall(Spesialisering.INNVILGET_MED_MAKSSATS) - før.hentAntall(Spesialisering.INNVILGET_MED_MAKSSATS));
+        assertEquals(2863.0, sist.hentSumDagsats() - før.hentSumDagsats());
+    }
+
+    @Test
+    public void testOversiktenErSammenhengendeMensDetSkrives() throws Exception {
+        Resultatstatistikk statistikk = Resultatstatistikk.standard();
+        Resultatoversikt før = statistikk.hentOversikt();
+        int antallTråder = 4;
+        int perTråd = 50_000;
+        AtomicBoolean ferdig = new AtomicBoolean();
+        /* Én beregning per spesialisering, så summen av dagsatsene er kjent fra antallet. */
+        long[] beregninger = new long[SPESIALISERINGER.length];
+        for (double årslønn : new double[]{100000, 550000, 830000}) {
+            long beregning = Dagsatsberegning.beregn(årslønn, årslønn, GRUNNBELØP_VERKTØY);
+            beregninger[Dagsatsberegning.hentSpesialisering(beregning).ordinal()] = beregning;
+        }
+
+        try (ExecutorService tråder = Executors.newFixedThreadPool(antallTråder + 1)) {
+            /* Resultatene lages på én tråd og behandles på en annen, så hvert resultat skriver til to striper. */
+            List<Resultat> delt = java.util.Collections.synchronizedList(new ArrayList<>());
+            List<Future<?>> skrivere = new ArrayList<>();
+            for (int tråd = 0; tråd < antallTråder; tråd++) {
+                boolean lager = tråd % 2 == 0;
+                skrivere.add(tråder.submit(() -> {
+                    for (int i = 0; i < perTråd; i++) {
+                        if (lager) {
+                            delt.add(Resultat.fraBeregning(i, beregninger[i % beregninger.length]));
+                        } else {
+                            Resultat resultat;
+                            synchronized (delt) {
+                                resultat = delt.isEmpty() ? null : delt.remove(delt.size() - 1);
+                            }
+                            if (resultat != null) {
+                                resultat.behandle(i % 2 == 0);
+                            }
+                        }
+                    }
+                }));
+            }
+            Future<Integer> leser = tråder.submit(() -> {
+                int antallOversikter = 0;
+                long forrigeAntall = 0;
+                while (!ferdig.get()) {
+                    Resultatoversikt oversikt = statistikk.hentOversikt();
+                    for (Spesialisering spesialisering : SPESIALISERINGER) {
+                        long ubehandlet = oversikt.hentAntallUbehandlet(spesialisering) - før.hentAntallUbehandlet(spesialisering);
+                        assertTrue(ubehandlet >= 0, "Flere behandlet enn laget for " + spesialisering);
+                        double dagsats = Dagsatsberegning.hentDagsats(beregninger[spesialisering.ordinal()]);
+                        assertEquals(dagsats * (oversikt.hentAntall(spesialisering) - før.hentAntall(spesialisering)),
+                                oversikt.hentSumDagsats(spesialisering) - før.hentSumDagsats(spesialisering));
+                    }
+                    assertTrue(oversikt.hentAntall() >= forrigeAntall);
+                    forrigeAntall = oversikt.hentAntall();
+                    antallOversikter++;
+                }
+                return antallOversikter;
+            });
+            for (Future<?> skriver : skrivere) {
+                skriver.get();
+            }
+            ferdig.set(true);
+            assertTrue(leser.get() > 0);
+        }
+
+        Resultatoversikt etter = statistikk.hentOversikt();
+        assertEquals(antallTråder / 2 * perTråd, etter.hentAntall() - før.hentAntall());
+    }
+
+    private static Resultat beregn(long personId, double årslønn) {
+        return Resultat.fraBeregning(personId, Dagsatsberegning.beregn(årslønn, årslønn, GRUNNBELØP_VERKTØY));
+    }
+
+    @Test
+    public void testUgyldigeVerdierAvvises() {
+        assertThrows(IllegalArgumentException.class, () -> Resultatstatistikk.standard().hentAntall(null));
+        assertThrows(IllegalArgumentException.class, () -> Resultatstatistikk.standard().hentOversikt().hentAntall(null));
+    }
+}
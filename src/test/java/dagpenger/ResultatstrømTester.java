@@ -0,0 +1,161 @@
+package dagpenger;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Resultatstrøm;
+import no.nav.dagpenger.Saksbehandlingskø;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultatstrømTester {
+
+    @Test
+    public void testAlleMottakereFårAlleResultateneIRekkefølge() throws Exception {
+        List<Long> første = Collections.synchronizedList(new ArrayList<>());
+        List<Long> andre = Collections.synchronizedList(new ArrayList<>());
+        Saksbehandlingskø kø = new Saksbehandlingskø();
+        CompletableFuture<Void> førsteFerdig;
+        CompletableFuture<Void> andreFerdig;
+        try (Resultatstrøm strøm = new Resultatstrøm(8)) {
+            førsteFerdig = strøm.abonner(resultat -> første.add(resultat.hentPersonId()));
+            andreFerdig = strøm.abonner(resultat -> andre.add(resultat.hentPersonId()));
+            strøm.abonner(kø::leggTil);
+            assertEquals(3, strøm.hentAntallMottakere());
+            for (long personId = 1; personId <= 1000; personId++) {
+                strøm.publiser(new Resultat(personId, 2116, Spesialisering.INNVILGET));
+            }
+        }
+        /* Lukkingen venter til alt er levert. */
+        assertTrue(førsteFerdig.isDone() && andreFerdig.isDone());
+        assertEquals(1000, første.size());
+        assertEquals(første, andre);
+        for (int i = 0; i < første.size(); i++) {
+            assertEquals(i + 1, første.get(i));
+        }
+        assertEquals(1000, kø.hentAntallVentende(Spesialisering.INNVILGET));
+    }
+
+    @Test
+    public void testTregMottakerBremserPubliseringen() throws Exception {
+        CountDownLatch slipp = new CountDownLatch(1);
+        AtomicInteger publisert = new AtomicInteger();
+        AtomicInteger mottatt = new AtomicInteger();
+        try (Resultatstrøm strøm = new Resultatstrøm(16)) {
+            strøm.abonner(resultat -> {
+                try {
+                    slipp.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                mottatt.incrementAndGet();
+            });
+            Thread utgiver = Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    strøm.publiser(new Resultat(i, 0, Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+                    publisert.incrementAndGet();
+                }
+            });
+            /* Mottakeren står fast på første resultat, så publiseringen stopper når bufferen er full. */
+            Thread.sleep(200);
+            assertTrue(utgiver.isAlive());
+            assertTrue(publisert.get() <= 16 + 1, "Publiserte " + publisert.get());
+
+            slipp.countDown();
+            utgiver.join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(utgiver.isAlive());
+        }
+        assertEquals(1000, mottatt.get());
+    }
+
+    @Test
+    public void testBatchGirSammeResultaterSomKalkulatoren() {
+        GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(124028);
+        SplittableRandom tilfeldig = new SplittableRandom(5);
+        /* Nok personer til flere grupper, med tre år hver. */
+        int antallPersoner = 50_000;
+        long[] personIder = new long[3 * antallPersoner];
+        int[] år = new int[personIder.length];
+        double[] årslønner = new double[personIder.length];
+        for (int rad = 0; rad < personIder.length; rad++) {
+            personIder[rad] = 1 + rad / 3;
+            år[rad] = 2023 - rad % 3;
+            årslønner[rad] = tilfeldig.nextInt(1_000_000);
+        }
+        BatchResultat fasit = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, verktøy);
+
+        List<Resultat> mottatt = new ArrayList<>();
+        int publisert;
+        try (Resultatstrøm strøm = new Resultatstrøm()) {
+            strøm.abonner(mottatt::add);
+            publisert = strøm.publiserDagsatser(personIder, år, årslønner, verktøy);
+        }
+        assertEquals(antallPersoner, publisert);
+        assertEquals(antallPersoner, mottatt.size());
+        for (int person = 0; person < antallPersoner; person++) {
+            assertEquals(fasit.hentPersonId(person), mottatt.get(person).hentPersonId());
+            assertEquals(fasit.hentDagsats(person), mottatt.get(person).hentBeregnetDagsats());
+            assertEquals(fasit.hentSpesialisering(person), mottatt.get(person).hentSpesialisering());
+        }
+    }
+
+    @Test
+    public void testEgenMottakerMedEttOmGangen() {
+        List<Resultat> mottatt = new ArrayList<>();
+        CountDownLatch ferdig = new CountDownLatch(1);
+        try (Resultatstrøm strøm = new Resultatstrøm()) {
+            strøm.subscribe(new Flow.Subscriber<>() {
+                private Flow.Subscription abonnement;
+
+                @Override
+                public void onSubscribe(Flow.Subscription abonnement) {
+                    this.abonnement = abonnement;
+                    abonnement.request(1);
+                }
+
+                @Override
+                public void onNext(Resultat resultat) {
+                    mottatt.add(resultat);
+                    this.abonnement.request(1);
+                }
+
+                @Override
+                public void onError(Throwable feil) {
+                }
+
+                @Override
+                public void onComplete() {
+                    ferdig.countDown();
+                }
+            });
+            assertEquals(100, strøm.publiserAlle(IntStream.range(0, 100).mapToObj(i -> new Resultat(i, 0, Spesialisering.INNVILGET))));
+        }
+        assertEquals(0, ferdig.getCount());
+        assertEquals(100, mottatt.size());
+    }
+
+    @Test
+    public void testUgyldigeVerdierAvvises() {
+        assertThrows(IllegalArgumentException.class, () -> new Resultatstrøm(0));
+        assertThrows(IllegalArgumentException.class, () -> new Resultatstrøm(null, 16));
+        try (Resultatstrøm strøm = new Resultatstrøm()) {
+            assertThrows(IllegalArgumentException.class, () -> strøm.publiser(null));
+            assertThrows(IllegalArgumentException.class, () -> strøm.abonner(null));
+            assertThrows(IllegalArgumentException.class, () -> strøm.publiserDagsatser(new long[1], new int[2], new double[1], new GrunnbeløpVerktøy(124028)));
+        }
+    }
+}
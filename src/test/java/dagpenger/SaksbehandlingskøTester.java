@@ -0,0 +1,111 @@
+package dagpenger;
+
+import no.nav.dagpenger.Behandlingsstatus;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Saksbehandler;
+import no.nav.dagpenger.Saksbehandlingskø;
+import no.nav.dagpenger.Spesialisering;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SaksbehandlingskøTester {
+
+    @Test
+    public void testNyttResultatErUbehandlet() {
+        Resultat resultat = new Resultat(2116, Spesialisering.INNVILGET);
+        assertEquals(Behandlingsstatus.UBEHANDLET, resultat.hentStatus());
+        assertFalse(resultat.erGodkjent());
+
+        assertTrue(resultat.behandle(true));
+        assertEquals(Behandlingsstatus.GODKJENT, resultat.hentStatus());
+        /* Andre behandling endrer ingenting. */
+        assertFalse(resultat.behandle(false));
+        assertTrue(resultat.erGodkjent());
+    }
+
+    @Test
+    public void testSaksbehandlerFårBareSinSpesialisering() {
+        Saksbehandlingskø kø = new Saksbehandlingskø();
+        kø.leggTil(new Resultat(1, 2116, Spesialisering.INNVILGET));
+        kø.leggTil(new Resultat(2, 0, Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+        kø.leggTil(new Resultat(3, 2863, Spesialisering.INNVILGET_MED_MAKSSATS));
+
+        Saksbehandler saksbehandler = new Saksbehandler(Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+        List<Resultat> hentede = saksbehandler.hentUbehandledeResultater(kø, 10);
+        assertEquals(1, hentede.size());
+        assertEquals(2, hentede.get(0).hentPersonId());
+        assertTrue(saksbehandler.hentUbehandledeResultater(kø, 10).isEmpty());
+
+        assertFalse(saksbehandler.behandleResultat(hentede.get(0)));
+        assertEquals(Behandlingsstatus.AVSLÅTT, hentede.get(0).hentStatus());
+    }
+
+    @Test
+    public void testUtløptLeietidGirResultatetTilbake() throws InterruptedException {
+        Saksbehandlingskø kø = new Saksbehandlingskø(Duration.ofMillis(50));
+        Resultat glemt = new Resultat(1, 2116, Spesialisering.INNVILGET);
+        Resultat behandlet = new Resultat(2, 2116, Spesialisering.INNVILGET);
+        kø.leggTil(glemt);
+        kø.leggTil(behandlet);
+
+        assertEquals(2, kø.hentUbehandlede(Spesialisering.INNVILGET, 10).size());
+        behandlet.behandle(true);
+        assertNull(kø.hentUbehandlet(Spesialisering.INNVILGET));
+
+        Thread.sleep(100);
+        /* Bare resultatet som ikke ble behandlet, kommer tilbake. */
+        assertSame(glemt, kø.hentUbehandlet(Spesialisering.INNVILGET));
+        assertNull(kø.hentUbehandlet(Spesialisering.INNVILGET));
+    }
+
+    @Test
+    public void testMangeSaksbehandlereTømmerKøenUtenDuplikater() throws InterruptedException {
+        int antallResultater = 300_000;
+        Saksbehandlingskø kø = new Saksbehandlingskø();
+        Spesialisering[] spesialiseringer = Spesialisering.values();
+        for (int i = 0; i < antallResultater; i++) {
+            kø.leggTil(new Resultat(i, 1000, spesialiseringer[i % spesialiseringer.length]));
+        }
+
+        Set<Long> hentet = ConcurrentHashMap.newKeySet();
+        AtomicInteger antallBehandlet = new AtomicInteger();
+        AtomicInteger antallDuplikater = new AtomicInteger();
+        List<Thread> tråder = new ArrayList<>();
+        for (int t = 0; t < 96; t++) {
+            Saksbehandler saksbehandler = new Saksbehandler(spesialiseringer[t % spesialiseringer.length]);
+            Thread tråd = new Thread(() -> {
+                List<Resultat> hentede;
+                while (!(hentede = saksbehandler.hentUbehandledeResultater(kø, 32)).isEmpty()) {
+                    for (Resultat resultat : hentede) {
+                        if (!hentet.add(resultat.hentPersonId())) {
+                            antallDuplikater.incrementAndGet();
+                        }
+                        if (resultat.behandle(saksbehandler.hentSpesialisering().erGodkjent())) {
+                            antallBehandlet.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            tråder.add(tråd);
+            tråd.start();
+        }
+        for (Thread tråd : tråder) {
+            tråd.join();
+        }
+
+        assertEquals(0, antallDuplikater.get());
+        assertEquals(antallResultater, antallBehandlet.get());
+        for (Spesialisering spesialisering : spesialiseringer) {
+            assertNull(kø.hentUbehandlet(spesialisering));
+            assertEquals(0, kø.hentAntallVentende(spesialisering));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package dagpenger;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagsatsKjerne;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.dagpenger.Terskelindeks;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TerskelindeksTester {
+
+    private static final long G = 12402800;
+
+    @Test
+    public void testReguleringGirSammeResultatSomFullKalkulering() {
+        int antall = 200_000;
+        long[] personIder = new long[antall];
+        long[] siste = new long[antall];
+        long[] sum = new long[antall];
+        SplittableRandom tilfeldig = new SplittableRandom(7);
+        for (int person = 0; person < antall; person++) {
+            personIder[person] = person + 1;
+            /* Inntekter fra 0 til 8G, og noen nøyaktig på en terskel. */
+            siste[person] = tilfeldig.nextLong(8 * G);
+            sum[person] = siste[person] + tilfeldig.nextLong(16 * G);
+            if (person % 100 == 0) {
+                siste[person] = 6 * G + 300_000;
+                sum[person] = 3 * G + 900_000;
+            }
+        }
+        Terskelindeks indeks = Terskelindeks.bygg(personIder, siste, sum, new GrunnbeløpVerktøy(124028));
+        long[] forrige = beregnAlle(siste, sum, new GrunnbeløpVerktøy(124028));
+
+        /* Vanlige reguleringer opp, en nedgang, og en endring på ett øre. */
+        for (double grunnbeløp : new double[] {130160, 118620, 118620.01, 124028, 200000, 124028}) {
+            GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(grunnbeløp);
+            long[] endret = indeks.reguler(verktøy);
+            long[] fasit = beregnAlle(siste, sum, verktøy);
+
+            int antallEndret = 0;
+            for (int person = 0; person < antall; person++) {
+                assertEquals(fasit[person], indeks.hentBeregning(person), "Person " + person + " med G " + grunnbeløp);
+                if (Dagsatsberegning.hentSpesialisering(fasit[person]) != Dagsatsberegning.hentSpesialisering(forrige[person])) {
+                    assertEquals(personIder[person], endret[antallEndret++]);
+                }
+            }
+            assertEquals(antallEndret, endret.length);
+            assertTrue(indeks.hentAntallNyvurdert() >= endret.length);
+            forrige = fasit;
+        }
+    }
+
+    @Test
+    public void testReguleringVurdererBareEnBrøkdel() {
+        int antall = 100_000;
+        long[] personIder = new long[antall];
+        long[] siste = new long[antall];
+        long[] sum = new long[antall];
+        SplittableRandom tilfeldig = new SplittableRandom(11);
+        for (int person = 0; person < antall; person++) {
+            personIder[person] = person + 1;
+            siste[person] = tilfeldig.nextLong(8 * G);
+            sum[person] = 3 * siste[person] + tilfeldig.nextLong(-G, G);
+        }
+        Terskelindeks indeks = Terskelindeks.bygg(personIder, siste, sum, new GrunnbeløpVerktøy(118620));
+        indeks.reguler(new GrunnbeløpVerktøy(124028));
+        /* En økning på 4.6 % flytter bare tersklene for personer i smale inntektsbånd. */
+        assertTrue(indeks.hentAntallNyvurdert() < antall / 10, "Vurderte " + indeks.hentAntallNyvurdert());
+        assertEquals(0, indeks.reguler(new GrunnbeløpVerktøy(124028)).length);
+        assertEquals(0, indeks.hentAntallNyvurdert());
+    }
+
+    @Test
+    public void testMakssatsFølgerGrunnbeløpet() {
+        Terskelindeks indeks = Terskelindeks.bygg(new long[] {1, 2}, new long[] {100_000_000, 55_000_000},
+                new long[] {200_000_000, 55_000_000}, new GrunnbeløpVerktøy(124028));
+        assertEquals(2863.0, indeks.hentDagsats(0));
+        assertEquals(Spesialisering.INNVILGET_MED_MAKSSATS, indeks.hentSpesialisering(0));
+        assertEquals(2116.0, indeks.hentDagsats(1));
+
+        /* Ingen skifter spesialisering, men makssatsen følger ny G. */
+        assertEquals(0, indeks.reguler(new GrunnbeløpVerktøy(118620)).length);
+        assertEquals(2738.0, indeks.hentDagsats(0));
+        assertEquals(2116.0, indeks.hentDagsats(1));
+
+        BatchResultat resultat = indeks.tilBatchResultat();
+        assertEquals(2, resultat.hentPersonId(1));
+        assertEquals(2738.0, resultat.hentDagsats(0));
+        assertEquals(Spesialisering.INNVILGET, resultat.hentSpesialisering(1));
+    }
+
+    @Test
+    public void testUgyldigeKolonnerAvvises() {
+        assertThrows(IllegalArgumentException.class, () -> Terskelindeks.bygg(new long[1], new long[2], new long[1], new GrunnbeløpVerktøy(124028)));
+        assertThrows(IllegalArgumentException.class, () -> Terskelindeks.bygg(null, new long[1], new long[1], new GrunnbeløpVerktøy(124028)));
+        Terskelindeks indeks = Terskelindeks.bygg(new long[0], new long[0], new long[0], new GrunnbeløpVerktøy(124028));
+        assertThrows(IllegalArgumentException.class, () -> indeks.reguler(null));
+    }
+
+    private static long[] beregnAlle(long[] siste, long[] sum, GrunnbeløpVerktøy verktøy) {
+        long[] beregninger = new long[siste.length];
+        DagsatsKjerne.beregnSkalar(siste, sum, verktøy, beregninger);
+        return beregninger;
+    }
+}
@@ -0,0 +1,281 @@
+package dagpenger;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.Behandlingsstatus;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.ResultatLager;
+import no.nav.dagpenger.Saksbehandler;
+import no.nav.dagpenger.Saksbehandlingskø;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.dagpenger.Vedtaksjournal;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VedtaksjournalTester {
+
+    @TempDir
+    Path mappe;
+
+    private Vedtaksjournal åpne(int posterPerSegment, long posterMellomØyeblikksbilder) throws IOException {
+        return Vedtaksjournal.åpne(this.mappe, posterPerSegment, Duration.ofMillis(1), posterMellomØyeblikksbilder);
+    }
+
+    @Test
+    public void testVedtakOverleverOmstart() throws Exception {
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            Resultat innvilget = new Resultat(1, 2116, Spesialisering.INNVILGET);
+            Resultat avslag = new Resultat(2, 0, Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+            journal.journalfør(innvilget);
+            journal.journalfør(avslag);
+            journal.journalfør(new Resultat(3, 2863, Spesialisering.INNVILGET_MED_MAKSSATS));
+
+            assertTrue(new Saksbehandler(Spesialisering.INNVILGET, journal).behandleResultat(innvilget));
+            assertFalse(new Saksbehandler(Spesialisering.AVSLAG_FOR_LAV_INNTEKT, journal).behandleResultat(avslag));
+        }
+
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            assertEquals(3, journal.hentAntallResultater());
+            assertEquals(5, journal.hentAntallPoster());
+            assertEquals(Behandlingsstatus.GODKJENT, journal.hentResultat(1).hentStatus());
+            assertEquals(2116.0, journal.hentResultat(1).hentBeregnetDagsats());
+            assertEquals(Behandlingsstatus.AVSLÅTT, journal.hentResultat(2).hentStatus());
+            assertEquals(Behandlingsstatus.UBEHANDLET, journal.hentResultat(3).hentStatus());
+            assertNull(journal.hentResultat(4));
+
+            /* Bare det ubehandlede resultatet legges i køen igjen. */
+            Saksbehandlingskø kø = new Saksbehandlingskø();
+            assertEquals(1, journal.leggUbehandledeIKø(kø));
+            assertEquals(3, kø.hentUbehandlet(Spesialisering.INNVILGET_MED_MAKSSATS).hentPersonId());
+        }
+    }
+
+    @Test
+    public void testHalvskrevenPostMarkererSlutten() throws Exception {
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.journalfør(new Resultat(i, 1000 + i, Spesialisering.INNVILGET));
+            }
+        }
+        /* Ødelegger sjekksummen til post nummer 9, som om krasjet kom midt i skrivingen. */
+        Path segment = finnSegmenter().get(0);
+        try (FileChannel kanal = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            kanal.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 8L * 24 + 9);
+        }
+
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            assertEquals(8, journal.hentAntallResultater());
+            assertNull(journal.hentResultat(9));
+            /* Nye poster skrives over den ødelagte. */
+            journal.journalfør(new Resultat(99, 500, Spesialisering.INNVILGET));
+        }
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            assertEquals(9, journal.hentAntallResultater());
+            assertEquals(500.0, journal.hentResultat(99).hentBeregnetDagsats());
+        }
+    }
+
+    @Test
+    public void testSegmenterEtterSluttenForkastesOgTelles() throws Exception {
+        Teller forkastede = Metrikker.teller("dagpenger.journal.forkastede_segmenter");
+        long forkastedeFør = forkastede.getAntall();
+        try (Vedtaksjournal journal = åpne(4, 0)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.journalfør(new Resultat(i, 1000 + i, Spesialisering.INNVILGET));
+            }
+        }
+        assertEquals(3, finnSegmenter().size());
+        /* Ødelegger post nummer 3 i første segment, så de to neste segmentene ligger etter slutten. */
+        try (FileChannel kanal = FileChannel.open(finnSegmenter().get(0), StandardOpenOption.WRITE)) {
+            kanal.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 2L * 24 + 9);
+        }
+
+        try (Vedtaksjournal journal = åpne(4, 0)) {
+            assertEquals(2, journal.hentAntallResultater());
+            assertNull(journal.hentResultat(5));
+        }
+        assertEquals(forkastedeFør + 2, forkastede.getAntall());
+    }
+
+    @Test
+    public void testØyeblikksbildeOgSegmenter() throws Exception {
+        try (Vedtaksjournal journal = åpne(100, 0)) {
+            for (int i = 1; i <= 1000; i++) {
+                journal.journalfør(new Resultat(i % 250 + 1, i, Spesialisering.INNVILGET));
+            }
+            assertTrue(finnSegmenter().size() >= 10);
+            journal.lagreØyeblikksbilde();
+            assertEquals(1, finnSegmenter().size());
+            for (int i = 1; i <= 50; i++) {
+                journal.journalfør(new Resultat(1000 + i, i, Spesialisering.INNVILGET));
+            }
+        }
+        try (Vedtaksjournal journal = åpne(100, 0)) {
+            assertEquals(300, journal.hentAntallResultater());
+            assertEquals(1050, journal.hentAntallPoster());
+            /* Person 1 fikk sist dagsats 1000 (i = 1000 gir 1000 % 250 + 1 = 1). */
+            assertEquals(1000.0, journal.hentResultat(1).hentBeregnetDagsats());
+            assertEquals(50.0, journal.hentResultat(1050).hentBeregnetDagsats());
+        }
+    }
+
+    @Test
+    public void testØyeblikksbildeLagesAutomatisk() throws Exception {
+        try (Vedtaksjournal journal = åpne(1000, 5000)) {
+            for (int i = 1; i <= 20_000; i++) {
+                journal.journalfør(new Resultat(i % 100 + 1, i, Spesialisering.INNVILGET));
+            }
+            journal.ventTilLagret(19_999);
+            long frist = System.nanoTime() + 5_000_000_000L;
+            while (!Files.exists(this.mappe.resolve("vedtaksjournal.snap")) && System.nanoTime() < frist) {
+                Thread.sleep(5);
+            }
+            assertTrue(Files.exists(this.mappe.resolve("vedtaksjournal.snap")));
+        }
+        try (Vedtaksjournal journal = åpne(1000, 0)) {
+            assertEquals(100, journal.hentAntallResultater());
+            assertEquals(20_000.0, journal.hentResultat(1).hentBeregnetDagsats());
+        }
+    }
+
+    @Test
+    public void testMangeSaksbehandlereJournalførerSamtidig() throws Exception {
+        Saksbehandlingskø kø = new Saksbehandlingskø();
+        try (Vedtaksjournal journal = åpne(4096, 0)) {
+            for (int i = 1; i <= 20_000; i++) {
+                Resultat resultat = new Resultat(i, 1000, Spesialisering.INNVILGET);
+                journal.journalfør(resultat);
+                kø.leggTil(resultat);
+            }
+            Thread[] tråder = new Thread[16];
+            for (int t = 0; t < tråder.length; t++) {
+                Saksbehandler saksbehandler = new Saksbehandler(Spesialisering.INNVILGET, journal);
+                tråder[t] = new Thread(() -> {
+                    while (saksbehandler.behandleUbehandledeResultater(kø, 64) > 0) {
+                        Thread.onSpinWait();
+                    }
+                });
+                tråder[t].start();
+            }
+            for (Thread tråd : tråder) {
+                tråd.join();
+            }
+        }
+        try (Vedtaksjournal journal = åpne(4096, 0)) {
+            assertEquals(0, journal.leggUbehandledeIKø(new Saksbehandlingskø()));
+            assertEquals(40_000, journal.hentAntallPoster());
+        }
+    }
+
+    @Test
+    public void testFeiletJournalføringLarResultatetVæreUbehandlet() throws Exception {
+        Vedtaksjournal journal = åpne(16, 0);
+        Saksbehandler saksbehandler = new Saksbehandler(Spesialisering.INNVILGET, journal);
+        Resultat utenPersonId = new Resultat(2116, Spesialisering.INNVILGET);
+        assertThrows(IllegalArgumentException.class, () -> saksbehandler.behandleResultat(utenPersonId));
+        assertEquals(Behandlingsstatus.UBEHANDLET, utenPersonId.hentStatus());
+
+        /* Vedtaket som ble journalført før feilen, står. Det som feilet, kan behandles på nytt. */
+        Saksbehandlingskø kø = new Saksbehandlingskø();
+        Resultat først = new Resultat(1, 2116, Spesialisering.INNVILGET);
+        kø.leggTil(først);
+        kø.leggTil(utenPersonId);
+        assertThrows(IllegalArgumentException.class, () -> saksbehandler.behandleUbehandledeResultater(kø, 10));
+        assertEquals(Behandlingsstatus.GODKJENT, først.hentStatus());
+        assertEquals(Behandlingsstatus.UBEHANDLET, utenPersonId.hentStatus());
+
+        journal.close();
+        Resultat etterLukking = new Resultat(2, 2116, Spesialisering.INNVILGET);
+        assertThrows(IllegalStateException.class, () -> saksbehandler.behandleResultat(etterLukking));
+        assertEquals(Behandlingsstatus.UBEHANDLET, etterLukking.hentStatus());
+
+        try (Vedtaksjournal gjenåpnet = åpne(16, 0)) {
+            assertEquals(Behandlingsstatus.GODKJENT, gjenåpnet.hentResultat(1).hentStatus());
+            assertNull(gjenåpnet.hentResultat(2));
+        }
+    }
+
+    @Test
+    public void testFeiletJournalføringFraLagerLarPlassenVæreUbehandlet() throws Exception {
+        ResultatLager lager = new ResultatLager(2);
+        lager.leggTil(1, 2116, Spesialisering.INNVILGET);
+        lager.leggTil(2, 2116, Spesialisering.INNVILGET);
+        Vedtaksjournal journal = åpne(16, 0);
+        journal.close();
+
+        Saksbehandler saksbehandler = new Saksbehandler(Spesialisering.INNVILGET, journal);
+        assertThrows(IllegalStateException.class, () -> saksbehandler.behandleResultater(lager));
+        assertEquals(Behandlingsstatus.UBEHANDLET, lager.hentStatus(0));
+        assertEquals(Behandlingsstatus.UBEHANDLET, lager.hentStatus(1));
+
+        try (Vedtaksjournal gjenåpnet = åpne(16, 0)) {
+            assertEquals(2, new Saksbehandler(Spesialisering.INNVILGET, gjenåpnet).behandleResultater(lager));
+            assertEquals(Behandlingsstatus.GODKJENT, gjenåpnet.hentResultat(2).hentStatus());
+        }
+    }
+
+    @Test
+    public void testResultatUtenPersonIdAvvises() throws Exception {
+        try (Vedtaksjournal journal = åpne(16, 0)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.journalfør(new Resultat(100, Spesialisering.INNVILGET)));
+        }
+    }
+
+    @Test
+    public void testBatchMedPersonIdNullAvvisesOgOverleverOmstart() throws Exception {
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            journal.journalfør(new Resultat(1, 2116, Spesialisering.INNVILGET));
+            assertThrows(IllegalArgumentException.class, () -> journal.journalførAlle(batchMedPersonIdNull()));
+            journal.journalfør(new Resultat(2, 2863, Spesialisering.INNVILGET_MED_MAKSSATS));
+        }
+        /* Ingen av personene i batchen ble skrevet, og vedtaket etter den går ikke tapt. */
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            assertEquals(2, journal.hentAntallResultater());
+            assertEquals(2, journal.hentAntallPoster());
+            assertNull(journal.hentResultat(7));
+            assertEquals(2863.0, journal.hentResultat(2).hentBeregnetDagsats());
+        }
+    }
+
+    @Test
+    public void testBatchMedPersonIdNullØdeleggerIkkeØyeblikksbilde() throws Exception {
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            journal.journalfør(new Resultat(1, 2116, Spesialisering.INNVILGET));
+            assertThrows(IllegalArgumentException.class, () -> journal.journalførAlle(batchMedPersonIdNull()));
+            journal.lagreØyeblikksbilde();
+            journal.journalfør(new Resultat(2, 2863, Spesialisering.INNVILGET_MED_MAKSSATS));
+        }
+        try (Vedtaksjournal journal = åpne(1024, 0)) {
+            assertEquals(2, journal.hentAntallResultater());
+            assertEquals(2116.0, journal.hentResultat(1).hentBeregnetDagsats());
+            assertEquals(2863.0, journal.hentResultat(2).hentBeregnetDagsats());
+        }
+    }
+
+    /* Person 7 foran og etter en person uten id, slik en batch kan komme fra inndata med manglende id. */
+    private static BatchResultat batchMedPersonIdNull() {
+        return DagpengerKalkulator.kalkulerDagsatser(new long[]{7, 0, 8}, new int[]{2024, 2024, 2024},
+                new double[]{550000, 550000, 550000}, new GrunnbeløpVerktøy(124028));
+    }
+
+    private List<Path> finnSegmenter() throws IOException {
+        try (Stream<Path> filer = Files.list(this.mappe)) {
+            return filer.filter(fil -> fil.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package grunnbeløp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import no.nav.grunnbeløp.GrunnbeløpAPI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GrunnbeløpAPITester {
+
+    private static final String SVAR = "{\"dato\":\"2024-05-01\",\"grunnbeløp\":124028}";
+
+    private HttpServer tjener;
+    private ExecutorService tjenerTråder;
+    private final AtomicInteger antallSpørringer = new AtomicInteger();
+
+    @AfterEach
+    public void stoppTjener() {
+        if (this.tjener != null) {
+            this.tjener.stop(0);
+            this.tjenerTråder.shutdownNow();
+        }
+    }
+
+    /* Starter en lokal tjener der svaret på spørring nummer n bestemmes av behandleren. */
+    private URI startTjener(Behandler behandler) throws IOException {
+        this.tjener = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.tjenerTråder = Executors.newCachedThreadPool();
+        this.tjener.setExecutor(this.tjenerTråder);
+        this.tjener.createContext("/", utveksling -> {
+            try {
+                behandler.behandle(this.antallSpørringer.incrementAndGet(), utveksling);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            } finally {
+                utveksling.close();
+            }
+        });
+        this.tjener.start();
+        return URI.create("http://127.0.0.1:" + this.tjener.getAddress().getPort() + "/");
+    }
+
+    private static void svar(HttpExchange utveksling, int status, String tekst) throws IOException {
+        byte[] innhold = tekst.getBytes(StandardCharsets.UTF_8);
+        utveksling.sendResponseHeaders(status, innhold.length);
+        try (OutputStream ut = utveksling.getResponseBody()) {
+            ut.write(innhold);
+        }
+    }
+
+    @Test
+    public void testSamtidigeKallDelerÉnSpørring() throws Exception {
+        CountDownLatch slipp = new CountDownLatch(1);
+        URI adresse = startTjener((nummer, utveksling) -> {
+            slipp.await();
+            svar(utveksling, 200, SVAR);
+        });
+        GrunnbeløpAPI api = new GrunnbeløpAPI(adresse, Duration.ofSeconds(5), 0);
+
+        List<CompletableFuture<Double>> svar = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            svar.add(api.hentGrunnbeløpAsynkront());
+        }
+        slipp.countDown();
+        for (CompletableFuture<Double> grunnbeløp : svar) {
+            assertEquals(124028.0, grunnbeløp.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, this.antallSpørringer.get());
+
+        /* Når spørringen er ferdig, sender neste kall en ny. */
+        assertEquals(124028.0, api.hentGrunnbeløp());
+        assertEquals(2, this.antallSpørringer.get());
+    }
+
+    @Test
+    public void testTregtSvarGirTidsavbrudd() throws Exception {
+        CountDownLatch slipp = new CountDownLatch(1);
+        URI adresse = startTjener((nummer, utveksling) -> {
+            slipp.await();
+            svar(utveksling, 200, SVAR);
+        });
+        GrunnbeløpAPI api = new GrunnbeløpAPI(adresse, Duration.ofMillis(200), 0);
+
+        long start = System.nanoTime();
+        assertThrows(IOException.class, api::hentGrunnbeløp);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        slipp.countDown();
+    }
+
+    @Test
+    public void testFeilEtterTidligereSvarGirUnntak() throws Exception {
+        URI adresse = startTjener((nummer, utveksling) -> {
+            if (nummer == 1) {
+                svar(utveksling, 200, SVAR);
+            } else {
+                svar(utveksling, 503, "");
+            }
+        });
+        GrunnbeløpAPI api = new GrunnbeløpAPI(adresse, Duration.ofSeconds(5), 0);
+
+        assertEquals(124028.0, api.hentGrunnbeløp());
+        /* Et tidligere svar er ikke et nytt svar. Mellomlageret avgjør om det kan brukes. */
+        assertThrows(IOException.class, api::hentGrunnbeløp);
+        assertThrows(ExecutionException.class, () -> api.hentGrunnbeløpAsynkront().get(5, TimeUnit.SECONDS));
+        assertEquals(3, this.antallSpørringer.get());
+    }
+
+    @Test
+    public void testFeilUtenTidligereGrunnbeløpGirUnntak() throws Exception {
+        URI adresse = startTjener((nummer, utveksling) -> svar(utveksling, 500, ""));
+        GrunnbeløpAPI api = new GrunnbeløpAPI(adresse, Duration.ofSeconds(5), 0);
+        assertThrows(IOException.class, api::hentGrunnbeløp);
+    }
+
+    @Test
+    public void testEkstraSpørringNårSvaretDrøyer() throws Exception {
+        CountDownLatch slipp = new CountDownLatch(1);
+        URI adresse = startTjener((nummer, utveksling) -> {
+            /* Første spørring henger, den ekstra spørringen svarer med en gang. */
+            if (nummer == 1) {
+                slipp.await();
+            }
+            svar(utveksling, 200, SVAR);
+        });
+        GrunnbeløpAPI api = new GrunnbeløpAPI(adresse, Duration.ofSeconds(10), 0.95);
+
+        long start = System.nanoTime();
+        assertEquals(124028.0, api.hentGrunnbeløpAsynkront().get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, this.antallSpørringer.get());
+        slipp.countDown();
+    }
+
+    @Test
+    public void testUgyldigeInnstillinger() {
+        URI adresse = URI.create("http://127.0.0.1/");
+        assertThrows(IllegalArgumentException.class, () -> new GrunnbeløpAPI(null));
+        assertThrows(IllegalArgumentException.class, () -> new GrunnbeløpAPI(adresse, Duration.ZERO, 0));
+        assertThrows(IllegalArgumentException.class, () -> new GrunnbeløpAPI(adresse, Duration.ofSeconds(1), 1));
+    }
+
+    @FunctionalInterface
+    private interface Behandler {
+        void behandle(int nummer, HttpExchange utveksling) throws IOException, InterruptedException;
+    }
+}
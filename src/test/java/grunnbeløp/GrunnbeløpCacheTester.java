@@ -0,0 +1,171 @@
+package grunnbeløp;
+
+import no.nav.grunnbeløp.FastGrunnbeløpKilde;
+import no.nav.grunnbeløp.FilGrunnbeløpKilde;
+import no.nav.grunnbeløp.Grunnbeløp;
+import no.nav.grunnbeløp.GrunnbeløpCache;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GrunnbeløpCacheTester {
+
+    private static final LocalDate MAI_2024 = LocalDate.of(2024, 5, 1);
+
+    @TempDir
+    Path mappe;
+
+    @Test
+    public void testGrunnbeløpHentesBareÉnGang() throws InterruptedException {
+        AtomicInteger antallHentinger = new AtomicInteger();
+        GrunnbeløpCache cache = new GrunnbeløpCache(() -> {
+            antallHentinger.incrementAndGet();
+            return new Grunnbeløp(124028, MAI_2024);
+        }, Duration.ofHours(12));
+
+        List<Thread> tråder = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread tråd = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    assertEquals(124028.0, cache.hentGrunnbeløp());
+                }
+            });
+            tråder.add(tråd);
+            tråd.start();
+        }
+        for (Thread tråd : tråder) {
+            tråd.join();
+        }
+        cache.stopp();
+        assertEquals(1, antallHentinger.get());
+    }
+
+    @Test
+    public void testGrunnbeløpFriskesOppIBakgrunnenFørDetUtløper() throws InterruptedException {
+        AtomicInteger antallHentinger = new AtomicInteger();
+        GrunnbeløpCache cache = new GrunnbeløpCache(
+                () -> new Grunnbeløp(100000.0 + antallHentinger.incrementAndGet(), MAI_2024), Duration.ofMillis(100));
+
+        assertEquals(100001.0, cache.hentGrunnbeløp());
+        Thread.sleep(300);
+        assertTrue(antallHentinger.get() > 1);
+        assertTrue(cache.hentGrunnbeløp() > 100001.0);
+        cache.stopp();
+    }
+
+    @Test
+    public void testFeiletHentingUtenGrunnbeløpGirUnntakOgPrøvesIgjen() {
+        AtomicInteger antallHentinger = new AtomicInteger();
+        GrunnbeløpCache cache = new GrunnbeløpCache(() -> {
+            if (antallHentinger.incrementAndGet() == 1) {
+                throw new IOException("Ingen forbindelse");
+            }
+            return new Grunnbeløp(124028, MAI_2024);
+        }, Duration.ofHours(12));
+
+        assertThrows(IllegalStateException.class, cache::hentGrunnbeløp);
+        assertEquals(124028.0, cache.hentGrunnbeløp());
+        cache.stopp();
+    }
+
+    @Test
+    public void testFeiletKildeGirEldreGrunnbeløpOgNyttForsøkEtterVentetid() throws InterruptedException {
+        Duration ventetid = Duration.ofMillis(150);
+        List<Long> hentinger = new CopyOnWriteArrayList<>();
+        GrunnbeløpCache cache = new GrunnbeløpCache(() -> {
+            hentinger.add(System.nanoTime());
+            if (hentinger.size() == 1) {
+                return new Grunnbeløp(124028, MAI_2024);
+            }
+            throw new IOException("Alle kilder feilet");
+        }, Duration.ofMillis(200), null, ventetid);
+
+        assertEquals(124028.0, cache.hentGrunnbeløp());
+        Thread.sleep(1000);
+        cache.stopp();
+
+        /* Oppfrisking etter 160 ms feiler, og deretter prøves kilden igjen hver ventetid. */
+        assertTrue(hentinger.size() >= 4, "Antall hentinger: " + hentinger.size());
+        for (int i = 2; i < hentinger.size(); i++) {
+            assertTrue(hentinger.get(i) - hentinger.get(i - 1) >= ventetid.toNanos());
+        }
+        /* Eldre grunnbeløp brukes mens kilden er nede. */
+        assertEquals(124028.0, cache.hentGrunnbeløp());
+    }
+
+    @Test
+    public void testHentetGrunnbeløpLagresOgBrukesVedNesteOppstart() throws Exception {
+        Path fil = this.mappe.resolve("grunnbelop.properties");
+        GrunnbeløpCache første = new GrunnbeløpCache(new FastGrunnbeløpKilde(new Grunnbeløp(124028, MAI_2024)),
+                Duration.ofHours(12), fil);
+        assertEquals(124028.0, første.hentGrunnbeløp());
+        første.stopp();
+        assertEquals(new Grunnbeløp(124028, MAI_2024), new FilGrunnbeløpKilde(fil).hentGjeldendeGrunnbeløp());
+
+        /* Ny oppstart der kilden henger: grunnbeløpet fra filen brukes uten å vente på kilden. */
+        CountDownLatch slipp = new CountDownLatch(1);
+        GrunnbeløpCache andre = new GrunnbeløpCache(() -> {
+            slipp.await();
+            return new Grunnbeløp(130160, LocalDate.of(2025, 5, 1));
+        }, Duration.ofHours(12), fil);
+        assertEquals(124028.0, andre.hentGrunnbeløp());
+        assertEquals(MAI_2024, andre.hentGjeldendeGrunnbeløp().hentVirkningsdato());
+
+        /* Når kilden svarer, byttes grunnbeløpet ut i bakgrunnen. */
+        slipp.countDown();
+        long frist = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (andre.hentGrunnbeløp() != 130160.0 && System.nanoTime() < frist) {
+            Thread.sleep(10);
+        }
+        assertEquals(130160.0, andre.hentGrunnbeløp());
+        andre.stopp();
+    }
+
+    @Test
+    public void testØdelagtØyeblikksbildeTellesOgKildenBrukes() throws Exception {
+        Teller lesingFeilet = Metrikker.teller("grunnbeløp.cache.øyeblikksbilde_lesing_feilet");
+        long lesingFeiletFør = lesingFeilet.getAntall();
+        Path fil = this.mappe.resolve("grunnbelop.properties");
+        Files.writeString(fil, "ikke et grunnbeløp", StandardCharsets.UTF_8);
+
+        GrunnbeløpCache cache = new GrunnbeløpCache(new FastGrunnbeløpKilde(new Grunnbeløp(124028, MAI_2024)),
+                Duration.ofHours(12), fil);
+        assertEquals(lesingFeiletFør + 1, lesingFeilet.getAntall());
+        assertEquals(124028.0, cache.hentGrunnbeløp());
+        cache.stopp();
+    }
+
+    @Test
+    public void testFilkildeUtenNettverk() throws Exception {
+        Path fil = this.mappe.resolve("grunnbelop.properties");
+        new FilGrunnbeløpKilde(fil).lagre(new Grunnbeløp(118620, LocalDate.of(2023, 5, 1)));
+        GrunnbeløpCache cache = new GrunnbeløpCache(new FilGrunnbeløpKilde(fil), Duration.ofHours(12));
+        assertEquals(118620.0, cache.hentGrunnbeløp());
+        cache.stopp();
+    }
+
+    @Test
+    public void testVerktøyLeserFraFellesMellomlager() {
+        GrunnbeløpCache.settStandard(new GrunnbeløpCache(new FastGrunnbeløpKilde(124028), Duration.ofHours(12)));
+        GrunnbeløpVerktøy grunnbeløpVerktøy = new GrunnbeløpVerktøy();
+        assertEquals(124028.0, grunnbeløpVerktøy.hentGrunnbeløp());
+        assertEquals(744168.0, grunnbeløpVerktøy.hentMaksÅrligDagpengegrunnlag());
+    }
+}
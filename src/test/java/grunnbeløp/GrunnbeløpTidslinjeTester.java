@@ -0,0 +1,104 @@
+package grunnbeløp;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.grunnbeløp.Grunnbeløp;
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GrunnbeløpTidslinjeTester {
+
+    private static final GrunnbeløpTidslinje TIDSLINJE = new GrunnbeløpTidslinje(List.of(
+            new Grunnbeløp(124028, LocalDate.of(2024, 5, 1)),
+            new Grunnbeløp(111477, LocalDate.of(2022, 5, 1)),
+            new Grunnbeløp(118620, LocalDate.of(2023, 5, 1))));
+
+    @TempDir
+    Path mappe;
+
+    @Test
+    public void testGrunnbeløpVedGrensene() {
+        assertEquals(111477.0, TIDSLINJE.hentGrunnbeløp(LocalDate.of(2022, 5, 1)));
+        assertEquals(111477.0, TIDSLINJE.hentGrunnbeløp(LocalDate.of(2023, 4, 30)));
+        assertEquals(118620.0, TIDSLINJE.hentGrunnbeløp(LocalDate.of(2023, 5, 1)));
+        assertEquals(124028.0, TIDSLINJE.hentGrunnbeløp(LocalDate.of(2024, 5, 1)));
+        /* Etter siste regulering gjelder siste grunnbeløp. */
+        assertEquals(124028.0, TIDSLINJE.hentGrunnbeløp(LocalDate.of(2030, 1, 1)));
+        assertThrows(IllegalArgumentException.class, () -> TIDSLINJE.hentGrunnbeløp(LocalDate.of(2022, 4, 30)));
+    }
+
+    @Test
+    public void testSammeVerktøyForHeleÅret() {
+        GrunnbeløpVerktøy verktøy = TIDSLINJE.hentVerktøy(LocalDate.of(2023, 6, 1));
+        assertSame(verktøy, TIDSLINJE.hentVerktøy(LocalDate.of(2024, 2, 29)));
+        assertEquals(118620.0 * 6, verktøy.hentMaksÅrligDagpengegrunnlag());
+    }
+
+    @Test
+    public void testUgyldigHistorikk() {
+        assertThrows(IllegalArgumentException.class, () -> new GrunnbeløpTidslinje(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new GrunnbeløpTidslinje(List.of(
+                new Grunnbeløp(1, LocalDate.of(2024, 5, 1)), new Grunnbeløp(2, LocalDate.of(2024, 5, 1)))));
+        assertThrows(IOException.class, () -> GrunnbeløpTidslinje.fraJSON("[{\"dato\":\"mai\",\"grunnbeløp\":1}]"));
+    }
+
+    @Test
+    public void testLesFilPåLinjeformatOgJSON() throws IOException {
+        Path linjer = this.mappe.resolve("historikk.txt");
+        Files.writeString(linjer, "# kommentar\n2023-05-01=118620\n\n2024-05-01=124028\n");
+        assertEquals(118620.0, GrunnbeløpTidslinje.lesFil(linjer).hentGrunnbeløp(LocalDate.of(2024, 1, 1)));
+
+        Path json = this.mappe.resolve("historikk.json");
+        Files.writeString(json, "[{\"dato\":\"2023-05-01\",\"grunnbeløp\":118620},{\"dato\":\"2024-05-01\",\"grunnbeløp\":124028}]");
+        assertEquals(124028.0, GrunnbeløpTidslinje.lesFil(json).hentGrunnbeløp(LocalDate.of(2024, 5, 1)));
+
+        Path ugyldig = this.mappe.resolve("ugyldig.txt");
+        Files.writeString(ugyldig, "2024-05-01 124028\n");
+        assertThrows(IOException.class, () -> GrunnbeløpTidslinje.lesFil(ugyldig));
+    }
+
+    @Test
+    public void testHistorikkSomFølgerMed() {
+        GrunnbeløpTidslinje historisk = GrunnbeløpTidslinje.historisk();
+        assertEquals(124028.0, historisk.hentGrunnbeløp(LocalDate.of(2025, 1, 1)));
+        assertEquals(99858.0, historisk.hentGrunnbeløp(LocalDate.of(2019, 12, 31)));
+    }
+
+    @Test
+    public void testKalkulatorMedVedtaksdato() {
+        DagpengerKalkulator kalkulator = new DagpengerKalkulator(new GrunnbeløpVerktøy(124028));
+        kalkulator.leggTilÅrslønn(new Årslønn(2021, 700000));
+        kalkulator.leggTilÅrslønn(new Årslønn(2022, 700000));
+        kalkulator.leggTilÅrslønn(new Årslønn(2023, 1000000));
+
+        /* 6G i 2023 er 711720, som gir 2738 per dag. I 2024 er 6G 744168, som gir 2863. */
+        assertEquals(2738.0, kalkulator.kalkulerDagsats(TIDSLINJE, LocalDate.of(2023, 12, 1)));
+        assertEquals(2863.0, kalkulator.kalkulerDagsats(TIDSLINJE, LocalDate.of(2024, 6, 1)));
+        assertEquals(2863.0, kalkulator.kalkulerDagsats());
+    }
+
+    @Test
+    public void testBatchMedUlikeVedtaksdatoer() {
+        long[] personIder = {1, 1, 1, 2, 2, 2};
+        int[] år = {2021, 2022, 2023, 2021, 2022, 2023};
+        double[] årslønner = {700000, 700000, 1000000, 700000, 700000, 1000000};
+        long desember2023 = LocalDate.of(2023, 12, 1).toEpochDay();
+        long juni2024 = LocalDate.of(2024, 6, 1).toEpochDay();
+        long[] vedtaksdager = {desember2023, desember2023, desember2023, juni2024, juni2024, juni2024};
+
+        BatchResultat resultat = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, vedtaksdager, TIDSLINJE);
+        assertEquals(2738.0, resultat.hentDagsats(0));
+        assertEquals(2863.0, resultat.hentDagsats(1));
+    }
+}
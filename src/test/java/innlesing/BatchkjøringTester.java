@@ -0,0 +1,190 @@
+package innlesing;
+
+import no.nav.dagpenger.Resultat;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.innlesing.Batchkjøring;
+import no.nav.innlesing.ÅrslønnFilLeser;
+import no.nav.årslønn.SyntetiskBefolkning;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchkjøringTester {
+
+    private static final double GRUNNBELØP = 124028;
+    private static final GrunnbeløpVerktøy GRUNNBELØP_VERKTØY = new GrunnbeløpVerktøy(GRUNNBELØP);
+    private static final int ANTALL_PERSONER = 3000;
+
+    @TempDir
+    Path mappe;
+
+    @Test
+    public void testSammenslåtteDelerGirSammeResultatSomÉnLesing() throws IOException {
+        Path årslønner = skrivBefolkning();
+        List<String> forventet = lesIÉnOmgang(årslønner);
+        assertEquals(ANTALL_PERSONER + 1, forventet.size());
+
+        for (int antallDeler : new int[]{1, 2, 7, 64}) {
+            Batchkjøring kjøring = new Batchkjøring(årslønner, this.mappe.resolve("deler-" + antallDeler),
+                    antallDeler, GRUNNBELØP_VERKTØY, 100);
+            for (int del = antallDeler - 1; del >= 0; del--) {
+                kjøring.kjørDel(del);
+                assertTrue(kjøring.erFerdig(del));
+            }
+            Path resultatfil = this.mappe.resolve("resultater-" + antallDeler + ".csv");
+            assertEquals(ANTALL_PERSONER, kjøring.slåSammen(resultatfil));
+            assertEquals(forventet, Files.readAllLines(resultatfil, StandardCharsets.UTF_8), antallDeler + " deler");
+        }
+    }
+
+    @Test
+    public void testDelerKanKjøresSamtidig() throws Exception {
+        Path årslønner = skrivBefolkning();
+        int antallDeler = 5;
+        Batchkjøring kjøring = new Batchkjøring(årslønner, this.mappe.resolve("deler"), antallDeler, GRUNNBELØP_VERKTØY);
+        try (ExecutorService tråder = Executors.newFixedThreadPool(antallDeler)) {
+            List<Future<?>> deler = new ArrayList<>();
+            for (int del = 0; del < antallDeler; del++) {
+                int denne = del;
+                deler.add(tråder.submit(() -> {
+                    kjøring.kjørDel(denne);
+                    return null;
+                }));
+            }
+            for (Future<?> del : deler) {
+                del.get();
+            }
+        }
+        Path resultatfil = this.mappe.resolve("resultater.csv");
+        kjøring.slåSammen(resultatfil);
+        assertEquals(lesIÉnOmgang(årslønner), Files.readAllLines(resultatfil, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFortsetterFraSisteSjekkpunkt() throws IOException {
+        Path årslønner = skrivBefolkning();
+        Path deler = this.mappe.resolve("deler");
+        Batchkjøring kjøring = new Batchkjøring(årslønner, deler, 2, GRUNNBELØP_VERKTØY, 100);
+
+        assertFalse(kjøring.kjørDel(0, 250));
+        assertFalse(kjøring.erFerdig(0));
+        /* En prosess som stopper etter sjekkpunktet, har kanskje skrevet halve rader som ikke er med i det. */
+        Files.writeString(deler.resolve("del-0-av-2.csv"), "999999,12", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        assertFalse(kjøring.kjørDel(0, 500));
+
+        /* En ny kjøring med et nytt objekt, som en ny prosess, fortsetter der forrige slapp. */
+        Batchkjøring nyProsess = new Batchkjøring(årslønner, deler, 2, GRUNNBELØP_VERKTØY, 100);
+        nyProsess.kjørDel(0);
+        nyProsess.kjørDel(1);
+        assertTrue(nyProsess.kjørDel(1, 1));
+
+        Path resultatfil = this.mappe.resolve("resultater.csv");
+        assertEquals(ANTALL_PERSONER, nyProsess.slåSammen(resultatfil));
+        assertEquals(lesIÉnOmgang(årslønner), Files.readAllLines(resultatfil, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testØdelagtSjekkpunktKjørerDelenPåNytt() throws IOException {
+        Path årslønner = skrivBefolkning();
+        Path deler = this.mappe.resolve("deler");
+        Batchkjøring kjøring = new Batchkjøring(årslønner, deler, 2, GRUNNBELØP_VERKTØY, 100);
+        assertFalse(kjøring.kjørDel(0, 250));
+
+        /* Et sjekkpunkt som ble tomt eller halvskrevet i et krasj, gjør at delen starter forfra. */
+        Path sjekkpunkt = deler.resolve("del-0-av-2.sjekkpunkt");
+        for (String innhold : new String[]{"", "posisjon=12x\n", "fingeravtrykk=\nposisjon=-1\n"}) {
+            Files.writeString(sjekkpunkt, innhold, StandardCharsets.UTF_8);
+            assertFalse(kjøring.erFerdig(0));
+        }
+        kjøring.kjørDel(0);
+        assertTrue(kjøring.erFerdig(0));
+        kjøring.kjørDel(1);
+
+        Path resultatfil = this.mappe.resolve("resultater.csv");
+        assertEquals(ANTALL_PERSONER, kjøring.slåSammen(resultatfil));
+        assertEquals(lesIÉnOmgang(årslønner), Files.readAllLines(resultatfil, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSlåSammenFørAlleDeleneErFerdigeKasterUnntak() throws IOException {
+        Path årslønner = skrivBefolkning();
+        Batchkjøring kjøring = new Batchkjøring(årslønner, this.mappe.resolve("deler"), 3, GRUNNBELØP_VERKTØY);
+        kjøring.kjørDel(0);
+        kjøring.kjørDel(2);
+
+        Path resultatfil = this.mappe.resolve("resultater.csv");
+        assertThrows(IllegalStateException.class, () -> kjøring.slåSammen(resultatfil));
+        assertFalse(Files.exists(resultatfil));
+    }
+
+    @Test
+    public void testSjekkpunktMedAnnetGrunnbeløpKasterUnntak() throws IOException {
+        Path årslønner = skrivBefolkning();
+        Path deler = this.mappe.resolve("deler");
+        new Batchkjøring(årslønner, deler, 2, GRUNNBELØP_VERKTØY).kjørDel(0, 10);
+
+        Batchkjøring nyttGrunnbeløp = new Batchkjøring(årslønner, deler, 2, new GrunnbeløpVerktøy(130160));
+        assertThrows(IllegalStateException.class, () -> nyttGrunnbeløp.kjørDel(0));
+    }
+
+    @Test
+    public void testSjekkpunktForOmskrevetFilMedSammeLengdeKasterUnntak() throws IOException {
+        Path årslønner = skrivBefolkning();
+        Path deler = this.mappe.resolve("deler");
+        new Batchkjøring(årslønner, deler, 2, GRUNNBELØP_VERKTØY, 100).kjørDel(0, 250);
+
+        /* Samme lengde, men et annet siffer i første årslønn. */
+        byte[] innhold = Files.readAllBytes(årslønner);
+        String tekst = new String(innhold, StandardCharsets.ISO_8859_1);
+        int siffer = tekst.indexOf(',', tekst.indexOf(',', tekst.indexOf('\n')) + 1) + 1;
+        innhold[siffer] = (byte) (innhold[siffer] == '9' ? '8' : '9');
+        Files.write(årslønner, innhold);
+
+        Batchkjøring omskrevet = new Batchkjøring(årslønner, deler, 2, GRUNNBELØP_VERKTØY, 100);
+        assertThrows(IllegalStateException.class, () -> omskrevet.kjørDel(0));
+        assertThrows(IllegalStateException.class, () -> omskrevet.erFerdig(0));
+    }
+
+    @Test
+    public void testUgyldigeVerdierKasterUnntak() throws IOException {
+        Path årslønner = skrivBefolkning();
+        assertThrows(IllegalArgumentException.class, () -> new Batchkjøring(null, this.mappe, 2, GRUNNBELØP_VERKTØY));
+        assertThrows(IllegalArgumentException.class, () -> new Batchkjøring(årslønner, this.mappe, 0, GRUNNBELØP_VERKTØY));
+        assertThrows(IllegalArgumentException.class, () -> new Batchkjøring(årslønner, this.mappe, 2, GRUNNBELØP_VERKTØY, 0));
+
+        Batchkjøring kjøring = new Batchkjøring(årslønner, this.mappe, 2, GRUNNBELØP_VERKTØY);
+        assertThrows(IllegalArgumentException.class, () -> kjøring.kjørDel(2));
+        assertThrows(IllegalArgumentException.class, () -> kjøring.kjørDel(-1));
+        assertThrows(IllegalArgumentException.class, () -> kjøring.kjørDel(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> kjøring.slåSammen(null));
+    }
+
+    private Path skrivBefolkning() throws IOException {
+        Path fil = this.mappe.resolve("årslønner.csv");
+        new SyntetiskBefolkning(11, GRUNNBELØP).skrivFil(fil, 1, ANTALL_PERSONER);
+        return fil;
+    }
+
+    private static List<String> lesIÉnOmgang(Path fil) throws IOException {
+        List<String> linjer = new ArrayList<>();
+        linjer.add("personId,dagsats,spesialisering");
+        try (Stream<Resultat> resultater = ÅrslønnFilLeser.lesResultater(fil, GRUNNBELØP_VERKTØY)) {
+            resultater.forEach(resultat -> linjer.add(resultat.hentPersonId() + "," + (long) resultat.hentBeregnetDagsats()
+                    + "," + resultat.hentSpesialisering().name()));
+        }
+        return linjer;
+    }
+}
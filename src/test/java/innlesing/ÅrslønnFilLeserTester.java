@@ -0,0 +1,121 @@
+package innlesing;
+
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.innlesing.ÅrslønnFilLeser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ÅrslønnFilLeserTester {
+
+    private static final GrunnbeløpVerktøy GRUNNBELØP_VERKTØY = new GrunnbeløpVerktøy(124028);
+
+    @TempDir
+    Path mappe;
+
+    @Test
+    public void testLeserCsvMedOverskriftOgEttResultatPerPerson() throws IOException {
+        Path fil = skrivFil("personId,år,årslønn\n"
+                + "1,2024,550000\n"
+                + "1,2022,110000\n"
+                + "1,2023,24000\n"
+                + "\n"
+                + "2,2024,830000\r\n"
+                + "2,2023,24000\r\n"
+                + "2,2022,110000.50\r\n"
+                + "3;2024;80000\n"
+                + "3;2023;100000\n"
+                + "3;2022;70000");
+
+        List<Resultat> resultater = lesResultater(fil);
+
+        assertEquals(3, resultater.size());
+        assertResultat(resultater.get(0), 1, 2116, Spesialisering.INNVILGET);
+        assertResultat(resultater.get(1), 2, 2863, Spesialisering.INNVILGET_MED_MAKSSATS);
+        assertResultat(resultater.get(2), 3, 0, Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+    }
+
+    @Test
+    public void testLeserNdjson() throws IOException {
+        Path fil = skrivFil("{\"personId\": 7, \"år\": 2024, \"årslønn\": 330000}\n"
+                + "{\"år\": 2023, \"personId\": 7, \"årslønn\": \"334000\"}\n"
+                + "{\"personId\":7,\"årslønn\":400000,\"år\":2022,\"kilde\":\"a-ordningen\"}\n");
+
+        List<Resultat> resultater = lesResultater(fil);
+
+        assertEquals(1, resultater.size());
+        assertResultat(resultater.get(0), 7, 1365, Spesialisering.INNVILGET);
+    }
+
+    @Test
+    public void testLinjerOverVindusgrensenLesesRiktig() throws IOException {
+        StringBuilder innhold = new StringBuilder();
+        for (int person = 1; person <= 500; person++) {
+            innhold.append(person).append(",2024,").append(person * 1000).append('\n');
+            innhold.append(person).append(",2023,").append(person * 1000).append('\n');
+        }
+        Path fil = skrivFil(innhold.toString());
+
+        /* Et lite vindu gjør at mange linjer og personer går over grensen mellom to vinduer. */
+        List<Resultat> resultater;
+        try (Stream<Resultat> strøm = ÅrslønnFilLeser.lesResultater(fil, GRUNNBELØP_VERKTØY, 64)) {
+            resultater = strøm.collect(Collectors.toList());
+        }
+
+        assertEquals(500, resultater.size());
+        for (int person = 1; person <= 500; person++) {
+            Resultat resultat = resultater.get(person - 1);
+            assertEquals(person, resultat.hentPersonId());
+            double sisteÅrslønn = person * 1000;
+            boolean harRett = sisteÅrslønn * 2 >= GRUNNBELØP_VERKTØY.hentTotaltGrunnbeløpForGittAntallÅr(3);
+            assertEquals(harRett ? Math.ceil(sisteÅrslønn / 260) : 0, resultat.hentBeregnetDagsats());
+        }
+    }
+
+    @Test
+    public void testDesimalerRundesTilNærmesteØre() throws IOException {
+        /* Summen blir nøyaktig 1219 * 3 * 260 kr når årslønnene rundes til hele øre. */
+        Path fil = skrivFil("1,2024,253064.065\n"
+                + "1,2023,454367.78\n"
+                + "1,2022,243388.1500001\n");
+
+        List<Resultat> resultater = lesResultater(fil);
+
+        assertResultat(resultater.get(0), 1, 1219, Spesialisering.INNVILGET);
+    }
+
+    @Test
+    public void testUgyldigRadGirUnntak() throws IOException {
+        Path fil = skrivFil("1,2024,550000\n1,2023\n");
+        assertThrows(IllegalArgumentException.class, () -> lesResultater(fil));
+    }
+
+    private Path skrivFil(String innhold) throws IOException {
+        Path fil = this.mappe.resolve("årslønner.txt");
+        Files.write(fil, innhold.getBytes(StandardCharsets.UTF_8));
+        return fil;
+    }
+
+    private List<Resultat> lesResultater(Path fil) throws IOException {
+        try (Stream<Resultat> resultater = ÅrslønnFilLeser.lesResultater(fil, GRUNNBELØP_VERKTØY)) {
+            return resultater.collect(Collectors.toList());
+        }
+    }
+
+    private static void assertResultat(Resultat resultat, long personId, double dagsats, Spesialisering spesialisering) {
+        assertEquals(personId, resultat.hentPersonId());
+        assertEquals(dagsats, resultat.hentBeregnetDagsats());
+        assertEquals(spesialisering, resultat.hentSpesialisering());
+    }
+}
@@ -0,0 +1,101 @@
+package metrikk;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Saksbehandler;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Histogram;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetrikkerTester {
+
+    @Test
+    public void testMålingerErSlåttPåITestene() {
+        assertTrue(Metrikker.AKTIVERT);
+    }
+
+    @Test
+    public void testTellerFraMangeTråder() throws InterruptedException {
+        Teller teller = Metrikker.teller("test.teller");
+        long før = teller.getAntall();
+        List<Thread> tråder = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread tråd = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    teller.øk();
+                }
+            });
+            tråder.add(tråd);
+            tråd.start();
+        }
+        for (Thread tråd : tråder) {
+            tråd.join();
+        }
+        assertEquals(før + 800_000, teller.getAntall());
+        assertSame(teller, Metrikker.teller("test.teller"));
+    }
+
+    @Test
+    public void testHistogramPersentilerInnenforPresisjonen() {
+        Histogram histogram = Metrikker.histogram("test.histogram");
+        for (long verdi = 1; verdi <= 100_000; verdi++) {
+            histogram.registrer(verdi);
+        }
+        assertEquals(100_000, histogram.getAntall());
+        assertEquals(100_000, histogram.getMaks());
+        assertEquals(50_000.5, histogram.getGjennomsnitt(), 0.001);
+        /* Relativ feil under 2^-5. */
+        assertEquals(50_000, histogram.getP50(), 50_000 / 32.0);
+        assertEquals(99_000, histogram.getP99(), 99_000 / 32.0);
+        assertTrue(histogram.getP999() <= histogram.getMaks());
+    }
+
+    @Test
+    public void testSmåOgStoreVerdier() {
+        Histogram histogram = Metrikker.histogram("test.ytterpunkter");
+        histogram.registrer(0);
+        histogram.registrer(-5);
+        histogram.registrer(Long.MAX_VALUE / 2);
+        assertEquals(3, histogram.getAntall());
+        assertEquals(0, histogram.hentPersentil(0.5));
+        assertEquals(Long.MAX_VALUE / 2, histogram.hentPersentil(1.0));
+    }
+
+    @Test
+    public void testMålepunkterITjenesten() throws Exception {
+        DagpengerKalkulator kalkulator = new DagpengerKalkulator(new GrunnbeløpVerktøy(124028));
+        kalkulator.leggTilÅrslønn(new Årslønn(2023, 1000000));
+        kalkulator.leggTilÅrslønn(new Årslønn(2022, 500000));
+        kalkulator.leggTilÅrslønn(new Årslønn(2021, 450000));
+        Teller maks = Metrikker.teller("dagpenger.beregning.MAKS_ÅRLIG_DAGPENGERGRUNNLAG.INNVILGET_MED_MAKSSATS");
+        long før = maks.getAntall();
+        kalkulator.kalkulerDagsats();
+        assertEquals(før + 1, maks.getAntall());
+
+        Histogram ventetid = Metrikker.histogram("saksbehandling.ventetid");
+        long ventetidFør = ventetid.getAntall();
+        new Saksbehandler(Spesialisering.INNVILGET_MED_MAKSSATS).behandleResultat(kalkulator.kalkulerResultat());
+        assertEquals(ventetidFør + 1, ventetid.getAntall());
+        /* En kopi er ikke beregnet her, og har ingen ventetid å måle. */
+        new Saksbehandler(Spesialisering.INNVILGET).behandleResultat(new Resultat(2116, Spesialisering.INNVILGET));
+        assertEquals(ventetidFør + 1, ventetid.getAntall());
+
+        String dump = Metrikker.dump();
+        assertTrue(dump.contains("saksbehandling.ventetid antall="));
+        assertTrue(dump.contains("dagpenger.beregning.MAKS_ÅRLIG_DAGPENGERGRUNNLAG.INNVILGET_MED_MAKSSATS antall="));
+
+        ObjectName navn = new ObjectName("no.nav.dagpenger:type=Histogram,name=" + ObjectName.quote("saksbehandling.ventetid"));
+        assertEquals(ventetid.getAntall(), ManagementFactory.getPlatformMBeanServer().getAttribute(navn, "Antall"));
+    }
+}
@@ -0,0 +1,228 @@
+package tjeneste;
+
+import no.nav.dagpenger.Behandlingsstatus;
+import no.nav.dagpenger.Dagsatsberegning;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.dagpenger.Vedtaksjournal;
+import no.nav.grunnbeløp.Grunnbeløp;
+import no.nav.grunnbeløp.GrunnbeløpCache;
+import no.nav.grunnbeløp.GrunnbeløpTidslinje;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.tjeneste.KalkulatorTjeneste;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KalkulatorTjenesteTester {
+
+    private static GrunnbeløpCache cache;
+    private static KalkulatorTjeneste tjeneste;
+    private static final HttpClient KLIENT = HttpClient.newHttpClient();
+
+    @BeforeAll
+    public static void start() throws Exception {
+        cache = new GrunnbeløpCache(() -> new Grunnbeløp(124028, LocalDate.of(2024, 5, 1)), Duration.ofHours(12));
+        tjeneste = new KalkulatorTjeneste(new InetSocketAddress("localhost", 0), cache, GrunnbeløpTidslinje.historisk());
+    }
+
+    @AfterAll
+    public static void stopp() {
+        tjeneste.close();
+        cache.stopp();
+    }
+
+    private static HttpResponse<String> send(String metode, String sti, String innhold) throws Exception {
+        HttpRequest forespørsel = HttpRequest.newBuilder(URI.create("http://localhost:" + tjeneste.hentPort() + sti))
+                .method(metode, innhold == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(innhold))
+                .build();
+        return KLIENT.send(forespørsel, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testÉnPerson() throws Exception {
+        HttpResponse<String> svar = send("POST", "/dagsats",
+                "{\"personId\": 7, \"årslønner\": [{\"år\": 2023, \"årslønn\": 550000}, {\"år\": 2022, \"årslønn\": 500000}, {\"år\": 2021, \"årslønn\": 450000}]}");
+        assertEquals(200, svar.statusCode());
+        assertTrue(svar.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+        JSONObject resultat = new JSONObject(svar.body());
+        assertEquals(7, resultat.getLong("personId"));
+        assertEquals(2116, resultat.getLong("dagsats"));
+        assertEquals("INNVILGET", resultat.getString("spesialisering"));
+    }
+
+    @Test
+    public void testMangePersonerStrømmes() throws Exception {
+        StringBuilder forespørsel = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                forespørsel.append(',');
+            }
+            forespørsel.append("{\"personId\":").append(i).append(",\"årslønner\":[{\"år\":2023,\"årslønn\":")
+                    .append(i % 2 == 0 ? 1000000 : 100000).append("}]}");
+        }
+        HttpResponse<String> svar = send("POST", "/dagsats", forespørsel.append(']').toString());
+        assertEquals(200, svar.statusCode());
+        JSONArray resultater = new JSONArray(svar.body());
+        assertEquals(1000, resultater.length());
+        assertEquals(2863, resultater.getJSONObject(0).getLong("dagsats"));
+        assertEquals("INNVILGET_MED_MAKSSATS", resultater.getJSONObject(0).getString("spesialisering"));
+        assertEquals(0, resultater.getJSONObject(1).getLong("dagsats"));
+        assertEquals("AVSLAG_FOR_LAV_INNTEKT", resultater.getJSONObject(1).getString("spesialisering"));
+        assertEquals(999, resultater.getJSONObject(999).getLong("personId"));
+    }
+
+    @Test
+    public void testVedtaksdatoBrukerGrunnbeløpetSomGjaldt() throws Exception {
+        HttpResponse<String> svar = send("POST", "/dagsats",
+                "{\"vedtaksdato\": \"2023-12-01\", \"årslønner\": [{\"år\": 2023, \"årslønn\": 1000000}]}");
+        assertEquals(200, svar.statusCode());
+        assertEquals(2738, new JSONObject(svar.body()).getLong("dagsats"));
+    }
+
+    @Test
+    public void testUgyldigeForespørsler() throws Exception {
+        assertEquals(400, send("POST", "/dagsats", "{ikke json").statusCode());
+        assertEquals(400, send("POST", "/dagsats", "{\"årslønner\": []}").statusCode());
+        assertEquals(400, send("POST", "/dagsats", "[{\"årslønner\": [{\"år\": 2023, \"årslønn\": 1}]}, 5]").statusCode());
+        assertEquals(400, send("POST", "/dagsats",
+                "{\"vedtaksdato\": \"1900-01-01\", \"årslønner\": [{\"år\": 2023, \"årslønn\": 1}]}").statusCode());
+        HttpResponse<String> svar = send("POST", "/dagsats", "{\"årslønner\": [{\"år\": 2023}]}");
+        assertEquals(400, svar.statusCode());
+        assertTrue(new JSONObject(svar.body()).has("feil"));
+        assertEquals(405, send("GET", "/dagsats", null).statusCode());
+        assertEquals(400, send("POST", "/dagsats", "{\"årslønner\": [{\"år\": 2023, \"årslønn\": -550000}]}").statusCode());
+        assertEquals(400, send("POST", "/dagsats", "{\"årslønner\": [{\"år\": 2023.5, \"årslønn\": 550000}]}").statusCode());
+        assertEquals(400, send("POST", "/dagsats", "[{\"årslønner\": [{\"år\": 2023, \"årslønn\": 1}]},"
+                + "{\"årslønner\": [{\"år\": 1e12, \"årslønn\": 1}]}]").statusCode());
+    }
+
+    @Test
+    public void testHelseOgMetrikkerSvarerBarePåGet() throws Exception {
+        assertEquals("OK", send("GET", "/helse", null).body());
+        assertEquals(200, send("GET", "/metrikker", null).statusCode());
+        for (String sti : new String[]{"/helse", "/metrikker", "/statistikk"}) {
+            HttpResponse<String> svar = send("POST", sti, "{}");
+            assertEquals(405, svar.statusCode(), sti);
+            assertEquals("GET", svar.headers().firstValue("Allow").orElse(""), sti);
+            assertTrue(new JSONObject(svar.body()).has("feil"), sti);
+            assertEquals(405, send("DELETE", sti, null).statusCode(), sti);
+        }
+    }
+
+    @Test
+    public void testForStorForespørselGir413() throws Exception {
+        String person = "{\"årslønner\": [{\"år\": 2023, \"årslønn\": 550000}]}";
+        try (KalkulatorTjeneste liten = new KalkulatorTjeneste(new InetSocketAddress("localhost", 0), cache,
+                GrunnbeløpTidslinje.historisk(), person.getBytes(StandardCharsets.UTF_8).length)) {
+            URI adresse = URI.create("http://localhost:" + liten.hentPort() + "/dagsats");
+            HttpResponse<String> svar = KLIENT.send(HttpRequest.newBuilder(adresse)
+                    .POST(HttpRequest.BodyPublishers.ofString(person)).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, svar.statusCode());
+            assertEquals(2116, new JSONObject(svar.body()).getLong("dagsats"));
+
+            /* Med oppgitt lengde avvises forespørselen før innholdet leses. */
+            svar = KLIENT.send(HttpRequest.newBuilder(adresse)
+                    .POST(HttpRequest.BodyPublishers.ofString(person + " ")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, svar.statusCode());
+
+            /* Uten oppgitt lengde avvises den når grensen er passert under lesingen. */
+            byte[] stor = ("[" + person + "," + person + "]").getBytes(StandardCharsets.UTF_8);
+            svar = KLIENT.send(HttpRequest.newBuilder(adresse)
+                    .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new ByteArrayInputStream(stor))).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, svar.statusCode());
+            assertTrue(new JSONObject(svar.body()).getString("feil").contains("større enn"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new KalkulatorTjeneste(new InetSocketAddress("localhost", 0),
+                cache, GrunnbeløpTidslinje.historisk(), 0));
+    }
+
+    @Test
+    public void testUtilgjengeligGrunnbeløpGir503() throws Exception {
+        GrunnbeløpCache utenKilde = new GrunnbeløpCache(() -> {
+            throw new IOException("Ingen forbindelse.");
+        }, Duration.ofHours(12));
+        try (KalkulatorTjeneste utenGrunnbeløp = new KalkulatorTjeneste(new InetSocketAddress("localhost", 0), utenKilde,
+                GrunnbeløpTidslinje.historisk())) {
+            String adresse = "http://localhost:" + utenGrunnbeløp.hentPort() + "/dagsats";
+            for (String innhold : new String[]{"{\"årslønner\": [{\"år\": 2023, \"årslønn\": 550000}]}",
+                    "[{\"vedtaksdato\": \"2023-12-01\", \"årslønner\": [{\"år\": 2023, \"årslønn\": 1}]},"
+                            + "{\"årslønner\": [{\"år\": 2023, \"årslønn\": 1}]}]"}) {
+                HttpResponse<String> svar = KLIENT.send(HttpRequest.newBuilder(URI.create(adresse))
+                        .POST(HttpRequest.BodyPublishers.ofString(innhold)).build(), HttpResponse.BodyHandlers.ofString());
+                assertEquals(503, svar.statusCode());
+                assertTrue(new JSONObject(svar.body()).getString("feil").contains("Ingen forbindelse."));
+            }
+            /* Med vedtaksdato trengs ikke dagens grunnbeløp. */
+            HttpResponse<String> svar = KLIENT.send(HttpRequest.newBuilder(URI.create(adresse))
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"vedtaksdato\": \"2023-12-01\", \"årslønner\": [{\"år\": 2023, \"årslønn\": 1000000}]}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, svar.statusCode());
+            assertEquals(2738, new JSONObject(svar.body()).getLong("dagsats"));
+        } finally {
+            utenKilde.stopp();
+        }
+    }
+
+    @Test
+    public void testStatistikkTellerBeregningerOgIkkeOppslag(@TempDir Path mappe) throws Exception {
+        long innvilget = hentAntall(Spesialisering.INNVILGET);
+        long maks = hentAntall(Spesialisering.INNVILGET_MED_MAKSSATS);
+        long avslag = hentAntall(Spesialisering.AVSLAG_FOR_LAV_INNTEKT);
+
+        assertEquals(200, send("POST", "/dagsats", "{\"årslønner\": [{\"år\": 2023, \"årslønn\": 550000}]}").statusCode());
+        assertEquals(200, send("POST", "/dagsats", "[{\"årslønner\": [{\"år\": 2023, \"årslønn\": 1000000}]},"
+                + "{\"årslønner\": [{\"år\": 2023, \"årslønn\": 100000}]}]").statusCode());
+        assertEquals(400, send("POST", "/dagsats", "{\"årslønner\": []}").statusCode());
+        assertEquals(innvilget + 1, hentAntall(Spesialisering.INNVILGET));
+        assertEquals(maks + 1, hentAntall(Spesialisering.INNVILGET_MED_MAKSSATS));
+        assertEquals(avslag + 1, hentAntall(Spesialisering.AVSLAG_FOR_LAV_INNTEKT));
+
+        /* Et vedtak som leses fra journalen igjen, også etter en omstart, er ikke en ny beregning. */
+        try (Vedtaksjournal journal = Vedtaksjournal.åpne(mappe)) {
+            Resultat resultat = Resultat.fraBeregning(7, Dagsatsberegning.beregn(550000, 550000, new GrunnbeløpVerktøy(124028)));
+            assertTrue(resultat.behandle(true));
+            journal.journalfør(resultat);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Behandlingsstatus.GODKJENT, journal.hentResultat(7).hentStatus());
+            }
+        }
+        try (Vedtaksjournal journal = Vedtaksjournal.åpne(mappe)) {
+            assertEquals(Behandlingsstatus.GODKJENT, journal.hentResultat(7).hentStatus());
+        }
+        assertEquals(innvilget + 2, hentAntall(Spesialisering.INNVILGET));
+        assertTrue(send("GET", "/statistikk", null).body().contains("INNVILGET antall=" + (innvilget + 2) + " ubehandlet="));
+    }
+
+    /* Leser antall resultater i en spesialisering fra svaret på GET /statistikk. */
+    private static long hentAntall(Spesialisering spesialisering) throws Exception {
+        HttpResponse<String> svar = send("GET", "/statistikk", null);
+        assertEquals(200, svar.statusCode());
+        String start = spesialisering + " antall=";
+        for (String linje : svar.body().split("\n")) {
+            if (linje.startsWith(start)) {
+                return Long.parseLong(linje.substring(start.length(), linje.indexOf(' ', start.length())));
+            }
+        }
+        return fail("Mangler " + spesialisering + " i statistikken.");
+    }
+}
@@ -0,0 +1,107 @@
+package årslønn;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.årslønn.Månedsinntekt;
+import no.nav.årslønn.MånedsinntektRegister;
+import no.nav.årslønn.Månedsinntekter;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MånedsinntektRegisterTester {
+
+    @Test
+    public void testVinduerFørSøknadsmåneden() {
+        MånedsinntektRegister register = new MånedsinntektRegister();
+        for (YearMonth måned = YearMonth.of(2021, 1); måned.isBefore(YearMonth.of(2024, 1)); måned = måned.plusMonths(1)) {
+            register.leggTil(new Månedsinntekt(måned, 1000 * måned.getMonthValue()));
+        }
+        assertEquals(36, register.hentAntallMåneder());
+        assertEquals(YearMonth.of(2023, 12), register.hentSisteMåned());
+        assertEquals(78000.0, register.summerFør(YearMonth.of(2024, 1), 12));
+        assertEquals(3 * 78000.0, register.summerFør(YearMonth.of(2024, 1), 36));
+        /* Vinduet går tilbake fra juni 2023: juni 2022 til og med mai 2023. */
+        assertEquals(78000.0, register.summerFør(YearMonth.of(2023, 6), 12));
+        /* Måneder før første og etter siste rapport er uten inntekt. */
+        assertEquals(3 * 78000.0, register.summerFør(YearMonth.of(2024, 1), 120));
+        assertEquals(12000 * 100, register.summerFørØre(YearMonth.of(2025, 1), 12) + register.hentØre(YearMonth.of(2023, 12)));
+        assertEquals(0, register.summerFørØre(YearMonth.of(2021, 1), 12));
+    }
+
+    @Test
+    public void testKorreksjonerOgMånederIVilkårligRekkefølge() {
+        SplittableRandom tilfeldig = new SplittableRandom(3);
+        MånedsinntektRegister register = new MånedsinntektRegister();
+        /* Fasit: inntekt per måned fra januar 2000, med alle måneder summert på nytt hver gang. */
+        long[] fasit = new long[400];
+        YearMonth start = YearMonth.of(2000, 1);
+        for (int rapport = 0; rapport < 5000; rapport++) {
+            /* Mest nye måneder og ferske korreksjoner, men også gamle måneder og hull. */
+            int måned = rapport < 50 ? tilfeldig.nextInt(fasit.length) : Math.min(fasit.length - 1, rapport / 15 + tilfeldig.nextInt(6));
+            long øre = tilfeldig.nextInt(10) == 0 ? 0 : tilfeldig.nextLong(10_000_000);
+            register.leggTil(Månedsinntekt.fraØre(start.plusMonths(måned), øre));
+            fasit[måned] = øre;
+
+            int søknad = tilfeldig.nextInt(fasit.length + 24);
+            for (int antall : new int[] {1, 12, 36}) {
+                long forventet = 0;
+                for (int i = Math.max(0, søknad - antall); i < Math.min(søknad, fasit.length); i++) {
+                    forventet += fasit[i];
+                }
+                assertEquals(forventet, register.summerFørØre(start.plusMonths(søknad), antall));
+            }
+        }
+        for (int måned = 0; måned < fasit.length; måned++) {
+            assertEquals(fasit[måned], register.hentØre(start.plusMonths(måned)));
+        }
+    }
+
+    @Test
+    public void testKalkulatorGirSammeSomMedÅrslønner() {
+        GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(124028);
+        double[] årslønner = {0, 24000, 550000};
+        Månedsinntekter inntekter = new Månedsinntekter();
+        DagpengerKalkulator kalkulator = new DagpengerKalkulator(verktøy);
+        for (int år = 0; år < 3; år++) {
+            kalkulator.leggTilÅrslønn(new Årslønn(2021 + år, årslønner[år]));
+            for (int måned = 1; måned <= 12; måned++) {
+                inntekter.motta(7, new Månedsinntekt(YearMonth.of(2021 + år, måned), årslønner[år] / 12));
+            }
+        }
+        /* Desember 2023 ble først rapportert for lavt, og så korrigert. */
+        inntekter.motta(7, new Månedsinntekt(YearMonth.of(2023, 12), 0));
+        inntekter.motta(7, new Månedsinntekt(YearMonth.of(2023, 12), 550000.0 / 12));
+        assertEquals(1, inntekter.hentAntallPersoner());
+        assertNull(inntekter.hentRegister(8));
+
+        Resultat resultat = DagpengerKalkulator.kalkulerResultat(inntekter.hentRegister(7), YearMonth.of(2024, 1), verktøy);
+        assertEquals(kalkulator.kalkulerDagsats(), resultat.hentBeregnetDagsats());
+        assertEquals(2116.0, resultat.hentBeregnetDagsats());
+        assertEquals(Spesialisering.INNVILGET, resultat.hentSpesialisering());
+
+        /* Tre år etter siste inntekt er begge vinduene tomme. */
+        inntekter.motta(7, new Månedsinntekt(YearMonth.of(2024, 12), 0));
+        Resultat senere = DagpengerKalkulator.kalkulerResultat(inntekter.hentRegister(7), YearMonth.of(2027, 1), verktøy);
+        assertEquals(Spesialisering.AVSLAG_FOR_LAV_INNTEKT, senere.hentSpesialisering());
+    }
+
+    @Test
+    public void testUgyldigeVerdierAvvises() {
+        MånedsinntektRegister register = new MånedsinntektRegister();
+        assertThrows(IllegalArgumentException.class, () -> register.leggTil(null));
+        assertThrows(IllegalArgumentException.class, () -> new Månedsinntekt(null, 100));
+        assertThrows(IllegalArgumentException.class, () -> register.summerFørØre(YearMonth.of(2024, 1), 0));
+        assertThrows(IllegalArgumentException.class, () -> new Månedsinntekter().motta(1, null));
+        register.leggTil(new Månedsinntekt(YearMonth.of(2024, 1), 100));
+        assertThrows(IllegalArgumentException.class, () -> register.leggTil(new Månedsinntekt(YearMonth.of(1900, 1), 100)));
+        assertThrows(IllegalArgumentException.class, () -> DagpengerKalkulator.kalkulerResultat(register, null, new GrunnbeløpVerktøy(124028)));
+        assertNull(new MånedsinntektRegister().hentSisteMåned());
+    }
+}
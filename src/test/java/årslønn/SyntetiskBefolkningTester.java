@@ -0,0 +1,135 @@
+package årslønn;
+
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Resultat;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.innlesing.ÅrslønnFilLeser;
+import no.nav.årslønn.SyntetiskBefolkning;
+import no.nav.årslønn.Årslønn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyntetiskBefolkningTester {
+
+    private static final double GRUNNBELØP = 124028;
+
+    @TempDir
+    Path mappe;
+
+    @Test
+    public void testSammeFrøGirSammeBefolkning() {
+        SyntetiskBefolkning første = new SyntetiskBefolkning(42, GRUNNBELØP);
+        SyntetiskBefolkning andre = new SyntetiskBefolkning(42, GRUNNBELØP);
+        SyntetiskBefolkning annetFrø = new SyntetiskBefolkning(43, GRUNNBELØP);
+        String[] forlengs = new String[1001];
+        for (int personId = 1; personId <= 1000; personId++) {
+            forlengs[personId] = beskriv(første.generer(personId));
+        }
+        int ulike = 0;
+        /* Baklengs med en annen generator, så personene ikke avhenger av rekkefølgen. */
+        for (int personId = 1000; personId >= 1; personId--) {
+            assertEquals(forlengs[personId], beskriv(andre.generer(personId)));
+            if (!forlengs[personId].equals(beskriv(annetFrø.generer(personId)))) {
+                ulike++;
+            }
+        }
+        assertTrue(ulike > 990, "Bare " + ulike + " ulike personer med nytt frø.");
+    }
+
+    @Test
+    public void testBefolkningenBrukerAlleReglene() {
+        SyntetiskBefolkning befolkning = new SyntetiskBefolkning(7, GRUNNBELØP);
+        GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(GRUNNBELØP);
+        long g = 12402800;
+        int antall = 100_000;
+        int[] perSpesialisering = new int[Spesialisering.values().length];
+        int utenInntekt = 0;
+        int uordnet = 0;
+        int nærSisteÅrslønn = 0;
+        int nærTreÅr = 0;
+        for (long personId = 1; personId <= antall; personId++) {
+            Årslønn[] årslønner = befolkning.generer(personId);
+            assertTrue(årslønner.length >= 3 && årslønner.length <= 5);
+
+            DagpengerKalkulator kalkulator = new DagpengerKalkulator(verktøy);
+            boolean iRekkefølge = true;
+            for (int i = 0; i < årslønner.length; i++) {
+                kalkulator.leggTilÅrslønn(årslønner[i]);
+                iRekkefølge &= i == 0 || årslønner[i].hentÅretForLønn() > årslønner[i - 1].hentÅretForLønn();
+                if (årslønner[i].hentÅrslønnØre() == 0) {
+                    utenInntekt++;
+                }
+            }
+            assertEquals(SyntetiskBefolkning.SISTE_ÅR, kalkulator.hentÅrslønnVedIndeks(0).hentÅretForLønn());
+            if (!iRekkefølge) {
+                uordnet++;
+            }
+            long siste = kalkulator.hentÅrslønnVedIndeks(0).hentÅrslønnØre();
+            long sum = Math.round(kalkulator.summerNyligeÅrslønner(3) * 100);
+            if (Math.abs(siste - 3 * g / 2) < 3 * g / 2 * 3 / 100) {
+                nærSisteÅrslønn++;
+            }
+            if (siste < 3 * g / 2 && Math.abs(sum - 3 * g) <= 3 * g * 3 / 100) {
+                nærTreÅr++;
+            }
+            perSpesialisering[kalkulator.velgSpesialisering().ordinal()]++;
+        }
+
+        /* Andelene ligger rundt det klassen lover, med god margin. */
+        assertTrue(perSpesialisering[Spesialisering.AVSLAG_FOR_LAV_INNTEKT.ordinal()] > antall / 5);
+        assertTrue(perSpesialisering[Spesialisering.INNVILGET.ordinal()] > antall / 2);
+        assertTrue(perSpesialisering[Spesialisering.INNVILGET_MED_MAKSSATS.ordinal()] > antall / 20);
+        assertTrue(nærSisteÅrslønn > antall * 15 / 100, "Nær 1.5G: " + nærSisteÅrslønn);
+        assertTrue(nærTreÅr > antall * 15 / 100, "Nær 3G: " + nærTreÅr);
+        assertTrue(uordnet > antall / 5, "Uordnet: " + uordnet);
+        assertTrue(utenInntekt > antall / 20, "Uten inntekt: " + utenInntekt);
+    }
+
+    @Test
+    public void testFilenGirSammeResultatSomKalkulatoren() throws Exception {
+        SyntetiskBefolkning befolkning = new SyntetiskBefolkning(11, GRUNNBELØP);
+        GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(GRUNNBELØP);
+        Path fil = this.mappe.resolve("befolkning.csv");
+        long antallPoster = befolkning.skrivFil(fil, 501, 2000);
+        assertTrue(antallPoster >= 6000 && antallPoster <= 10000);
+
+        List<Resultat> resultater;
+        try (Stream<Resultat> strøm = ÅrslønnFilLeser.lesResultater(fil, verktøy)) {
+            resultater = strøm.collect(Collectors.toList());
+        }
+        assertEquals(2000, resultater.size());
+        for (Resultat resultat : resultater) {
+            DagpengerKalkulator kalkulator = new DagpengerKalkulator(verktøy);
+            for (Årslønn årslønn : befolkning.generer(resultat.hentPersonId())) {
+                kalkulator.leggTilÅrslønn(årslønn);
+            }
+            assertEquals(kalkulator.kalkulerDagsats(), resultat.hentBeregnetDagsats(), "Person " + resultat.hentPersonId());
+            assertEquals(kalkulator.velgSpesialisering(), resultat.hentSpesialisering());
+        }
+    }
+
+    @Test
+    public void testUgyldigeVerdierAvvises() {
+        assertThrows(IllegalArgumentException.class, () -> new SyntetiskBefolkning(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SyntetiskBefolkning(1, Double.NaN));
+        SyntetiskBefolkning befolkning = new SyntetiskBefolkning(1, GRUNNBELØP);
+        assertThrows(IllegalArgumentException.class, () -> befolkning.skrivFil(null, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> befolkning.skrivFil(this.mappe.resolve("x.csv"), 1, -1));
+    }
+
+    private static String beskriv(Årslønn[] årslønner) {
+        StringBuilder beskrivelse = new StringBuilder();
+        for (Årslønn årslønn : årslønner) {
+            beskrivelse.append(årslønn.hentÅretForLønn()).append('=').append(årslønn.hentÅrslønnØre()).append(' ');
+        }
+        return beskrivelse.toString();
+    }
+}
@@ -0,0 +1,201 @@
+package årslønn;
+
+import no.nav.dagpenger.BatchResultat;
+import no.nav.dagpenger.DagpengerKalkulator;
+import no.nav.dagpenger.Spesialisering;
+import no.nav.grunnbeløp.GrunnbeløpVerktøy;
+import no.nav.metrikk.Metrikker;
+import no.nav.metrikk.Teller;
+import no.nav.årslønn.Årslønn;
+import no.nav.årslønn.ÅrslønnLager;
+import no.nav.årslønn.ÅrslønnRegister;
+import no.nav.årslønn.ÅrslønnVindu;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ÅrslønnLagerTester {
+
+    @TempDir
+    Path mappe;
+
+    @Test
+    public void testVinduOgRegisterFraLageret() throws Exception {
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe)) {
+            lager.leggTil(7, new Årslønn(2021, 450000));
+            lager.leggTil(7, new Årslønn(2023, 500000));
+            lager.leggTil(7, new Årslønn(2020, 100000));
+            lager.leggTil(7, new Årslønn(2022, 400000));
+            /* Korreksjon av et år i vinduet, og av et år utenfor det. */
+            lager.leggTil(7, new Årslønn(2022, 420000));
+            lager.leggTil(7, new Årslønn(2020, 110000));
+            lager.leggTil(8, new Årslønn(2023, 300000));
+
+            ÅrslønnVindu vindu = new ÅrslønnVindu();
+            assertTrue(lager.hentVindu(7, vindu));
+            assertEquals(3, vindu.hentAntall());
+            assertEquals(50000000, vindu.hentSisteÅrslønnØre());
+            assertEquals(137000000, vindu.summerÅrslønnerØre());
+            assertFalse(lager.hentVindu(9, vindu));
+            assertEquals(0, vindu.hentAntall());
+
+            ÅrslønnRegister register = lager.hentRegister(7);
+            assertEquals(4, register.hentAntall());
+            assertEquals(420000.0, register.hentForÅr(2022).hentÅrslønn());
+            assertEquals(110000.0, register.hentForÅr(2020).hentÅrslønn());
+            assertNull(lager.hentRegister(9));
+
+            assertEquals(2, lager.hentAntallPersoner());
+            assertEquals(7, lager.hentAntallPoster());
+        }
+    }
+
+    @Test
+    public void testLageretOverleverOmstart() throws Exception {
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe)) {
+            for (long person = 1; person <= 5000; person++) {
+                for (int år = 2019; år <= 2023; år++) {
+                    lager.leggTilØre(person, år, person * 100 + år);
+                }
+            }
+        }
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe)) {
+            assertEquals(5000, lager.hentAntallPersoner());
+            assertEquals(25000, lager.hentAntallPoster());
+            ÅrslønnVindu vindu = new ÅrslønnVindu();
+            assertTrue(lager.hentVindu(4321, vindu));
+            assertEquals(432100 + 2023, vindu.hentSisteÅrslønnØre());
+            assertEquals(3 * 432100 + 2023 + 2022 + 2021, vindu.summerÅrslønnerØre());
+
+            /* Nye år etter omstart følger etter de gamle postene. */
+            lager.leggTilØre(4321, 2024, 1);
+            assertEquals(6, lager.hentRegister(4321).hentAntall());
+        }
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe)) {
+            assertEquals(25001, lager.hentAntallPoster());
+            assertEquals(2024, lager.hentRegister(4321).hentNyeste().hentÅretForLønn());
+        }
+    }
+
+    @Test
+    public void testSkittenIndeksBygges() throws Exception {
+        Teller gjenoppbygd = Metrikker.teller("årslønn.lager.indeks_gjenoppbygd");
+        long gjenoppbygdFør = gjenoppbygd.getAntall();
+        Path krasjmappe = this.mappe.resolve("krasjet");
+        ÅrslønnLager krasjet = ÅrslønnLager.åpne(krasjmappe);
+        for (long person = 1; person <= 10; person++) {
+            krasjet.leggTilØre(person, 2023, person * 1000);
+        }
+        krasjet.lagre();
+        /* Poster etter siste lagring, uten at lageret lukkes, som ved et krasj. Krasjet lager har fortsatt låsen,
+        så filene det etterlot kopieres til en ny mappe, slik de ville ligget på disk etter krasjet. */
+        krasjet.leggTilØre(11, 2023, 11000);
+        krasjet.leggTilØre(12, 2023, 12000);
+        Path lagermappe = this.mappe.resolve("lager");
+        Files.createDirectories(lagermappe);
+        Files.copy(krasjmappe.resolve("inntekter.poster"), lagermappe.resolve("inntekter.poster"));
+        Files.copy(krasjmappe.resolve("inntekter.indeks"), lagermappe.resolve("inntekter.indeks"));
+
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(lagermappe)) {
+            assertEquals(12, lager.hentAntallPersoner());
+            ÅrslønnVindu vindu = new ÅrslønnVindu();
+            assertTrue(lager.hentVindu(12, vindu));
+            assertEquals(12000, vindu.hentSisteÅrslønnØre());
+            lager.leggTilØre(12, 2023, 12500);
+        }
+
+        /* Ødelegger post nummer 11, så den og alt etter den forkastes. */
+        try (FileChannel kanal = FileChannel.open(lagermappe.resolve("inntekter.poster"), StandardOpenOption.WRITE);
+             FileChannel indeks = FileChannel.open(lagermappe.resolve("inntekter.indeks"), StandardOpenOption.WRITE)) {
+            kanal.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), 64 + 11 * 32 + 9);
+            indeks.write(ByteBuffer.allocate(8).putLong(0, -1), 24);
+        }
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(lagermappe)) {
+            assertEquals(11, lager.hentAntallPersoner());
+            assertEquals(11, lager.hentAntallPoster());
+            assertFalse(lager.hentVindu(12, new ÅrslønnVindu()));
+        }
+        assertEquals(gjenoppbygdFør + 2, gjenoppbygd.getAntall());
+    }
+
+    @Test
+    public void testLagerKanBareÅpnesAvÉnOmGangen() throws Exception {
+        ÅrslønnLager første = ÅrslønnLager.åpne(this.mappe);
+        første.leggTilØre(1, 2023, 100);
+        assertThrows(IOException.class, () -> ÅrslønnLager.åpne(this.mappe));
+        første.close();
+
+        /* Når låsen er sluppet, kan lageret åpnes igjen. */
+        try (ÅrslønnLager andre = ÅrslønnLager.åpne(this.mappe)) {
+            assertEquals(1, andre.hentAntallPersoner());
+        }
+    }
+
+    @Test
+    public void testOppslagMensDetLeggesTil() throws Exception {
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe)) {
+            lager.leggTilØre(1, 2023, 100);
+            AtomicBoolean ferdig = new AtomicBoolean();
+            AtomicReference<String> feil = new AtomicReference<>();
+            Thread leser = new Thread(() -> {
+                ÅrslønnVindu vindu = new ÅrslønnVindu();
+                while (!ferdig.get()) {
+                    if (!lager.hentVindu(1, vindu) || vindu.hentSisteÅrslønnØre() != 100) {
+                        feil.set("Fant ikke person 1 mens indeksen vokste.");
+                    }
+                }
+            });
+            leser.start();
+            /* Nok personer til at indeksen utvides flere ganger mens den leses. */
+            for (long person = 2; person <= 20000; person++) {
+                lager.leggTilØre(person, 2023, person);
+            }
+            ferdig.set(true);
+            leser.join();
+            assertNull(feil.get());
+        }
+    }
+
+    @Test
+    public void testKalkulatorRegnerRettFraLageret() throws Exception {
+        GrunnbeløpVerktøy verktøy = new GrunnbeløpVerktøy(124028);
+        long[] personIder = {1, 1, 1, 2, 3, 3, 3};
+        int[] år = {2023, 2022, 2021, 2023, 2023, 2022, 2021};
+        double[] årslønner = {1000000, 500000, 450000, 100000, 550000, 0, 0};
+        try (ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe)) {
+            for (int rad = 0; rad < personIder.length; rad++) {
+                lager.leggTil(personIder[rad], new Årslønn(år[rad], årslønner[rad]));
+            }
+            BatchResultat fraLager = DagpengerKalkulator.kalkulerDagsatser(new long[] {3, 1, 2}, lager, verktøy);
+            BatchResultat fraKolonner = DagpengerKalkulator.kalkulerDagsatser(personIder, år, årslønner, verktøy);
+
+            assertEquals(3, fraLager.hentPersonId(0));
+            assertEquals(2116.0, fraLager.hentDagsats(0));
+            assertEquals(fraKolonner.hentDagsats(0), fraLager.hentDagsats(1));
+            assertEquals(Spesialisering.INNVILGET_MED_MAKSSATS, fraLager.hentSpesialisering(1));
+            assertEquals(Spesialisering.AVSLAG_FOR_LAV_INNTEKT, fraLager.hentSpesialisering(2));
+
+            assertThrows(IllegalArgumentException.class, () -> DagpengerKalkulator.kalkulerDagsatser(new long[] {4}, lager, verktøy));
+        }
+    }
+
+    @Test
+    public void testUgyldigeVerdierAvvises() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> ÅrslønnLager.åpne(null));
+        ÅrslønnLager lager = ÅrslønnLager.åpne(this.mappe);
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTilØre(0, 2023, 100));
+        assertThrows(IllegalArgumentException.class, () -> lager.leggTil(1, null));
+        lager.close();
+        assertThrows(IllegalStateException.class, () -> lager.leggTilØre(1, 2023, 100));
+    }
+}
@@ -0,0 +1,70 @@
+package årslønn;
+
+import no.nav.årslønn.Årslønn;
+import no.nav.årslønn.ÅrslønnRegister;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ÅrslønnRegisterTester {
+
+    @Test
+    public void testRegisteretHolderNyesteÅrFørst() {
+        ÅrslønnRegister register = new ÅrslønnRegister();
+        register.leggTil(new Årslønn(2022, 445000));
+        register.leggTil(new Årslønn(2024, 465000));
+        register.leggTil(new Årslønn(2023, 300000));
+        assertEquals(2024, register.hentNyeste().hentÅretForLønn());
+        assertEquals(2023, register.hentVedIndeks(1).hentÅretForLønn());
+        assertEquals(2022, register.hentVedIndeks(2).hentÅretForLønn());
+    }
+
+    @Test
+    public void testLøpendeSumFølgerDeTreNyesteÅrene() {
+        ÅrslønnRegister register = new ÅrslønnRegister();
+        for (int år = 2000; år <= 2024; år++) {
+            register.leggTil(new Årslønn(år, år));
+        }
+        assertEquals(2024 + 2023 + 2022, register.summerNyligeÅr(3));
+
+        /* Eldre år påvirker ikke summen, nyere år gjør det. */
+        register.leggTil(new Årslønn(1999, 1_000_000));
+        assertEquals(2024 + 2023 + 2022, register.summerNyligeÅr(3));
+        register.leggTil(new Årslønn(2025, 2025));
+        assertEquals(2025 + 2024 + 2023, register.summerNyligeÅr(3));
+        assertEquals(2025 + 2024, register.summerNyligeÅr(2));
+        assertEquals(2025 + 2024 + 2023 + 2022 + 2021, register.summerNyligeÅr(5));
+    }
+
+    @Test
+    public void testSammeÅrErstatterTidligereÅrslønn() {
+        ÅrslønnRegister register = new ÅrslønnRegister();
+        register.leggTil(new Årslønn(2024, 100000));
+        register.leggTil(new Årslønn(2023, 200000));
+        Årslønn erstattet = register.leggTil(new Årslønn(2024, 550000));
+
+        assertEquals(100000, erstattet.hentÅrslønn());
+        assertEquals(2, register.hentAntall());
+        assertEquals(550000, register.hentNyeste().hentÅrslønn());
+        assertEquals(750000, register.summerNyligeÅr(3));
+    }
+
+    @Test
+    public void testFærreÅrEnnØnsketSummererAlle() {
+        ÅrslønnRegister register = new ÅrslønnRegister();
+        register.leggTil(new Årslønn(2024, 100000));
+        assertEquals(100000, register.summerNyligeÅr(3));
+        assertEquals(100000, register.summerNyligeÅr(10));
+        assertThrows(IllegalArgumentException.class, () -> register.summerNyligeÅr(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> register.hentVedIndeks(1));
+    }
+
+    @Test
+    public void testSummenErEksaktIØre() {
+        ÅrslønnRegister register = new ÅrslønnRegister();
+        register.leggTil(new Årslønn(2024, 0.1));
+        register.leggTil(new Årslønn(2023, 0.2));
+        assertEquals(30, register.summerNyligeÅrØre(3));
+        assertEquals(0.3, register.summerNyligeÅr(3));
+    }
+}